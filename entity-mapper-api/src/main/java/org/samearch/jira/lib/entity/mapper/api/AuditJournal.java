@@ -25,7 +25,10 @@ import java.util.List;
 public interface AuditJournal {
 
     /**
-     * Возвращает список последних событий аудита.
+     * Возвращает список последних событий аудита в порядке убывания даты и идентификатора события.<br>
+     * <br>
+     * Для получения следующей страницы журнала нужно повторить запрос с тем же фильтром и курсором
+     * ({@link AuditJournalCursor#of}) последнего полученного события.
      *
      * @param eventsFilter фильтр, применяемый для выборки информации о событиях
      * @return список событий журнала аудита, которые соответствуют указанному фильтру
@@ -38,8 +41,19 @@ public interface AuditJournal {
      * В передаваемой записи поле {@code id} ингнорируется.
      *
      * @param eventRecord заполненный объект записи журнала аудита. В этом объекте поле id заполнять не требуется
-     * @return созданный объект записи журнала аудита. В этом объекте заполнено поле id
+     * @return созданный объект записи журнала аудита. В этом объекте заполнено поле id, если запись журнала
+     *         выполняется синхронно
      */
     AuditEventRecord createAuditEventRecord(AuditEventRecord eventRecord);
 
+    /**
+     * Сохраняет в журнал записи о нескольких событиях одной пакетной операцией.<br>
+     * <br>
+     * В передаваемых записях поле {@code id} ингнорируется.
+     *
+     * @param eventRecords заполненные объекты записей журнала аудита
+     * @return созданные объекты записей журнала аудита в порядке переданных записей. Поле id в них не заполняется
+     */
+    List<AuditEventRecord> createAuditEventRecords(List<AuditEventRecord> eventRecords);
+
 }
@@ -0,0 +1,102 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.api;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Objects;
+
+/**
+ * Позиция в журнале аудита для постраничного получения событий.<br/>
+ * <br/>
+ * События журнала упорядочены по убыванию пары (дата, идентификатор); фильтр с курсором
+ * ({@link AuditJournalFilter#after()}) выбирает события, которые идут в этом порядке после события курсора, то есть
+ * более старые. Поэтому получение страницы не зависит от того, сколько страниц было получено до нее.
+ */
+public class AuditJournalCursor {
+
+    private static final String SEPARATOR = "_";
+
+    private final ZonedDateTime date;
+    private final long id;
+
+    public AuditJournalCursor(ZonedDateTime date, long id) {
+        this.date = Objects.requireNonNull(date);
+        this.id = id;
+    }
+
+    /**
+     * @return курсор, указывающий на переданное событие
+     */
+    public static AuditJournalCursor of(AuditEventRecord eventRecord) {
+        return new AuditJournalCursor(eventRecord.getDate(), eventRecord.getId());
+    }
+
+    /**
+     * Восстанавливает курсор из строкового представления, полученного {@link #asString()}.
+     *
+     * @throws IllegalArgumentException если строка не является представлением курсора
+     */
+    public static AuditJournalCursor parse(String cursorRepresentation) {
+        String[] cursorParts = cursorRepresentation.split(SEPARATOR, -1);
+        if (cursorParts.length != 2) {
+            throw new IllegalArgumentException(String.format("Bad audit journal cursor: %s", cursorRepresentation));
+        }
+        try {
+            Instant date = Instant.ofEpochMilli(Long.parseLong(cursorParts[0]));
+            return new AuditJournalCursor(ZonedDateTime.ofInstant(date, ZoneId.systemDefault()), Long.parseLong(cursorParts[1]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Bad audit journal cursor: %s", cursorRepresentation), e);
+        }
+    }
+
+    public ZonedDateTime date() {
+        return date;
+    }
+
+    public long id() {
+        return id;
+    }
+
+    /**
+     * @return строковое представление курсора для передачи в параметрах запроса
+     */
+    public String asString() {
+        return date.toInstant().toEpochMilli() + SEPARATOR + id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AuditJournalCursor)) return false;
+
+        AuditJournalCursor that = (AuditJournalCursor) o;
+
+        if (id != that.id) return false;
+        return date.toInstant().equals(that.date.toInstant());
+    }
+
+    @Override
+    public int hashCode() {
+        int result = date.toInstant().hashCode();
+        result = 31 * result + Long.hashCode(id);
+        return result;
+    }
+
+}
@@ -29,4 +29,11 @@ public interface AuditJournalFilter {
     Set<String> byInitiator();
     DateRange inDateRange();
     EntityMappingEvent mappingEvent();
+
+    /**
+     * @return курсор, после которого выбираются события, или {@code null}, если выбираются самые новые события
+     */
+    default AuditJournalCursor after() {
+        return null;
+    }
 }
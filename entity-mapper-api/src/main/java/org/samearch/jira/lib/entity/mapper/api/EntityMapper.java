@@ -20,12 +20,19 @@ package org.samearch.jira.lib.entity.mapper.api;
 import org.samearch.jira.lib.entity.mapper.api.exception.ClosedChainEntityMappingException;
 import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingConflictException;
 import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingNotFoundException;
+import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingVersionMismatchException;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
 /**
- * Предоставляет функционал для сопоставления различных сущностей/идентификаторов по ключам.
+ * Предоставляет функционал для сопоставления различных сущностей/идентификаторов по ключам.<br/>
+ * <br/>
+ * Маппинги читаются из снимка в памяти узла. Изменения, выполненные через этот узел, видны сразу; изменения,
+ * выполненные на другом узле кластера, становятся видны после периодической сверки снимка с базой данных (не позднее
+ * чем через 30 секунд).
  */
 public interface EntityMapper {
 
@@ -38,6 +45,9 @@ public interface EntityMapper {
      * @return объект-представление записанного маппинга
      *
      * @throws EntityMappingConflictException в случае, когда для указанного ключа уже задано какое-либо значение
+     * @throws ClosedChainEntityMappingException (подкласс {@link EntityMappingConflictException}) если значение
+     *                                           является ссылкой, и запись маппинга замкнет цепочку ссылок между
+     *                                           маппингами
      */
     EntityMapping addMapping(String userId, String key, String value) throws EntityMappingConflictException;
 
@@ -61,10 +71,35 @@ public interface EntityMapper {
      * @throws EntityMappingNotFoundException если маппинг с указанным идентификатором не найден
      * @throws EntityMappingConflictException если ключ ключ маппинга был обновлен, и новое значение ключ уже
      *                                        используется в другом маппинге
+     * @throws ClosedChainEntityMappingException (подкласс {@link EntityMappingConflictException}) если после
+     *                                           обновления маппинга цепочка ссылок между маппингами станет замкнутой
      */
     EntityMapping updateMapping(String userId, int mappingId, String key, String newMappingValue)
             throws EntityMappingNotFoundException, EntityMappingConflictException;
 
+    /**
+     * Обновляет параметры маппинга с указанным id, если его текущая версия ({@link EntityMapping#getVersion()})
+     * совпадает с ожидаемой (compare-and-set).<br/>
+     * <br/>
+     * Позволяет обнаружить одновременное изменение записи: если запись была изменена после того, как ее прочитал
+     * вызывающий, то обновление не выполняется.
+     *
+     * @param userId идентификатор пользователя, который обновляет маппинг
+     * @param mappingId идентификатор маппинга, параметры которого нужно обновить
+     * @param expectedVersion версия записи, на основании которой выполняется обновление
+     * @param key новый ключ маппинга
+     * @param newMappingValue новое значение для ключа маппинга
+     * @return обновленное состояние маппинга
+     *
+     * @throws EntityMappingNotFoundException если маппинг с указанным идентификатором не найден
+     * @throws EntityMappingVersionMismatchException если текущая версия маппинга отличается от ожидаемой
+     * @throws EntityMappingConflictException если новый ключ маппинга уже используется в другом маппинге
+     * @throws ClosedChainEntityMappingException (подкласс {@link EntityMappingConflictException}) если после
+     *                                           обновления маппинга цепочка ссылок между маппингами станет замкнутой
+     */
+    EntityMapping updateMapping(String userId, int mappingId, long expectedVersion, String key, String newMappingValue)
+            throws EntityMappingNotFoundException, EntityMappingConflictException;
+
     /**
      * Возвращает список всех существующих маппингов.
      *
@@ -80,6 +115,14 @@ public interface EntityMapper {
      */
     Set<EntityMapping> getMappedValuesLike(String keyFilter);
 
+    /**
+     * Возвращает количество существующих маппингов, ключи которых начинаются на указанный фильтр.
+     *
+     * @param keyFilter строка, с которой должен начинаться ключ маппинга
+     * @return количество маппингов, ключи которых начинаются с указанной строки
+     */
+    int getMappingsCountLike(String keyFilter);
+
     /**
      * Возвращает маппинг по идентификатору.
      *
@@ -105,10 +148,23 @@ public interface EntityMapper {
      * @return если маппинга с указанным ключем не существует, то будет возвращен {@link Optional#empty()};
      *         если маппинг существует, то его значение будет обернуто в {@link Optional}
      *
-     * @throws ClosedChainEntityMappingException генерируется в случае обнаружения циклических ссылок между маппингами
+     * @throws ClosedChainEntityMappingException не генерируется: записи, замыкающие цепочку ссылок, отклоняются при
+     *                                           добавлении и обновлении маппингов. Объявление сохранено для
+     *                                           совместимости с существующими потребителями API
      */
     Optional<String> getMappedValue(String key) throws ClosedChainEntityMappingException;
 
+    /**
+     * Возвращает значения маппингов для нескольких ключей.<br/>
+     * <br/>
+     * Все значения читаются из одного согласованного состояния маппингов: изменения, выполняемые параллельно с вызовом,
+     * либо видны для всех запрошенных ключей, либо не видны ни для одного из них.
+     *
+     * @param keys ключи запрашиваемых маппингов
+     * @return значения маппингов по ключам; ключи, для которых маппинга не существует, в результат не попадают
+     */
+    Map<String, String> getMappedValuesForKeys(Collection<String> keys);
+
     /**
      * Возвращает значение маппинга по ключу.
      *
@@ -117,7 +173,9 @@ public interface EntityMapper {
      * @param <X> класс исключения, которое будет сгенерировано в случае отсутствия маппинга с указанным ключем
      * @return значение маппинга с указанным ключем
      *
-     * @throws ClosedChainEntityMappingException генерируется в случае обнаружения циклических ссылок между маппингами
+     * @throws ClosedChainEntityMappingException не генерируется: записи, замыкающие цепочку ссылок, отклоняются при
+     *                                           добавлении и обновлении маппингов. Объявление сохранено для
+     *                                           совместимости с существующими потребителями API
      * @throws X в случае, если маппинг с указанным ключем не существует
      */
     <X extends Throwable> String getMappedValueOrElseThrow(String key, X exception) throws X, ClosedChainEntityMappingException;
@@ -131,4 +189,55 @@ public interface EntityMapper {
      */
     boolean isMappingPresent(String key);
 
+    /**
+     * Возвращает номер версии набора маппингов.<br/>
+     * <br/>
+     * Номер увеличивается при каждом добавлении, изменении и удалении маппинга. Потребители могут хранить собственные
+     * кеши, построенные на основании маппингов, вместе с номером версии и проверять их актуальность сравнением номеров.
+     *
+     * @return номер текущей версии набора маппингов
+     */
+    long getMappingsVersion();
+
+    /**
+     * Возвращает номер версии маппингов, ключи которых начинаются с указанного префикса.<br/>
+     * <br/>
+     * Номер изменяется при каждом изменении маппингов с таким префиксом ключа, а также при изменении конечных значений
+     * таких маппингов из-за изменения маппингов, на которые они ссылаются. Номер может измениться и без изменения
+     * маппингов с указанным префиксом, но не может остаться прежним, если они изменились.
+     *
+     * @param keyPrefix префикс ключей маппинга
+     * @return номер текущей версии маппингов с указанным префиксом ключа
+     */
+    long getMappingsVersion(String keyPrefix);
+
+    /**
+     * Регистрирует слушатель изменений маппинга с указанным ключем.<br/>
+     * <br/>
+     * Слушатель уведомляется при изменении записи маппинга или ее конечного значения (в том числе через ссылки на
+     * другие маппинги). Слушатели, зарегистрированные другими плагинами, должны удаляться при отключении этих плагинов
+     * вызовом {@link #removeChangeListener(EntityMappingChangeListener)}.
+     *
+     * @param key ключ маппинга
+     * @param listener регистрируемый слушатель
+     */
+    void addKeyChangeListener(String key, EntityMappingChangeListener listener);
+
+    /**
+     * Регистрирует слушатель изменений маппингов, ключи которых начинаются с указанного префикса.
+     *
+     * @param keyPrefix префикс ключей маппинга
+     * @param listener регистрируемый слушатель
+     *
+     * @see #addKeyChangeListener(String, EntityMappingChangeListener)
+     */
+    void addPrefixChangeListener(String keyPrefix, EntityMappingChangeListener listener);
+
+    /**
+     * Удаляет все регистрации указанного слушателя изменений.
+     *
+     * @param listener удаляемый слушатель
+     */
+    void removeChangeListener(EntityMappingChangeListener listener);
+
 }
@@ -28,6 +28,8 @@ public class EntityMapping {
     private int id;
     private String key;
     private String value;
+    /** Номер версии записи. Увеличивается при каждом обновлении записи. */
+    private long version;
 
     public int getId() {
         return id;
@@ -53,6 +55,14 @@ public class EntityMapping {
         this.value = value;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -77,6 +87,7 @@ public class EntityMapping {
                 "id=" + id +
                 ", key='" + key + '\'' +
                 ", value='" + value + '\'' +
+                ", version=" + version +
                 '}';
     }
 
@@ -0,0 +1,36 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+package org.samearch.jira.lib.entity.mapper.api;
+
+/**
+ * Слушатель изменений маппингов.<br/>
+ * <br/>
+ * Регистрируется через {@link EntityMapper#addKeyChangeListener(String, EntityMappingChangeListener)} или
+ * {@link EntityMapper#addPrefixChangeListener(String, EntityMappingChangeListener)}. Уведомления доставляются
+ * асинхронно, из отдельного потока, после того как изменения сохранены и стали видны при чтении маппингов.
+ */
+@FunctionalInterface
+public interface EntityMappingChangeListener {
+
+    /**
+     * Вызывается после изменения маппингов, на которые подписан слушатель.
+     *
+     * @param changeEvent описание изменения
+     */
+    void onMappingsChanged(EntityMappingsChangeEvent changeEvent);
+
+}
@@ -0,0 +1,64 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+package org.samearch.jira.lib.entity.mapper.api;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Описывает изменение маппингов, о котором уведомляются слушатели {@link EntityMappingChangeListener}.<br/>
+ * <br/>
+ * Одно событие может объединять несколько изменений, выполненных за короткий промежуток времени.
+ */
+public class EntityMappingsChangeEvent {
+
+    private final Set<String> changedKeys;
+    private final boolean allMappingsChanged;
+    private final long mappingsVersion;
+
+    public EntityMappingsChangeEvent(Set<String> changedKeys, boolean allMappingsChanged, long mappingsVersion) {
+        this.changedKeys = Collections.unmodifiableSet(changedKeys);
+        this.allMappingsChanged = allMappingsChanged;
+        this.mappingsVersion = mappingsVersion;
+    }
+
+    /**
+     * Возвращает ключи, записи или конечные значения которых изменились. Набор содержит только ключи, на изменения
+     * которых подписан слушатель.
+     */
+    public Set<String> getChangedKeys() {
+        return changedKeys;
+    }
+
+    /**
+     * Возвращает {@code true}, если изменений было так много, что набор измененных ключей не сохранялся. В этом случае
+     * {@link #getChangedKeys()} возвращает пустой набор, и слушатель должен считать измененными все ключи, на которые он
+     * подписан.
+     */
+    public boolean isAllMappingsChanged() {
+        return allMappingsChanged;
+    }
+
+    /**
+     * Возвращает номер версии набора маппингов ({@link EntityMapper#getMappingsVersion()}), включающей все изменения
+     * события.
+     */
+    public long getMappingsVersion() {
+        return mappingsVersion;
+    }
+
+}
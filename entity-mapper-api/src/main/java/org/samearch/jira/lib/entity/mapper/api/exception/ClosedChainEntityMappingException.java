@@ -20,9 +20,12 @@ package org.samearch.jira.lib.entity.mapper.api.exception;
 import java.util.TreeSet;
 
 /**
- * Генерируется в том случае, когда в конфигурации существуют циклические ссылки.
+ * Генерируется в том случае, когда в конфигурации существуют циклические ссылки.<br/>
+ * <br/>
+ * При добавлении и обновлении маппингов запись, замыкающая цепочку ссылок, конфликтует с существующими записями,
+ * поэтому исключение является частным случаем {@link EntityMappingConflictException}.
  */
-public class ClosedChainEntityMappingException extends EntityMappingException {
+public class ClosedChainEntityMappingException extends EntityMappingConflictException {
 
     public ClosedChainEntityMappingException(TreeSet<String> keyChain) {
 
@@ -23,4 +23,7 @@ public class EntityMappingConflictException extends EntityMappingException {
         errorMessage = String.format("Mapping with key %s already exists", existingMappingKey);
     }
 
+    protected EntityMappingConflictException() {
+    }
+
 }
@@ -0,0 +1,119 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+package org.samearch.jira.lib.entity.mapper.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.samearch.jira.lib.entity.mapper.api.exception.ClosedChainEntityMappingException;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.EntityMappingManager;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingLinksResolver;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsChangeDispatcher;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость получения значения маппинга по ключу.<br/>
+ * <br/>
+ * {@code resolverOverStorage} измеряет разрешение ссылок запросами к хранилищу (каждое звено цепочки - отдельный поиск
+ * по ключу) и служит базовой линией для чтений из снимка маппингов ({@link EntityMappingManager}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class MappingLookupBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int mappingsCount;
+
+    @Param({"0", "1", "4"})
+    public int linkChainDepth;
+
+    @Param({"1.0", "0.5", "0.0"})
+    public double hitRatio;
+
+    private MappingsDataset dataset;
+    private MappingLinksResolver linksResolver;
+    private MappingsChangeDispatcher changeDispatcher;
+    private EntityMappingManager mappingManager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataset = new MappingsDataset(mappingsCount, linkChainDepth, hitRatio);
+        linksResolver = new MappingLinksResolver(dataset.getStorage());
+        changeDispatcher = new MappingsChangeDispatcher();
+        mappingManager = new EntityMappingManager(dataset.getStorage(), linksResolver, changeDispatcher);
+        // первое обращение загружает снимок маппингов из хранилища
+        mappingManager.getSnapshot();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        changeDispatcher.destroy();
+    }
+
+    /**
+     * Порядковый номер запроса в потоке: каждый поток перебирает запрашиваемые ключи независимо от других.
+     */
+    @State(Scope.Thread)
+    public static class RequestCounter {
+
+        private int requestNumber;
+
+        int next() {
+            return requestNumber++;
+        }
+
+    }
+
+    @Benchmark
+    public Optional<String> getMappedValue(RequestCounter counter) {
+        return mappingManager.getMappedValue(dataset.lookupKey(counter.next()));
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Optional<String> getMappedValueConcurrent(RequestCounter counter) {
+        return mappingManager.getMappedValue(dataset.lookupKey(counter.next()));
+    }
+
+    @Benchmark
+    public boolean isMappingPresent(RequestCounter counter) {
+        return mappingManager.isMappingPresent(dataset.lookupKey(counter.next()));
+    }
+
+    @Benchmark
+    public String resolverOverStorage(RequestCounter counter) throws ClosedChainEntityMappingException {
+        return linksResolver.resolveTargetMappingKey(dataset.lookupKey(counter.next()));
+    }
+
+}
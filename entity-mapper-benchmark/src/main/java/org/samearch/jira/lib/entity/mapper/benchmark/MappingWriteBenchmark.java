@@ -0,0 +1,86 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+package org.samearch.jira.lib.entity.mapper.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.samearch.jira.lib.entity.mapper.api.EntityMapping;
+import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingException;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.EntityMappingManager;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingLinksResolver;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsChangeDispatcher;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость изменения маппинга: запись в хранилище, проверка цепочки ссылок и публикация новой версии снимка.<br/>
+ * <br/>
+ * Изменяется конечный маппинг одной из цепочек, поэтому пересчитываются конечные значения всех ключей цепочки.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class MappingWriteBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int mappingsCount;
+
+    @Param({"0", "4"})
+    public int linkChainDepth;
+
+    private MappingsDataset dataset;
+    private MappingsChangeDispatcher changeDispatcher;
+    private EntityMappingManager mappingManager;
+    private int updateNumber;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataset = new MappingsDataset(mappingsCount, linkChainDepth, 1.0);
+        changeDispatcher = new MappingsChangeDispatcher();
+        mappingManager = new EntityMappingManager(
+                dataset.getStorage(), new MappingLinksResolver(dataset.getStorage()), changeDispatcher);
+        mappingManager.getSnapshot();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        changeDispatcher.destroy();
+    }
+
+    @Benchmark
+    public EntityMapping updateChainTarget() throws EntityMappingException {
+        int chain = updateNumber++ % dataset.getChainsCount();
+        String targetKey = MappingsDataset.chainKey(chain, linkChainDepth);
+        EntityMapping targetMapping = mappingManager.getMapping(targetKey).orElseThrow(IllegalStateException::new);
+        return mappingManager.updateMapping(targetMapping.getId(), targetKey, "user" + updateNumber);
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+package org.samearch.jira.lib.entity.mapper.benchmark;
+
+import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingConflictException;
+import org.samearch.jira.lib.entity.mapper.impl.InMemoryEntityMappingStorage;
+
+import java.util.Random;
+
+/**
+ * Набор маппингов для бенчмарков.<br/>
+ * <br/>
+ * Маппинги образуют цепочки ссылок одинаковой длины: последний маппинг цепочки содержит конкретное значение, каждый
+ * предыдущий ссылается на следующий. Запрашиваемые ключи - первые ключи цепочек ({@code project.P<N>.duty}).
+ */
+final class MappingsDataset {
+
+    private static final int LOOKUP_KEYS_COUNT = 1 << 14;
+
+    private final InMemoryEntityMappingStorage storage = new InMemoryEntityMappingStorage();
+    private final int chainsCount;
+    private final String[] lookupKeys = new String[LOOKUP_KEYS_COUNT];
+
+    /**
+     * @param mappingsCount общее количество маппингов
+     * @param linkChainDepth количество ссылок в цепочке до маппинга с конкретным значением
+     * @param hitRatio доля запрашиваемых ключей, для которых маппинг существует
+     */
+    MappingsDataset(int mappingsCount, int linkChainDepth, double hitRatio) {
+
+        chainsCount = Math.max(1, mappingsCount / (linkChainDepth + 1));
+
+        try {
+            for (int chain = 0; chain < chainsCount; chain++) {
+                storage.createEntityMapping(chainKey(chain, linkChainDepth), "user" + chain);
+                for (int link = linkChainDepth - 1; link >= 0; link--) {
+                    storage.createEntityMapping(chainKey(chain, link), "${" + chainKey(chain, link + 1) + "}");
+                }
+            }
+        } catch (EntityMappingConflictException e) {
+            throw new IllegalStateException("Generated dataset contains duplicate keys", e);
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < LOOKUP_KEYS_COUNT; i++) {
+            int chain = random.nextInt(chainsCount);
+            lookupKeys[i] = (random.nextDouble() < hitRatio)
+                    ? chainKey(chain, 0)
+                    : String.format("project.X%d.duty", chain);
+        }
+
+    }
+
+    InMemoryEntityMappingStorage getStorage() {
+        return storage;
+    }
+
+    int getChainsCount() {
+        return chainsCount;
+    }
+
+    /**
+     * Возвращает запрашиваемый ключ по порядковому номеру запроса.
+     */
+    String lookupKey(int requestNumber) {
+        return lookupKeys[requestNumber & (LOOKUP_KEYS_COUNT - 1)];
+    }
+
+    static String chainKey(int chain, int link) {
+        return (link == 0)
+                ? String.format("project.P%d.duty", chain)
+                : String.format("link.%d.P%d", link, chain);
+    }
+
+}
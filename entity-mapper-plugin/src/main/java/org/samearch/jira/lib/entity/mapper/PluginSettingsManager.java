@@ -11,14 +11,24 @@ import javax.xml.bind.annotation.XmlElement;
 import java.lang.reflect.Field;
 import java.util.Arrays;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Component
 public class PluginSettingsManager {
 
+    private static final String ASYNC_AUDIT_WRITE_SETTING = "asyncAuditWrite";
+    /**
+     * Время, в течение которого используется прочитанное значение флага асинхронной записи аудита. Ограничивает
+     * задержку, с которой узел видит изменение настройки, выполненное на другом узле кластера.
+     */
+    private static final long ASYNC_AUDIT_WRITE_FLAG_TTL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
     private final PluginSettings pluginSettings;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    private volatile CachedFlag asyncAuditWriteFlag;
+
     public PluginSettingsManager(@ComponentImport PluginSettingsFactory pluginSettingsFactory) {
         this.pluginSettings = pluginSettingsFactory.createSettingsForKey("entity-mapper.settings");
     }
@@ -56,6 +66,26 @@ public class PluginSettingsManager {
         return elementFieldAnnotation.name();
     }
 
+    /**
+     * Проверяется при каждой записи в журнал аудита, поэтому значение читается только из своей настройки и
+     * кешируется: изменение настройки через {@link #updatePluginSettings} применяется сразу, изменение на другом узле
+     * кластера - в течение {@link #ASYNC_AUDIT_WRITE_FLAG_TTL_MILLIS} мс.
+     *
+     * @return {@code true}, если включена асинхронная запись журнала аудита
+     */
+    public boolean isAsyncAuditWriteEnabled() {
+        CachedFlag flag = asyncAuditWriteFlag;
+        long now = System.currentTimeMillis();
+        if (flag == null || flag.expiresAt <= now) {
+            Object savedValue = pluginSettings.get(ASYNC_AUDIT_WRITE_SETTING);
+            flag = new CachedFlag(
+                    savedValue != null && Boolean.parseBoolean(savedValue.toString().trim()),
+                    now + ASYNC_AUDIT_WRITE_FLAG_TTL_MILLIS);
+            asyncAuditWriteFlag = flag;
+        }
+        return flag.value;
+    }
+
     public void updatePluginSettings(MappingSettingsDto settingsDto) {
         getPluginSettingKeys().forEach(pluginSettingKey -> {
             try {
@@ -63,10 +93,14 @@ public class PluginSettingsManager {
                 pluginSetting.setAccessible(true);
                 Object currentSettingValue = pluginSetting.get(settingsDto);
                 pluginSetting.setAccessible(false);
+                if (currentSettingValue == null) {
+                    return;
+                }
                 String settingValueRepresentation = objectMapper.writeValueAsString(currentSettingValue);
                 pluginSettings.put(pluginSettingKey, settingValueRepresentation);
             } catch (Exception ignore) {}
         });
+        asyncAuditWriteFlag = null;
     }
 
     private Set<String> getPluginSettingKeys() {
@@ -75,4 +109,16 @@ public class PluginSettingsManager {
                 .collect(Collectors.toSet());
     }
 
+    private static final class CachedFlag {
+
+        private final boolean value;
+        private final long expiresAt;
+
+        private CachedFlag(boolean value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+    }
+
 }
@@ -0,0 +1,315 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.audit;
+
+import org.samearch.jira.lib.entity.mapper.api.AuditEventRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Асинхронная запись событий аудита.<br/>
+ * <br/>
+ * События помещаются в ограниченную очередь, которую фоновый поток разбирает пакетами до {@link #BATCH_SIZE} записей,
+ * сохраняя каждый пакет через {@link AuditRecordStorage#addAuditEvents}. Если очередь заполнена и место в ней не
+ * освободилось за {@link #OFFER_TIMEOUT_MILLIS} мс, событие записывается синхронно в потоке вызывающего: так
+ * вызывающий замедляется вместе с базой данных, а события не теряются.<br/>
+ * <br/>
+ * Пакет, который не удалось записать, не отбрасывается: фоновый поток повторяет его запись с увеличивающейся
+ * паузой, не переходя к следующим событиям. Пока база данных недоступна, очередь заполняется, и новые события
+ * записываются синхронно, так что ошибка записи доходит до вызывающего.<br/>
+ * <br/>
+ * При выключении плагина прием событий в очередь прекращается, а незаписанный пакет и оставшиеся в очереди события
+ * записываются до завершения {@link #destroy()}. События, которые не удалось записать и при выключении, выводятся в
+ * журнал целиком.
+ */
+@Component
+public class AsyncAuditWriter implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncAuditWriter.class);
+
+    static final int QUEUE_CAPACITY = 10_000;
+    static final int BATCH_SIZE = 500;
+    static final long OFFER_TIMEOUT_MILLIS = 50;
+
+    private static final long POLL_TIMEOUT_MILLIS = 500;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+    private static final int MAX_SHUTDOWN_WRITE_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MILLIS = 1_000;
+    private static final long MAX_RETRY_DELAY_MILLIS = 60_000;
+
+    private final AuditRecordStorage auditRecordStorage;
+    private final BlockingQueue<AuditEventRecord> queue;
+    private final int batchSize;
+    private final long offerTimeoutMillis;
+    private final long retryDelayMillis;
+
+    /**
+     * Блокировка чтения удерживается на время постановки событий в очередь, блокировка записи - при закрытии очереди.
+     * Так после закрытия очереди в нее гарантированно не попадет событие, которое уже некому записать.
+     */
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private boolean closed;
+
+    private final CountDownLatch stopRequested = new CountDownLatch(1);
+    private Thread flusherThread;
+
+    /** Пакет, который фоновый поток не успел записать до выключения плагина */
+    private List<AuditEventRecord> unwrittenBatch = Collections.emptyList();
+    private boolean unwrittenBatchCollected;
+
+    @Autowired
+    public AsyncAuditWriter(AuditRecordStorage auditRecordStorage) {
+        this(auditRecordStorage, QUEUE_CAPACITY, BATCH_SIZE, OFFER_TIMEOUT_MILLIS);
+    }
+
+    public AsyncAuditWriter(AuditRecordStorage auditRecordStorage,
+                            int queueCapacity,
+                            int batchSize,
+                            long offerTimeoutMillis) {
+        this(auditRecordStorage, queueCapacity, batchSize, offerTimeoutMillis, RETRY_DELAY_MILLIS);
+    }
+
+    /**
+     * @param retryDelayMillis пауза перед первым повтором записи пакета; перед каждым следующим повтором она
+     *                         удваивается, но не превышает {@link #MAX_RETRY_DELAY_MILLIS}
+     */
+    public AsyncAuditWriter(AuditRecordStorage auditRecordStorage,
+                            int queueCapacity,
+                            int batchSize,
+                            long offerTimeoutMillis,
+                            long retryDelayMillis) {
+        this.auditRecordStorage = auditRecordStorage;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    /**
+     * Ставит события в очередь на запись. События, которым не хватило места в очереди, а также все события после
+     * выключения плагина записываются синхронно.
+     */
+    public void write(List<AuditEventRecord> eventRecords) {
+
+        List<AuditEventRecord> rejectedRecords = Collections.emptyList();
+
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                rejectedRecords = eventRecords;
+            } else {
+                startFlusher();
+                int offeredCount = offer(eventRecords);
+                rejectedRecords = eventRecords.subList(offeredCount, eventRecords.size());
+            }
+        } finally {
+            closeLock.readLock().unlock();
+        }
+
+        if (!rejectedRecords.isEmpty()) {
+            auditRecordStorage.addAuditEvents(rejectedRecords);
+        }
+
+    }
+
+    /**
+     * @return количество событий, поставленных в очередь, начиная с первого
+     */
+    private int offer(List<AuditEventRecord> eventRecords) {
+        int offeredCount = 0;
+        try {
+            for (AuditEventRecord eventRecord : eventRecords) {
+                if (!queue.offer(eventRecord, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    break;
+                }
+                offeredCount++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return offeredCount;
+    }
+
+    private synchronized void startFlusher() {
+        if (flusherThread != null) {
+            return;
+        }
+        flusherThread = new Thread(this::flushQueue, "entity-mapper-audit-writer");
+        flusherThread.setDaemon(true);
+        flusherThread.start();
+    }
+
+    private void flushQueue() {
+
+        List<AuditEventRecord> batch = new ArrayList<>(batchSize);
+        long nextRetryDelayMillis = retryDelayMillis;
+
+        while (true) {
+            if (batch.isEmpty()) {
+                AuditEventRecord firstRecord;
+                try {
+                    firstRecord = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (firstRecord == null) {
+                    if (isStopRequested()) {
+                        return;
+                    }
+                    continue;
+                }
+                batch.add(firstRecord);
+                queue.drainTo(batch, batchSize - 1);
+            }
+            try {
+                auditRecordStorage.addAuditEvents(batch);
+                batch.clear();
+                nextRetryDelayMillis = retryDelayMillis;
+            } catch (RuntimeException e) {
+                LOG.warn("Unable to write {} audit events, retrying in {} ms", batch.size(), nextRetryDelayMillis, e);
+                if (awaitStopRequest(nextRetryDelayMillis)) {
+                    handOverUnwrittenBatch(batch);
+                    return;
+                }
+                nextRetryDelayMillis = Math.min(nextRetryDelayMillis * 2, MAX_RETRY_DELAY_MILLIS);
+            }
+        }
+
+    }
+
+    private boolean isStopRequested() {
+        return stopRequested.getCount() == 0;
+    }
+
+    /**
+     * @return {@code true}, если за время ожидания было запрошено выключение или поток был прерван
+     */
+    private boolean awaitStopRequest(long timeoutMillis) {
+        try {
+            return stopRequested.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Передает незаписанный пакет в {@link #destroy()}. Если {@link #destroy()} уже не ждет фоновый поток, выводит
+     * события пакета в журнал.
+     */
+    private synchronized void handOverUnwrittenBatch(List<AuditEventRecord> batch) {
+        if (unwrittenBatchCollected) {
+            logUnwrittenEvents(batch);
+        } else {
+            unwrittenBatch = new ArrayList<>(batch);
+        }
+    }
+
+    private synchronized List<AuditEventRecord> collectUnwrittenBatch() {
+        unwrittenBatchCollected = true;
+        return unwrittenBatch;
+    }
+
+    /**
+     * Записывает пакет при выключении плагина, повторяя запись до {@link #MAX_SHUTDOWN_WRITE_ATTEMPTS} раз.
+     */
+    private void writeBatchOnShutdown(List<AuditEventRecord> batch) {
+        for (int attempt = 1; attempt <= MAX_SHUTDOWN_WRITE_ATTEMPTS; attempt++) {
+            try {
+                auditRecordStorage.addAuditEvents(batch);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt == MAX_SHUTDOWN_WRITE_ATTEMPTS) {
+                    LOG.error("Unable to write {} audit events", batch.size(), e);
+                    logUnwrittenEvents(batch);
+                } else {
+                    LOG.warn("Unable to write {} audit events, attempt {} of {}",
+                            batch.size(), attempt, MAX_SHUTDOWN_WRITE_ATTEMPTS, e);
+                }
+            }
+        }
+    }
+
+    private static void logUnwrittenEvents(List<AuditEventRecord> batch) {
+        batch.forEach(eventRecord -> LOG.error("Unwritten audit event: {} of mapping {} by {} at {}: {}",
+                eventRecord.getEvent(), eventRecord.getMappingId(), eventRecord.getInitiator(),
+                eventRecord.getDate(), eventRecord.getAdditionalInformation()));
+    }
+
+    /**
+     * @return количество событий, ожидающих записи
+     */
+    public int getQueuedEventsCount() {
+        return queue.size();
+    }
+
+    @Override
+    public void destroy() {
+
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+
+        stopRequested.countDown();
+        Thread flusher;
+        synchronized (this) {
+            flusher = flusherThread;
+        }
+        if (flusher != null) {
+            try {
+                flusher.join(SHUTDOWN_TIMEOUT_MILLIS);
+                if (flusher.isAlive()) {
+                    LOG.warn("Audit writer did not finish in {} ms, writing remaining events synchronously",
+                            SHUTDOWN_TIMEOUT_MILLIS);
+                    flusher.interrupt();
+                    flusher.join(SHUTDOWN_TIMEOUT_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        List<AuditEventRecord> unwrittenEvents = collectUnwrittenBatch();
+        if (!unwrittenEvents.isEmpty()) {
+            writeBatchOnShutdown(unwrittenEvents);
+        }
+
+        List<AuditEventRecord> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            writeBatchOnShutdown(batch);
+            batch.clear();
+        }
+
+    }
+
+}
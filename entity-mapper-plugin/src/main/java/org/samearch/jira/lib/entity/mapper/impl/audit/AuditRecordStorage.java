@@ -20,11 +20,34 @@ package org.samearch.jira.lib.entity.mapper.impl.audit;
 import org.samearch.jira.lib.entity.mapper.api.AuditEventRecord;
 import org.samearch.jira.lib.entity.mapper.api.AuditJournalFilter;
 
+import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface AuditRecordStorage {
 
     AuditEventRecord addAuditEvent(AuditEventRecord auditEventRecord);
+    /**
+     * Сохраняет записи о событиях одной пакетной операцией.
+     *
+     * @return сохраненные записи в порядке переданных записей; идентификаторы в них не заполняются
+     */
+    List<AuditEventRecord> addAuditEvents(List<AuditEventRecord> auditEventRecords);
     List<AuditEventRecord> getRecords(AuditJournalFilter filter);
 
+    /**
+     * Возвращает самые старые события журнала в порядке возрастания даты и идентификатора.
+     *
+     * @param olderThan если задана, выбираются только события с датой раньше нее
+     * @param limit максимальное количество событий
+     */
+    List<AuditEventRecord> getOldestRecords(ZonedDateTime olderThan, int limit);
+
+    int countRecords();
+
+    /**
+     * Удаляет события и их дополнительную информацию в одной транзакции.
+     */
+    void deleteRecords(Collection<Long> eventIds);
+
 }
@@ -18,23 +18,44 @@
 package org.samearch.jira.lib.entity.mapper.impl.audit;
 
 import com.atlassian.plugin.spring.scanner.annotation.export.ExportAsService;
+import org.samearch.jira.lib.entity.mapper.PluginSettingsManager;
 import org.samearch.jira.lib.entity.mapper.api.AuditEventRecord;
 import org.samearch.jira.lib.entity.mapper.api.AuditJournal;
 import org.samearch.jira.lib.entity.mapper.api.AuditJournalFilter;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.AfterCommitActions;
+import org.samearch.jira.lib.entity.mapper.ui.rest.dto.MappingSettingsDto;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * Журнал аудита.<br/>
+ * <br/>
+ * По умолчанию события записываются синхронно, в транзакции вызывающего. Если в настройках плагина включена
+ * асинхронная запись ({@link MappingSettingsDto#asyncAuditWrite()}), события передаются в {@link AsyncAuditWriter}
+ * и записываются в фоне пакетами; возвращаемые записи в этом случае не содержат идентификаторов. События, созданные в
+ * транзакции записи маппингов, передаются в очередь только после ее фиксации ({@link AfterCommitActions}): событие
+ * отмененной транзакции не попадет в журнал. Пакет событий
+ * ({@link #createAuditEventRecords}) сохраняется одной пакетной вставкой и в обоих режимах возвращается без
+ * идентификаторов.
+ */
 @Service
 @ExportAsService({AuditJournal.class})
 public class DefaultAuditJournal implements AuditJournal {
 
     private final AuditRecordStorage auditRecordStorage;
+    private final AsyncAuditWriter asyncAuditWriter;
+    private final PluginSettingsManager pluginSettingsManager;
 
     @Autowired
-    public DefaultAuditJournal(AuditRecordStorage auditRecordStorage) {
+    public DefaultAuditJournal(AuditRecordStorage auditRecordStorage,
+                               AsyncAuditWriter asyncAuditWriter,
+                               PluginSettingsManager pluginSettingsManager) {
         this.auditRecordStorage = auditRecordStorage;
+        this.asyncAuditWriter = asyncAuditWriter;
+        this.pluginSettingsManager = pluginSettingsManager;
     }
 
     @Override
@@ -45,8 +66,25 @@ public class DefaultAuditJournal implements AuditJournal {
     @Override
     public AuditEventRecord createAuditEventRecord(AuditEventRecord eventRecord) {
 
+        if (pluginSettingsManager.isAsyncAuditWriteEnabled()) {
+            AfterCommitActions.runAfterCommit(() -> asyncAuditWriter.write(Collections.singletonList(eventRecord)));
+            return eventRecord;
+        }
+
         return auditRecordStorage.addAuditEvent(eventRecord);
 
     }
 
+    @Override
+    public List<AuditEventRecord> createAuditEventRecords(List<AuditEventRecord> eventRecords) {
+
+        if (pluginSettingsManager.isAsyncAuditWriteEnabled()) {
+            AfterCommitActions.runAfterCommit(() -> asyncAuditWriter.write(eventRecords));
+            return eventRecords;
+        }
+
+        return auditRecordStorage.addAuditEvents(eventRecords);
+
+    }
+
 }
@@ -20,8 +20,10 @@ package org.samearch.jira.lib.entity.mapper.impl.audit.dao;
 import net.java.ao.OneToMany;
 import net.java.ao.RawEntity;
 import net.java.ao.schema.AutoIncrement;
+import net.java.ao.schema.Indexed;
 import net.java.ao.schema.NotNull;
 import net.java.ao.schema.PrimaryKey;
+import net.java.ao.schema.StringLength;
 import net.java.ao.schema.Table;
 import org.samearch.jira.lib.entity.mapper.api.EntityMappingEvent;
 
@@ -39,6 +41,10 @@ public interface AuditEventEntity extends RawEntity<Long> {
     String getInitiator();
     void setInitiator(String initiator);
 
+    /**
+     * Индекс используется выборкой страниц журнала, упорядоченных по дате события.
+     */
+    @Indexed
     Date getDate();
     void setDate(Date date);
 
@@ -48,6 +54,19 @@ public interface AuditEventEntity extends RawEntity<Long> {
     int getMappingId();
     void setMappingId(int mappingId);
 
+    /**
+     * Дополнительная информация события в компактном представлении
+     * ({@link org.samearch.jira.lib.entity.mapper.impl.audit.dao.util.AuditAdditionalInfoCodec}).<br/>
+     * {@code null} у событий, записанных до появления колонки, пока их информация не перенесена задачей обновления
+     * {@link org.samearch.jira.lib.entity.mapper.impl.audit.dao.upgrade.AuditEventCompactInfoUpgradeTask}.
+     */
+    @StringLength(StringLength.UNLIMITED)
+    String getAdditionalInfo();
+    void setAdditionalInfo(String additionalInfo);
+
+    /**
+     * Дополнительная информация события в прежнем формате: по строке на каждый ключ.
+     */
     @OneToMany
     AuditEventAdditionalInfoEntity[] getEventAdditionalInfo();
 
@@ -22,9 +22,11 @@ import com.atlassian.jira.user.util.UserManager;
 import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
 import net.java.ao.Query;
 import org.samearch.jira.lib.entity.mapper.api.AuditEventRecord;
+import org.samearch.jira.lib.entity.mapper.api.AuditJournalCursor;
 import org.samearch.jira.lib.entity.mapper.api.AuditJournalFilter;
 import org.samearch.jira.lib.entity.mapper.api.DateRange;
 import org.samearch.jira.lib.entity.mapper.impl.audit.AuditRecordStorage;
+import org.samearch.jira.lib.entity.mapper.impl.audit.dao.util.AuditAdditionalInfoCodec;
 import org.samearch.jira.lib.entity.mapper.impl.audit.dao.util.QueryParametersExtractor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -34,6 +36,7 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -49,6 +52,11 @@ import java.util.stream.Collectors;
 public class DefaultAuditRecordStorage implements AuditRecordStorage {
 
     private static final DateTimeFormatter DATE_FOR_QUERY_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    /**
+     * Максимальное количество параметров в условии {@code IN (...)} одного запроса, с запасом относительно лимита
+     * Oracle в 1000 элементов списка.
+     */
+    private static final int MAX_IN_CLAUSE_PARAMETERS = 500;
 
     @ComponentImport
     private final ActiveObjects ao;
@@ -67,29 +75,53 @@ public class DefaultAuditRecordStorage implements AuditRecordStorage {
 
     }
 
+    /**
+     * Сохраняет запись о событии одной строкой: дополнительная информация хранится в колонке строки события в
+     * компактном представлении. Если вызывается внутри другой транзакции (например, транзакции изменения маппинга),
+     * то присоединяется к ней. Возвращаемая запись строится из переданной без повторного чтения из БД.
+     */
     @Override
     public AuditEventRecord addAuditEvent(AuditEventRecord auditEventRecord) {
 
         Map<String, Object> createdEntityFields = queryParametersBuilder.buildCreationRequestParameters(auditEventRecord);
-
         AuditEventEntity eventEntity = ao.create(AuditEventEntity.class, createdEntityFields);
-        saveAdditionalInfoForEventRecord(auditEventRecord, eventEntity);
 
-        return entityToObject(eventEntity);
+        return copyWithId(auditEventRecord, eventEntity.getId());
+
+    }
+
+    /**
+     * Сохраняет записи о событиях одной пакетной вставкой. Возвращаемые записи строятся из переданных без повторного
+     * чтения из БД, поэтому идентификаторы в них не заполняются.
+     */
+    @Override
+    public List<AuditEventRecord> addAuditEvents(List<AuditEventRecord> auditEventRecords) {
+
+        if (auditEventRecords.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Map<String, Object>> createdEntitiesFields = auditEventRecords.stream()
+                .map(queryParametersBuilder::buildCreationRequestParameters)
+                .collect(Collectors.toList());
+        ao.create(AuditEventEntity.class, createdEntitiesFields);
+
+        return new ArrayList<>(auditEventRecords);
 
     }
 
     @Override
     public List<AuditEventRecord> getRecords(AuditJournalFilter filter) {
 
-        Query selectQuery = Query.select("ID, INITIATOR, DATE, EVENT, MAPPING_ID")
+        Query selectQuery = Query.select("ID, INITIATOR, DATE, EVENT, MAPPING_ID, ADDITIONAL_INFO")
                 .from(AuditEventEntity.class)
-                .order("DATE DESC")
+                .order("DATE DESC, ID DESC")
                 .limit(filter.eventsCount());
         Map<String, List<Object>> whereClauses = new HashMap<>();
         if (!filter.forIds().isEmpty()) {
             List<Object> requestedIds = new ArrayList<>(filter.forIds());
-            whereClauses.put("MAPPING_ID in (?)", requestedIds);
+            String requestedIdsPlaceholder = String.join(", ", Collections.nCopies(requestedIds.size(), "?"));
+            whereClauses.put("MAPPING_ID in (" + requestedIdsPlaceholder + ")", requestedIds);
         }
         if (!filter.byInitiator().isEmpty()) {
             List<Object> requestedInitiatorsParam = new ArrayList<>(filter.byInitiator());
@@ -105,6 +137,12 @@ public class DefaultAuditRecordStorage implements AuditRecordStorage {
         if (filter.mappingEvent() != null) {
             whereClauses.put("EVENT = ?", Collections.singletonList(filter.mappingEvent()));
         }
+        if (filter.after() != null) {
+            // условие по ключу сортировки: страница читается по индексу с позиции курсора, без пропуска предыдущих строк
+            AuditJournalCursor cursor = filter.after();
+            Date cursorDateParam = Date.from(cursor.date().toInstant());
+            whereClauses.put("DATE < ? OR (DATE = ? AND ID < ?)", Arrays.asList(cursorDateParam, cursorDateParam, cursor.id()));
+        }
         if (!whereClauses.isEmpty()) {
             String whereClause = whereClauses.keySet().stream().map(it -> "(" + it + ")").collect(Collectors.joining(" AND "));
             Object[] whereClauseArgs = whereClauses.values().stream()
@@ -116,29 +154,109 @@ public class DefaultAuditRecordStorage implements AuditRecordStorage {
         List<AuditEventRecord> eventRecords = new ArrayList<>();
 
         AuditEventEntity[] eventEntities = ao.find(AuditEventEntity.class, selectQuery);
-        Arrays.stream(eventEntities).forEach(eventEntity -> eventRecords.add(entityToObject(eventEntity)));
+        Map<Long, Map<String, String>> legacyAdditionalInfoByEventId = findLegacyAdditionalInfo(eventEntities);
+        Arrays.stream(eventEntities).forEach(eventEntity -> eventRecords.add(
+                entityToObject(eventEntity, legacyAdditionalInfoByEventId.getOrDefault(eventEntity.getId(), new HashMap<>()))));
 
         return eventRecords;
 
     }
 
-    private void saveAdditionalInfoForEventRecord(AuditEventRecord auditEventRecord, AuditEventEntity eventEntity) {
+    @Override
+    public List<AuditEventRecord> getOldestRecords(ZonedDateTime olderThan, int limit) {
+
+        Query selectQuery = Query.select("ID, INITIATOR, DATE, EVENT, MAPPING_ID, ADDITIONAL_INFO")
+                .from(AuditEventEntity.class)
+                .order("DATE ASC, ID ASC")
+                .limit(limit);
+        if (olderThan != null) {
+            selectQuery = selectQuery.where("DATE < ?", Date.from(olderThan.toInstant()));
+        }
+
+        AuditEventEntity[] eventEntities = ao.find(AuditEventEntity.class, selectQuery);
+        Map<Long, Map<String, String>> legacyAdditionalInfoByEventId = findLegacyAdditionalInfo(eventEntities);
+
+        return Arrays.stream(eventEntities)
+                .map(eventEntity -> entityToObject(eventEntity,
+                        legacyAdditionalInfoByEventId.getOrDefault(eventEntity.getId(), new HashMap<>())))
+                .collect(Collectors.toList());
+
+    }
 
-        auditEventRecord.getAdditionalInformation().forEach((key, value) -> {
+    @Override
+    public int countRecords() {
+        return ao.count(AuditEventEntity.class);
+    }
 
-            Map<String, Object> additionalInfoRecordParam = new HashMap<>();
+    /**
+     * Удаляет события запросами {@code ID IN (...)} по {@link #MAX_IN_CLAUSE_PARAMETERS} идентификаторов. Строки
+     * дополнительной информации в прежнем формате удаляются вместе с событиями.
+     */
+    @Override
+    public void deleteRecords(Collection<Long> eventIds) {
 
-            additionalInfoRecordParam.put("KEY", key);
-            additionalInfoRecordParam.put("VALUE", value);
-            additionalInfoRecordParam.put("AUDIT_EVENT_ENTITY_ID", eventEntity.getId());
+        if (eventIds.isEmpty()) {
+            return;
+        }
 
-            ao.create(AuditEventAdditionalInfoEntity.class, additionalInfoRecordParam);
+        List<Long> eventIdsList = new ArrayList<>(eventIds);
 
+        ao.executeInTransaction(() -> {
+            for (int chunkStart = 0; chunkStart < eventIdsList.size(); chunkStart += MAX_IN_CLAUSE_PARAMETERS) {
+                List<Long> eventIdsChunk = eventIdsList.subList(chunkStart, Math.min(chunkStart + MAX_IN_CLAUSE_PARAMETERS, eventIdsList.size()));
+                String eventIdsPlaceholder = String.join(", ", Collections.nCopies(eventIdsChunk.size(), "?"));
+                ao.deleteWithSQL(AuditEventAdditionalInfoEntity.class, "AUDIT_EVENT_ENTITY_ID IN (" + eventIdsPlaceholder + ")", eventIdsChunk.toArray());
+                ao.deleteWithSQL(AuditEventEntity.class, "ID IN (" + eventIdsPlaceholder + ")", eventIdsChunk.toArray());
+            }
+            return null;
         });
 
     }
 
-    private AuditEventRecord entityToObject(AuditEventEntity eventEntity) {
+    /**
+     * Загружает дополнительную информацию в прежнем формате (строками {@link AuditEventAdditionalInfoEntity}) для
+     * событий, информация которых еще не перенесена в колонку строки события. Загрузка выполняется запросами
+     * {@code AUDIT_EVENT_ENTITY_ID IN (...)}, по одному запросу на каждые {@link #MAX_IN_CLAUSE_PARAMETERS} событий,
+     * вместо отдельного запроса для каждого события. Если все события страницы уже в компактном формате, запросов нет.
+     *
+     * @return дополнительная информация по идентификаторам событий; событий без дополнительной информации в ней нет
+     */
+    private Map<Long, Map<String, String>> findLegacyAdditionalInfo(AuditEventEntity[] eventEntities) {
+
+        List<Long> eventIds = Arrays.stream(eventEntities)
+                .filter(eventEntity -> eventEntity.getAdditionalInfo() == null)
+                .map(AuditEventEntity::getId)
+                .collect(Collectors.toList());
+        List<AuditEventAdditionalInfoEntity> additionalInfoEntities = new ArrayList<>();
+
+        for (int chunkStart = 0; chunkStart < eventIds.size(); chunkStart += MAX_IN_CLAUSE_PARAMETERS) {
+            List<Long> eventIdsChunk = eventIds.subList(chunkStart, Math.min(chunkStart + MAX_IN_CLAUSE_PARAMETERS, eventIds.size()));
+            String eventIdsPlaceholder = String.join(", ", Collections.nCopies(eventIdsChunk.size(), "?"));
+            Query additionalInfoQuery = Query.select("ID, KEY, VALUE, AUDIT_EVENT_ENTITY_ID")
+                    .where("AUDIT_EVENT_ENTITY_ID IN (" + eventIdsPlaceholder + ")", eventIdsChunk.toArray());
+            additionalInfoEntities.addAll(Arrays.asList(ao.find(AuditEventAdditionalInfoEntity.class, additionalInfoQuery)));
+        }
+
+        return queryParametersBuilder.groupAdditionalInfoByEventId(additionalInfoEntities);
+
+    }
+
+    private AuditEventRecord copyWithId(AuditEventRecord auditEventRecord, long id) {
+
+        AuditEventRecord savedRecord = new AuditEventRecord();
+
+        savedRecord.setId(id);
+        savedRecord.setInitiator(auditEventRecord.getInitiator());
+        savedRecord.setEvent(auditEventRecord.getEvent());
+        savedRecord.setMappingId(auditEventRecord.getMappingId());
+        savedRecord.setDate(auditEventRecord.getDate());
+        savedRecord.setAdditionalInformation(new HashMap<>(auditEventRecord.getAdditionalInformation()));
+
+        return savedRecord;
+
+    }
+
+    private AuditEventRecord entityToObject(AuditEventEntity eventEntity, Map<String, String> legacyAdditionalInfo) {
 
         if (eventEntity == null) {
             return null;
@@ -150,9 +268,10 @@ public class DefaultAuditRecordStorage implements AuditRecordStorage {
         eventRecord.setInitiator(eventEntity.getInitiator());
         eventRecord.setEvent(eventEntity.getEvent());
         eventRecord.setMappingId(eventEntity.getMappingId());
-
-        Map<String, String> eventAdditionalInfo = queryParametersBuilder.extractAdditionalInfoFromEventEntity(eventEntity);
-        eventRecord.setAdditionalInformation(eventAdditionalInfo);
+        String encodedAdditionalInfo = eventEntity.getAdditionalInfo();
+        eventRecord.setAdditionalInformation(encodedAdditionalInfo != null
+                ? AuditAdditionalInfoCodec.decode(encodedAdditionalInfo)
+                : legacyAdditionalInfo);
 
         ZonedDateTime eventTimeWithZone = ZonedDateTime.ofInstant(eventEntity.getDate().toInstant(), ZoneId.systemDefault());
         eventRecord.setDate(eventTimeWithZone);
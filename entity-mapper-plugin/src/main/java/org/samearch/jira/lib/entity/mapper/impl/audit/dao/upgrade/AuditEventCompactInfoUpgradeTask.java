@@ -0,0 +1,114 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.audit.dao.upgrade;
+
+import com.atlassian.activeobjects.external.ActiveObjects;
+import com.atlassian.activeobjects.external.ActiveObjectsUpgradeTask;
+import com.atlassian.activeobjects.external.ModelVersion;
+import net.java.ao.Query;
+import org.samearch.jira.lib.entity.mapper.impl.audit.dao.AuditEventAdditionalInfoEntity;
+import org.samearch.jira.lib.entity.mapper.impl.audit.dao.AuditEventEntity;
+import org.samearch.jira.lib.entity.mapper.impl.audit.dao.util.AuditAdditionalInfoCodec;
+import org.samearch.jira.lib.entity.mapper.impl.audit.dao.util.QueryParametersExtractor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Задача обновления, переносящая дополнительную информацию событий аудита из строк {@code AuditEventInfo} в колонку
+ * {@code ADDITIONAL_INFO} строки события.<br/>
+ * <br/>
+ * События обрабатываются пакетами по {@value #BATCH_SIZE} в порядке идентификаторов, каждый пакет - в отдельной
+ * транзакции: информация пакета читается одним запросом, записывается в строки событий, после чего перенесенные строки
+ * {@code AuditEventInfo} удаляются. Обработанными считаются события с заполненной колонкой, поэтому прерванный перенос
+ * продолжается со следующего необработанного события при повторном запуске задачи.
+ */
+public class AuditEventCompactInfoUpgradeTask implements ActiveObjectsUpgradeTask {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AuditEventCompactInfoUpgradeTask.class);
+
+    private static final String MODEL_VERSION = "2";
+    private static final int BATCH_SIZE = 500;
+
+    @Override
+    public ModelVersion getModelVersion() {
+        return ModelVersion.valueOf(MODEL_VERSION);
+    }
+
+    @Override
+    public void upgrade(ModelVersion currentVersion, ActiveObjects ao) {
+
+        ao.migrate(AuditEventEntity.class, AuditEventAdditionalInfoEntity.class);
+
+        QueryParametersExtractor queryParametersExtractor = new QueryParametersExtractor();
+        long migratedEventsCount = 0;
+
+        int batchEventsCount;
+        do {
+            batchEventsCount = ao.executeInTransaction(() -> migrateBatch(ao, queryParametersExtractor));
+            migratedEventsCount += batchEventsCount;
+            if (batchEventsCount > 0) {
+                LOG.debug("Moved additional info of {} audit event(s) to compact format", migratedEventsCount);
+            }
+        } while (batchEventsCount == BATCH_SIZE);
+
+        LOG.info("Moved additional info of {} audit event(s) to compact format", migratedEventsCount);
+
+    }
+
+    /**
+     * Переносит информацию очередного пакета необработанных событий.
+     *
+     * @return количество обработанных событий
+     */
+    private int migrateBatch(ActiveObjects ao, QueryParametersExtractor queryParametersExtractor) {
+
+        AuditEventEntity[] eventEntities = ao.find(AuditEventEntity.class, Query.select("ID, ADDITIONAL_INFO")
+                .where("ADDITIONAL_INFO IS NULL")
+                .order("ID ASC")
+                .limit(BATCH_SIZE));
+
+        if (eventEntities.length == 0) {
+            return 0;
+        }
+
+        Object[] eventIds = Arrays.stream(eventEntities).map(AuditEventEntity::getId).toArray();
+        String eventIdsClause = "AUDIT_EVENT_ENTITY_ID IN (" + String.join(", ", Collections.nCopies(eventIds.length, "?")) + ")";
+
+        AuditEventAdditionalInfoEntity[] additionalInfoEntities = ao.find(AuditEventAdditionalInfoEntity.class,
+                Query.select("ID, KEY, VALUE, AUDIT_EVENT_ENTITY_ID").where(eventIdsClause, eventIds));
+        Map<Long, Map<String, String>> additionalInfoByEventId =
+                queryParametersExtractor.groupAdditionalInfoByEventId(Arrays.asList(additionalInfoEntities));
+
+        for (AuditEventEntity eventEntity : eventEntities) {
+            Map<String, String> additionalInfo = additionalInfoByEventId.getOrDefault(eventEntity.getId(), new HashMap<>());
+            eventEntity.setAdditionalInfo(AuditAdditionalInfoCodec.encode(additionalInfo));
+            eventEntity.save();
+        }
+
+        ao.deleteWithSQL(AuditEventAdditionalInfoEntity.class, eventIdsClause, eventIds);
+
+        return eventEntities.length;
+
+    }
+
+}
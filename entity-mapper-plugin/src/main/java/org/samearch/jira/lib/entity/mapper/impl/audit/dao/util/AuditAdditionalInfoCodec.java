@@ -0,0 +1,136 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.audit.dao.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Компактное представление дополнительной информации события аудита для хранения в одной колонке строки события.<br/>
+ * <br/>
+ * Информация записывается JSON-объектом. Ключи из словаря {@link #DICTIONARY} (они повторяются в каждом событии)
+ * записываются номером в словаре, остальные ключи - как есть с префиксом {@value #LITERAL_KEY_PREFIX}. Например,
+ * информация события обновления маппинга записывается как
+ * {@code {"2":"org.CEO","3":"ivan.ivanov","4":"org.CEO","5":"petr.petrov"}}.<br/>
+ * <br/>
+ * Номера ключей сохранены в БД, поэтому словарь можно только дополнять в конце.
+ */
+public final class AuditAdditionalInfoCodec {
+
+    /**
+     * Словарь часто встречающихся ключей. Номер ключа - его позиция в списке.
+     */
+    private static final List<String> DICTIONARY = Collections.unmodifiableList(Arrays.asList(
+            "key",
+            "value",
+            "oldMapping.key",
+            "oldMapping.value",
+            "newMapping.key",
+            "newMapping.value"
+    ));
+    private static final String LITERAL_KEY_PREFIX = "!";
+
+    private static final Map<String, String> ENCODED_KEYS = new HashMap<>();
+    static {
+        for (int code = 0; code < DICTIONARY.size(); code++) {
+            ENCODED_KEYS.put(DICTIONARY.get(code), String.valueOf(code));
+        }
+    }
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private AuditAdditionalInfoCodec() {
+    }
+
+    public static String encode(Map<String, String> additionalInfo) {
+
+        StringWriter encoded = new StringWriter();
+
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(encoded)) {
+            generator.writeStartObject();
+            // Порядок ключей фиксируется, чтобы одинаковая информация всегда кодировалась одинаково
+            for (Map.Entry<String, String> entry : new TreeMap<>(additionalInfo).entrySet()) {
+                generator.writeStringField(encodeKey(entry.getKey()), entry.getValue());
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return encoded.toString();
+
+    }
+
+    /**
+     * Восстанавливает дополнительную информацию из компактного представления.
+     *
+     * @throws IllegalArgumentException если строка не является компактным представлением дополнительной информации
+     */
+    public static Map<String, String> decode(String encoded) {
+
+        Map<String, String> additionalInfo = new HashMap<>();
+
+        try (JsonParser parser = JSON_FACTORY.createParser(encoded)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Encoded audit event info must be a JSON object: " + encoded);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String key = decodeKey(parser.getCurrentName());
+                parser.nextToken();
+                additionalInfo.put(key, parser.getValueAsString());
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed encoded audit event info: " + encoded, e);
+        }
+
+        return additionalInfo;
+
+    }
+
+    private static String encodeKey(String key) {
+        String code = ENCODED_KEYS.get(key);
+        return (code != null) ? code : LITERAL_KEY_PREFIX + key;
+    }
+
+    private static String decodeKey(String encodedKey) {
+
+        if (encodedKey.startsWith(LITERAL_KEY_PREFIX)) {
+            return encodedKey.substring(LITERAL_KEY_PREFIX.length());
+        }
+
+        try {
+            return DICTIONARY.get(Integer.parseInt(encodedKey));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Unknown audit event info key code: " + encodedKey, e);
+        }
+
+    }
+
+}
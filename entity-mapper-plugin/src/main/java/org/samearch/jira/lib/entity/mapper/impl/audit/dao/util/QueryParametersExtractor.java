@@ -19,15 +19,13 @@ package org.samearch.jira.lib.entity.mapper.impl.audit.dao.util;
 
 import org.samearch.jira.lib.entity.mapper.api.AuditEventRecord;
 import org.samearch.jira.lib.entity.mapper.impl.audit.dao.AuditEventAdditionalInfoEntity;
-import org.samearch.jira.lib.entity.mapper.impl.audit.dao.AuditEventEntity;
 import org.springframework.stereotype.Component;
 
 import java.util.AbstractMap;
-import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Objects;
 
 @Component
 public class QueryParametersExtractor {
@@ -43,28 +41,34 @@ public class QueryParametersExtractor {
         Date simpleEventDate = Date.from(eventRecord.getDate().toInstant());
         createdEntityFields.put("DATE", simpleEventDate);
 
+        createdEntityFields.put("ADDITIONAL_INFO", AuditAdditionalInfoCodec.encode(eventRecord.getAdditionalInformation()));
+
         return createdEntityFields;
 
     }
 
-    public Map<String, String> extractAdditionalInfoFromEventEntity(AuditEventEntity eventEntity) {
-
-        Map<String, String> eventAdditionalInfo = new HashMap<>();
-
-        if (eventEntity != null) {
-
-            AuditEventAdditionalInfoEntity[] eventAdditionalInfoEntities = eventEntity.getEventAdditionalInfo();
-
-            if (eventAdditionalInfoEntities != null) {
-                Arrays.stream(eventAdditionalInfoEntities)
-                        .map(this::eventAdditionalInfoEntityToObject)
-                        .filter(Objects::nonNull)
-                        .forEach(entry -> eventAdditionalInfo.put(entry.getKey(), entry.getValue()));
+    /**
+     * Группирует строки дополнительной информации по идентификаторам событий, к которым они относятся.<br/>
+     * <br/>
+     * Идентификатор события берется из внешнего ключа строки, уже прочитанного вместе с ней, поэтому группировка не
+     * выполняет запросов к БД.
+     */
+    public Map<Long, Map<String, String>> groupAdditionalInfoByEventId(
+            Collection<AuditEventAdditionalInfoEntity> additionalInfoEntities) {
+
+        Map<Long, Map<String, String>> additionalInfoByEventId = new HashMap<>();
+
+        for (AuditEventAdditionalInfoEntity additionalInfoEntity : additionalInfoEntities) {
+            Map.Entry<String, String> entry = eventAdditionalInfoEntityToObject(additionalInfoEntity);
+            if (entry == null || additionalInfoEntity.getAuditEventEntity() == null) {
+                continue;
             }
-
+            additionalInfoByEventId
+                    .computeIfAbsent(additionalInfoEntity.getAuditEventEntity().getId(), eventId -> new HashMap<>())
+                    .put(entry.getKey(), entry.getValue());
         }
 
-        return eventAdditionalInfo;
+        return additionalInfoByEventId;
 
     }
 
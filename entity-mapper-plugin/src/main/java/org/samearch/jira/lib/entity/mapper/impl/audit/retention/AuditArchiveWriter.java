@@ -0,0 +1,97 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.audit.retention;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.samearch.jira.lib.entity.mapper.api.AuditEventRecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Записывает удаляемые события журнала аудита в архив: сжатый gzip файл NDJSON, по одному JSON-объекту события в
+ * строке.<br/>
+ * <br/>
+ * После каждого пакета сжатый поток сбрасывается на диск, поэтому события пакета оказываются в файле до того, как будут
+ * удалены из журнала.
+ */
+public class AuditArchiveWriter implements Closeable {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final Path archiveFile;
+    private final OutputStream archiveStream;
+    private final JsonGenerator generator;
+
+    public AuditArchiveWriter(Path archiveFile) throws IOException {
+        this.archiveFile = archiveFile;
+        Files.createDirectories(archiveFile.getParent());
+        OutputStream fileStream = Files.newOutputStream(archiveFile, StandardOpenOption.CREATE_NEW);
+        try {
+            this.archiveStream = new GZIPOutputStream(fileStream, true);
+            this.generator = JSON_FACTORY.createGenerator(archiveStream, JsonEncoding.UTF8);
+        } catch (IOException e) {
+            fileStream.close();
+            throw e;
+        }
+    }
+
+    public Path getArchiveFile() {
+        return archiveFile;
+    }
+
+    public void write(List<AuditEventRecord> eventRecords) throws IOException {
+        for (AuditEventRecord eventRecord : eventRecords) {
+            writeEventObject(eventRecord);
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+        archiveStream.flush();
+    }
+
+    private void writeEventObject(AuditEventRecord eventRecord) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", eventRecord.getId());
+        generator.writeStringField("date", DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(eventRecord.getDate()));
+        generator.writeStringField("initiator", eventRecord.getInitiator());
+        generator.writeStringField("event", eventRecord.getEvent() != null ? eventRecord.getEvent().name() : null);
+        generator.writeNumberField("mappingId", eventRecord.getMappingId());
+        generator.writeObjectFieldStart("additionalInformation");
+        for (Map.Entry<String, String> additionalInfo : eventRecord.getAdditionalInformation().entrySet()) {
+            generator.writeStringField(additionalInfo.getKey(), additionalInfo.getValue());
+        }
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.audit.retention;
+
+import org.samearch.jira.lib.entity.mapper.api.AuditEventRecord;
+import org.samearch.jira.lib.entity.mapper.impl.audit.AuditRecordStorage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Удаляет события журнала аудита по политике хранения.<br/>
+ * <br/>
+ * События удаляются пакетами по {@link #BATCH_SIZE}, начиная с самых старых; каждый пакет удаляется в отдельной
+ * короткой транзакции, поэтому таблицы журнала не блокируются надолго. За один запуск удаляется не больше
+ * {@link #MAX_BATCHES_PER_RUN} пакетов, остальные события удаляются при следующих запусках.
+ */
+@Component
+public class AuditJournalPruner {
+
+    static final int BATCH_SIZE = 500;
+    static final int MAX_BATCHES_PER_RUN = 200;
+
+    private static final DateTimeFormatter ARCHIVE_FILE_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final AuditRecordStorage auditRecordStorage;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    @Autowired
+    public AuditJournalPruner(AuditRecordStorage auditRecordStorage) {
+        this(auditRecordStorage, BATCH_SIZE, MAX_BATCHES_PER_RUN);
+    }
+
+    public AuditJournalPruner(AuditRecordStorage auditRecordStorage, int batchSize, int maxBatchesPerRun) {
+        this.auditRecordStorage = auditRecordStorage;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    /**
+     * Удаляет события, не удовлетворяющие политике хранения. Если в политике включено архивирование, удаляемые события
+     * предварительно записываются в файл {@code entity-mapper-audit-<дата>.ndjson.gz} в каталоге архивов; файл
+     * создается только если есть что удалять.
+     *
+     * @param policy политика хранения
+     * @param now текущий момент, от которого отсчитывается возраст событий
+     * @param archiveDirectory каталог архивов
+     * @return результат удаления
+     *
+     * @throws IOException если не удалось записать архив; события, не попавшие в архив, не удаляются
+     */
+    public AuditPruneResult prune(AuditRetentionPolicy policy, ZonedDateTime now, Path archiveDirectory)
+            throws IOException {
+
+        PruneRun pruneRun = new PruneRun(policy.isArchiveEnabled()
+                ? archiveDirectory.resolve("entity-mapper-audit-" + ARCHIVE_FILE_DATE_FORMATTER.format(now) + ".ndjson.gz")
+                : null);
+
+        try {
+            if (policy.getMaxAgeDays() != null) {
+                pruneRun.pruneOldest(now.minusDays(policy.getMaxAgeDays()), Integer.MAX_VALUE);
+            }
+            if (policy.getMaxRows() != null) {
+                int excessRows = auditRecordStorage.countRecords() - policy.getMaxRows();
+                if (excessRows > 0) {
+                    pruneRun.pruneOldest(null, excessRows);
+                }
+            }
+        } finally {
+            pruneRun.close();
+        }
+
+        return pruneRun.result();
+
+    }
+
+    /**
+     * Состояние одного запуска удаления.
+     */
+    private class PruneRun {
+
+        private final Path archiveFile;
+        private AuditArchiveWriter archiveWriter;
+        private int deletedCount;
+        private int batchesCount;
+
+        PruneRun(Path archiveFile) {
+            this.archiveFile = archiveFile;
+        }
+
+        /**
+         * Удаляет самые старые события пакетами.
+         *
+         * @param olderThan если задана, удаляются только события с датой раньше нее
+         * @param maxCount максимальное количество удаляемых событий
+         */
+        void pruneOldest(ZonedDateTime olderThan, int maxCount) throws IOException {
+
+            int remainingCount = maxCount;
+
+            while (remainingCount > 0 && batchesCount < maxBatchesPerRun) {
+                int requestedCount = Math.min(batchSize, remainingCount);
+                List<AuditEventRecord> batch = auditRecordStorage.getOldestRecords(olderThan, requestedCount);
+                if (batch.isEmpty()) {
+                    return;
+                }
+                if (archiveFile != null) {
+                    if (archiveWriter == null) {
+                        archiveWriter = new AuditArchiveWriter(archiveFile);
+                    }
+                    archiveWriter.write(batch);
+                }
+                auditRecordStorage.deleteRecords(batch.stream()
+                        .map(AuditEventRecord::getId)
+                        .collect(Collectors.toList()));
+                deletedCount += batch.size();
+                remainingCount -= batch.size();
+                batchesCount++;
+                if (batch.size() < requestedCount) {
+                    return;
+                }
+            }
+
+        }
+
+        void close() throws IOException {
+            if (archiveWriter != null) {
+                archiveWriter.close();
+            }
+        }
+
+        AuditPruneResult result() {
+            return new AuditPruneResult(deletedCount, batchesCount >= maxBatchesPerRun,
+                    archiveWriter != null ? archiveWriter.getArchiveFile() : null);
+        }
+
+    }
+
+}
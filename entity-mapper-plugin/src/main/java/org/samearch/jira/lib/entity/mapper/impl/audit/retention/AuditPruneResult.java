@@ -0,0 +1,56 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.audit.retention;
+
+import java.nio.file.Path;
+
+/**
+ * Результат удаления событий журнала аудита по политике хранения.
+ */
+public class AuditPruneResult {
+
+    private final int deletedCount;
+    private final boolean limitReached;
+    private final Path archiveFile;
+
+    public AuditPruneResult(int deletedCount, boolean limitReached, Path archiveFile) {
+        this.deletedCount = deletedCount;
+        this.limitReached = limitReached;
+        this.archiveFile = archiveFile;
+    }
+
+    public int getDeletedCount() {
+        return deletedCount;
+    }
+
+    /**
+     * @return {@code true}, если запуск остановлен по ограничению количества пакетов; часть событий, подлежащих
+     *         удалению, может остаться до следующего запуска
+     */
+    public boolean isLimitReached() {
+        return limitReached;
+    }
+
+    /**
+     * @return архив удаленных событий или {@code null}, если архив не создавался
+     */
+    public Path getArchiveFile() {
+        return archiveFile;
+    }
+
+}
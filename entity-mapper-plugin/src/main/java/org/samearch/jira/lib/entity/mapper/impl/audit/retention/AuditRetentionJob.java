@@ -0,0 +1,129 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.audit.retention;
+
+import com.atlassian.jira.config.util.JiraHome;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.atlassian.scheduler.JobRunner;
+import com.atlassian.scheduler.JobRunnerRequest;
+import com.atlassian.scheduler.JobRunnerResponse;
+import com.atlassian.scheduler.SchedulerService;
+import com.atlassian.scheduler.SchedulerServiceException;
+import com.atlassian.scheduler.config.JobConfig;
+import com.atlassian.scheduler.config.JobId;
+import com.atlassian.scheduler.config.JobRunnerKey;
+import com.atlassian.scheduler.config.RunMode;
+import com.atlassian.scheduler.config.Schedule;
+import org.samearch.jira.lib.entity.mapper.PluginSettingsManager;
+import org.samearch.jira.lib.entity.mapper.ui.rest.dto.MappingSettingsDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задание планировщика Jira, удаляющее события журнала аудита по политике хранения из настроек плагина
+ * ({@link MappingSettingsDto#auditRetentionDays()}, {@link MappingSettingsDto#auditRetentionMaxRows()},
+ * {@link MappingSettingsDto#auditArchiveEnabled()}).<br/>
+ * <br/>
+ * Задание выполняется раз в {@link #RUN_INTERVAL_MILLIS} мс на одном узле кластера. Архивы удаленных событий
+ * сохраняются в каталог {@code export/entity-mapper} домашнего каталога Jira.
+ */
+@Component
+public class AuditRetentionJob implements JobRunner, InitializingBean, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AuditRetentionJob.class);
+
+    private static final JobRunnerKey JOB_RUNNER_KEY = JobRunnerKey.of(AuditRetentionJob.class.getName());
+    private static final JobId JOB_ID = JobId.of(AuditRetentionJob.class.getName());
+    private static final long RUN_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long FIRST_RUN_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    @ComponentImport
+    private final SchedulerService schedulerService;
+    @ComponentImport
+    private final JiraHome jiraHome;
+
+    private final AuditJournalPruner auditJournalPruner;
+    private final PluginSettingsManager pluginSettingsManager;
+
+    @Autowired
+    public AuditRetentionJob(SchedulerService schedulerService,
+                             JiraHome jiraHome,
+                             AuditJournalPruner auditJournalPruner,
+                             PluginSettingsManager pluginSettingsManager) {
+        this.schedulerService = schedulerService;
+        this.jiraHome = jiraHome;
+        this.auditJournalPruner = auditJournalPruner;
+        this.pluginSettingsManager = pluginSettingsManager;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws SchedulerServiceException {
+        schedulerService.registerJobRunner(JOB_RUNNER_KEY, this);
+        JobConfig jobConfig = JobConfig.forJobRunnerKey(JOB_RUNNER_KEY)
+                .withRunMode(RunMode.RUN_ONCE_PER_CLUSTER)
+                .withSchedule(Schedule.forInterval(
+                        RUN_INTERVAL_MILLIS, new Date(System.currentTimeMillis() + FIRST_RUN_DELAY_MILLIS)));
+        schedulerService.scheduleJob(JOB_ID, jobConfig);
+    }
+
+    @Override
+    public void destroy() {
+        schedulerService.unregisterJobRunner(JOB_RUNNER_KEY);
+    }
+
+    @Override
+    public JobRunnerResponse runJob(JobRunnerRequest request) {
+
+        MappingSettingsDto settings = pluginSettingsManager.getMappingSettings();
+        AuditRetentionPolicy policy = AuditRetentionPolicy.of(
+                settings.auditRetentionDays(),
+                settings.auditRetentionMaxRows(),
+                Boolean.TRUE.equals(settings.auditArchiveEnabled()));
+        if (!policy.isEnabled()) {
+            return JobRunnerResponse.success("Audit retention policy is not configured");
+        }
+
+        Path archiveDirectory = jiraHome.getExportDirectory().toPath().resolve("entity-mapper");
+        try {
+            AuditPruneResult pruneResult = auditJournalPruner.prune(policy, ZonedDateTime.now(), archiveDirectory);
+            if (pruneResult.getArchiveFile() != null) {
+                LOG.info("Archived {} pruned audit event(s) to {}", pruneResult.getDeletedCount(), pruneResult.getArchiveFile());
+            }
+            if (pruneResult.isLimitReached()) {
+                LOG.info("Audit pruning stopped after {} event(s), the rest will be pruned by the next run",
+                        pruneResult.getDeletedCount());
+            }
+            return JobRunnerResponse.success(String.format("Pruned %d audit event(s)", pruneResult.getDeletedCount()));
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Audit pruning failed", e);
+            return JobRunnerResponse.failed(e);
+        }
+
+    }
+
+}
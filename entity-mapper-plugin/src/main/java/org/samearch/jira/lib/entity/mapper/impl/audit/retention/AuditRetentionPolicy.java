@@ -0,0 +1,73 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.audit.retention;
+
+/**
+ * Политика хранения событий журнала аудита: события старше {@code maxAgeDays} дней и самые старые события сверх
+ * {@code maxRows} удаляются. Ограничение, не заданное или не большее нуля, не применяется.
+ */
+public final class AuditRetentionPolicy {
+
+    private final Integer maxAgeDays;
+    private final Integer maxRows;
+    private final boolean archiveEnabled;
+
+    private AuditRetentionPolicy(Integer maxAgeDays, Integer maxRows, boolean archiveEnabled) {
+        this.maxAgeDays = maxAgeDays;
+        this.maxRows = maxRows;
+        this.archiveEnabled = archiveEnabled;
+    }
+
+    /**
+     * @param maxAgeDays максимальный возраст события в днях
+     * @param maxRows максимальное количество событий в журнале
+     * @param archiveEnabled сохранять ли удаляемые события в архив
+     */
+    public static AuditRetentionPolicy of(Integer maxAgeDays, Integer maxRows, boolean archiveEnabled) {
+        return new AuditRetentionPolicy(
+                maxAgeDays != null && maxAgeDays > 0 ? maxAgeDays : null,
+                maxRows != null && maxRows > 0 ? maxRows : null,
+                archiveEnabled);
+    }
+
+    /**
+     * @return максимальный возраст события в днях или {@code null}, если возраст не ограничен
+     */
+    public Integer getMaxAgeDays() {
+        return maxAgeDays;
+    }
+
+    /**
+     * @return максимальное количество событий или {@code null}, если количество не ограничено
+     */
+    public Integer getMaxRows() {
+        return maxRows;
+    }
+
+    public boolean isArchiveEnabled() {
+        return archiveEnabled;
+    }
+
+    /**
+     * @return {@code true}, если задано хотя бы одно ограничение
+     */
+    public boolean isEnabled() {
+        return maxAgeDays != null || maxRows != null;
+    }
+
+}
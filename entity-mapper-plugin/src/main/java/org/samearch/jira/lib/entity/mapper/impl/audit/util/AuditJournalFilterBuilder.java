@@ -17,6 +17,7 @@
 
 package org.samearch.jira.lib.entity.mapper.impl.audit.util;
 
+import org.samearch.jira.lib.entity.mapper.api.AuditJournalCursor;
 import org.samearch.jira.lib.entity.mapper.api.AuditJournalFilter;
 import org.samearch.jira.lib.entity.mapper.api.DateRange;
 import org.samearch.jira.lib.entity.mapper.api.EntityMappingEvent;
@@ -53,6 +54,7 @@ public class AuditJournalFilterBuilder {
     private ZonedDateTime startDate;
     private ZonedDateTime endDate;
     private EntityMappingEvent mappingEvent;
+    private AuditJournalCursor after;
 
     public AuditJournalFilterBuilder withEventsLimit(Integer eventsLimit) {
         this.eventsCount = eventsLimit;
@@ -102,6 +104,14 @@ public class AuditJournalFilterBuilder {
         return this;
     }
 
+    /**
+     * Выбирать события, которые в журнале идут после события курсора (более старые).
+     */
+    public AuditJournalFilterBuilder after(AuditJournalCursor cursor) {
+        this.after = cursor;
+        return this;
+    }
+
     public AuditJournalFilter build() {
         Integer realEventsLimit = eventsCount != null && eventsCount > 0
                 ? eventsCount
@@ -119,7 +129,7 @@ public class AuditJournalFilterBuilder {
             realEndDate = realEndDate.plusDays(1);
         }
         DateRange dateRange = new DateRange(realStartDate, realEndDate);
-        return new AuditJournalFilterImpl(realEventsLimit, ids, initiators, dateRange, mappingEvent);
+        return new AuditJournalFilterImpl(realEventsLimit, ids, initiators, dateRange, mappingEvent, after);
     }
 
     public AuditJournalFilter withoutFiltering() {
@@ -128,6 +138,7 @@ public class AuditJournalFilterBuilder {
                 new HashSet<>(),
                 new HashSet<>(),
                 new DateRange(MINIMAL_START_DATE, ZonedDateTime.now()),
+                null,
                 null);
     }
 
@@ -138,13 +149,15 @@ public class AuditJournalFilterBuilder {
         private final Set<String> initiators;
         private final DateRange dateRange;
         private final EntityMappingEvent mappingEvent;
+        private final AuditJournalCursor after;
 
-        public AuditJournalFilterImpl(Integer eventsCount, Set<Long> ids, Set<String> initiators, DateRange dateRange, EntityMappingEvent mappingEvent) {
+        public AuditJournalFilterImpl(Integer eventsCount, Set<Long> ids, Set<String> initiators, DateRange dateRange, EntityMappingEvent mappingEvent, AuditJournalCursor after) {
             this.eventsCount = eventsCount;
             this.ids = ids;
             this.initiators = initiators;
             this.dateRange = dateRange;
             this.mappingEvent = mappingEvent;
+            this.after = after;
         }
 
         @Override
@@ -171,6 +184,11 @@ public class AuditJournalFilterBuilder {
             return mappingEvent;
         }
 
+        @Override
+        public AuditJournalCursor after() {
+            return after;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -180,6 +198,7 @@ public class AuditJournalFilterBuilder {
 
             if (!Objects.equals(ids, that.ids)) return false;
             if (!Objects.equals(initiators, that.initiators)) return false;
+            if (!Objects.equals(after, that.after)) return false;
             return Objects.equals(dateRange, that.dateRange);
         }
 
@@ -188,6 +207,7 @@ public class AuditJournalFilterBuilder {
             int result = ids != null ? ids.hashCode() : 0;
             result = 31 * result + (initiators != null ? initiators.hashCode() : 0);
             result = 31 * result + (dateRange != null ? dateRange.hashCode() : 0);
+            result = 31 * result + (after != null ? after.hashCode() : 0);
             return result;
         }
     }
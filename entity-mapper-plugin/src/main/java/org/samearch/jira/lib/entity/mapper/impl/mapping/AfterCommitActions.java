@@ -0,0 +1,87 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Действия, отложенные до фиксации транзакции записи маппингов.<br/>
+ * <br/>
+ * Вызов {@link EntityMappingManager}, выполняющий действие в транзакции записи, оборачивается в область
+ * ({@link #open()}). Действие, переданное в {@link #runAfterCommit(Runnable)} из этой транзакции, выполняется вызовом
+ * {@link #run()} после того, как {@link EntityMappingManager} вернул управление, то есть после фиксации транзакции, и
+ * отбрасывается, если транзакция была отменена. Вне области действие выполняется сразу.<br/>
+ * <br/>
+ * Области привязаны к потоку; вложенная область не имеет своих действий, и они выполняются внешней областью.
+ */
+public final class AfterCommitActions implements AutoCloseable {
+
+    private static final ThreadLocal<List<Runnable>> PENDING_ACTIONS = new ThreadLocal<>();
+
+    private final boolean outermost;
+
+    private AfterCommitActions(boolean outermost) {
+        this.outermost = outermost;
+    }
+
+    public static AfterCommitActions open() {
+        if (PENDING_ACTIONS.get() != null) {
+            return new AfterCommitActions(false);
+        }
+        PENDING_ACTIONS.set(new ArrayList<>());
+        return new AfterCommitActions(true);
+    }
+
+    /**
+     * Откладывает действие до фиксации транзакции, если поток находится в области, иначе выполняет его сразу.
+     */
+    public static void runAfterCommit(Runnable action) {
+        List<Runnable> pendingActions = PENDING_ACTIONS.get();
+        if (pendingActions == null) {
+            action.run();
+        } else {
+            pendingActions.add(action);
+        }
+    }
+
+    /**
+     * Выполняет отложенные действия и закрывает область: действия, переданные после этого, выполняются сразу.
+     */
+    public void run() {
+        if (!outermost) {
+            return;
+        }
+        List<Runnable> pendingActions = PENDING_ACTIONS.get();
+        PENDING_ACTIONS.remove();
+        if (pendingActions != null) {
+            pendingActions.forEach(Runnable::run);
+        }
+    }
+
+    /**
+     * Закрывает область, отбрасывая невыполненные действия.
+     */
+    @Override
+    public void close() {
+        if (outermost) {
+            PENDING_ACTIONS.remove();
+        }
+    }
+
+}
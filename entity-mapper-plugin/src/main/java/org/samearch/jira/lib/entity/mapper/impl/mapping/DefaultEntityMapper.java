@@ -22,12 +22,15 @@ import org.samearch.jira.lib.entity.mapper.api.AuditEventRecord;
 import org.samearch.jira.lib.entity.mapper.api.AuditJournal;
 import org.samearch.jira.lib.entity.mapper.api.EntityMapper;
 import org.samearch.jira.lib.entity.mapper.api.EntityMapping;
+import org.samearch.jira.lib.entity.mapper.api.EntityMappingChangeListener;
 import org.samearch.jira.lib.entity.mapper.api.exception.ClosedChainEntityMappingException;
 import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingConflictException;
 import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingNotFoundException;
 import org.samearch.jira.lib.entity.mapper.impl.audit.util.AuditRecordBuilder;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -38,46 +41,60 @@ public class DefaultEntityMapper implements EntityMapper {
     private final EntityMappingManager mappingManager;
     private final AuditJournal auditJournal;
     private final AuditRecordBuilder auditRecordBuilder;
+    private final MappingsChangeDispatcher changeDispatcher;
 
     public DefaultEntityMapper(
             EntityMappingManager entityMappingManager,
             AuditJournal auditJournal,
-            AuditRecordBuilder auditRecordBuilder) {
+            AuditRecordBuilder auditRecordBuilder,
+            MappingsChangeDispatcher changeDispatcher) {
         this.mappingManager = entityMappingManager;
         this.auditJournal = auditJournal;
         this.auditRecordBuilder = auditRecordBuilder;
+        this.changeDispatcher = changeDispatcher;
     }
 
     @Override
-    public EntityMapping addMapping(String userKey, String key, String value) throws EntityMappingConflictException {
-        EntityMapping createdEntityMapping = mappingManager.addMapping(key, value);
-        AuditEventRecord auditEventRecord = auditRecordBuilder.buildRecordForCreateMappingEvent(userKey, createdEntityMapping);
-        auditJournal.createAuditEventRecord(auditEventRecord);
-        return createdEntityMapping;
+    public EntityMapping addMapping(String userKey, String key, String value)
+            throws EntityMappingConflictException {
+        try (AfterCommitActions afterCommitActions = AfterCommitActions.open()) {
+            EntityMapping createdMapping = mappingManager.addMapping(key, value, storedMapping -> {
+                AuditEventRecord auditEventRecord = auditRecordBuilder.buildRecordForCreateMappingEvent(userKey, storedMapping);
+                auditJournal.createAuditEventRecord(auditEventRecord);
+            });
+            afterCommitActions.run();
+            return createdMapping;
+        }
     }
 
     @Override
     public void removeMapping(String userKey, String key) {
-        Optional<EntityMapping> savedMappingHolder = mappingManager.getMapping(key);
-        if (savedMappingHolder.isPresent()) {
-            EntityMapping savedMapping = savedMappingHolder.get();
-            AuditEventRecord auditEventRecord = auditRecordBuilder.buildRecordForDeleteMappingEvent(userKey, savedMapping);
-            auditJournal.createAuditEventRecord(auditEventRecord);
-            mappingManager.removeMapping(key);
+        try (AfterCommitActions afterCommitActions = AfterCommitActions.open()) {
+            mappingManager.removeMapping(key, removedMapping -> {
+                AuditEventRecord auditEventRecord = auditRecordBuilder.buildRecordForDeleteMappingEvent(userKey, removedMapping);
+                auditJournal.createAuditEventRecord(auditEventRecord);
+            });
+            afterCommitActions.run();
         }
     }
 
     @Override
-    public EntityMapping updateMapping(String userKey, int mappingId, String key, String newMappingValue) throws EntityMappingNotFoundException, EntityMappingConflictException {
-        Optional<EntityMapping> currentMappingRecordHolder = mappingManager.getMapping(mappingId);
-        if (!currentMappingRecordHolder.isPresent()) {
-            throw new EntityMappingNotFoundException(mappingId);
+    public EntityMapping updateMapping(String userKey, int mappingId, String key, String newMappingValue)
+            throws EntityMappingNotFoundException, EntityMappingConflictException {
+        return updateMapping(userKey, mappingId, EntityMappingManager.ANY_VERSION, key, newMappingValue);
+    }
+
+    @Override
+    public EntityMapping updateMapping(String userKey, int mappingId, long expectedVersion, String key, String newMappingValue)
+            throws EntityMappingNotFoundException, EntityMappingConflictException {
+        try (AfterCommitActions afterCommitActions = AfterCommitActions.open()) {
+            EntityMapping updatedMapping = mappingManager.updateMapping(mappingId, expectedVersion, key, newMappingValue, (currentMappingRecord, updatedMappingRecord) -> {
+                AuditEventRecord auditEventRecord = auditRecordBuilder.buildRecordForUpdateMappingEvent(userKey, currentMappingRecord, updatedMappingRecord);
+                auditJournal.createAuditEventRecord(auditEventRecord);
+            });
+            afterCommitActions.run();
+            return updatedMapping;
         }
-        EntityMapping currentMappingRecord = currentMappingRecordHolder.get();
-        EntityMapping updatedMappingRecord = mappingManager.updateMapping(mappingId, key, newMappingValue);
-        AuditEventRecord auditEventRecord = auditRecordBuilder.buildRecordForUpdateMappingEvent(userKey, currentMappingRecord, updatedMappingRecord);
-        auditJournal.createAuditEventRecord(auditEventRecord);
-        return updatedMappingRecord;
     }
 
     @Override
@@ -90,6 +107,11 @@ public class DefaultEntityMapper implements EntityMapper {
         return mappingManager.getMappedValuesLike(keyFilter);
     }
 
+    @Override
+    public int getMappingsCountLike(String keyFilter) {
+        return mappingManager.getMappingsCountLike(keyFilter);
+    }
+
     @Override
     public Optional<EntityMapping> getMapping(int mappingId) {
         return mappingManager.getMapping(mappingId);
@@ -105,6 +127,11 @@ public class DefaultEntityMapper implements EntityMapper {
         return mappingManager.getMappedValue(key);
     }
 
+    @Override
+    public Map<String, String> getMappedValuesForKeys(Collection<String> keys) {
+        return mappingManager.getMappedValuesForKeys(keys);
+    }
+
     @Override
     public <X extends Throwable> String getMappedValueOrElseThrow(String key, X exception) throws X, ClosedChainEntityMappingException {
         return mappingManager.getMappedValueOrElseThrow(key, exception);
@@ -114,4 +141,29 @@ public class DefaultEntityMapper implements EntityMapper {
     public boolean isMappingPresent(String key) {
         return mappingManager.isMappingPresent(key);
     }
+
+    @Override
+    public long getMappingsVersion() {
+        return mappingManager.getMappingsVersion();
+    }
+
+    @Override
+    public long getMappingsVersion(String keyPrefix) {
+        return mappingManager.getMappingsVersion(keyPrefix);
+    }
+
+    @Override
+    public void addKeyChangeListener(String key, EntityMappingChangeListener listener) {
+        changeDispatcher.addListener(key::equals, listener);
+    }
+
+    @Override
+    public void addPrefixChangeListener(String keyPrefix, EntityMappingChangeListener listener) {
+        changeDispatcher.addListener(changedKey -> changedKey.startsWith(keyPrefix), listener);
+    }
+
+    @Override
+    public void removeChangeListener(EntityMappingChangeListener listener) {
+        changeDispatcher.removeListener(listener);
+    }
 }
@@ -17,8 +17,19 @@
 
 package org.samearch.jira.lib.entity.mapper.impl.mapping;
 
+import com.atlassian.event.api.EventListener;
+import com.atlassian.event.api.EventPublisher;
 import com.atlassian.jira.config.IssueTypeManager;
 import com.atlassian.jira.config.StatusManager;
+import com.atlassian.jira.event.ClearCacheEvent;
+import com.atlassian.jira.event.ProjectDeletedEvent;
+import com.atlassian.jira.event.ProjectUpdatedEvent;
+import com.atlassian.jira.event.config.IssueTypeDeletedEvent;
+import com.atlassian.jira.event.config.IssueTypeUpdatedEvent;
+import com.atlassian.jira.event.config.StatusDeletedEvent;
+import com.atlassian.jira.event.config.StatusUpdatedEvent;
+import com.atlassian.jira.event.issue.field.CustomFieldDeletedEvent;
+import com.atlassian.jira.event.issue.field.CustomFieldUpdatedEvent;
 import com.atlassian.jira.issue.CustomFieldManager;
 import com.atlassian.jira.issue.fields.CustomField;
 import com.atlassian.jira.issue.issuetype.IssueType;
@@ -28,18 +39,31 @@ import com.atlassian.jira.project.ProjectManager;
 import com.atlassian.plugin.spring.scanner.annotation.export.ExportAsService;
 import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
 import org.samearch.jira.lib.entity.mapper.api.EntityMapper;
+import org.samearch.jira.lib.entity.mapper.api.EntityMappingChangeListener;
+import org.samearch.jira.lib.entity.mapper.api.EntityMappingsChangeEvent;
 import org.samearch.jira.lib.entity.mapper.api.JiraEntityMappingHelper;
 import org.samearch.jira.lib.entity.mapper.api.exception.ClosedChainEntityMappingException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
 
+/**
+ * Помощник получения объектов Jira по значениям маппингов.<br/>
+ * <br/>
+ * Найденные объекты кешируются по ключу маппинга. Запись кеша действительна, пока не изменилась версия маппингов ключа
+ * ({@link EntityMapper#getMappingsVersion(String)}), поэтому повторный запрос объекта сводится к поиску в хеш-таблице.
+ * Записи кеша удаляются при изменении маппингов (уведомления {@link EntityMapper}) и при изменении или удалении
+ * объектов Jira соответствующего типа (события Jira). Отсутствующие объекты не кешируются.
+ */
 @Service
 @ExportAsService({JiraEntityMappingHelper.class})
-public class DefaultJiraEntityMappingHelper implements JiraEntityMappingHelper {
+public class DefaultJiraEntityMappingHelper
+        implements JiraEntityMappingHelper, EntityMappingChangeListener, InitializingBean, DisposableBean {
 
     private static final Logger LOG = LoggerFactory.getLogger(DefaultJiraEntityMappingHelper.class);
 
@@ -53,6 +77,13 @@ public class DefaultJiraEntityMappingHelper implements JiraEntityMappingHelper {
     private final CustomFieldManager customFieldManager;
     @ComponentImport
     private final StatusManager statusManager;
+    @ComponentImport
+    private final EventPublisher eventPublisher;
+
+    private final ResolvedEntitiesCache<Project> projectsCache = new ResolvedEntitiesCache<>();
+    private final ResolvedEntitiesCache<IssueType> issueTypesCache = new ResolvedEntitiesCache<>();
+    private final ResolvedEntitiesCache<CustomField> customFieldsCache = new ResolvedEntitiesCache<>();
+    private final ResolvedEntitiesCache<Status> statusesCache = new ResolvedEntitiesCache<>();
 
     @Autowired
     public DefaultJiraEntityMappingHelper(
@@ -60,19 +91,50 @@ public class DefaultJiraEntityMappingHelper implements JiraEntityMappingHelper {
             IssueTypeManager issueTypeManager,
             CustomFieldManager customFieldManager,
             StatusManager statusManager,
+            EventPublisher eventPublisher,
             EntityMapper entityMapper) {
 
         this.projectManager = projectManager;
         this.issueTypeManager = issueTypeManager;
         this.customFieldManager = customFieldManager;
         this.statusManager = statusManager;
+        this.eventPublisher = eventPublisher;
 
         this.entityMapper = entityMapper;
     }
 
+    @Override
+    public void afterPropertiesSet() {
+        eventPublisher.register(this);
+        entityMapper.addPrefixChangeListener("", this);
+    }
+
+    @Override
+    public void destroy() {
+        entityMapper.removeChangeListener(this);
+        eventPublisher.unregister(this);
+    }
+
     @Override
     public Optional<Project> getMappedProjectById(String mappedProjectIdKey) {
 
+        long mappingsVersion = entityMapper.getMappingsVersion(mappedProjectIdKey);
+        Optional<Project> cachedProject = projectsCache.get(mappedProjectIdKey, mappingsVersion);
+        if (cachedProject.isPresent()) {
+            return cachedProject;
+        }
+
+        long cacheGeneration = projectsCache.getGeneration();
+        Optional<Project> mappedProject = resolveProjectById(mappedProjectIdKey);
+        mappedProject.ifPresent(project ->
+                projectsCache.put(mappedProjectIdKey, mappingsVersion, cacheGeneration, project));
+
+        return mappedProject;
+
+    }
+
+    private Optional<Project> resolveProjectById(String mappedProjectIdKey) {
+
         try {
             return entityMapper.getMappedValue(mappedProjectIdKey).map(projectIdParam -> {
                 Optional<Project> mappedProject;
@@ -94,6 +156,23 @@ public class DefaultJiraEntityMappingHelper implements JiraEntityMappingHelper {
     @Override
     public Optional<IssueType> getMappedIssueTypeById(String mappedIssueTypeIdKey) {
 
+        long mappingsVersion = entityMapper.getMappingsVersion(mappedIssueTypeIdKey);
+        Optional<IssueType> cachedIssueType = issueTypesCache.get(mappedIssueTypeIdKey, mappingsVersion);
+        if (cachedIssueType.isPresent()) {
+            return cachedIssueType;
+        }
+
+        long cacheGeneration = issueTypesCache.getGeneration();
+        Optional<IssueType> mappedIssueType = resolveIssueTypeById(mappedIssueTypeIdKey);
+        mappedIssueType.ifPresent(issueType ->
+                issueTypesCache.put(mappedIssueTypeIdKey, mappingsVersion, cacheGeneration, issueType));
+
+        return mappedIssueType;
+
+    }
+
+    private Optional<IssueType> resolveIssueTypeById(String mappedIssueTypeIdKey) {
+
         try {
             return entityMapper.getMappedValue(mappedIssueTypeIdKey).map(issueTypeManager::getIssueType);
         } catch (ClosedChainEntityMappingException e) {
@@ -105,6 +184,23 @@ public class DefaultJiraEntityMappingHelper implements JiraEntityMappingHelper {
 
     @Override
     public Optional<CustomField> getMappedCustomFieldById(String mappedCustomFieldIdKey) {
+
+        long mappingsVersion = entityMapper.getMappingsVersion(mappedCustomFieldIdKey);
+        Optional<CustomField> cachedCustomField = customFieldsCache.get(mappedCustomFieldIdKey, mappingsVersion);
+        if (cachedCustomField.isPresent()) {
+            return cachedCustomField;
+        }
+
+        long cacheGeneration = customFieldsCache.getGeneration();
+        Optional<CustomField> mappedCustomField = resolveCustomFieldById(mappedCustomFieldIdKey);
+        mappedCustomField.ifPresent(customField ->
+                customFieldsCache.put(mappedCustomFieldIdKey, mappingsVersion, cacheGeneration, customField));
+
+        return mappedCustomField;
+
+    }
+
+    private Optional<CustomField> resolveCustomFieldById(String mappedCustomFieldIdKey) {
         try {
             return entityMapper.getMappedValue(mappedCustomFieldIdKey)
                     .flatMap(this::getCfById);
@@ -125,6 +221,23 @@ public class DefaultJiraEntityMappingHelper implements JiraEntityMappingHelper {
 
     @Override
     public Optional<Status> getMappedIssueStatusById(String mappedIssueStatusIdKey) {
+
+        long mappingsVersion = entityMapper.getMappingsVersion(mappedIssueStatusIdKey);
+        Optional<Status> cachedStatus = statusesCache.get(mappedIssueStatusIdKey, mappingsVersion);
+        if (cachedStatus.isPresent()) {
+            return cachedStatus;
+        }
+
+        long cacheGeneration = statusesCache.getGeneration();
+        Optional<Status> mappedStatus = resolveIssueStatusById(mappedIssueStatusIdKey);
+        mappedStatus.ifPresent(status ->
+                statusesCache.put(mappedIssueStatusIdKey, mappingsVersion, cacheGeneration, status));
+
+        return mappedStatus;
+
+    }
+
+    private Optional<Status> resolveIssueStatusById(String mappedIssueStatusIdKey) {
         try {
             return entityMapper.getMappedValue(mappedIssueStatusIdKey).map(statusManager::getStatus);
         } catch (ClosedChainEntityMappingException e) {
@@ -133,4 +246,68 @@ public class DefaultJiraEntityMappingHelper implements JiraEntityMappingHelper {
         }
     }
 
+    @Override
+    public void onMappingsChanged(EntityMappingsChangeEvent changeEvent) {
+        if (changeEvent.isAllMappingsChanged()) {
+            clearAllCaches();
+        } else {
+            projectsCache.invalidate(changeEvent.getChangedKeys());
+            issueTypesCache.invalidate(changeEvent.getChangedKeys());
+            customFieldsCache.invalidate(changeEvent.getChangedKeys());
+            statusesCache.invalidate(changeEvent.getChangedKeys());
+        }
+    }
+
+    @EventListener
+    public void onProjectUpdated(ProjectUpdatedEvent event) {
+        projectsCache.clear();
+    }
+
+    @EventListener
+    public void onProjectDeleted(ProjectDeletedEvent event) {
+        projectsCache.clear();
+    }
+
+    @EventListener
+    public void onIssueTypeUpdated(IssueTypeUpdatedEvent event) {
+        issueTypesCache.clear();
+    }
+
+    @EventListener
+    public void onIssueTypeDeleted(IssueTypeDeletedEvent event) {
+        issueTypesCache.clear();
+    }
+
+    @EventListener
+    public void onCustomFieldUpdated(CustomFieldUpdatedEvent event) {
+        customFieldsCache.clear();
+    }
+
+    @EventListener
+    public void onCustomFieldDeleted(CustomFieldDeletedEvent event) {
+        customFieldsCache.clear();
+    }
+
+    @EventListener
+    public void onStatusUpdated(StatusUpdatedEvent event) {
+        statusesCache.clear();
+    }
+
+    @EventListener
+    public void onStatusDeleted(StatusDeletedEvent event) {
+        statusesCache.clear();
+    }
+
+    @EventListener
+    public void onClearCache(ClearCacheEvent event) {
+        clearAllCaches();
+    }
+
+    private void clearAllCaches() {
+        projectsCache.clear();
+        issueTypesCache.clear();
+        customFieldsCache.clear();
+        statusesCache.clear();
+    }
+
 }
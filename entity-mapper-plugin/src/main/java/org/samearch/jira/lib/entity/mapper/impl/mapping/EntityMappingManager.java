@@ -17,84 +17,382 @@
 
 package org.samearch.jira.lib.entity.mapper.impl.mapping;
 
+import org.apache.commons.lang3.StringUtils;
 import org.samearch.jira.lib.entity.mapper.api.EntityMapping;
 import org.samearch.jira.lib.entity.mapper.api.exception.ClosedChainEntityMappingException;
 import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingConflictException;
 import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingNotFoundException;
+import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingVersionMismatchException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
  * Высокоуровневый сервис управления записями маппинга.<br/>
  * <br/>
- * "Прозрачно" выполняет различные проверки и, в случае недопустимых ситуаций, генерирует соответствующие ошибки.
+ * "Прозрачно" выполняет различные проверки и, в случае недопустимых ситуаций, генерирует соответствующие ошибки.<br/>
+ * <br/>
+ * Все операции чтения обслуживаются из неизменяемого снимка маппингов ({@link MappingsSnapshot}), который полностью
+ * загружается из хранилища при первом обращении. Ссылки между маппингами разрешаются заранее, при построении снимка,
+ * поэтому получение значения по ключу не зависит от длины цепочки ссылок. Операции записи сериализуются: после
+ * успешного изменения хранилища публикуется новая версия снимка, а измененные ключи передаются
+ * {@link MappingsChangeDispatcher} для асинхронного уведомления слушателей.<br/>
+ * <br/>
+ * Набор ключей снимка является точным индексом присутствия ключей: он обновляется при каждой записи, поэтому запросы
+ * к отсутствующим ключам (в том числе удаление отсутствующего ключа) обслуживаются без обращения к хранилищу.<br/>
+ * <br/>
+ * Запись, которая замкнула бы цепочку ссылок, отклоняется до изменения хранилища, поэтому операции чтения не
+ * выполняют проверок на замкнутость и не генерируют {@link ClosedChainEntityMappingException}.<br/>
+ * <br/>
+ * Изменения хранилища, выполненные в обход снимка (на других узлах кластера), попадают в снимок при периодической
+ * сверке ({@link #revalidateSnapshot()}, задание {@link MappingsSnapshotRevalidationJob}).
  */
 @Component
 public class EntityMappingManager {
 
+    /**
+     * Ожидаемая версия, при которой обновление записи выполняется без проверки версии.
+     */
+    public static final long ANY_VERSION = -1;
+
     protected final EntityMappingStorage mappingStorage;
     private final MappingLinksResolver mappingLinksResolver;
+    private final MappingsChangeDispatcher changeDispatcher;
+
+    private final Object writeLock = new Object();
+    private volatile MappingsSnapshot snapshot;
+    /** Отметка хранилища, прочитанная перед последней загрузкой или сверкой снимка. */
+    private volatile MappingsStorageStamp snapshotStorageStamp;
 
     @Autowired
-    public EntityMappingManager(EntityMappingStorage mappingStorage, MappingLinksResolver mappingLinksResolver) {
+    public EntityMappingManager(EntityMappingStorage mappingStorage,
+                                MappingLinksResolver mappingLinksResolver,
+                                MappingsChangeDispatcher changeDispatcher) {
 
         this.mappingStorage = mappingStorage;
         this.mappingLinksResolver = mappingLinksResolver;
+        this.changeDispatcher = changeDispatcher;
+
+    }
 
+    public EntityMapping addMapping(String key, String value)
+            throws EntityMappingConflictException, ClosedChainEntityMappingException {
+        return addMapping(key, value, createdMapping -> { });
     }
 
-    public EntityMapping addMapping(String key, String value) throws EntityMappingConflictException {
+    /**
+     * Создает запись маппинга.<br/>
+     * <br/>
+     * Запись в хранилище и действие {@code inTransaction} выполняются в одной транзакции: если действие завершится
+     * ошибкой, запись не будет создана.
+     *
+     * @param inTransaction действие, выполняемое в транзакции создания (например, запись события аудита); получает
+     *                      созданную запись
+     */
+    public EntityMapping addMapping(String key, String value, Consumer<EntityMapping> inTransaction)
+            throws EntityMappingConflictException, ClosedChainEntityMappingException {
 
-        EntityMapping alreadySavedMappingForKey = mappingStorage.getMappingForKey(key);
+        synchronized (writeLock) {
+            MappingsSnapshot currentSnapshot = getSnapshot();
 
-        if (alreadySavedMappingForKey != null) {
-            throw new EntityMappingConflictException(key);
-        } else {
-            return mappingStorage.createEntityMapping(key, value);
+            if (currentSnapshot.containsKey(key)) {
+                throw new EntityMappingConflictException(key);
+            }
+
+            mappingLinksResolver.checkClosedChain(key, value, currentSnapshot::getMapping);
+
+            EntityMapping createdMapping = writeInTransaction(() -> {
+                EntityMapping storedMapping = mappingStorage.createEntityMapping(key, value);
+                inTransaction.accept(MappingsSnapshot.copyOf(storedMapping));
+                return storedMapping;
+            });
+            publish(currentSnapshot.modify().put(createdMapping).build());
+
+            return createdMapping;
         }
 
     }
 
     public void removeMapping(String key) {
-        mappingStorage.deleteEntityMapping(key);
+        removeMapping(key, removedMapping -> { });
+    }
+
+    /**
+     * Удаляет запись маппинга, если она существует.<br/>
+     * <br/>
+     * Удаление из хранилища и действие {@code inTransaction} выполняются в одной транзакции.
+     *
+     * @param inTransaction действие, выполняемое в транзакции удаления; получает удаляемую запись
+     */
+    public void removeMapping(String key, Consumer<EntityMapping> inTransaction) {
+
+        synchronized (writeLock) {
+            MappingsSnapshot currentSnapshot = getSnapshot();
+
+            EntityMapping removedMapping = currentSnapshot.getMapping(key);
+            if (removedMapping == null) {
+                return;
+            }
+
+            try {
+                writeInTransaction(() -> {
+                    mappingStorage.deleteEntityMapping(key);
+                    inTransaction.accept(MappingsSnapshot.copyOf(removedMapping));
+                    return null;
+                });
+            } catch (EntityMappingConflictException e) {
+                // Удаление не создает и не изменяет ключей
+                throw new IllegalStateException(e);
+            }
+            publish(currentSnapshot.modify().remove(key).build());
+        }
+
     }
 
     public EntityMapping updateMapping(int mappingId, String newMappingKey, String newMappingValue)
-            throws EntityMappingNotFoundException, EntityMappingConflictException {
+            throws EntityMappingNotFoundException, EntityMappingConflictException, ClosedChainEntityMappingException {
+        return updateMapping(mappingId, newMappingKey, newMappingValue, (previousMapping, updatedMapping) -> { });
+    }
 
-        EntityMapping currentEntityMapping = mappingStorage.getMappingById(mappingId);
+    public EntityMapping updateMapping(int mappingId,
+                                       String newMappingKey,
+                                       String newMappingValue,
+                                       BiConsumer<EntityMapping, EntityMapping> inTransaction)
+            throws EntityMappingNotFoundException, EntityMappingConflictException, ClosedChainEntityMappingException {
+        return updateMapping(mappingId, ANY_VERSION, newMappingKey, newMappingValue, inTransaction);
+    }
 
-        if (currentEntityMapping == null) {
-            throw new EntityMappingNotFoundException(mappingId);
-        } else {
-            checkMappingConflictForKey(currentEntityMapping.getId(), newMappingKey);
+    /**
+     * Обновляет ключ и значение записи маппинга, если ее версия совпадает с ожидаемой.<br/>
+     * <br/>
+     * Состояние записи до обновления берется из снимка, а после обновления - из результата записи в хранилище, поэтому
+     * запись не перечитывается. Запись в хранилище и действие {@code inTransaction} выполняются в одной транзакции.<br/>
+     * <br/>
+     * Версия сначала сверяется со снимком, а затем повторно - хранилищем при записи. Если запись была изменена в
+     * хранилище в обход снимка (например, на другом узле), то снимок обновляется перечитанной записью, а обновление
+     * отклоняется.
+     *
+     * @param expectedVersion ожидаемая версия записи или {@link #ANY_VERSION}, если версия не проверяется
+     * @param inTransaction действие, выполняемое в транзакции обновления; получает состояние записи до и после
+     *                      обновления
+     * @throws EntityMappingVersionMismatchException если версия записи отличается от ожидаемой
+     */
+    public EntityMapping updateMapping(int mappingId,
+                                       long expectedVersion,
+                                       String newMappingKey,
+                                       String newMappingValue,
+                                       BiConsumer<EntityMapping, EntityMapping> inTransaction)
+            throws EntityMappingNotFoundException, EntityMappingConflictException, ClosedChainEntityMappingException {
+
+        synchronized (writeLock) {
+            MappingsSnapshot currentSnapshot = getSnapshot();
 
-            return mappingStorage.updateEntityMapping(mappingId, newMappingKey, newMappingValue);
+            EntityMapping currentEntityMapping = currentSnapshot.getMapping(mappingId);
+
+            if (currentEntityMapping == null) {
+                throw new EntityMappingNotFoundException(mappingId);
+            }
+
+            if (expectedVersion != ANY_VERSION && expectedVersion != currentEntityMapping.getVersion()) {
+                throw new EntityMappingVersionMismatchException(
+                        mappingId, expectedVersion, currentEntityMapping.getVersion());
+            }
+
+            checkMappingConflictForKey(currentSnapshot, currentEntityMapping.getId(), newMappingKey);
+
+            String currentMappingKey = currentEntityMapping.getKey();
+            mappingLinksResolver.checkClosedChain(
+                    newMappingKey,
+                    newMappingValue,
+                    key -> key.equals(currentMappingKey) ? null : currentSnapshot.getMapping(key));
+
+            EntityMapping updatedMapping;
+            try {
+                updatedMapping = writeInTransaction(() -> {
+                    EntityMapping storedMapping = mappingStorage.updateEntityMapping(
+                            mappingId, currentEntityMapping.getVersion(), newMappingKey, newMappingValue);
+                    if (storedMapping != null) {
+                        inTransaction.accept(
+                                MappingsSnapshot.copyOf(currentEntityMapping), MappingsSnapshot.copyOf(storedMapping));
+                    }
+                    return storedMapping;
+                });
+            } catch (EntityMappingVersionMismatchException e) {
+                refreshMappings(currentSnapshot, Collections.singletonList(currentEntityMapping));
+                // Хранилище не всегда может прочитать текущую версию в отмененной транзакции, поэтому она берется из
+                // перечитанной записи
+                EntityMapping refreshedMapping = getSnapshot().getMapping(mappingId);
+                if (refreshedMapping == null) {
+                    throw e;
+                }
+                throw new EntityMappingVersionMismatchException(
+                        mappingId, currentEntityMapping.getVersion(), refreshedMapping.getVersion());
+            }
+
+            if (updatedMapping == null) {
+                // Запись удалена из хранилища в обход снимка
+                publish(currentSnapshot.modify().remove(currentMappingKey).build());
+                throw new EntityMappingNotFoundException(mappingId);
+            }
+
+            publish(currentSnapshot.modify().put(updatedMapping).build());
+
+            return updatedMapping;
         }
 
     }
 
-    public Optional<String> getMappedValue(String key) throws ClosedChainEntityMappingException {
+    /**
+     * Записывает пакет импортируемых маппингов.<br/>
+     * <br/>
+     * Импортируемые ключи сопоставляются с текущим снимком в памяти: для отсутствующих ключей создаются новые записи,
+     * для существующих - обновляются значения, записи с совпадающими значениями пропускаются. Значения, которые
+     * замкнули бы цепочку ссылок (с учетом ранее принятых значений пакета), отклоняются. Все создания и все обновления
+     * записываются в хранилище пакетно в одной транзакции, после чего публикуется одна новая версия снимка.
+     *
+     * @param importedValues импортируемые значения по ключам, в порядке их обработки
+     * @throws EntityMappingConflictException если хранилище обнаружило конфликт ключей, не отраженный в снимке. В
+     *                                        этом случае ни одна запись пакета не сохраняется, а записи с ключами
+     *                                        пакета перечитываются в снимок
+     */
+    public MappingsImportResult importMappings(Map<String, String> importedValues)
+            throws EntityMappingConflictException {
+        return importMappings(importedValues, importResult -> { });
+    }
+
+    /**
+     * Записывает пакет импортируемых маппингов так же, как {@link #importMappings(Map)}, выполняя действие
+     * {@code inTransaction} в той же транзакции, что и запись пакета.
+     *
+     * @param inTransaction действие, выполняемое в транзакции записи пакета (например, запись событий аудита);
+     *                      получает результат записи
+     */
+    public MappingsImportResult importMappings(Map<String, String> importedValues,
+                                               Consumer<MappingsImportResult> inTransaction)
+            throws EntityMappingConflictException {
+
+        synchronized (writeLock) {
+            MappingsSnapshot currentSnapshot = getSnapshot();
+            MappingsImportResult importResult = new MappingsImportResult();
+
+            Map<String, EntityMapping> acceptedMappings = new HashMap<>();
+            Function<String, EntityMapping> mappingsLookup = key -> acceptedMappings.containsKey(key)
+                    ? acceptedMappings.get(key)
+                    : currentSnapshot.getMapping(key);
+
+            Map<String, String> createdValues = new LinkedHashMap<>();
+            Map<Integer, EntityMapping> previousMappings = new LinkedHashMap<>();
+            List<EntityMapping> updatedMappings = new ArrayList<>();
+
+            importedValues.forEach((key, value) -> {
+                EntityMapping existingMapping = currentSnapshot.getMapping(key);
+                if (existingMapping != null && existingMapping.getValue().equals(value)) {
+                    importResult.addUnchanged();
+                    return;
+                }
+
+                try {
+                    mappingLinksResolver.checkClosedChain(key, value, mappingsLookup);
+                } catch (ClosedChainEntityMappingException e) {
+                    importResult.addRejected(key, e);
+                    return;
+                }
+
+                EntityMapping acceptedMapping = new EntityMapping();
+                acceptedMapping.setKey(key);
+                acceptedMapping.setValue(value);
+                acceptedMappings.put(key, acceptedMapping);
+
+                if (existingMapping == null) {
+                    createdValues.put(key, value);
+                } else {
+                    acceptedMapping.setId(existingMapping.getId());
+                    acceptedMapping.setVersion(existingMapping.getVersion());
+                    previousMappings.put(existingMapping.getId(), MappingsSnapshot.copyOf(existingMapping));
+                    updatedMappings.add(acceptedMapping);
+                }
+            });
+
+            if (createdValues.isEmpty() && updatedMappings.isEmpty()) {
+                return importResult;
+            }
+
+            try {
+                writeInTransaction(() -> {
+                    mappingStorage.createEntityMappings(createdValues)
+                            .forEach(mapping -> importResult.addCreated(MappingsSnapshot.copyOf(mapping)));
+                    mappingStorage.updateEntityMappings(updatedMappings)
+                            .forEach(mapping -> importResult.addUpdated(
+                                    previousMappings.get(mapping.getId()), MappingsSnapshot.copyOf(mapping)));
+                    inTransaction.accept(importResult);
+                    return null;
+                });
+            } catch (EntityMappingVersionMismatchException e) {
+                refreshMappings(currentSnapshot, previousMappings.values());
+                throw e;
+            } catch (EntityMappingConflictException e) {
+                // Снимок не знал о записях, созданных в обход него (например, на другом узле): без обновления снимка
+                // повторный импорт этих ключей снова завершился бы конфликтом
+                refreshKeys(currentSnapshot, importedValues.keySet());
+                throw e;
+            }
 
-        String effectiveMappingKey = mappingLinksResolver.resolveTargetMappingKey(key);
-        EntityMapping savedMapping = mappingStorage.getMappingForKey(effectiveMappingKey);
+            MappingsSnapshot.Builder newSnapshot = currentSnapshot.modify();
+            importResult.getCreatedMappings().forEach(newSnapshot::put);
+            importResult.getUpdatedMappings().forEach(mappingUpdate -> newSnapshot.put(mappingUpdate.getCurrentMapping()));
+            publish(newSnapshot.build());
 
-        return (savedMapping != null)
-                ? Optional.ofNullable(savedMapping.getValue())
-                : Optional.empty();
+            return importResult;
+        }
 
     }
 
-    public <X extends Throwable> String getMappedValueOrElseThrow(String key, X exception) throws X, ClosedChainEntityMappingException {
+    public Optional<String> getMappedValue(String key) {
+        return Optional.ofNullable(getSnapshot().getResolvedValue(key));
+    }
 
-        String effectiveMappingKey = mappingLinksResolver.resolveTargetMappingKey(key);
-        EntityMapping savedMapping = mappingStorage.getMappingForKey(effectiveMappingKey);
+    /**
+     * Возвращает конечные значения указанных ключей, прочитанные из одной версии снимка.
+     */
+    public Map<String, String> getMappedValuesForKeys(Collection<String> keys) {
 
-        if (savedMapping != null) {
-            return savedMapping.getValue();
+        MappingsSnapshot currentSnapshot = getSnapshot();
+        Map<String, String> mappedValues = new HashMap<>();
+
+        for (String key : keys) {
+            String resolvedValue = currentSnapshot.getResolvedValue(key);
+            if (resolvedValue != null) {
+                mappedValues.put(key, resolvedValue);
+            }
+        }
+
+        return mappedValues;
+
+    }
+
+    public <X extends Throwable> String getMappedValueOrElseThrow(String key, X exception) throws X {
+
+        String resolvedValue = getSnapshot().getResolvedValue(key);
+
+        if (resolvedValue != null) {
+            return resolvedValue;
         } else {
             throw exception;
         }
@@ -102,23 +400,269 @@ public class EntityMappingManager {
     }
 
     public Set<EntityMapping> getMappedValues() {
-        return mappingStorage.getEntityMappings();
+        return getSnapshot().getMappings().stream()
+                .map(MappingsSnapshot::copyOf)
+                .collect(Collectors.toSet());
     }
 
     public Set<EntityMapping> getMappedValuesLike(String keyFilter) {
-        return mappingStorage.getEntityMappingsLike(keyFilter);
+        return getSnapshot().getMappingsWithKeyPrefix(keyFilter).stream()
+                .map(MappingsSnapshot::copyOf)
+                .collect(Collectors.toSet());
+    }
+
+    public int getMappingsCountLike(String keyFilter) {
+        return getSnapshot().countMappingsWithKeyPrefix(keyFilter);
+    }
+
+    /**
+     * Возвращает страницу маппингов, ключи которых начинаются с префикса {@code keyPrefix}, а ключ или значение
+     * содержат подстроку {@code searchText} без учета регистра.<br/>
+     * <br/>
+     * Страница и количества записей вычисляются по одной версии снимка. Начало страницы находится спуском по дереву
+     * ключей к ключу {@code afterKey}, поэтому без фильтра по подстроке стоимость запроса пропорциональна размеру
+     * страницы. С фильтром по подстроке для подсчета количества просматриваются все записи с префиксом.
+     *
+     * @param keyPrefix префикс ключей; пустая строка - все записи
+     * @param searchText подстрока ключа или значения; пустая строка или {@code null} - без фильтра
+     * @param afterKey ключ последней записи предыдущей страницы; {@code null} - первая страница
+     * @param pageSize максимальное количество записей на странице
+     */
+    public MappingsPage getMappingsPage(String keyPrefix, String searchText, String afterKey, int pageSize) {
+
+        MappingsSnapshot currentSnapshot = getSnapshot();
+        Predicate<EntityMapping> filter = StringUtils.isEmpty(searchText)
+                ? mapping -> true
+                : mapping -> StringUtils.containsIgnoreCase(mapping.getKey(), searchText)
+                        || StringUtils.containsIgnoreCase(mapping.getValue(), searchText);
+
+        List<EntityMapping> pageMappings = new ArrayList<>();
+        String nextAfterKey = null;
+
+        Iterator<EntityMapping> mappings = currentSnapshot.iterateMappingsWithKeyPrefix(keyPrefix, afterKey);
+        while (mappings.hasNext()) {
+            EntityMapping mapping = mappings.next();
+            if (!filter.test(mapping)) {
+                continue;
+            }
+            if (pageMappings.size() == pageSize) {
+                nextAfterKey = pageMappings.get(pageMappings.size() - 1).getKey();
+                break;
+            }
+            pageMappings.add(MappingsSnapshot.copyOf(mapping));
+        }
+
+        int matchedCount;
+        if (StringUtils.isEmpty(searchText)) {
+            matchedCount = currentSnapshot.countMappingsWithKeyPrefix(keyPrefix);
+        } else {
+            matchedCount = 0;
+            Iterator<EntityMapping> prefixMappings = currentSnapshot.iterateMappingsWithKeyPrefix(keyPrefix);
+            while (prefixMappings.hasNext()) {
+                if (filter.test(prefixMappings.next())) {
+                    matchedCount++;
+                }
+            }
+        }
+
+        return new MappingsPage(pageMappings, nextAfterKey, matchedCount, currentSnapshot.size());
+
     }
 
     public Optional<EntityMapping> getMapping(int mappingId) {
-        return Optional.ofNullable(mappingStorage.getMappingById(mappingId));
+        return Optional.ofNullable(getSnapshot().getMapping(mappingId))
+                .map(MappingsSnapshot::copyOf);
     }
 
     public Optional<EntityMapping> getMapping(String mappingKey) {
-        return Optional.ofNullable(mappingStorage.getMappingForKey(mappingKey));
+        return Optional.ofNullable(getSnapshot().getMapping(mappingKey))
+                .map(MappingsSnapshot::copyOf);
     }
 
     public boolean isMappingPresent(String key) {
-        return mappingStorage.getMappingForKey(key) != null;
+        return getSnapshot().containsKey(key);
+    }
+
+    /**
+     * Возвращает номер версии набора маппингов. Номер увеличивается при каждом изменении маппингов.
+     */
+    public long getMappingsVersion() {
+        return getSnapshot().getVersion();
+    }
+
+    /**
+     * Возвращает номер версии маппингов, ключи которых начинаются с указанного префикса.<br/>
+     * Номер изменяется при каждом изменении записей с таким префиксом или их конечных значений.
+     */
+    public long getMappingsVersion(String keyPrefix) {
+        return getSnapshot().getVersionWithKeyPrefix(keyPrefix);
+    }
+
+    /**
+     * Возвращает текущую версию снимка маппингов.<br/>
+     * При первом обращении снимок загружается из хранилища.
+     */
+    public MappingsSnapshot getSnapshot() {
+
+        MappingsSnapshot currentSnapshot = snapshot;
+
+        if (currentSnapshot == null) {
+            synchronized (writeLock) {
+                currentSnapshot = snapshot;
+                if (currentSnapshot == null) {
+                    snapshotStorageStamp = mappingStorage.getStorageStamp();
+                    currentSnapshot = MappingsSnapshot.of(
+                            initialSnapshotVersion(), mappingStorage.getEntityMappings(), mappingLinksResolver);
+                    snapshot = currentSnapshot;
+                }
+            }
+        }
+
+        return currentSnapshot;
+
+    }
+
+    /**
+     * Сверяет загруженный снимок с хранилищем и, если хранилище изменилось в обход снимка (например, маппинги
+     * изменены на другом узле кластера или восстановлены из резервной копии), перечитывает все записи и публикует
+     * снимок с их текущим состоянием. Слушатели получают уведомление только о ключах, которые действительно
+     * изменились.<br/>
+     * <br/>
+     * Сверка выполняется по отметке хранилища ({@link EntityMappingStorage#getStorageStamp()}), поэтому, пока
+     * хранилище не изменялось, записи не читаются. Изменения, выполненные через этот же экземпляр, переносят
+     * отметку снимка вперед (см. {@link #writeInTransaction}), поэтому перечитывание вызывают только изменения,
+     * выполненные в обход снимка. Изменение записи прямым
+     * SQL-запросом, при котором не изменились ни количество записей, ни их идентификаторы, ни версии, сверкой не
+     * обнаруживается.
+     *
+     * @return {@code true}, если снимок был перечитан
+     */
+    public boolean revalidateSnapshot() {
+
+        MappingsStorageStamp loadedStamp = snapshotStorageStamp;
+        if (snapshot == null || mappingStorage.getStorageStamp().equals(loadedStamp)) {
+            return false;
+        }
+
+        synchronized (writeLock) {
+            MappingsSnapshot currentSnapshot = snapshot;
+            MappingsStorageStamp storageStamp = mappingStorage.getStorageStamp();
+            if (storageStamp.equals(snapshotStorageStamp)) {
+                return false;
+            }
+
+            Map<Integer, EntityMapping> storedMappings = new HashMap<>();
+            mappingStorage.getEntityMappings().forEach(mapping -> storedMappings.put(mapping.getId(), mapping));
+
+            MappingsSnapshot.Builder newSnapshot = currentSnapshot.modify();
+            boolean changed = false;
+            // Удаленные записи исключаются до добавления новых: их ключи могут быть уже заняты новыми записями
+            for (EntityMapping snapshotMapping : currentSnapshot.getMappings()) {
+                if (!storedMappings.containsKey(snapshotMapping.getId())) {
+                    newSnapshot.remove(snapshotMapping.getKey());
+                    changed = true;
+                }
+            }
+            for (EntityMapping storedMapping : storedMappings.values()) {
+                if (!isSameMapping(currentSnapshot.getMapping(storedMapping.getId()), storedMapping)) {
+                    newSnapshot.put(storedMapping);
+                    changed = true;
+                }
+            }
+
+            snapshotStorageStamp = storageStamp;
+            if (changed) {
+                publish(newSnapshot.build());
+            }
+            return true;
+        }
+
+    }
+
+    private static boolean isSameMapping(EntityMapping snapshotMapping, EntityMapping storedMapping) {
+        return snapshotMapping != null
+                && snapshotMapping.getVersion() == storedMapping.getVersion()
+                && snapshotMapping.getKey().equals(storedMapping.getKey())
+                && Objects.equals(snapshotMapping.getValue(), storedMapping.getValue());
+    }
+
+    /**
+     * Публикует новую версию снимка и передает диспетчеру уведомлений ключи, измененные в этой версии.<br/>
+     * Вызывается под блокировкой записи после успешного изменения хранилища.
+     */
+    private void publish(MappingsSnapshot newSnapshot) {
+        snapshot = newSnapshot;
+        changeDispatcher.mappingsChanged(newSnapshot.getChangedKeys(), newSnapshot.getVersion());
+    }
+
+    /**
+     * Перечитывает из хранилища указанные записи и публикует снимок с их текущим состоянием.<br/>
+     * Вызывается под блокировкой записи, когда хранилище отклонило запись из-за несовпадения версий, то есть снимок
+     * отстал от хранилища.
+     */
+    private void refreshMappings(MappingsSnapshot currentSnapshot, Collection<EntityMapping> staleMappings) {
+        MappingsSnapshot.Builder newSnapshot = currentSnapshot.modify();
+        for (EntityMapping staleMapping : staleMappings) {
+            EntityMapping storedMapping = mappingStorage.getMappingById(staleMapping.getId());
+            if (storedMapping != null) {
+                newSnapshot.put(storedMapping);
+            } else {
+                newSnapshot.remove(staleMapping.getKey());
+            }
+        }
+        publish(newSnapshot.build());
+    }
+
+    /**
+     * Выполняет запись в транзакции хранилища и, если до записи хранилище не изменялось в обход снимка, переносит
+     * отметку снимка на состояние хранилища после записи.<br/>
+     * <br/>
+     * Отметки читаются внутри транзакции записи, поэтому собственные изменения этого экземпляра не приводят к
+     * перечитыванию записей при следующей сверке ({@link #revalidateSnapshot()}): его вызывают только изменения,
+     * выполненные в обход снимка. Вызывается под блокировкой записи.
+     */
+    private <T> T writeInTransaction(EntityMappingStorage.TransactionalOperation<T> operation)
+            throws EntityMappingConflictException {
+
+        List<MappingsStorageStamp> stamps = new ArrayList<>(2);
+        T result = mappingStorage.executeInTransaction(() -> {
+            stamps.add(mappingStorage.getStorageStamp());
+            T operationResult = operation.execute();
+            stamps.add(mappingStorage.getStorageStamp());
+            return operationResult;
+        });
+
+        if (stamps.get(0).equals(snapshotStorageStamp)) {
+            snapshotStorageStamp = stamps.get(1);
+        }
+        return result;
+
+    }
+
+    /**
+     * Перечитывает из хранилища записи с указанными ключами и публикует снимок с их текущим состоянием.<br/>
+     * Вызывается под блокировкой записи, когда хранилище отклонило запись из-за конфликта ключей, не отраженного в
+     * снимке.
+     */
+    private void refreshKeys(MappingsSnapshot currentSnapshot, Collection<String> keys) {
+        Set<String> missingKeys = new HashSet<>(keys);
+        MappingsSnapshot.Builder newSnapshot = currentSnapshot.modify();
+        for (EntityMapping storedMapping : mappingStorage.getMappingsForKeys(keys)) {
+            newSnapshot.put(storedMapping);
+            missingKeys.remove(storedMapping.getKey());
+        }
+        missingKeys.forEach(newSnapshot::remove);
+        publish(newSnapshot.build());
+    }
+
+    /**
+     * Возвращает номер версии для снимка, загружаемого из хранилища.<br/>
+     * <br/>
+     * Номер отсчитывается от текущего времени, чтобы версия не уменьшалась при перезапуске плагина: потребители,
+     * пережившие перезапуск, должны увидеть новую версию и сбросить свои кеши.
+     */
+    private static long initialSnapshotVersion() {
+        return System.currentTimeMillis();
     }
 
     /**
@@ -126,16 +670,13 @@ public class EntityMappingManager {
      * @throws EntityMappingConflictException в случае, когда для ключа {@code newMappingKey} существует маппинг и его
      *                                        идентификатор отличается от {@code expectedMappingId}
      */
-    private void checkMappingConflictForKey(int expectedMappingId, String newMappingKey) throws EntityMappingConflictException {
+    private void checkMappingConflictForKey(MappingsSnapshot currentSnapshot, int expectedMappingId, String newMappingKey)
+            throws EntityMappingConflictException {
 
-        Optional<EntityMapping> mappingForNewKeyHolder = getMapping(newMappingKey);
+        EntityMapping mappingForNewKey = currentSnapshot.getMapping(newMappingKey);
 
-        if (mappingForNewKeyHolder.isPresent()) {
-            EntityMapping mappingForNewKey = mappingForNewKeyHolder.get();
-
-            if (mappingForNewKey.getId() != expectedMappingId) {
-                throw new EntityMappingConflictException(newMappingKey);
-            }
+        if (mappingForNewKey != null && mappingForNewKey.getId() != expectedMappingId) {
+            throw new EntityMappingConflictException(newMappingKey);
         }
 
     }
@@ -18,21 +18,84 @@
 package org.samearch.jira.lib.entity.mapper.impl.mapping;
 
 import org.samearch.jira.lib.entity.mapper.api.EntityMapping;
+import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingConflictException;
+import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingVersionMismatchException;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * Хранилище записей о маппинге.<br/>
- * Не выполняет никаких проверок. Простая реализация операций CRUD.
+ * Не выполняет никаких проверок, кроме уникальности ключа: уникальность обеспечивается ограничением хранилища, а не
+ * предварительным поиском записи с тем же ключем. Простая реализация операций CRUD.
  */
 public interface EntityMappingStorage {
 
-    EntityMapping createEntityMapping(String key, String value);
+    /**
+     * @throws EntityMappingConflictException если запись с таким ключем уже существует
+     */
+    EntityMapping createEntityMapping(String key, String value) throws EntityMappingConflictException;
+    /**
+     * Создает записи для всех пар ключ-значение в одной транзакции.
+     *
+     * @return созданные записи
+     * @throws EntityMappingConflictException если запись хотя бы с одним из ключей уже существует. В этом случае ни
+     *                                        одна запись не создается
+     */
+    List<EntityMapping> createEntityMappings(Map<String, String> valuesByKey) throws EntityMappingConflictException;
     void deleteEntityMapping(String key);
-    EntityMapping updateEntityMapping(int mappingId, String newMappingKey, String newMappingValue);
+    /**
+     * Обновляет запись, если ее версия совпадает с {@code expectedVersion}, и увеличивает версию записи.<br/>
+     * Возвращает состояние записи после обновления или {@code null}, если записи с таким идентификатором нет.<br/>
+     * <br/>
+     * Проверка версии должна выполняться средствами базы данных, а не только сравнением с прочитанной записью: из
+     * нескольких транзакций (в том числе на разных узлах), обновляющих одну и ту же версию записи, успешно
+     * завершается только одна.
+     *
+     * @throws EntityMappingVersionMismatchException если версия записи отличается от ожидаемой
+     * @throws EntityMappingConflictException если ключ {@code newMappingKey} уже используется другой записью
+     */
+    EntityMapping updateEntityMapping(int mappingId, long expectedVersion, String newMappingKey, String newMappingValue)
+            throws EntityMappingConflictException;
+    /**
+     * Обновляет ключи и значения записей с идентификаторами из {@code mappings} в одной транзакции.<br/>
+     * Версия каждой переданной записи - ожидаемая версия сохраненной записи; версии обновленных записей
+     * увеличиваются. Записи, которых уже нет в хранилище, пропускаются. Версии проверяются так же, как в
+     * {@link #updateEntityMapping(int, long, String, String)}.
+     *
+     * @return обновленные записи
+     * @throws EntityMappingVersionMismatchException если версия хотя бы одной записи отличается от ожидаемой
+     * @throws EntityMappingConflictException если новый ключ хотя бы одной записи уже используется другой записью. В
+     *                                        этих случаях ни одна запись не обновляется
+     */
+    List<EntityMapping> updateEntityMappings(Collection<EntityMapping> mappings) throws EntityMappingConflictException;
     Set<EntityMapping> getEntityMappings();
-    Set<EntityMapping> getEntityMappingsLike(String keyFilter);
     EntityMapping getMappingForKey(String key);
+    /**
+     * Возвращает записи с указанными ключами; ключи, для которых записей нет, пропускаются.
+     */
+    List<EntityMapping> getMappingsForKeys(Collection<String> keys);
     EntityMapping getMappingById(int mappingId);
+    /**
+     * Возвращает отметку текущего состояния хранилища. Отметка изменяется при каждом создании, удалении и обновлении
+     * записей через хранилище, в том числе на других узлах кластера, и читается без чтения самих записей.
+     */
+    MappingsStorageStamp getStorageStamp();
+
+    /**
+     * Выполняет операцию в одной транзакции хранилища. Операции хранилища, вызванные внутри, а также записи в другие
+     * хранилища плагина (например, в журнал аудита) присоединяются к этой транзакции. Если операция завершается
+     * исключением, все ее изменения откатываются.
+     */
+    <T> T executeInTransaction(TransactionalOperation<T> operation) throws EntityMappingConflictException;
+
+    @FunctionalInterface
+    interface TransactionalOperation<T> {
+
+        T execute() throws EntityMappingConflictException;
+
+    }
 
 }
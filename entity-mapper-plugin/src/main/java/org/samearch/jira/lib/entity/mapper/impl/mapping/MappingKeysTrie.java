@@ -0,0 +1,495 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping;
+
+import org.samearch.jira.lib.entity.mapper.api.EntityMapping;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Неизменяемое сжатое префиксное дерево (radix trie) ключей маппинга.<br/>
+ * <br/>
+ * Каждая операция изменения возвращает новое дерево, копируя только узлы на пути от корня к изменяемому ключу; все
+ * остальные узлы разделяются с предыдущей версией. Поэтому дерево может храниться в снимке маппингов и читаться без
+ * блокировок.<br/>
+ * <br/>
+ * Каждый узел хранит количество ключей в своем поддереве. Благодаря этому количество ключей с заданным префиксом
+ * вычисляется за время, пропорциональное длине префикса, а выборка записей по префиксу - за время, пропорциональное
+ * длине префикса и количеству найденных записей.<br/>
+ * <br/>
+ * Кроме того, каждый узел хранит номер версии последнего изменения в своем поддереве, что позволяет получить версию
+ * изменений группы ключей с общим префиксом.
+ */
+public final class MappingKeysTrie {
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final MappingKeysTrie EMPTY = new MappingKeysTrie(new Node("", null, NO_CHILDREN, 0, 0));
+
+    private final Node root;
+
+    private MappingKeysTrie(Node root) {
+        this.root = root;
+    }
+
+    public static MappingKeysTrie empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return root.count;
+    }
+
+    /**
+     * Возвращает запись маппинга по ключу или {@code null}, если записи с таким ключем нет.
+     */
+    public EntityMapping get(String key) {
+
+        Node node = root;
+        int depth = 0;
+
+        while (depth < key.length()) {
+            int childIndex = node.childIndex(key.charAt(depth));
+            if (childIndex < 0) {
+                return null;
+            }
+            Node child = node.children[childIndex];
+            if (!key.startsWith(child.label, depth)) {
+                return null;
+            }
+            depth += child.label.length();
+            node = child;
+        }
+
+        return node.value;
+
+    }
+
+    /**
+     * Возвращает дерево, в котором ключу {@code key} соответствует запись {@code mapping}.
+     *
+     * @param version номер версии изменения, который получат все узлы на пути к ключу
+     */
+    public MappingKeysTrie put(String key, EntityMapping mapping, long version) {
+        return new MappingKeysTrie(put(root, key, 0, mapping, version));
+    }
+
+    /**
+     * Возвращает дерево без ключа {@code key}. Если ключа в дереве нет, то возвращается это же дерево.
+     *
+     * @param version номер версии изменения, который получат все узлы на пути к ключу
+     */
+    public MappingKeysTrie remove(String key, long version) {
+        Node newRoot = remove(root, key, 0, version);
+        return (newRoot == root) ? this : new MappingKeysTrie(newRoot);
+    }
+
+    /**
+     * Возвращает номер версии последнего изменения ключей, начинающихся с указанного префикса.<br/>
+     * <br/>
+     * Если ключей с таким префиксом нет, то возвращается версия ближайшего узла-предка: она не меньше версии, в которой
+     * был удален последний ключ с этим префиксом, и изменится при появлении нового такого ключа.
+     */
+    public long getVersionWithPrefix(String prefix) {
+
+        Node node = root;
+        int depth = 0;
+
+        while (depth < prefix.length()) {
+            int childIndex = node.childIndex(prefix.charAt(depth));
+            if (childIndex < 0) {
+                return node.version;
+            }
+            Node child = node.children[childIndex];
+            int commonLength = commonPrefixLength(child.label, prefix, depth);
+            if (depth + commonLength == prefix.length()) {
+                return child.version;
+            }
+            if (commonLength < child.label.length()) {
+                return node.version;
+            }
+            depth += commonLength;
+            node = child;
+        }
+
+        return node.version;
+
+    }
+
+    /**
+     * Возвращает количество ключей, начинающихся с указанного префикса.
+     */
+    public int countWithPrefix(String prefix) {
+        Node prefixNode = findPrefixNode(prefix);
+        return (prefixNode != null) ? prefixNode.count : 0;
+    }
+
+    /**
+     * Возвращает записи маппинга, ключи которых начинаются с указанного префикса, в лексикографическом порядке ключей.
+     */
+    public List<EntityMapping> getWithPrefix(String prefix) {
+        Node prefixNode = findPrefixNode(prefix);
+        if (prefixNode == null) {
+            return new ArrayList<>();
+        }
+        List<EntityMapping> mappings = new ArrayList<>(prefixNode.count);
+        collect(prefixNode, mappings::add);
+        return mappings;
+    }
+
+    /**
+     * Возвращает итератор по записям маппинга, ключи которых начинаются с указанного префикса, в лексикографическом
+     * порядке ключей.<br/>
+     * <br/>
+     * В отличие от {@link #getWithPrefix(String)} записи не копируются в список, а находятся по мере обхода дерева,
+     * поэтому объем используемой памяти зависит только от глубины дерева. Дерево неизменяемо, поэтому итератор
+     * всегда обходит ту версию дерева, из которой был получен.
+     */
+    public Iterator<EntityMapping> iteratorWithPrefix(String prefix) {
+        return new PrefixIterator(findPrefixNode(prefix));
+    }
+
+    /**
+     * Возвращает итератор по записям маппинга, ключи которых начинаются с указанного префикса и строго больше ключа
+     * {@code afterKey}, в лексикографическом порядке ключей.<br/>
+     * <br/>
+     * Позиционирование на первый ключ после {@code afterKey} выполняется спуском по пути этого ключа, без обхода
+     * предшествующих записей, поэтому время получения очередной страницы записей не зависит от ее номера.
+     *
+     * @param afterKey ключ, после которого начинается обход; {@code null} - обход с начала
+     */
+    public Iterator<EntityMapping> iteratorWithPrefix(String prefix, String afterKey) {
+
+        if (afterKey == null || afterKey.compareTo(prefix) < 0) {
+            return iteratorWithPrefix(prefix);
+        }
+        if (!afterKey.startsWith(prefix)) {
+            // Ключ больше префикса, но не начинается с него: все ключи с префиксом меньше этого ключа
+            return Collections.emptyIterator();
+        }
+
+        // Поддеревья, все ключи которых больше afterKey, складываются в стек так, чтобы первым извлекалось
+        // поддерево с наименьшими ключами. Поддеревья, отделившиеся от пути afterKey раньше конца префикса,
+        // не содержат ключей с префиксом и пропускаются.
+        Deque<Node> pendingNodes = new ArrayDeque<>();
+        Node node = root;
+        int depth = 0;
+
+        while (true) {
+            if (depth == afterKey.length()) {
+                pushChildren(node, 0, pendingNodes);
+                break;
+            }
+
+            int childIndex = node.childIndex(afterKey.charAt(depth));
+            int firstGreaterChildIndex = (childIndex >= 0) ? childIndex + 1 : -(childIndex + 1);
+            if (depth >= prefix.length()) {
+                pushChildren(node, firstGreaterChildIndex, pendingNodes);
+            }
+            if (childIndex < 0) {
+                break;
+            }
+
+            Node child = node.children[childIndex];
+            int commonLength = commonPrefixLength(child.label, afterKey, depth);
+            if (commonLength == child.label.length()) {
+                depth += commonLength;
+                node = child;
+                continue;
+            }
+
+            int divergenceDepth = depth + commonLength;
+            boolean childKeysAreGreater = divergenceDepth == afterKey.length()
+                    || child.label.charAt(commonLength) > afterKey.charAt(divergenceDepth);
+            if (childKeysAreGreater && divergenceDepth >= prefix.length()) {
+                pendingNodes.push(child);
+            }
+            break;
+        }
+
+        return new PrefixIterator(pendingNodes);
+
+    }
+
+    private static void pushChildren(Node node, int fromIndex, Deque<Node> pendingNodes) {
+        for (int i = node.children.length - 1; i >= fromIndex; i--) {
+            pendingNodes.push(node.children[i]);
+        }
+    }
+
+    /**
+     * Возвращает узел, поддерево которого содержит все ключи с указанным префиксом, или {@code null}, если таких ключей
+     * нет.
+     */
+    private Node findPrefixNode(String prefix) {
+
+        Node node = root;
+        int depth = 0;
+
+        while (depth < prefix.length()) {
+            int childIndex = node.childIndex(prefix.charAt(depth));
+            if (childIndex < 0) {
+                return null;
+            }
+            Node child = node.children[childIndex];
+            int commonLength = commonPrefixLength(child.label, prefix, depth);
+            if (depth + commonLength == prefix.length()) {
+                return child;
+            }
+            if (commonLength < child.label.length()) {
+                return null;
+            }
+            depth += commonLength;
+            node = child;
+        }
+
+        return node;
+
+    }
+
+    private static void collect(Node node, Consumer<EntityMapping> consumer) {
+        if (node.value != null) {
+            consumer.accept(node.value);
+        }
+        for (Node child : node.children) {
+            collect(child, consumer);
+        }
+    }
+
+    /**
+     * Записывает значение в поддерево узла {@code node}, метка которого уже совпала с ключем до позиции {@code depth}.
+     */
+    private static Node put(Node node, String key, int depth, EntityMapping mapping, long version) {
+
+        if (depth == key.length()) {
+            return node.withValue(mapping, version);
+        }
+
+        int childIndex = node.childIndex(key.charAt(depth));
+        if (childIndex < 0) {
+            Node leaf = new Node(key.substring(depth), mapping, NO_CHILDREN, 1, version);
+            return node.withInsertedChild(-(childIndex + 1), leaf, version);
+        }
+
+        Node child = node.children[childIndex];
+        int commonLength = commonPrefixLength(child.label, key, depth);
+
+        if (commonLength < child.label.length()) {
+            Node loweredChild = child.withLabel(child.label.substring(commonLength), child.version);
+            child = new Node(
+                    child.label.substring(0, commonLength),
+                    null,
+                    new Node[] {loweredChild},
+                    loweredChild.count,
+                    loweredChild.version);
+        }
+
+        return node.withChild(childIndex, put(child, key, depth + commonLength, mapping, version), version);
+
+    }
+
+    /**
+     * Удаляет ключ из поддерева узла {@code node}, метка которого уже совпала с ключем до позиции {@code depth}.<br/>
+     * Возвращает этот же узел, если ключа в поддереве нет.
+     */
+    private static Node remove(Node node, String key, int depth, long version) {
+
+        if (depth == key.length()) {
+            return (node.value != null) ? node.withValue(null, version) : node;
+        }
+
+        int childIndex = node.childIndex(key.charAt(depth));
+        if (childIndex < 0) {
+            return node;
+        }
+
+        Node child = node.children[childIndex];
+        if (!key.startsWith(child.label, depth)) {
+            return node;
+        }
+
+        Node newChild = remove(child, key, depth + child.label.length(), version);
+        if (newChild == child) {
+            return node;
+        }
+
+        newChild = compact(newChild);
+
+        return (newChild != null)
+                ? node.withChild(childIndex, newChild, version)
+                : node.withoutChild(childIndex, version);
+
+    }
+
+    /**
+     * Удаляет узлы без значения и без потомков и сливает узлы без значения с единственным потомком.
+     */
+    private static Node compact(Node node) {
+
+        if (node.value != null) {
+            return node;
+        }
+
+        if (node.children.length == 0) {
+            return null;
+        }
+
+        if (node.children.length == 1) {
+            Node singleChild = node.children[0];
+            return singleChild.withLabel(node.label + singleChild.label, Math.max(node.version, singleChild.version));
+        }
+
+        return node;
+
+    }
+
+    private static int commonPrefixLength(String label, String key, int depth) {
+        int maxLength = Math.min(label.length(), key.length() - depth);
+        int length = 0;
+        while (length < maxLength && label.charAt(length) == key.charAt(depth + length)) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Обход поддерева в прямом порядке: значение узла, затем поддеревья потомков в порядке их меток.
+     */
+    private static final class PrefixIterator implements Iterator<EntityMapping> {
+
+        private final Deque<Node> pendingNodes = new ArrayDeque<>();
+        private EntityMapping next;
+
+        private PrefixIterator(Node startNode) {
+            if (startNode != null) {
+                pendingNodes.push(startNode);
+            }
+            advance();
+        }
+
+        private PrefixIterator(Deque<Node> startNodes) {
+            pendingNodes.addAll(startNodes);
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public EntityMapping next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            EntityMapping current = next;
+            advance();
+            return current;
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && !pendingNodes.isEmpty()) {
+                Node node = pendingNodes.pop();
+                pushChildren(node, 0, pendingNodes);
+                next = node.value;
+            }
+        }
+
+    }
+
+    /**
+     * Узел дерева. Потомки упорядочены по первому символу метки.
+     */
+    private static final class Node {
+
+        private final String label;
+        private final EntityMapping value;
+        private final Node[] children;
+        private final int count;
+        /** Версия последнего изменения в поддереве узла. */
+        private final long version;
+
+        private Node(String label, EntityMapping value, Node[] children, int count, long version) {
+            this.label = label;
+            this.value = value;
+            this.children = children;
+            this.count = count;
+            this.version = version;
+        }
+
+        private int childIndex(char firstChar) {
+
+            int low = 0;
+            int high = children.length - 1;
+
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char middleChar = children[middle].label.charAt(0);
+                if (middleChar < firstChar) {
+                    low = middle + 1;
+                } else if (middleChar > firstChar) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+
+            return -(low + 1);
+
+        }
+
+        private Node withLabel(String newLabel, long newVersion) {
+            return new Node(newLabel, value, children, count, newVersion);
+        }
+
+        private Node withValue(EntityMapping newValue, long newVersion) {
+            int newCount = count - (value != null ? 1 : 0) + (newValue != null ? 1 : 0);
+            return new Node(label, newValue, children, newCount, newVersion);
+        }
+
+        private Node withChild(int index, Node newChild, long newVersion) {
+            Node[] newChildren = children.clone();
+            newChildren[index] = newChild;
+            return new Node(label, value, newChildren, count - children[index].count + newChild.count, newVersion);
+        }
+
+        private Node withInsertedChild(int index, Node newChild, long newVersion) {
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newChildren[index] = newChild;
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            return new Node(label, value, newChildren, count + newChild.count, newVersion);
+        }
+
+        private Node withoutChild(int index, long newVersion) {
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            return new Node(label, value, newChildren, count - children[index].count, newVersion);
+        }
+
+    }
+
+}
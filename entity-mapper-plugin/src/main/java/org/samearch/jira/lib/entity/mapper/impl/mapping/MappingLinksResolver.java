@@ -23,6 +23,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -50,10 +51,22 @@ public class MappingLinksResolver {
      * @param sourceMappingKey исходный ключ маппинга
      */
     public String resolveTargetMappingKey(String sourceMappingKey) throws ClosedChainEntityMappingException {
+        return resolveTargetMappingKey(sourceMappingKey, mappingManager::getMappingForKey);
+    }
+
+    /**
+     * Возвращает ключ конечного маппинга, используя для поиска записей маппинга указанный источник.<br/>
+     * По возвращенному ключу лежит не ссылка на какой-либо маппинг, а конкретное значение.
+     *
+     * @param sourceMappingKey исходный ключ маппинга
+     * @param mappingsLookup источник записей маппинга: возвращает запись по ключу или {@code null}, если записи нет
+     */
+    public String resolveTargetMappingKey(String sourceMappingKey, Function<String, EntityMapping> mappingsLookup)
+            throws ClosedChainEntityMappingException {
 
         String linkTarget = sourceMappingKey;
 
-        EntityMapping sourceMapping = mappingManager.getMappingForKey(linkTarget);
+        EntityMapping sourceMapping = mappingsLookup.apply(linkTarget);
 
         if (sourceMapping == null) {
             return sourceMappingKey;
@@ -72,7 +85,7 @@ public class MappingLinksResolver {
                 alreadyCheckedKeys.add(linkTarget);
             }
 
-            EntityMapping destinationMapping = mappingManager.getMappingForKey(linkTarget);
+            EntityMapping destinationMapping = mappingsLookup.apply(linkTarget);
             if (destinationMapping == null) {
                 break;
             }
@@ -85,6 +98,63 @@ public class MappingLinksResolver {
 
     }
 
+    /**
+     * Проверяет, не замкнет ли запись значения {@code mappingValue} под ключем {@code mappingKey} цепочку ссылок.<br/>
+     * <br/>
+     * Цепочка, начинающаяся со ссылки из нового значения, проходится по записям из {@code mappingsLookup}. Если она
+     * возвращается к ключу {@code mappingKey} или приводит в уже существующую замкнутую цепочку, то запись недопустима.
+     *
+     * @param mappingKey ключ записываемого маппинга
+     * @param mappingValue записываемое значение маппинга
+     * @param mappingsLookup источник записей маппинга без учета записываемого значения
+     *
+     * @throws ClosedChainEntityMappingException если запись значения замкнет цепочку ссылок
+     */
+    public void checkClosedChain(String mappingKey, String mappingValue, Function<String, EntityMapping> mappingsLookup)
+            throws ClosedChainEntityMappingException {
+
+        TreeSet<String> alreadyCheckedKeys = new TreeSet<>();
+        alreadyCheckedKeys.add(mappingKey);
+
+        String linkTarget = extractLinkTarget(mappingValue);
+
+        while (linkTarget != null) {
+            if (isKeyAlreadyVisited(linkTarget, alreadyCheckedKeys)) {
+                throw new ClosedChainEntityMappingException(alreadyCheckedKeys);
+            } else {
+                alreadyCheckedKeys.add(linkTarget);
+            }
+
+            EntityMapping destinationMapping = mappingsLookup.apply(linkTarget);
+            if (destinationMapping == null) {
+                break;
+            }
+
+            linkTarget = extractLinkTarget(destinationMapping.getValue());
+        }
+
+    }
+
+    /**
+     * Возвращает ключ маппинга, на который ссылается указанное значение маппинга.
+     *
+     * @param mappingValue значение маппинга
+     * @return ключ маппинга, на который ссылается значение, или {@code null}, если значение не является ссылкой
+     */
+    public String extractLinkTarget(String mappingValue) {
+
+        if (mappingValue == null) {
+            return null;
+        }
+
+        Matcher mappingValueMatcher = MAPPING_LINK_PATTERN.matcher(mappingValue);
+
+        return mappingValueMatcher.matches()
+                ? mappingValueMatcher.group(TARGET_MAPPING_PATTERN_GROUP_NAME)
+                : null;
+
+    }
+
     private boolean isKeyAlreadyVisited(String linkTarget, TreeSet<String> alreadyCheckedKeys) {
         return alreadyCheckedKeys.contains(linkTarget);
     }
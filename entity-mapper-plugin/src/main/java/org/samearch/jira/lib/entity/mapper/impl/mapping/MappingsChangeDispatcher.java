@@ -0,0 +1,177 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping;
+
+import org.samearch.jira.lib.entity.mapper.api.EntityMappingChangeListener;
+import org.samearch.jira.lib.entity.mapper.api.EntityMappingsChangeEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Рассылает уведомления об изменениях маппингов зарегистрированным слушателям.<br/>
+ * <br/>
+ * Уведомления рассылаются асинхронно, из единственного потока диспетчера. Изменения, поступившие в течение
+ * {@link #DEFAULT_COALESCING_DELAY_MS} мс после первого еще не разосланного изменения (например, при импорте большого
+ * количества маппингов), объединяются в одно событие. Количество накапливаемых ключей ограничено
+ * {@link #MAX_PENDING_KEYS}: при его превышении слушатели получают событие об изменении всех маппингов.
+ */
+@Component
+public class MappingsChangeDispatcher implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MappingsChangeDispatcher.class);
+
+    static final long DEFAULT_COALESCING_DELAY_MS = 200;
+    static final int MAX_PENDING_KEYS = 10_000;
+
+    private final long coalescingDelayMs;
+    private final ScheduledExecutorService dispatchExecutor;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private final Object pendingChangesLock = new Object();
+    private Set<String> pendingKeys = new HashSet<>();
+    private boolean pendingOverflow = false;
+    private long pendingMappingsVersion;
+    private boolean dispatchScheduled = false;
+
+    public MappingsChangeDispatcher() {
+        this(DEFAULT_COALESCING_DELAY_MS);
+    }
+
+    public MappingsChangeDispatcher(long coalescingDelayMs) {
+        this.coalescingDelayMs = coalescingDelayMs;
+        this.dispatchExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread dispatchThread = new Thread(runnable, "entity-mapper-change-dispatcher");
+            dispatchThread.setDaemon(true);
+            return dispatchThread;
+        });
+    }
+
+    public void addListener(Predicate<String> keyFilter, EntityMappingChangeListener listener) {
+        subscriptions.add(new Subscription(keyFilter, listener));
+    }
+
+    public void removeListener(EntityMappingChangeListener listener) {
+        subscriptions.removeIf(subscription -> subscription.listener == listener);
+    }
+
+    /**
+     * Регистрирует изменение маппингов. Вызывается после публикации снимка, содержащего изменение.
+     *
+     * @param changedKeys ключи, записи или конечные значения которых изменились
+     * @param mappingsVersion версия снимка, содержащего изменение
+     */
+    public void mappingsChanged(Set<String> changedKeys, long mappingsVersion) {
+
+        if (changedKeys.isEmpty() || subscriptions.isEmpty()) {
+            return;
+        }
+
+        synchronized (pendingChangesLock) {
+            if (!pendingOverflow) {
+                pendingKeys.addAll(changedKeys);
+                if (pendingKeys.size() > MAX_PENDING_KEYS) {
+                    pendingOverflow = true;
+                    pendingKeys = new HashSet<>();
+                }
+            }
+            pendingMappingsVersion = mappingsVersion;
+
+            if (!dispatchScheduled) {
+                try {
+                    dispatchExecutor.schedule(this::dispatchPendingChanges, coalescingDelayMs, TimeUnit.MILLISECONDS);
+                    dispatchScheduled = true;
+                } catch (RejectedExecutionException e) {
+                    LOG.debug("Change dispatcher is stopped, mapping change notifications are dropped");
+                }
+            }
+        }
+
+    }
+
+    private void dispatchPendingChanges() {
+
+        Set<String> changedKeys;
+        boolean allMappingsChanged;
+        long mappingsVersion;
+
+        synchronized (pendingChangesLock) {
+            changedKeys = pendingKeys;
+            allMappingsChanged = pendingOverflow;
+            mappingsVersion = pendingMappingsVersion;
+
+            pendingKeys = new HashSet<>();
+            pendingOverflow = false;
+            dispatchScheduled = false;
+        }
+
+        for (Subscription subscription : subscriptions) {
+            EntityMappingsChangeEvent changeEvent;
+            if (allMappingsChanged) {
+                changeEvent = new EntityMappingsChangeEvent(Collections.emptySet(), true, mappingsVersion);
+            } else {
+                Set<String> subscribedKeys = changedKeys.stream()
+                        .filter(subscription.keyFilter)
+                        .collect(Collectors.toSet());
+                if (subscribedKeys.isEmpty()) {
+                    continue;
+                }
+                changeEvent = new EntityMappingsChangeEvent(subscribedKeys, false, mappingsVersion);
+            }
+
+            try {
+                subscription.listener.onMappingsChanged(changeEvent);
+            } catch (RuntimeException e) {
+                LOG.error("Mapping change listener failed", e);
+            }
+        }
+
+    }
+
+    @Override
+    public void destroy() {
+        dispatchExecutor.shutdownNow();
+        subscriptions.clear();
+    }
+
+    private static class Subscription {
+
+        private final Predicate<String> keyFilter;
+        private final EntityMappingChangeListener listener;
+
+        private Subscription(Predicate<String> keyFilter, EntityMappingChangeListener listener) {
+            this.keyFilter = keyFilter;
+            this.listener = listener;
+        }
+
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping;
+
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.atlassian.scheduler.JobRunner;
+import com.atlassian.scheduler.JobRunnerRequest;
+import com.atlassian.scheduler.JobRunnerResponse;
+import com.atlassian.scheduler.SchedulerService;
+import com.atlassian.scheduler.SchedulerServiceException;
+import com.atlassian.scheduler.config.JobConfig;
+import com.atlassian.scheduler.config.JobId;
+import com.atlassian.scheduler.config.JobRunnerKey;
+import com.atlassian.scheduler.config.RunMode;
+import com.atlassian.scheduler.config.Schedule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задание планировщика Jira, удаляющее устаревшие задания импорта и их файлы данных
+ * ({@link MappingsImportJobManager#expireFinishedJobs()}).<br/>
+ * <br/>
+ * Задание выполняется раз в {@link #RUN_INTERVAL_MILLIS} мс на каждом узле кластера: задания импорта и их файлы данных
+ * хранятся локально на узле, принявшем задание.
+ */
+@Component
+public class MappingsImportCleanupJob implements JobRunner, InitializingBean, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MappingsImportCleanupJob.class);
+
+    private static final JobRunnerKey JOB_RUNNER_KEY = JobRunnerKey.of(MappingsImportCleanupJob.class.getName());
+    private static final JobId JOB_ID = JobId.of(MappingsImportCleanupJob.class.getName());
+    private static final long RUN_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    @ComponentImport
+    private final SchedulerService schedulerService;
+
+    private final MappingsImportJobManager importJobManager;
+
+    @Autowired
+    public MappingsImportCleanupJob(SchedulerService schedulerService, MappingsImportJobManager importJobManager) {
+        this.schedulerService = schedulerService;
+        this.importJobManager = importJobManager;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws SchedulerServiceException {
+        schedulerService.registerJobRunner(JOB_RUNNER_KEY, this);
+        JobConfig jobConfig = JobConfig.forJobRunnerKey(JOB_RUNNER_KEY)
+                .withRunMode(RunMode.RUN_LOCALLY)
+                .withSchedule(Schedule.forInterval(
+                        RUN_INTERVAL_MILLIS, new Date(System.currentTimeMillis() + RUN_INTERVAL_MILLIS)));
+        schedulerService.scheduleJob(JOB_ID, jobConfig);
+    }
+
+    @Override
+    public void destroy() {
+        schedulerService.unscheduleJob(JOB_ID);
+        schedulerService.unregisterJobRunner(JOB_RUNNER_KEY);
+    }
+
+    @Override
+    public JobRunnerResponse runJob(JobRunnerRequest request) {
+        try {
+            importJobManager.expireFinishedJobs();
+            return JobRunnerResponse.success();
+        } catch (RuntimeException e) {
+            LOG.error("Import jobs cleanup failed", e);
+            return JobRunnerResponse.failed(e);
+        }
+    }
+
+}
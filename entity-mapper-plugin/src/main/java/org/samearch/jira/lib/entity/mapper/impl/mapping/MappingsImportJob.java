@@ -0,0 +1,213 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping;
+
+import org.samearch.jira.lib.entity.mapper.impl.mapping.format.MappingsImportFormat;
+
+import java.nio.file.Path;
+
+/**
+ * Фоновое задание импорта маппингов.<br/>
+ * <br/>
+ * Импортируемые данные хранятся во временном файле до успешного завершения задания, поэтому отмененное или
+ * завершившееся с ошибкой задание можно продолжить с последнего записанного пакета.
+ */
+public class MappingsImportJob implements MappingsImportMonitor {
+
+    public enum State {
+        /** Задание ожидает выполнения в очереди */
+        QUEUED,
+        /** Задание выполняется */
+        RUNNING,
+        /** Все данные обработаны */
+        COMPLETED,
+        /** Выполнение прервано непредвиденной ошибкой */
+        FAILED,
+        /** Выполнение отменено */
+        CANCELLED;
+
+        public boolean isFinished() {
+            return this == COMPLETED || this == FAILED || this == CANCELLED;
+        }
+
+        public boolean isResumable() {
+            return this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private final String id;
+    private final String userKey;
+    private final MappingsImportFormat format;
+    private final Path dataFile;
+    private final long submittedAt;
+    private final MappingsImportReport report = new MappingsImportReport();
+
+    private volatile State state = State.QUEUED;
+    private volatile boolean cancelRequested = false;
+    private volatile String failureMessage;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+
+    /** Время выполнения завершенных запусков задания, мс */
+    private long previousRunsDurationMs = 0;
+    /** Время начала текущего запуска задания */
+    private long currentRunStartedAt;
+
+    MappingsImportJob(String id, String userKey, MappingsImportFormat format, Path dataFile) {
+        this.id = id;
+        this.userKey = userKey;
+        this.format = format;
+        this.dataFile = dataFile;
+        this.submittedAt = System.currentTimeMillis();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUserKey() {
+        return userKey;
+    }
+
+    public MappingsImportFormat getFormat() {
+        return format;
+    }
+
+    Path getDataFile() {
+        return dataFile;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Текущие итоги импорта. Обновляются по мере выполнения задания.
+     */
+    public MappingsImportReport getReport() {
+        return report;
+    }
+
+    /**
+     * Описание непредвиденной ошибки, прервавшей выполнение задания.
+     */
+    public String getFailureMessage() {
+        return failureMessage;
+    }
+
+    public long getSubmittedAt() {
+        return submittedAt;
+    }
+
+    /**
+     * Время первого запуска задания или 0, если задание еще не запускалось.
+     */
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * Время завершения последнего запуска задания или 0, если задание еще не завершалось.
+     */
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * Средняя скорость обработки записей за время выполнения задания (без учета времени ожидания в очереди).
+     */
+    public synchronized double getRowsPerSecond() {
+        long durationMs = previousRunsDurationMs;
+        if (state == State.RUNNING) {
+            durationMs += System.currentTimeMillis() - currentRunStartedAt;
+        }
+        return (durationMs > 0) ? report.getProcessedCount() * 1000.0 / durationMs : 0;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelRequested;
+    }
+
+    /**
+     * Запрашивает отмену задания. Задание, ожидающее в очереди, отменяется сразу, выполняемое - после записи текущего
+     * пакета.
+     *
+     * @return {@code false}, если задание уже завершено
+     */
+    synchronized boolean cancel() {
+        if (state.isFinished()) {
+            return false;
+        }
+        cancelRequested = true;
+        if (state == State.QUEUED) {
+            state = State.CANCELLED;
+            finishedAt = System.currentTimeMillis();
+        }
+        return true;
+    }
+
+    /**
+     * Переводит задание в состояние выполнения.
+     *
+     * @return {@code false}, если задание было отменено до запуска
+     */
+    synchronized boolean start() {
+        if (state != State.QUEUED) {
+            return false;
+        }
+        state = State.RUNNING;
+        currentRunStartedAt = System.currentTimeMillis();
+        if (startedAt == 0) {
+            startedAt = currentRunStartedAt;
+        }
+        return true;
+    }
+
+    synchronized void finish(State finalState, String failureMessage) {
+        this.finishedAt = System.currentTimeMillis();
+        this.previousRunsDurationMs += finishedAt - currentRunStartedAt;
+        this.failureMessage = failureMessage;
+        this.state = finalState;
+    }
+
+    /**
+     * Возвращает отмененное или завершившееся с ошибкой задание в очередь.
+     *
+     * @return {@code false}, если задание нельзя продолжить
+     */
+    synchronized boolean requeue() {
+        if (!state.isResumable()) {
+            return false;
+        }
+        state = State.QUEUED;
+        cancelRequested = false;
+        failureMessage = null;
+        return true;
+    }
+
+    /**
+     * Возвращает задание в состояние, в котором оно было до {@link #requeue()}, если его не удалось поставить в
+     * очередь.
+     */
+    synchronized void restore(State previousState, String previousFailureMessage) {
+        state = previousState;
+        failureMessage = previousFailureMessage;
+    }
+
+}
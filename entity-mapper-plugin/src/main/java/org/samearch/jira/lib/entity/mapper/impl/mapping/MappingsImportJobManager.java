@@ -0,0 +1,358 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping;
+
+import org.samearch.jira.lib.entity.mapper.impl.mapping.format.ImportedMappingsReader;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.format.MappingsImportFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выполняет импорт маппингов в фоновых заданиях.<br/>
+ * <br/>
+ * Задания выполняются по одному в потоке импорта; очередь ожидающих заданий по умолчанию ограничена
+ * {@link #MAX_QUEUED_JOBS}.
+ * Импортируемые данные сохраняются во временный файл при постановке задания в очередь, поэтому запрос, создающий
+ * задание, не ждет окончания импорта.<br/>
+ * <br/>
+ * Состояние заданий хранится в памяти: сведения о {@link #MAX_FINISHED_JOBS} последних завершенных заданиях доступны до
+ * перезапуска плагина.<br/>
+ * <br/>
+ * Размер импортируемых данных по умолчанию ограничен {@link #MAX_DATA_SIZE_BYTES}. Отмененные и завершившиеся с
+ * ошибкой задания, которые не были продолжены в течение {@link #DATA_FILE_TTL_MILLIS} мс, удаляются вместе с файлами
+ * данных (см. {@link #expireFinishedJobs()}).
+ */
+@Component
+public class MappingsImportJobManager implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MappingsImportJobManager.class);
+
+    static final int MAX_QUEUED_JOBS = 10;
+    static final int MAX_FINISHED_JOBS = 20;
+    static final long MAX_DATA_SIZE_BYTES = 100L * 1024 * 1024;
+    static final long DATA_FILE_TTL_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private static final String DATA_FILE_PREFIX = "entity-mapper-import-";
+    private static final String DATA_FILE_SUFFIX = ".tmp";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final long DESTROY_TIMEOUT_SECONDS = 30;
+
+    private final MappingsImporter mappingsImporter;
+    private final ThreadPoolExecutor importExecutor;
+    private final Path dataDirectory;
+    private final long maxDataSizeBytes;
+    private final long dataFileTtlMillis;
+
+    /** Задания в порядке постановки в очередь */
+    private final Map<String, MappingsImportJob> jobs = new LinkedHashMap<>();
+
+    @Autowired
+    public MappingsImportJobManager(MappingsImporter mappingsImporter) {
+        this(mappingsImporter, Paths.get(System.getProperty("java.io.tmpdir")), MAX_QUEUED_JOBS, MAX_DATA_SIZE_BYTES,
+                DATA_FILE_TTL_MILLIS);
+    }
+
+    /**
+     * @param dataDirectory каталог для файлов импортируемых данных
+     * @param maxQueuedJobs максимальное количество заданий, ожидающих в очереди
+     * @param maxDataSizeBytes максимальный размер импортируемых данных
+     * @param dataFileTtlMillis время, в течение которого можно продолжить отмененное или завершившееся с ошибкой
+     *                          задание
+     */
+    public MappingsImportJobManager(MappingsImporter mappingsImporter,
+                                    Path dataDirectory,
+                                    int maxQueuedJobs,
+                                    long maxDataSizeBytes,
+                                    long dataFileTtlMillis) {
+        this.mappingsImporter = mappingsImporter;
+        this.dataDirectory = dataDirectory;
+        this.maxDataSizeBytes = maxDataSizeBytes;
+        this.dataFileTtlMillis = dataFileTtlMillis;
+        this.importExecutor = new ThreadPoolExecutor(
+                1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueuedJobs),
+                runnable -> {
+                    Thread importThread = new Thread(runnable, "entity-mapper-import");
+                    importThread.setDaemon(true);
+                    return importThread;
+                });
+    }
+
+    /**
+     * Сохраняет импортируемые данные во временный файл и ставит задание импорта в очередь.<br/>
+     * Заполненность очереди проверяется до чтения данных, поэтому запрос при заполненной очереди не загружает их.
+     *
+     * @param userKey ключ пользователя, от имени которого выполняется импорт
+     * @param format формат импортируемых данных
+     * @param importedData импортируемые данные
+     *
+     * @throws MappingsImportDataTooLargeException если размер данных превышает допустимый
+     * @throws IOException если не удалось сохранить импортируемые данные
+     * @throws RejectedExecutionException если очередь заданий заполнена
+     */
+    public MappingsImportJob submit(String userKey, MappingsImportFormat format, InputStream importedData)
+            throws IOException {
+
+        if (importExecutor.getQueue().remainingCapacity() == 0) {
+            throw new RejectedExecutionException("Import queue is full");
+        }
+
+        Path dataFile = Files.createTempFile(dataDirectory, DATA_FILE_PREFIX, DATA_FILE_SUFFIX);
+        try {
+            copyLimited(importedData, dataFile);
+        } catch (IOException e) {
+            deleteDataFile(dataFile);
+            throw e;
+        }
+
+        MappingsImportJob job = new MappingsImportJob(UUID.randomUUID().toString(), userKey, format, dataFile);
+
+        synchronized (jobs) {
+            try {
+                importExecutor.execute(() -> runJob(job));
+            } catch (RejectedExecutionException e) {
+                deleteDataFile(dataFile);
+                throw e;
+            }
+            jobs.put(job.getId(), job);
+            evictFinishedJobs();
+        }
+
+        return job;
+
+    }
+
+    /**
+     * Копирует данные в файл, прерывая копирование, как только размер данных превысит допустимый.
+     */
+    private void copyLimited(InputStream importedData, Path dataFile) throws IOException {
+
+        try (OutputStream dataFileStream = Files.newOutputStream(dataFile)) {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            long copiedBytes = 0;
+            int readBytes;
+            while ((readBytes = importedData.read(buffer)) != -1) {
+                copiedBytes += readBytes;
+                if (copiedBytes > maxDataSizeBytes) {
+                    throw new MappingsImportDataTooLargeException(maxDataSizeBytes);
+                }
+                dataFileStream.write(buffer, 0, readBytes);
+            }
+        }
+
+    }
+
+    public Optional<MappingsImportJob> getJob(String jobId) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(jobId));
+        }
+    }
+
+    public List<MappingsImportJob> getJobs() {
+        synchronized (jobs) {
+            return new ArrayList<>(jobs.values());
+        }
+    }
+
+    /**
+     * Отменяет задание. Записи, импортированные до отмены, сохраняются.
+     *
+     * @return {@code false}, если задание уже завершено
+     */
+    public boolean cancel(MappingsImportJob job) {
+        return job.cancel();
+    }
+
+    /**
+     * Продолжает отмененное или завершившееся с ошибкой задание с первой записи после последнего записанного пакета.
+     *
+     * @return {@code false}, если задание нельзя продолжить
+     *
+     * @throws RejectedExecutionException если очередь заданий заполнена
+     */
+    public boolean resume(MappingsImportJob job) {
+
+        synchronized (jobs) {
+            MappingsImportJob.State previousState = job.getState();
+            String previousFailureMessage = job.getFailureMessage();
+            if (!jobs.containsKey(job.getId()) || !job.requeue()) {
+                return false;
+            }
+            try {
+                importExecutor.execute(() -> runJob(job));
+            } catch (RejectedExecutionException e) {
+                job.restore(previousState, previousFailureMessage);
+                throw e;
+            }
+        }
+
+        return true;
+
+    }
+
+    private void runJob(MappingsImportJob job) {
+
+        if (!job.start()) {
+            return;
+        }
+
+        MappingsImportJob.State finalState;
+        String failureMessage = null;
+
+        try (InputStream importedData = Files.newInputStream(job.getDataFile());
+             ImportedMappingsReader importedMappings = job.getFormat().openReader(importedData)) {
+            boolean completed = mappingsImporter.importMappings(
+                    job.getUserKey(), importedMappings, job.getReport(), job);
+            finalState = completed ? MappingsImportJob.State.COMPLETED : MappingsImportJob.State.CANCELLED;
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Mapping import job {} failed", job.getId(), e);
+            finalState = MappingsImportJob.State.FAILED;
+            failureMessage = e.getMessage();
+        }
+
+        job.finish(finalState, failureMessage);
+        if (finalState == MappingsImportJob.State.COMPLETED) {
+            deleteDataFile(job.getDataFile());
+        }
+
+    }
+
+    /**
+     * Удаляет самые старые завершенные задания сверх {@link #MAX_FINISHED_JOBS}.
+     */
+    private void evictFinishedJobs() {
+
+        long finishedJobsCount = jobs.values().stream().filter(job -> job.getState().isFinished()).count();
+
+        Iterator<MappingsImportJob> jobsIterator = jobs.values().iterator();
+        while (finishedJobsCount > MAX_FINISHED_JOBS && jobsIterator.hasNext()) {
+            MappingsImportJob job = jobsIterator.next();
+            if (job.getState().isFinished()) {
+                jobsIterator.remove();
+                deleteDataFile(job.getDataFile());
+                finishedJobsCount--;
+            }
+        }
+
+    }
+
+    /**
+     * Удаляет отмененные и завершившиеся с ошибкой задания, которые не были продолжены в течение заданного времени
+     * (по умолчанию {@link #DATA_FILE_TTL_MILLIS} мс) после завершения, вместе с их файлами данных. Также удаляет
+     * оставшиеся от предыдущих запусков плагина (например, после аварийного завершения Jira) файлы данных, которые
+     * старше этого срока и не принадлежат ни одному заданию.
+     */
+    public void expireFinishedJobs() {
+
+        long expirationTime = System.currentTimeMillis() - dataFileTtlMillis;
+        Set<Path> jobDataFiles = new HashSet<>();
+
+        synchronized (jobs) {
+            Iterator<MappingsImportJob> jobsIterator = jobs.values().iterator();
+            while (jobsIterator.hasNext()) {
+                MappingsImportJob job = jobsIterator.next();
+                if (job.getState().isResumable() && job.getFinishedAt() <= expirationTime) {
+                    jobsIterator.remove();
+                    deleteDataFile(job.getDataFile());
+                } else {
+                    jobDataFiles.add(job.getDataFile());
+                }
+            }
+        }
+
+        try (DirectoryStream<Path> dataFiles =
+                     Files.newDirectoryStream(dataDirectory, DATA_FILE_PREFIX + "*" + DATA_FILE_SUFFIX)) {
+            for (Path dataFile : dataFiles) {
+                if (!jobDataFiles.contains(dataFile)
+                        && Files.getLastModifiedTime(dataFile).toMillis() <= expirationTime) {
+                    deleteDataFile(dataFile);
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Unable to scan {} for expired import data files", dataDirectory, e);
+        }
+
+    }
+
+    private void deleteDataFile(Path dataFile) {
+        try {
+            Files.deleteIfExists(dataFile);
+        } catch (IOException e) {
+            LOG.warn("Unable to delete import data file {}", dataFile, e);
+        }
+    }
+
+    /**
+     * Отменяет задания и останавливает поток импорта. Файлы данных удаляются после остановки потока: выполняемое
+     * задание может еще читать свой файл. Если поток не остановился за {@link #DESTROY_TIMEOUT_SECONDS} с, файл
+     * выполняемого задания не удаляется: его удалит очистка после следующего запуска плагина (см.
+     * {@link #expireFinishedJobs()}).
+     */
+    @Override
+    public void destroy() {
+
+        List<MappingsImportJob> destroyedJobs;
+        synchronized (jobs) {
+            jobs.values().forEach(MappingsImportJob::cancel);
+            importExecutor.shutdownNow();
+            destroyedJobs = new ArrayList<>(jobs.values());
+            jobs.clear();
+        }
+
+        boolean terminated = false;
+        try {
+            terminated = importExecutor.awaitTermination(DESTROY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (MappingsImportJob job : destroyedJobs) {
+            if (terminated || job.getState() != MappingsImportJob.State.RUNNING) {
+                deleteDataFile(job.getDataFile());
+            } else {
+                LOG.warn("Import job {} is still running, its data file {} is kept", job.getId(), job.getDataFile());
+            }
+        }
+
+    }
+
+}
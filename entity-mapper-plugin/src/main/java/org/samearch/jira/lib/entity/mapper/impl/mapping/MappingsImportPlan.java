@@ -0,0 +1,204 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * План импорта маппингов: изменения, которые внесет импорт, и проблемы импортируемых данных, найденные без записи в
+ * хранилище ({@link MappingsImportPlanner}).<br/>
+ * <br/>
+ * Подробно сохраняются только первые {@link #MAX_REPORTED_ITEMS} элементов каждого списка; количество всех элементов
+ * доступно отдельно.
+ */
+public class MappingsImportPlan {
+
+    static final int MAX_REPORTED_ITEMS = 1000;
+
+    private final List<PlannedChange> creates = new ArrayList<>();
+    private final List<PlannedChange> updates = new ArrayList<>();
+    private final List<PlannedChange> deletes = new ArrayList<>();
+    private final List<MappingsImportReport.ImportError> errors = new ArrayList<>();
+    private final List<PlannedChange> danglingLinks = new ArrayList<>();
+    private final List<List<String>> closedChains = new ArrayList<>();
+
+    private int createdCount = 0;
+    private int updatedCount = 0;
+    private int deletedCount = 0;
+    private int unchangedCount = 0;
+    private int failedCount = 0;
+    private int danglingLinksCount = 0;
+    private int closedChainsCount = 0;
+    private String fatalError;
+
+    /**
+     * Записи, которые будут созданы. Текущее значение у них отсутствует.
+     */
+    public List<PlannedChange> getCreates() {
+        return Collections.unmodifiableList(creates);
+    }
+
+    /**
+     * Записи, значения которых будут обновлены.
+     */
+    public List<PlannedChange> getUpdates() {
+        return Collections.unmodifiableList(updates);
+    }
+
+    /**
+     * Записи, отсутствующие в импортируемых данных. Заполняется только для плана синхронизации; новое значение у них
+     * отсутствует.
+     */
+    public List<PlannedChange> getDeletes() {
+        return Collections.unmodifiableList(deletes);
+    }
+
+    /**
+     * Ошибки отдельных импортируемых записей.
+     */
+    public List<MappingsImportReport.ImportError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Ссылки на ключи, которых не будет после импорта. Новое значение элемента - ключ, на который указывает ссылка.
+     */
+    public List<PlannedChange> getDanglingLinks() {
+        return Collections.unmodifiableList(danglingLinks);
+    }
+
+    /**
+     * Замкнутые цепочки ссылок, которые будут существовать после импорта. Каждая цепочка - список ключей в порядке
+     * ссылок.
+     */
+    public List<List<String>> getClosedChains() {
+        return Collections.unmodifiableList(closedChains);
+    }
+
+    public int getCreatedCount() {
+        return createdCount;
+    }
+
+    public int getUpdatedCount() {
+        return updatedCount;
+    }
+
+    public int getDeletedCount() {
+        return deletedCount;
+    }
+
+    public int getUnchangedCount() {
+        return unchangedCount;
+    }
+
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    public int getDanglingLinksCount() {
+        return danglingLinksCount;
+    }
+
+    public int getClosedChainsCount() {
+        return closedChainsCount;
+    }
+
+    /**
+     * Описание ошибки, из-за которой чтение импортируемых данных было прервано, или {@code null}, если данные были
+     * прочитаны полностью.
+     */
+    public String getFatalError() {
+        return fatalError;
+    }
+
+    void addCreate(String key, String newValue) {
+        createdCount++;
+        addLimited(creates, new PlannedChange(key, null, newValue));
+    }
+
+    void addUpdate(String key, String currentValue, String newValue) {
+        updatedCount++;
+        addLimited(updates, new PlannedChange(key, currentValue, newValue));
+    }
+
+    void addDelete(String key, String currentValue) {
+        deletedCount++;
+        addLimited(deletes, new PlannedChange(key, currentValue, null));
+    }
+
+    void addUnchanged() {
+        unchangedCount++;
+    }
+
+    void addError(Long rowNumber, String key, String message) {
+        failedCount++;
+        addLimited(errors, new MappingsImportReport.ImportError(rowNumber, key, message));
+    }
+
+    void addDanglingLink(String key, String linkValue, String linkTarget) {
+        danglingLinksCount++;
+        addLimited(danglingLinks, new PlannedChange(key, linkValue, linkTarget));
+    }
+
+    void addClosedChain(List<String> chainKeys) {
+        closedChainsCount++;
+        addLimited(closedChains, chainKeys);
+    }
+
+    void setFatalError(String fatalError) {
+        this.fatalError = fatalError;
+    }
+
+    private static <T> void addLimited(List<T> items, T item) {
+        if (items.size() < MAX_REPORTED_ITEMS) {
+            items.add(item);
+        }
+    }
+
+    /**
+     * Изменение значения ключа.
+     */
+    public static class PlannedChange {
+
+        private final String key;
+        private final String currentValue;
+        private final String newValue;
+
+        PlannedChange(String key, String currentValue, String newValue) {
+            this.key = key;
+            this.currentValue = currentValue;
+            this.newValue = newValue;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getCurrentValue() {
+            return currentValue;
+        }
+
+        public String getNewValue() {
+            return newValue;
+        }
+
+    }
+
+}
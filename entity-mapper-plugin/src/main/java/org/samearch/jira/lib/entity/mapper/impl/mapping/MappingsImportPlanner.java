@@ -0,0 +1,175 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping;
+
+import org.apache.commons.lang3.StringUtils;
+import org.samearch.jira.lib.entity.mapper.api.EntityMapping;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.format.ImportedMappingRow;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.format.ImportedMappingsReader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Строит план импорта маппингов без изменения хранилища.<br/>
+ * <br/>
+ * Импортируемые записи сопоставляются с текущим снимком маппингов за один проход: каждый ключ ищется в хеш-индексе
+ * снимка, поэтому обращений к хранилищу нет. Ссылки между маппингами проверяются на объединенном наборе - текущие
+ * записи с наложенными поверх импортируемыми значениями (а при синхронизации - без записей, отсутствующих в
+ * импортируемых данных). Замкнутые цепочки ищутся одним обходом графа ссылок: у каждого ключа не больше одной
+ * исходящей ссылки, поэтому каждый ключ посещается один раз.
+ */
+@Component
+public class MappingsImportPlanner {
+
+    private final EntityMappingManager mappingManager;
+    private final MappingLinksResolver linksResolver;
+
+    @Autowired
+    public MappingsImportPlanner(EntityMappingManager mappingManager, MappingLinksResolver linksResolver) {
+        this.mappingManager = mappingManager;
+        this.linksResolver = linksResolver;
+    }
+
+    /**
+     * Строит план импорта записей из {@code importedMappings}.<br/>
+     * <br/>
+     * Записи проверяются по тем же правилам, что и при импорте ({@link MappingsImporter}); если ключ встречается
+     * несколько раз, то учитывается последнее значение.
+     *
+     * @param importedMappings источник импортируемых записей
+     * @param sync строить ли план синхронизации: если {@code true}, то записи, отсутствующие в импортируемых данных,
+     *             попадают в план как удаляемые
+     */
+    public MappingsImportPlan plan(ImportedMappingsReader importedMappings, boolean sync) {
+
+        MappingsImportPlan importPlan = new MappingsImportPlan();
+        Map<String, String> importedValues = new LinkedHashMap<>();
+
+        try {
+            ImportedMappingRow importedMapping;
+            while ((importedMapping = importedMappings.read()) != null) {
+                long rowNumber = importedMapping.getRowNumber();
+                String key = importedMapping.getKey();
+                String value = importedMapping.getValue();
+
+                if (importedMapping.getError() != null) {
+                    importPlan.addError(rowNumber, key, importedMapping.getError());
+                } else if (StringUtils.isBlank(key) || StringUtils.isBlank(value)) {
+                    importPlan.addError(rowNumber, key, "Mapping key and value must not be empty");
+                } else {
+                    importedValues.remove(key);
+                    importedValues.put(key, value);
+                }
+            }
+        } catch (IOException e) {
+            importPlan.setFatalError(e.getMessage());
+        }
+
+        MappingsSnapshot snapshot = mappingManager.getSnapshot();
+
+        importedValues.forEach((key, value) -> {
+            EntityMapping currentMapping = snapshot.getMapping(key);
+            if (currentMapping == null) {
+                importPlan.addCreate(key, value);
+            } else if (currentMapping.getValue().equals(value)) {
+                importPlan.addUnchanged();
+            } else {
+                importPlan.addUpdate(key, currentMapping.getValue(), value);
+            }
+        });
+
+        Map<String, String> resultingValues = new HashMap<>(importedValues);
+        for (EntityMapping currentMapping : snapshot.getMappings()) {
+            if (importedValues.containsKey(currentMapping.getKey())) {
+                continue;
+            }
+            if (sync) {
+                importPlan.addDelete(currentMapping.getKey(), currentMapping.getValue());
+            } else {
+                resultingValues.put(currentMapping.getKey(), currentMapping.getValue());
+            }
+        }
+
+        checkLinks(resultingValues, importPlan);
+
+        return importPlan;
+
+    }
+
+    /**
+     * Ищет ссылки на отсутствующие ключи и замкнутые цепочки ссылок в наборе значений, который получится после
+     * импорта.
+     */
+    private void checkLinks(Map<String, String> resultingValues, MappingsImportPlan importPlan) {
+
+        Map<String, String> linkTargets = new HashMap<>();
+        resultingValues.forEach((key, value) -> {
+            String linkTarget = linksResolver.extractLinkTarget(value);
+            if (linkTarget == null) {
+                return;
+            }
+            if (resultingValues.containsKey(linkTarget)) {
+                linkTargets.put(key, linkTarget);
+            } else {
+                importPlan.addDanglingLink(key, value, linkTarget);
+            }
+        });
+
+        // Номер обхода, в котором был посещен ключ. Ключ, посещенный в текущем обходе, лежит на текущем пути.
+        Map<String, Integer> visitedInWalk = new HashMap<>();
+        int walkNumber = 0;
+
+        for (String startKey : linkTargets.keySet()) {
+            if (visitedInWalk.containsKey(startKey)) {
+                continue;
+            }
+            walkNumber++;
+
+            Set<String> path = new LinkedHashSet<>();
+            String key = startKey;
+            while (key != null && !visitedInWalk.containsKey(key)) {
+                visitedInWalk.put(key, walkNumber);
+                path.add(key);
+                key = linkTargets.get(key);
+            }
+
+            if (key != null && visitedInWalk.get(key) == walkNumber) {
+                List<String> chainKeys = new ArrayList<>();
+                boolean inChain = false;
+                for (String pathKey : path) {
+                    inChain = inChain || pathKey.equals(key);
+                    if (inChain) {
+                        chainKeys.add(pathKey);
+                    }
+                }
+                importPlan.addClosedChain(chainKeys);
+            }
+        }
+
+    }
+
+}
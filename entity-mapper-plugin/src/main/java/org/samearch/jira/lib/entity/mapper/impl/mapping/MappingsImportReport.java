@@ -0,0 +1,199 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping;
+
+import org.samearch.jira.lib.entity.mapper.impl.mapping.format.ImportedMappingRow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Итоги импорта маппингов: количество созданных, обновленных и пропущенных записей и ошибки отдельных записей.<br/>
+ * <br/>
+ * Чтобы объем отчета не зависел от размера импортируемых данных, подробно сохраняются только первые
+ * {@link #MAX_REPORTED_ERRORS} ошибок; остальные учитываются только в {@link #getFailedCount()}.<br/>
+ * <br/>
+ * Отчет запоминает состояние на момент записи последнего пакета ({@link #getLastCommittedRowNumber()}), чтобы
+ * прерванный импорт можно было продолжить с первой незаписанной записи. Отчет может читаться из других потоков во
+ * время импорта.
+ */
+public class MappingsImportReport {
+
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    private long processedCount = 0;
+    private int createdCount = 0;
+    private int updatedCount = 0;
+    private int unchangedCount = 0;
+    private int conflictCount = 0;
+    private int failedCount = 0;
+    private final List<ImportError> errors = new ArrayList<>();
+    private String fatalError;
+
+    private long lastCommittedRowNumber = 0;
+    private long committedProcessedCount = 0;
+    private int committedCreatedCount = 0;
+    private int committedUpdatedCount = 0;
+    private int committedUnchangedCount = 0;
+    private int committedConflictCount = 0;
+    private int committedFailedCount = 0;
+    private int committedErrorsCount = 0;
+
+    /**
+     * Количество прочитанных записей, включая записи с ошибками.
+     */
+    public synchronized long getProcessedCount() {
+        return processedCount;
+    }
+
+    public synchronized int getCreatedCount() {
+        return createdCount;
+    }
+
+    public synchronized int getUpdatedCount() {
+        return updatedCount;
+    }
+
+    public synchronized int getUnchangedCount() {
+        return unchangedCount;
+    }
+
+    /**
+     * Количество записей, отклоненных из-за конфликта с другими маппингами: существующим ключем или замкнутой
+     * цепочкой ссылок. Эти записи также учитываются в {@link #getFailedCount()}.
+     */
+    public synchronized int getConflictCount() {
+        return conflictCount;
+    }
+
+    public synchronized int getFailedCount() {
+        return failedCount;
+    }
+
+    public synchronized List<ImportError> getErrors() {
+        return new ArrayList<>(errors);
+    }
+
+    /**
+     * Описание ошибки, из-за которой чтение импортируемых данных было прервано, или {@code null}, если данные были
+     * прочитаны полностью. Записи, прочитанные до ошибки, импортируются.
+     */
+    public synchronized String getFatalError() {
+        return fatalError;
+    }
+
+    /**
+     * Номер последней прочитанной записи на момент записи последнего пакета. Все записи с номерами не больше этого
+     * уже обработаны.
+     */
+    public synchronized long getLastCommittedRowNumber() {
+        return lastCommittedRowNumber;
+    }
+
+    synchronized void addProcessed() {
+        processedCount++;
+    }
+
+    synchronized void addResult(MappingsImportResult importResult, Map<String, Long> rowNumbersByKey) {
+        createdCount += importResult.getCreatedMappings().size();
+        updatedCount += importResult.getUpdatedMappings().size();
+        unchangedCount += importResult.getUnchangedCount();
+        importResult.getRejectedKeys().forEach((key, reason) ->
+                addConflict(rowNumbersByKey.get(key), key, reason.getMessage()));
+    }
+
+    synchronized void addConflict(Long rowNumber, String key, String message) {
+        conflictCount++;
+        addError(rowNumber, key, message);
+    }
+
+    synchronized void addError(Long rowNumber, String key, String message) {
+        failedCount++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new ImportError(rowNumber, key, message));
+        }
+    }
+
+    synchronized void setFatalError(String fatalError) {
+        this.fatalError = fatalError;
+    }
+
+    /**
+     * Запоминает текущее состояние отчета как состояние после записи пакета.
+     *
+     * @param rowNumber номер последней прочитанной записи
+     */
+    synchronized void markCommitted(long rowNumber) {
+        lastCommittedRowNumber = rowNumber;
+        committedProcessedCount = processedCount;
+        committedCreatedCount = createdCount;
+        committedUpdatedCount = updatedCount;
+        committedUnchangedCount = unchangedCount;
+        committedConflictCount = conflictCount;
+        committedFailedCount = failedCount;
+        committedErrorsCount = errors.size();
+    }
+
+    /**
+     * Возвращает отчет к состоянию после записи последнего пакета, отбрасывая учет записей, прочитанных после него.
+     */
+    synchronized void rollbackToCommitted() {
+        processedCount = committedProcessedCount;
+        createdCount = committedCreatedCount;
+        updatedCount = committedUpdatedCount;
+        unchangedCount = committedUnchangedCount;
+        conflictCount = committedConflictCount;
+        failedCount = committedFailedCount;
+        errors.subList(committedErrorsCount, errors.size()).clear();
+        fatalError = null;
+    }
+
+    /**
+     * Ошибка импорта отдельной записи.
+     */
+    public static class ImportError {
+
+        private final Long rowNumber;
+        private final String key;
+        private final String message;
+
+        ImportError(Long rowNumber, String key, String message) {
+            this.rowNumber = rowNumber;
+            this.key = key;
+            this.message = message;
+        }
+
+        /**
+         * Номер записи в импортируемых данных (см. {@link ImportedMappingRow#getRowNumber()}).
+         */
+        public Long getRowNumber() {
+            return rowNumber;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+    }
+
+}
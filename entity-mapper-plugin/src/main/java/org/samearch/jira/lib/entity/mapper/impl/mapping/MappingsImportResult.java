@@ -0,0 +1,106 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping;
+
+import org.samearch.jira.lib.entity.mapper.api.EntityMapping;
+import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Результат записи пакета импортируемых маппингов ({@link EntityMappingManager#importMappings}).
+ */
+public class MappingsImportResult {
+
+    private final List<EntityMapping> createdMappings = new ArrayList<>();
+    private final List<MappingUpdate> updatedMappings = new ArrayList<>();
+    private final Map<String, EntityMappingException> rejectedKeys = new LinkedHashMap<>();
+    private int unchangedCount = 0;
+
+    /**
+     * Созданные записи.
+     */
+    public List<EntityMapping> getCreatedMappings() {
+        return Collections.unmodifiableList(createdMappings);
+    }
+
+    /**
+     * Обновленные записи вместе с их состоянием до обновления.
+     */
+    public List<MappingUpdate> getUpdatedMappings() {
+        return Collections.unmodifiableList(updatedMappings);
+    }
+
+    /**
+     * Ключи, запись которых была отклонена, и причины отклонения.
+     */
+    public Map<String, EntityMappingException> getRejectedKeys() {
+        return Collections.unmodifiableMap(rejectedKeys);
+    }
+
+    /**
+     * Количество ключей, значения которых совпали с уже сохраненными.
+     */
+    public int getUnchangedCount() {
+        return unchangedCount;
+    }
+
+    void addCreated(EntityMapping mapping) {
+        createdMappings.add(mapping);
+    }
+
+    void addUpdated(EntityMapping previousMapping, EntityMapping currentMapping) {
+        updatedMappings.add(new MappingUpdate(previousMapping, currentMapping));
+    }
+
+    void addRejected(String key, EntityMappingException reason) {
+        rejectedKeys.put(key, reason);
+    }
+
+    void addUnchanged() {
+        unchangedCount++;
+    }
+
+    /**
+     * Состояние записи маппинга до и после обновления.
+     */
+    public static class MappingUpdate {
+
+        private final EntityMapping previousMapping;
+        private final EntityMapping currentMapping;
+
+        MappingUpdate(EntityMapping previousMapping, EntityMapping currentMapping) {
+            this.previousMapping = previousMapping;
+            this.currentMapping = currentMapping;
+        }
+
+        public EntityMapping getPreviousMapping() {
+            return previousMapping;
+        }
+
+        public EntityMapping getCurrentMapping() {
+            return currentMapping;
+        }
+
+    }
+
+}
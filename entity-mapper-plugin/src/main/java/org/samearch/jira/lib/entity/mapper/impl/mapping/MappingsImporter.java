@@ -0,0 +1,208 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping;
+
+import org.apache.commons.lang3.StringUtils;
+import org.samearch.jira.lib.entity.mapper.api.AuditEventRecord;
+import org.samearch.jira.lib.entity.mapper.api.AuditJournal;
+import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingConflictException;
+import org.samearch.jira.lib.entity.mapper.impl.audit.util.AuditRecordBuilder;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.format.ImportedMappingRow;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.format.ImportedMappingsReader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Пакетный импорт маппингов.<br/>
+ * <br/>
+ * Импортируемые записи читаются потоково и обрабатываются пакетами по {@link #IMPORT_CHUNK_SIZE} записей, поэтому
+ * объем используемой памяти не зависит от размера импортируемых данных. Каждый пакет записывается одним вызовом
+ * {@link EntityMappingManager#importMappings}: сопоставление с существующими ключами выполняется в памяти, создания и
+ * обновления записываются в хранилище пакетно, а записи аудита для всего пакета сохраняются одной операцией
+ * {@link AuditJournal#createAuditEventRecords} в той же транзакции (при асинхронной записи аудита - ставятся в очередь
+ * после ее фиксации, см. {@link AfterCommitActions}).
+ */
+@Component
+public class MappingsImporter {
+
+    static final int IMPORT_CHUNK_SIZE = 500;
+
+    private final EntityMappingManager mappingManager;
+    private final AuditJournal auditJournal;
+    private final AuditRecordBuilder auditRecordBuilder;
+
+    @Autowired
+    public MappingsImporter(EntityMappingManager mappingManager,
+                            AuditJournal auditJournal,
+                            AuditRecordBuilder auditRecordBuilder) {
+
+        this.mappingManager = mappingManager;
+        this.auditJournal = auditJournal;
+        this.auditRecordBuilder = auditRecordBuilder;
+
+    }
+
+    /**
+     * Импортирует маппинги, последовательно читая их из {@code importedMappings}.<br/>
+     * <br/>
+     * Импорт происходит по ключам. Для несуществующих ключей создаются новые записи, для существующих обновляются
+     * значения. Существующие записи не удаляются. Если ключ встречается несколько раз, то сохраняется последнее
+     * значение.<br/>
+     * <br/>
+     * Ошибки отдельных записей (ошибки разбора, пустые ключи или значения, замкнутые цепочки ссылок) попадают в отчет
+     * и не прерывают импорт. Если данные повреждены так, что продолжить чтение невозможно, то записи, прочитанные до
+     * повреждения, импортируются, а ошибка чтения сохраняется в отчете ({@link MappingsImportReport#getFatalError()}).
+     *
+     * @param userKey ключ пользователя, от имени которого выполняется импорт
+     * @param importedMappings источник импортируемых записей
+     */
+    public MappingsImportReport importMappings(String userKey, ImportedMappingsReader importedMappings) {
+        MappingsImportReport importReport = new MappingsImportReport();
+        importMappings(userKey, importedMappings, importReport, MappingsImportMonitor.NONE);
+        return importReport;
+    }
+
+    /**
+     * Импортирует маппинги так же, как {@link #importMappings(String, ImportedMappingsReader)}, накапливая итоги в
+     * переданном отчете.<br/>
+     * <br/>
+     * Если отчет уже содержит итоги прерванного импорта тех же данных, то импорт продолжается с первой записи после
+     * последнего записанного пакета ({@link MappingsImportReport#getLastCommittedRowNumber()}); учет записей,
+     * прочитанных после него, отбрасывается.<br/>
+     * <br/>
+     * Если монитор сообщает об отмене, то импорт прекращается, а накопленный, но еще не записанный пакет
+     * отбрасывается.
+     *
+     * @param userKey ключ пользователя, от имени которого выполняется импорт
+     * @param importedMappings источник импортируемых записей
+     * @param importReport отчет, в котором накапливаются итоги импорта
+     * @param importMonitor наблюдатель за ходом импорта
+     *
+     * @return {@code true}, если импорт завершен, и {@code false}, если он был отменен
+     */
+    public boolean importMappings(String userKey,
+                                  ImportedMappingsReader importedMappings,
+                                  MappingsImportReport importReport,
+                                  MappingsImportMonitor importMonitor) {
+
+        importReport.rollbackToCommitted();
+        long skipUpToRowNumber = importReport.getLastCommittedRowNumber();
+        long lastReadRowNumber = skipUpToRowNumber;
+
+        Map<String, String> chunk = new LinkedHashMap<>();
+        Map<String, Long> chunkRowNumbers = new HashMap<>();
+
+        try {
+            ImportedMappingRow importedMapping;
+            while (!importMonitor.isCancelled() && (importedMapping = importedMappings.read()) != null) {
+                long rowNumber = importedMapping.getRowNumber();
+                if (rowNumber <= skipUpToRowNumber) {
+                    continue;
+                }
+                lastReadRowNumber = rowNumber;
+                importReport.addProcessed();
+
+                String key = importedMapping.getKey();
+                String value = importedMapping.getValue();
+
+                if (importedMapping.getError() != null) {
+                    importReport.addError(rowNumber, key, importedMapping.getError());
+                    continue;
+                }
+
+                if (StringUtils.isBlank(key) || StringUtils.isBlank(value)) {
+                    importReport.addError(rowNumber, key, "Mapping key and value must not be empty");
+                    continue;
+                }
+
+                chunk.put(key, value);
+                chunkRowNumbers.put(key, rowNumber);
+                if (chunk.size() >= IMPORT_CHUNK_SIZE) {
+                    importChunk(userKey, chunk, chunkRowNumbers, importReport);
+                    commitChunk(lastReadRowNumber, importReport, importMonitor);
+                }
+            }
+        } catch (IOException e) {
+            importReport.setFatalError(e.getMessage());
+        }
+
+        if (importMonitor.isCancelled()) {
+            importReport.rollbackToCommitted();
+            return false;
+        }
+
+        if (!chunk.isEmpty()) {
+            importChunk(userKey, chunk, chunkRowNumbers, importReport);
+        }
+        commitChunk(lastReadRowNumber, importReport, importMonitor);
+
+        return true;
+
+    }
+
+    private void commitChunk(long lastReadRowNumber,
+                             MappingsImportReport importReport,
+                             MappingsImportMonitor importMonitor) {
+        importReport.markCommitted(lastReadRowNumber);
+        importMonitor.chunkCommitted(importReport);
+    }
+
+    /**
+     * Записывает пакет и очищает его.
+     */
+    private void importChunk(String userKey,
+                             Map<String, String> chunk,
+                             Map<String, Long> chunkRowNumbers,
+                             MappingsImportReport importReport) {
+
+        try (AfterCommitActions afterCommitActions = AfterCommitActions.open()) {
+            MappingsImportResult importResult = mappingManager.importMappings(chunk, chunkResult ->
+                    auditJournal.createAuditEventRecords(buildAuditRecords(userKey, chunkResult)));
+            afterCommitActions.run();
+            importReport.addResult(importResult, chunkRowNumbers);
+        } catch (EntityMappingConflictException e) {
+            chunk.keySet().forEach(key -> importReport.addConflict(chunkRowNumbers.get(key), key, e.getMessage()));
+        } finally {
+            chunk.clear();
+            chunkRowNumbers.clear();
+        }
+
+    }
+
+    private List<AuditEventRecord> buildAuditRecords(String userKey, MappingsImportResult importResult) {
+
+        List<AuditEventRecord> auditRecords = new ArrayList<>();
+
+        importResult.getCreatedMappings().forEach(createdMapping ->
+                auditRecords.add(auditRecordBuilder.buildRecordForCreateMappingEvent(userKey, createdMapping)));
+        importResult.getUpdatedMappings().forEach(mappingUpdate ->
+                auditRecords.add(auditRecordBuilder.buildRecordForUpdateMappingEvent(
+                        userKey, mappingUpdate.getPreviousMapping(), mappingUpdate.getCurrentMapping())));
+
+        return auditRecords;
+
+    }
+
+}
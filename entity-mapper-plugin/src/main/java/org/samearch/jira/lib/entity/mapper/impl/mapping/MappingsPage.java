@@ -0,0 +1,74 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping;
+
+import org.samearch.jira.lib.entity.mapper.api.EntityMapping;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Страница списка маппингов ({@link EntityMappingManager#getMappingsPage}).<br/>
+ * <br/>
+ * Страницы адресуются ключом последней записи предыдущей страницы (keyset-пагинация), а не смещением, поэтому
+ * получение любой страницы не требует пропуска предшествующих записей, а добавление и удаление записей между
+ * запросами не приводит к пропускам и повторам.
+ */
+public class MappingsPage {
+
+    private final List<EntityMapping> mappings;
+    private final String nextAfterKey;
+    private final int matchedCount;
+    private final int totalCount;
+
+    public MappingsPage(List<EntityMapping> mappings, String nextAfterKey, int matchedCount, int totalCount) {
+        this.mappings = Collections.unmodifiableList(mappings);
+        this.nextAfterKey = nextAfterKey;
+        this.matchedCount = matchedCount;
+        this.totalCount = totalCount;
+    }
+
+    /**
+     * Записи страницы в лексикографическом порядке ключей.
+     */
+    public List<EntityMapping> getMappings() {
+        return mappings;
+    }
+
+    /**
+     * Ключ, после которого начинается следующая страница, или {@code null}, если это последняя страница.
+     */
+    public String getNextAfterKey() {
+        return nextAfterKey;
+    }
+
+    /**
+     * Количество всех записей, удовлетворяющих фильтру, на всех страницах.
+     */
+    public int getMatchedCount() {
+        return matchedCount;
+    }
+
+    /**
+     * Количество всех записей маппинга без учета фильтра.
+     */
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+}
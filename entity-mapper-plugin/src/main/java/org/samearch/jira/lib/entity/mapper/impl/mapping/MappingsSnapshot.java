@@ -0,0 +1,410 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping;
+
+import org.samearch.jira.lib.entity.mapper.api.EntityMapping;
+import org.samearch.jira.lib.entity.mapper.api.exception.ClosedChainEntityMappingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Неизменяемый снимок всех записей маппинга.<br/>
+ * <br/>
+ * После публикации снимок не изменяется, поэтому читается без блокировок. Любое изменение маппингов приводит к
+ * созданию нового снимка со следующим номером версии. Все индексы снимка - неизменяемые структуры
+ * ({@link PersistentHashMap}, {@link MappingKeysTrie}), поэтому новый снимок разделяет с предыдущим все данные, кроме
+ * узлов на пути к измененным ключам, и изменение одного ключа не зависит от общего количества маппингов. Записи
+ * маппинга, хранящиеся в снимке, наружу отдаются только в виде копий.<br/>
+ * <br/>
+ * Кроме самих записей снимок хранит заранее вычисленные конечные значения ключей (для ссылок вида
+ * {@code ${other.mapping.key}} - значение последнего маппинга цепочки) и граф обратных ссылок. При изменении ключа
+ * пересчитываются только он сам и ключи, которые прямо или через другие ссылки на него ссылаются.<br/>
+ * <br/>
+ * Для выборок по префиксу ключа снимок хранит неизменяемое префиксное дерево ключей ({@link MappingKeysTrie}), которое
+ * при изменениях копирует только узлы на пути к измененному ключу.<br/>
+ * <br/>
+ * Замкнутые цепочки ссылок отклоняются при записи ({@link EntityMappingManager}), поэтому чтение конечного значения
+ * никогда не завершается ошибкой. Если замкнутая цепочка все же попала в хранилище (например, была создана до появления
+ * проверки), то ключи этой цепочки считаются не имеющими значения.
+ */
+public final class MappingsSnapshot {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MappingsSnapshot.class);
+
+    private final long version;
+    private final MappingLinksResolver linksResolver;
+    private final PersistentHashMap<String, EntityMapping> mappingsByKey;
+    private final PersistentHashMap<Integer, EntityMapping> mappingsById;
+    private final MappingKeysTrie keysTrie;
+    /** Конечные значения ключей. Ключи, цепочки ссылок которых никуда не ведут, здесь отсутствуют. */
+    private final PersistentHashMap<String, String> resolvedValues;
+    /** Обратные ссылки: ключ -> ключи маппингов, значения которых ссылаются на этот ключ. */
+    private final PersistentHashMap<String, Set<String>> linkDependents;
+    /** Ключи, записи или конечные значения которых изменились по сравнению с предыдущей версией снимка. */
+    private final Set<String> changedKeys;
+
+    private MappingsSnapshot(Builder builder) {
+        this.version = builder.version;
+        this.linksResolver = builder.linksResolver;
+        this.mappingsByKey = builder.mappingsByKey;
+        this.mappingsById = builder.mappingsById;
+        this.keysTrie = builder.keysTrie;
+        this.resolvedValues = builder.resolvedValues;
+        this.linkDependents = builder.linkDependents;
+        this.changedKeys = Collections.unmodifiableSet(builder.changedKeys);
+    }
+
+    /**
+     * Создает снимок, содержащий указанные записи маппинга.
+     *
+     * @param version версия создаваемого снимка
+     * @param mappings записи маппинга, которые должны попасть в снимок
+     * @param linksResolver резолвер, используемый для вычисления конечных значений ссылок
+     */
+    public static MappingsSnapshot of(long version, Collection<EntityMapping> mappings, MappingLinksResolver linksResolver) {
+        return new Builder(
+                version,
+                linksResolver,
+                PersistentHashMap.empty(),
+                PersistentHashMap.empty(),
+                MappingKeysTrie.empty(),
+                PersistentHashMap.empty(),
+                PersistentHashMap.empty())
+                .putAll(mappings)
+                .build();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return mappingsByKey.size();
+    }
+
+    public boolean containsKey(String key) {
+        return mappingsByKey.containsKey(key);
+    }
+
+    /**
+     * Возвращает запись маппинга по ключу или {@code null}, если записи с таким ключем нет.<br/>
+     * Возвращаемый объект принадлежит снимку и не должен изменяться.
+     */
+    public EntityMapping getMapping(String key) {
+        return mappingsByKey.get(key);
+    }
+
+    /**
+     * Возвращает запись маппинга по идентификатору или {@code null}, если записи с таким идентификатором нет.<br/>
+     * Возвращаемый объект принадлежит снимку и не должен изменяться.
+     */
+    public EntityMapping getMapping(int mappingId) {
+        return mappingsById.get(mappingId);
+    }
+
+    /**
+     * Возвращает все записи маппинга снимка.<br/>
+     * Возвращаемые объекты принадлежат снимку и не должны изменяться.
+     */
+    public Collection<EntityMapping> getMappings() {
+        return mappingsByKey.values();
+    }
+
+    /**
+     * Возвращает записи маппинга, ключи которых начинаются с указанного префикса, в лексикографическом порядке ключей.<br/>
+     * Возвращаемые объекты принадлежат снимку и не должны изменяться.
+     */
+    public List<EntityMapping> getMappingsWithKeyPrefix(String keyPrefix) {
+        return keysTrie.getWithPrefix(keyPrefix);
+    }
+
+    /**
+     * Возвращает итератор по записям маппинга, ключи которых начинаются с указанного префикса, в лексикографическом
+     * порядке ключей. Записи не копируются, поэтому подходит для потоковой выгрузки любого количества записей.<br/>
+     * Возвращаемые объекты принадлежат снимку и не должны изменяться.
+     */
+    public Iterator<EntityMapping> iterateMappingsWithKeyPrefix(String keyPrefix) {
+        return keysTrie.iteratorWithPrefix(keyPrefix);
+    }
+
+    /**
+     * Возвращает итератор по записям маппинга, ключи которых начинаются с указанного префикса и строго больше ключа
+     * {@code afterKey}, в лексикографическом порядке ключей.<br/>
+     * Возвращаемые объекты принадлежат снимку и не должны изменяться.
+     *
+     * @param afterKey ключ, после которого начинается обход; {@code null} - обход с начала
+     */
+    public Iterator<EntityMapping> iterateMappingsWithKeyPrefix(String keyPrefix, String afterKey) {
+        return keysTrie.iteratorWithPrefix(keyPrefix, afterKey);
+    }
+
+    /**
+     * Возвращает версию снимка, в которой последний раз изменились записи или конечные значения ключей, начинающихся с
+     * указанного префикса.
+     */
+    public long getVersionWithKeyPrefix(String keyPrefix) {
+        return keysTrie.getVersionWithPrefix(keyPrefix);
+    }
+
+    /**
+     * Возвращает количество записей маппинга, ключи которых начинаются с указанного префикса.
+     */
+    public int countMappingsWithKeyPrefix(String keyPrefix) {
+        return keysTrie.countWithPrefix(keyPrefix);
+    }
+
+    /**
+     * Возвращает конечное значение ключа с учетом ссылок между маппингами.
+     *
+     * @param key ключ маппинга
+     * @return конечное значение ключа или {@code null}, если маппинга с указанным ключем нет или цепочка ссылок
+     *         ведет к несуществующему ключу
+     */
+    public String getResolvedValue(String key) {
+        return resolvedValues.get(key);
+    }
+
+    /**
+     * Возвращает ключи, записи или конечные значения которых изменились по сравнению с предыдущей версией снимка.
+     */
+    public Set<String> getChangedKeys() {
+        return changedKeys;
+    }
+
+    /**
+     * Начинает построение следующей версии снимка на основе текущей.<br/>
+     * Все индексы снимка неизменяемы и разделяются с построителем, поэтому начало построения не копирует данные, а
+     * каждое изменение копирует только узлы на пути к измененному ключу.
+     */
+    public Builder modify() {
+        return new Builder(version + 1, linksResolver, mappingsByKey, mappingsById, keysTrie, resolvedValues, linkDependents);
+    }
+
+    static EntityMapping copyOf(EntityMapping mapping) {
+        EntityMapping copy = new EntityMapping();
+        copy.setId(mapping.getId());
+        copy.setKey(mapping.getKey());
+        copy.setValue(mapping.getValue());
+        copy.setVersion(mapping.getVersion());
+        return copy;
+    }
+
+    /**
+     * Построитель следующей версии снимка.<br/>
+     * Изменения копии данных, накопленные построителем, не видны читателям до вызова {@link #build()}.
+     */
+    public static final class Builder {
+
+        private final long version;
+        private final MappingLinksResolver linksResolver;
+        private PersistentHashMap<String, EntityMapping> mappingsByKey;
+        private PersistentHashMap<Integer, EntityMapping> mappingsById;
+        private MappingKeysTrie keysTrie;
+        private PersistentHashMap<String, String> resolvedValues;
+        private PersistentHashMap<String, Set<String>> linkDependents;
+
+        /** Ключи, измененные построителем. Их конечные значения будут пересчитаны при построении снимка. */
+        private final Set<String> changedKeys = new HashSet<>();
+        /** Ключи, конечные значения которых изменились из-за изменения других маппингов цепочки. */
+        private final Set<String> resolvedChangedKeys = new HashSet<>();
+        /**
+         * Ключи, множества обратных ссылок которых уже скопированы построителем. Множества, доставшиеся от
+         * предыдущего снимка, изменять нельзя.
+         */
+        private final Set<String> ownedDependentsKeys = new HashSet<>();
+
+        private Builder(long version,
+                        MappingLinksResolver linksResolver,
+                        PersistentHashMap<String, EntityMapping> mappingsByKey,
+                        PersistentHashMap<Integer, EntityMapping> mappingsById,
+                        MappingKeysTrie keysTrie,
+                        PersistentHashMap<String, String> resolvedValues,
+                        PersistentHashMap<String, Set<String>> linkDependents) {
+            this.version = version;
+            this.linksResolver = linksResolver;
+            this.mappingsByKey = mappingsByKey;
+            this.mappingsById = mappingsById;
+            this.keysTrie = keysTrie;
+            this.resolvedValues = resolvedValues;
+            this.linkDependents = linkDependents;
+        }
+
+        /**
+         * Добавляет запись маппинга в снимок или заменяет запись с тем же идентификатором.<br/>
+         * Если у заменяемой записи был другой ключ, то старый ключ удаляется из снимка.
+         */
+        public Builder put(EntityMapping mapping) {
+
+            EntityMapping storedMapping = copyOf(mapping);
+
+            EntityMapping previousMapping = mappingsById.get(storedMapping.getId());
+            mappingsById = mappingsById.put(storedMapping.getId(), storedMapping);
+            if (previousMapping != null) {
+                unlink(previousMapping);
+                if (!previousMapping.getKey().equals(storedMapping.getKey())) {
+                    mappingsByKey = mappingsByKey.remove(previousMapping.getKey());
+                    keysTrie = keysTrie.remove(previousMapping.getKey(), version);
+                    changedKeys.add(previousMapping.getKey());
+                }
+            }
+
+            EntityMapping displacedMapping = mappingsByKey.get(storedMapping.getKey());
+            mappingsByKey = mappingsByKey.put(storedMapping.getKey(), storedMapping);
+            if (displacedMapping != null && displacedMapping.getId() != storedMapping.getId()) {
+                mappingsById = mappingsById.remove(displacedMapping.getId());
+                unlink(displacedMapping);
+            }
+
+            keysTrie = keysTrie.put(storedMapping.getKey(), storedMapping, version);
+            link(storedMapping);
+            changedKeys.add(storedMapping.getKey());
+
+            return this;
+
+        }
+
+        public Builder putAll(Collection<EntityMapping> mappings) {
+            mappings.forEach(this::put);
+            return this;
+        }
+
+        /**
+         * Удаляет из снимка запись маппинга с указанным ключем.
+         */
+        public Builder remove(String key) {
+
+            EntityMapping removedMapping = mappingsByKey.get(key);
+            if (removedMapping != null) {
+                mappingsByKey = mappingsByKey.remove(key);
+                mappingsById = mappingsById.remove(removedMapping.getId());
+                keysTrie = keysTrie.remove(key, version);
+                unlink(removedMapping);
+                changedKeys.add(key);
+            }
+
+            return this;
+
+        }
+
+        public MappingsSnapshot build() {
+            collectAffectedKeys().forEach(this::resolve);
+            changedKeys.addAll(resolvedChangedKeys);
+            return new MappingsSnapshot(this);
+        }
+
+        /**
+         * Возвращает измененные ключи и все ключи, которые прямо или через другие ссылки на них ссылаются.
+         */
+        private Set<String> collectAffectedKeys() {
+
+            Set<String> affectedKeys = new HashSet<>(changedKeys);
+            Deque<String> keysToVisit = new ArrayDeque<>(changedKeys);
+
+            while (!keysToVisit.isEmpty()) {
+                Set<String> dependents = linkDependents.get(keysToVisit.poll());
+                if (dependents == null) {
+                    continue;
+                }
+                for (String dependentKey : dependents) {
+                    if (affectedKeys.add(dependentKey)) {
+                        keysToVisit.add(dependentKey);
+                    }
+                }
+            }
+
+            return affectedKeys;
+
+        }
+
+        private void resolve(String key) {
+
+            String previousValue = resolvedValues.get(key);
+            resolvedValues = resolvedValues.remove(key);
+
+            EntityMapping mapping = mappingsByKey.get(key);
+            if (mapping == null) {
+                return;
+            }
+
+            String resolvedValue = null;
+            try {
+                String targetKey = linksResolver.resolveTargetMappingKey(key, mappingsByKey::get);
+                EntityMapping targetMapping = mappingsByKey.get(targetKey);
+                if (targetMapping != null) {
+                    resolvedValue = targetMapping.getValue();
+                    resolvedValues = resolvedValues.put(key, resolvedValue);
+                }
+            } catch (ClosedChainEntityMappingException e) {
+                LOG.warn("Mapping '{}' has no value: {}", key, e.getMessage());
+            }
+
+            // Конечное значение ключа изменилось из-за изменения другого маппинга цепочки: версия префиксов ключа
+            // должна измениться так же, как при изменении самой записи.
+            if (!changedKeys.contains(key) && !Objects.equals(previousValue, resolvedValue)) {
+                keysTrie = keysTrie.put(key, mapping, version);
+                resolvedChangedKeys.add(key);
+            }
+
+        }
+
+        private void link(EntityMapping mapping) {
+            String linkTarget = linksResolver.extractLinkTarget(mapping.getValue());
+            if (linkTarget != null) {
+                getOwnedDependents(linkTarget).add(mapping.getKey());
+            }
+        }
+
+        private void unlink(EntityMapping mapping) {
+            String linkTarget = linksResolver.extractLinkTarget(mapping.getValue());
+            if (linkTarget == null) {
+                return;
+            }
+            Set<String> dependents = getOwnedDependents(linkTarget);
+            dependents.remove(mapping.getKey());
+            if (dependents.isEmpty()) {
+                linkDependents = linkDependents.remove(linkTarget);
+            }
+        }
+
+        private Set<String> getOwnedDependents(String linkTarget) {
+
+            Set<String> dependents = linkDependents.get(linkTarget);
+
+            if (dependents == null || ownedDependentsKeys.add(linkTarget)) {
+                dependents = (dependents != null) ? new HashSet<>(dependents) : new HashSet<>();
+                linkDependents = linkDependents.put(linkTarget, dependents);
+                ownedDependentsKeys.add(linkTarget);
+            }
+
+            return dependents;
+
+        }
+
+    }
+
+}
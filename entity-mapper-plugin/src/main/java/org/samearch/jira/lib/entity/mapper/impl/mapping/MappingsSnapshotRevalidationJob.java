@@ -0,0 +1,97 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping;
+
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.atlassian.scheduler.JobRunner;
+import com.atlassian.scheduler.JobRunnerRequest;
+import com.atlassian.scheduler.JobRunnerResponse;
+import com.atlassian.scheduler.SchedulerService;
+import com.atlassian.scheduler.SchedulerServiceException;
+import com.atlassian.scheduler.config.JobConfig;
+import com.atlassian.scheduler.config.JobId;
+import com.atlassian.scheduler.config.JobRunnerKey;
+import com.atlassian.scheduler.config.RunMode;
+import com.atlassian.scheduler.config.Schedule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задание планировщика Jira, сверяющее снимок маппингов с хранилищем ({@link EntityMappingManager#revalidateSnapshot()}).
+ * <br/>
+ * <br/>
+ * Задание выполняется раз в {@link #RUN_INTERVAL_MILLIS} мс на каждом узле кластера, поэтому изменения, выполненные на
+ * другом узле, становятся видны не позднее чем через этот интервал.
+ */
+@Component
+public class MappingsSnapshotRevalidationJob implements JobRunner, InitializingBean, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MappingsSnapshotRevalidationJob.class);
+
+    private static final JobRunnerKey JOB_RUNNER_KEY = JobRunnerKey.of(MappingsSnapshotRevalidationJob.class.getName());
+    private static final JobId JOB_ID = JobId.of(MappingsSnapshotRevalidationJob.class.getName());
+    private static final long RUN_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    @ComponentImport
+    private final SchedulerService schedulerService;
+
+    private final EntityMappingManager entityMappingManager;
+
+    @Autowired
+    public MappingsSnapshotRevalidationJob(SchedulerService schedulerService, EntityMappingManager entityMappingManager) {
+        this.schedulerService = schedulerService;
+        this.entityMappingManager = entityMappingManager;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws SchedulerServiceException {
+        schedulerService.registerJobRunner(JOB_RUNNER_KEY, this);
+        JobConfig jobConfig = JobConfig.forJobRunnerKey(JOB_RUNNER_KEY)
+                .withRunMode(RunMode.RUN_LOCALLY)
+                .withSchedule(Schedule.forInterval(
+                        RUN_INTERVAL_MILLIS, new Date(System.currentTimeMillis() + RUN_INTERVAL_MILLIS)));
+        schedulerService.scheduleJob(JOB_ID, jobConfig);
+    }
+
+    @Override
+    public void destroy() {
+        schedulerService.unscheduleJob(JOB_ID);
+        schedulerService.unregisterJobRunner(JOB_RUNNER_KEY);
+    }
+
+    @Override
+    public JobRunnerResponse runJob(JobRunnerRequest request) {
+        try {
+            if (entityMappingManager.revalidateSnapshot()) {
+                LOG.debug("Mappings snapshot has been reloaded from storage");
+            }
+            return JobRunnerResponse.success();
+        } catch (RuntimeException e) {
+            LOG.error("Mappings snapshot revalidation failed", e);
+            return JobRunnerResponse.failed(e);
+        }
+    }
+
+}
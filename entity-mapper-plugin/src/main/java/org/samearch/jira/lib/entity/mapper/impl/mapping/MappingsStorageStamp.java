@@ -0,0 +1,78 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping;
+
+import java.util.Objects;
+
+/**
+ * Отметка состояния хранилища маппингов: количество записей, наибольший идентификатор записи и наибольший
+ * идентификатор изменения записи.<br/>
+ * <br/>
+ * Любое создание, удаление или обновление записи через хранилище изменяет отметку, поэтому ее сравнение позволяет
+ * дешево проверить, не изменились ли маппинги в обход снимка (например, на другом узле кластера), не читая сами
+ * записи.
+ */
+public final class MappingsStorageStamp {
+
+    private final int mappingsCount;
+    private final long lastMappingId;
+    private final long lastChangeId;
+
+    public MappingsStorageStamp(int mappingsCount, long lastMappingId, long lastChangeId) {
+        this.mappingsCount = mappingsCount;
+        this.lastMappingId = lastMappingId;
+        this.lastChangeId = lastChangeId;
+    }
+
+    public int getMappingsCount() {
+        return mappingsCount;
+    }
+
+    public long getLastMappingId() {
+        return lastMappingId;
+    }
+
+    public long getLastChangeId() {
+        return lastChangeId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        MappingsStorageStamp that = (MappingsStorageStamp) o;
+        return mappingsCount == that.mappingsCount
+                && lastMappingId == that.lastMappingId
+                && lastChangeId == that.lastChangeId;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(mappingsCount, lastMappingId, lastChangeId);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d mapping(s), last mapping #%d, last change #%d", mappingsCount, lastMappingId, lastChangeId);
+    }
+
+}
@@ -0,0 +1,404 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping;
+
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Неизменяемая хеш-таблица (hash array mapped trie).<br/>
+ * <br/>
+ * Ключи размещаются в дереве по 5 бит хеша на уровень, поэтому глубина дерева не превышает 7 уровней. Каждая операция
+ * изменения возвращает новую таблицу, копируя только узлы на пути от корня к изменяемому ключу; все остальные узлы
+ * разделяются с предыдущей версией. Поэтому изменение одного ключа стоит O(log32 N) независимо от размера таблицы, а
+ * разные версии таблицы можно читать без блокировок.
+ *
+ * @param <K> тип ключа
+ * @param <V> тип значения; {@code null} в качестве значения не допускается
+ */
+public final class PersistentHashMap<K, V> {
+
+    private static final int BITS_PER_LEVEL = 5;
+    private static final int LEVEL_MASK = (1 << BITS_PER_LEVEL) - 1;
+
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(null, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Возвращает значение по ключу или {@code null}, если ключа в таблице нет.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        return root != null ? (V) root.get(hash(key), key, 0) : null;
+    }
+
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Возвращает таблицу, в которой ключу соответствует указанное значение. Если значение уже соответствует ключу,
+     * возвращается эта же таблица.
+     */
+    public PersistentHashMap<K, V> put(K key, V value) {
+        Objects.requireNonNull(value);
+        int keyHash = hash(key);
+        if (root == null) {
+            return new PersistentHashMap<>(new Leaf(keyHash, key, value), 1);
+        }
+        Node newRoot = root.put(keyHash, key, value, 0);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap<>(newRoot, root.get(keyHash, key, 0) != null ? size : size + 1);
+    }
+
+    /**
+     * Возвращает таблицу без указанного ключа. Если ключа в таблице нет, возвращается эта же таблица.
+     */
+    public PersistentHashMap<K, V> remove(Object key) {
+        if (root == null) {
+            return this;
+        }
+        Node newRoot = root.remove(hash(key), key, 0);
+        if (newRoot == root) {
+            return this;
+        }
+        return newRoot != null ? new PersistentHashMap<>(newRoot, size - 1) : empty();
+    }
+
+    /**
+     * Возвращает неизменяемое представление значений таблицы в произвольном порядке.
+     */
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+
+            @Override
+            public Iterator<V> iterator() {
+                return new ValuesIterator<>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+        };
+    }
+
+    private static int hash(Object key) {
+        int keyHash = key.hashCode();
+        return keyHash ^ (keyHash >>> 16);
+    }
+
+    private static int levelIndex(int keyHash, int shift) {
+        return (keyHash >>> shift) & LEVEL_MASK;
+    }
+
+    /**
+     * Объединяет два узла с разными хешами в поддерево, начиная с уровня {@code shift}.
+     */
+    private static Node merge(Node first, int firstHash, Node second, int secondHash, int shift) {
+        int firstIndex = levelIndex(firstHash, shift);
+        int secondIndex = levelIndex(secondHash, shift);
+        if (firstIndex == secondIndex) {
+            return new BitmapNode(1 << firstIndex,
+                    new Node[] {merge(first, firstHash, second, secondHash, shift + BITS_PER_LEVEL)});
+        }
+        Node[] children = firstIndex < secondIndex ? new Node[] {first, second} : new Node[] {second, first};
+        return new BitmapNode((1 << firstIndex) | (1 << secondIndex), children);
+    }
+
+    private abstract static class Node {
+
+        abstract Object get(int keyHash, Object key, int shift);
+
+        /**
+         * @return узел с добавленным или замененным ключом; этот же узел, если ничего не изменилось
+         */
+        abstract Node put(int keyHash, Object key, Object value, int shift);
+
+        /**
+         * @return узел без ключа; этот же узел, если ключа не было; {@code null}, если узел опустел
+         */
+        abstract Node remove(int keyHash, Object key, int shift);
+
+    }
+
+    private static final class Leaf extends Node {
+
+        private final int keyHash;
+        private final Object key;
+        private final Object value;
+
+        Leaf(int keyHash, Object key, Object value) {
+            this.keyHash = keyHash;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        Object get(int keyHash, Object key, int shift) {
+            return this.keyHash == keyHash && this.key.equals(key) ? value : null;
+        }
+
+        @Override
+        Node put(int keyHash, Object key, Object value, int shift) {
+            if (this.keyHash != keyHash) {
+                return merge(this, this.keyHash, new Leaf(keyHash, key, value), keyHash, shift);
+            }
+            if (!this.key.equals(key)) {
+                return new CollisionNode(keyHash, new Leaf[] {this, new Leaf(keyHash, key, value)});
+            }
+            return this.value == value ? this : new Leaf(keyHash, key, value);
+        }
+
+        @Override
+        Node remove(int keyHash, Object key, int shift) {
+            return this.keyHash == keyHash && this.key.equals(key) ? null : this;
+        }
+
+    }
+
+    /**
+     * Ключи с одинаковым полным хешем.
+     */
+    private static final class CollisionNode extends Node {
+
+        private final int keyHash;
+        private final Leaf[] leaves;
+
+        CollisionNode(int keyHash, Leaf[] leaves) {
+            this.keyHash = keyHash;
+            this.leaves = leaves;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < leaves.length; i++) {
+                if (leaves[i].key.equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object get(int keyHash, Object key, int shift) {
+            if (this.keyHash != keyHash) {
+                return null;
+            }
+            int index = indexOf(key);
+            return index >= 0 ? leaves[index].value : null;
+        }
+
+        @Override
+        Node put(int keyHash, Object key, Object value, int shift) {
+            if (this.keyHash != keyHash) {
+                return merge(this, this.keyHash, new Leaf(keyHash, key, value), keyHash, shift);
+            }
+            int index = indexOf(key);
+            if (index >= 0 && leaves[index].value == value) {
+                return this;
+            }
+            Leaf[] newLeaves;
+            if (index >= 0) {
+                newLeaves = leaves.clone();
+                newLeaves[index] = new Leaf(keyHash, key, value);
+            } else {
+                newLeaves = new Leaf[leaves.length + 1];
+                System.arraycopy(leaves, 0, newLeaves, 0, leaves.length);
+                newLeaves[leaves.length] = new Leaf(keyHash, key, value);
+            }
+            return new CollisionNode(keyHash, newLeaves);
+        }
+
+        @Override
+        Node remove(int keyHash, Object key, int shift) {
+            int index = this.keyHash == keyHash ? indexOf(key) : -1;
+            if (index < 0) {
+                return this;
+            }
+            if (leaves.length == 2) {
+                return leaves[1 - index];
+            }
+            Leaf[] newLeaves = new Leaf[leaves.length - 1];
+            System.arraycopy(leaves, 0, newLeaves, 0, index);
+            System.arraycopy(leaves, index + 1, newLeaves, index, leaves.length - index - 1);
+            return new CollisionNode(keyHash, newLeaves);
+        }
+
+    }
+
+    /**
+     * Внутренний узел: до 32 дочерних узлов, присутствие которых отмечено битами {@code bitmap}.
+     */
+    private static final class BitmapNode extends Node {
+
+        private final int bitmap;
+        private final Node[] children;
+
+        BitmapNode(int bitmap, Node[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        private int childPosition(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object get(int keyHash, Object key, int shift) {
+            int bit = 1 << levelIndex(keyHash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            return children[childPosition(bit)].get(keyHash, key, shift + BITS_PER_LEVEL);
+        }
+
+        @Override
+        Node put(int keyHash, Object key, Object value, int shift) {
+
+            int bit = 1 << levelIndex(keyHash, shift);
+            int position = childPosition(bit);
+
+            if ((bitmap & bit) == 0) {
+                Node[] newChildren = new Node[children.length + 1];
+                System.arraycopy(children, 0, newChildren, 0, position);
+                newChildren[position] = new Leaf(keyHash, key, value);
+                System.arraycopy(children, position, newChildren, position + 1, children.length - position);
+                return new BitmapNode(bitmap | bit, newChildren);
+            }
+
+            Node child = children[position];
+            Node newChild = child.put(keyHash, key, value, shift + BITS_PER_LEVEL);
+            if (newChild == child) {
+                return this;
+            }
+            Node[] newChildren = children.clone();
+            newChildren[position] = newChild;
+            return new BitmapNode(bitmap, newChildren);
+
+        }
+
+        @Override
+        Node remove(int keyHash, Object key, int shift) {
+
+            int bit = 1 << levelIndex(keyHash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int position = childPosition(bit);
+
+            Node child = children[position];
+            Node newChild = child.remove(keyHash, key, shift + BITS_PER_LEVEL);
+            if (newChild == child) {
+                return this;
+            }
+
+            if (newChild != null) {
+                // единственный лист или узел коллизий не зависит от уровня и поднимается на место этого узла
+                if (children.length == 1 && !(newChild instanceof BitmapNode)) {
+                    return newChild;
+                }
+                Node[] newChildren = children.clone();
+                newChildren[position] = newChild;
+                return new BitmapNode(bitmap, newChildren);
+            }
+
+            if (children.length == 1) {
+                return null;
+            }
+            if (children.length == 2 && !(children[1 - position] instanceof BitmapNode)) {
+                return children[1 - position];
+            }
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(children, 0, newChildren, 0, position);
+            System.arraycopy(children, position + 1, newChildren, position, children.length - position - 1);
+            return new BitmapNode(bitmap & ~bit, newChildren);
+
+        }
+
+    }
+
+    private static final class ValuesIterator<V> implements Iterator<V> {
+
+        private final Deque<Node> nodesToVisit = new ArrayDeque<>();
+        private final Deque<Leaf> pendingLeaves = new ArrayDeque<>();
+
+        ValuesIterator(Node root) {
+            if (root != null) {
+                nodesToVisit.push(root);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (pendingLeaves.isEmpty() && !nodesToVisit.isEmpty()) {
+                Node node = nodesToVisit.pop();
+                if (node instanceof Leaf) {
+                    pendingLeaves.add((Leaf) node);
+                } else if (node instanceof CollisionNode) {
+                    for (Leaf leaf : ((CollisionNode) node).leaves) {
+                        pendingLeaves.add(leaf);
+                    }
+                } else {
+                    for (Node child : ((BitmapNode) node).children) {
+                        nodesToVisit.push(child);
+                    }
+                }
+            }
+            return !pendingLeaves.isEmpty();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return (V) pendingLeaves.poll().value;
+        }
+
+    }
+
+}
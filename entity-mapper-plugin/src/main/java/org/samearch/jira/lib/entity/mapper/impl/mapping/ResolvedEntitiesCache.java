@@ -0,0 +1,100 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кеш объектов Jira, найденных по значениям маппингов.<br/>
+ * <br/>
+ * Каждая запись кеша хранит версию маппингов ключа ({@link org.samearch.jira.lib.entity.mapper.api.EntityMapper#getMappingsVersion(String)}),
+ * для которой был найден объект: запись, версия которой отличается от текущей, считается устаревшей. Очистка кеша
+ * увеличивает номер поколения, поэтому объект, поиск которого начался до очистки, в кеш уже не попадет.<br/>
+ * <br/>
+ * В кеше хранятся только найденные объекты: отсутствие объекта не кешируется.
+ *
+ * @param <T> тип объектов Jira
+ */
+public final class ResolvedEntitiesCache<T> {
+
+    private final ConcurrentMap<String, Entry<T>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Возвращает закешированный объект для ключа маппинга или {@link Optional#empty()}, если объекта для указанной
+     * версии маппингов ключа в кеше нет.
+     */
+    public Optional<T> get(String mappingKey, long mappingsVersion) {
+        Entry<T> entry = entries.get(mappingKey);
+        return (entry != null && entry.mappingsVersion == mappingsVersion)
+                ? Optional.of(entry.entity)
+                : Optional.empty();
+    }
+
+    /**
+     * Возвращает текущий номер поколения кеша. Должен быть получен до начала поиска объекта, помещаемого в кеш.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Помещает найденный объект в кеш, если с момента получения номера поколения {@code cacheGeneration} кеш не
+     * очищался. Запись для более новой версии маппингов ключа не заменяется.<br/>
+     * <br/>
+     * Поколение проверяется при вставке под блокировкой записи кеша: очистка, начавшаяся до вставки, удалит
+     * вставленную запись, а вставка после увеличения номера поколения не выполняется.
+     */
+    public void put(String mappingKey, long mappingsVersion, long cacheGeneration, T entity) {
+        Objects.requireNonNull(entity);
+        entries.compute(mappingKey, (key, currentEntry) -> {
+            if (generation.get() != cacheGeneration
+                    || (currentEntry != null && currentEntry.mappingsVersion > mappingsVersion)) {
+                return currentEntry;
+            }
+            return new Entry<>(mappingsVersion, entity);
+        });
+    }
+
+    public void invalidate(Collection<String> mappingKeys) {
+        mappingKeys.forEach(entries::remove);
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    private static final class Entry<T> {
+
+        private final long mappingsVersion;
+        private final T entity;
+
+        private Entry(long mappingsVersion, T entity) {
+            this.mappingsVersion = mappingsVersion;
+            this.entity = entity;
+        }
+
+    }
+
+}
@@ -21,13 +21,21 @@ import com.atlassian.activeobjects.external.ActiveObjects;
 import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
 import net.java.ao.Query;
 import org.samearch.jira.lib.entity.mapper.api.EntityMapping;
+import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingConflictException;
+import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingVersionMismatchException;
 import org.samearch.jira.lib.entity.mapper.impl.mapping.EntityMappingStorage;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsStorageStamp;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -35,6 +43,17 @@ import java.util.stream.Collectors;
 @Component
 public class DefaultEntityMappingStorage implements EntityMappingStorage {
 
+    /**
+     * Класс состояния SQL (первые два символа SQLSTATE), которым СУБД сообщают о нарушении ограничения целостности,
+     * в том числе уникального индекса.
+     */
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION_SQL_STATE_CLASS = "23";
+    /**
+     * Максимальное количество параметров в условии {@code IN (...)}. Некоторые СУБД (например, Oracle) не допускают
+     * больше 1000 элементов в списке.
+     */
+    private static final int MAX_IN_CLAUSE_PARAMETERS = 500;
+
     @ComponentImport
     private final ActiveObjects ao;
 
@@ -44,56 +63,296 @@ public class DefaultEntityMappingStorage implements EntityMappingStorage {
     }
 
     @Override
-    public EntityMapping createEntityMapping(String key, String value) {
+    public EntityMapping createEntityMapping(String key, String value) throws EntityMappingConflictException {
         Map<String, Object> createdEntityFields = buildCreationRequestParameters(key, value);
-        EntityMappingEntity createdEntityMapping = ao.create(EntityMappingEntity.class, createdEntityFields);
+        EntityMappingEntity createdEntityMapping;
+        try {
+            createdEntityMapping = ao.create(EntityMappingEntity.class, createdEntityFields);
+        } catch (RuntimeException e) {
+            throw conflictOrRethrow(e, key);
+        }
         return entityToObject(createdEntityMapping);
     }
 
+    @Override
+    public List<EntityMapping> createEntityMappings(Map<String, String> valuesByKey)
+            throws EntityMappingConflictException {
+
+        if (valuesByKey.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Map<String, Object>> createdEntitiesFields = valuesByKey.entrySet().stream()
+                .map(entry -> buildCreationRequestParameters(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+
+        try {
+            return ao.executeInTransaction(() -> {
+                ao.create(EntityMappingEntity.class, createdEntitiesFields);
+                return findMappingsByKeys(valuesByKey.keySet());
+            });
+        } catch (RuntimeException e) {
+            throw conflictForAnyKeyOrRethrow(e, valuesByKey.keySet());
+        }
+
+    }
+
     private Map<String, Object> buildCreationRequestParameters(String key, String value) {
         Map<String, Object> createdEntityFields = new HashMap<>();
         createdEntityFields.put("KEY", key);
         createdEntityFields.put("VALUE", value);
+        createdEntityFields.put("VERSION", 0L);
         return createdEntityFields;
     }
 
     @Override
     public void deleteEntityMapping(String key) {
-        EntityMappingEntity savedMappingForKey = findMappingByKey(key);
-        if (savedMappingForKey != null) {
-            ao.delete(savedMappingForKey);
+        EntityMappingEntity deletedMappingEntity = findMappingByKey(key);
+        if (deletedMappingEntity == null) {
+            return;
         }
+        ao.executeInTransaction(() -> {
+            ao.deleteWithSQL(EntityMappingClaimEntity.class, "MAPPING_ID = ?", deletedMappingEntity.getID());
+            ao.deleteWithSQL(EntityMappingEntity.class, "KEY = ?", key);
+            return null;
+        });
     }
 
     @Override
-    public EntityMapping updateEntityMapping(int mappingId, String newMappingKey, String newMappingValue) {
-        ao.executeInTransaction(() -> {
-            EntityMappingEntity currentSavedMappingEntity = ao.get(EntityMappingEntity.class, mappingId);
-            if (currentSavedMappingEntity != null) {
+    public EntityMapping updateEntityMapping(int mappingId, long expectedVersion, String newMappingKey, String newMappingValue)
+            throws EntityMappingConflictException {
+        try {
+            return executeInTransaction(() -> {
+                EntityMappingEntity currentSavedMappingEntity = ao.get(EntityMappingEntity.class, mappingId);
+                if (currentSavedMappingEntity == null) {
+                    return null;
+                }
+                checkVersion(currentSavedMappingEntity, expectedVersion);
+                claimVersion(currentSavedMappingEntity);
                 updatedRecordFields(currentSavedMappingEntity, newMappingKey, newMappingValue);
+                return entityToObject(currentSavedMappingEntity);
+            });
+        } catch (VersionClaimedException e) {
+            throw versionMismatch(e);
+        } catch (RuntimeException e) {
+            throw conflictOrRethrow(e, newMappingKey);
+        }
+    }
+
+    @Override
+    public List<EntityMapping> updateEntityMappings(Collection<EntityMapping> mappings)
+            throws EntityMappingConflictException {
+
+        if (mappings.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Integer, EntityMapping> mappingsById = new HashMap<>();
+        mappings.forEach(mapping -> mappingsById.put(mapping.getId(), mapping));
+
+        try {
+            return executeInTransaction(() -> {
+                List<EntityMapping> updatedMappings = new ArrayList<>();
+                for (List<Integer> idsChunk : chunks(new ArrayList<>(mappingsById.keySet()))) {
+                    EntityMappingEntity[] savedEntities = ao.get(EntityMappingEntity.class, idsChunk.toArray(new Integer[0]));
+                    for (EntityMappingEntity savedEntity : savedEntities) {
+                        if (savedEntity == null) {
+                            continue;
+                        }
+                        EntityMapping mapping = mappingsById.get(savedEntity.getID());
+                        checkVersion(savedEntity, mapping.getVersion());
+                        claimVersion(savedEntity);
+                        updatedRecordFields(savedEntity, mapping.getKey(), mapping.getValue());
+                        updatedMappings.add(entityToObject(savedEntity));
+                    }
+                }
+                return updatedMappings;
+            });
+        } catch (VersionClaimedException e) {
+            throw versionMismatch(e);
+        } catch (RuntimeException e) {
+            Set<String> newKeys = mappings.stream().map(EntityMapping::getKey).collect(Collectors.toSet());
+            throw conflictForAnyKeyOrRethrow(e, newKeys);
+        }
+
+    }
+
+    /**
+     * Возвращает записи с указанными ключами. Поиск выполняется запросами {@code KEY IN (...)}, по одному запросу на
+     * каждые {@link #MAX_IN_CLAUSE_PARAMETERS} ключей.
+     */
+    private List<EntityMapping> findMappingsByKeys(Collection<String> keys) {
+        List<EntityMapping> mappings = new ArrayList<>(keys.size());
+        for (List<String> keysChunk : chunks(new ArrayList<>(keys))) {
+            Query query = Query.select().where(buildInClause("KEY", keysChunk.size()), keysChunk.toArray());
+            Arrays.stream(ao.find(EntityMappingEntity.class, query))
+                    .map(this::entityToObject)
+                    .forEach(mappings::add);
+        }
+        return mappings;
+    }
+
+    /**
+     * Возвращает один из указанных ключей, для которого в хранилище уже есть запись, или первый из ключей, если
+     * таких записей не найдено. Используется только для формирования сообщения об ошибке.<br/>
+     * <br/>
+     * Если пакетная операция выполнялась во внешней транзакции, после нарушения уникального индекса она может быть
+     * уже непригодна для запросов (например, в PostgreSQL); тогда возвращается первый из ключей.
+     */
+    private String findAnyExistingKey(Collection<String> keys) {
+        String firstKey = keys.iterator().next();
+        try {
+            return findMappingsByKeys(keys).stream()
+                    .map(EntityMapping::getKey)
+                    .findFirst()
+                    .orElse(firstKey);
+        } catch (RuntimeException e) {
+            return firstKey;
+        }
+    }
+
+    private static String buildInClause(String column, int parametersCount) {
+        return column + " IN (" + String.join(", ", Collections.nCopies(parametersCount, "?")) + ")";
+    }
+
+    private static <T> List<List<T>> chunks(List<T> items) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int chunkStart = 0; chunkStart < items.size(); chunkStart += MAX_IN_CLAUSE_PARAMETERS) {
+            chunks.add(items.subList(chunkStart, Math.min(chunkStart + MAX_IN_CLAUSE_PARAMETERS, items.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * Преобразует ошибку нарушения уникального индекса по ключу в {@link EntityMappingConflictException}.<br/>
+     * Все остальные ошибки пробрасываются без изменений.
+     */
+    private EntityMappingConflictException conflictOrRethrow(RuntimeException e, String key) {
+        if (isIntegrityConstraintViolation(e)) {
+            return new EntityMappingConflictException(key);
+        }
+        throw e;
+    }
+
+    /**
+     * Как {@link #conflictOrRethrow(RuntimeException, String)}, но для пакетной операции над ключами {@code keys}.
+     * Конфликтующий ключ ищется только после того, как ошибка распознана как нарушение уникального индекса.
+     */
+    private EntityMappingConflictException conflictForAnyKeyOrRethrow(RuntimeException e, Collection<String> keys) {
+        if (isIntegrityConstraintViolation(e)) {
+            return new EntityMappingConflictException(findAnyExistingKey(keys));
+        }
+        throw e;
+    }
+
+    private boolean isIntegrityConstraintViolation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                String sqlState = ((SQLException) cause).getSQLState();
+                if (sqlState != null && sqlState.startsWith(INTEGRITY_CONSTRAINT_VIOLATION_SQL_STATE_CLASS)) {
+                    return true;
+                }
             }
-            return null;
-        });
+        }
+        return false;
+    }
+
+    private void checkVersion(EntityMappingEntity savedMappingEntity, long expectedVersion)
+            throws EntityMappingVersionMismatchException {
+        if (savedMappingEntity.getVersion() != expectedVersion) {
+            throw new EntityMappingVersionMismatchException(
+                    savedMappingEntity.getID(), expectedVersion, savedMappingEntity.getVersion());
+        }
+    }
+
+    /**
+     * Создает заявку на замену текущей версии записи ({@link EntityMappingClaimEntity}). Если ту же версию уже заменила
+     * другая транзакция, создание заявки нарушает уникальный индекс, и обновление отменяется.<br/>
+     * <br/>
+     * После создания заявки версия записи перечитывается запросом к базе данных. Так обнаруживается обновление,
+     * зафиксированное другой транзакцией между чтением записи и удалением ее прежних заявок (Jira работает с уровнем
+     * изоляции READ COMMITTED, поэтому повторный запрос видит зафиксированную версию), а также изменение в обход
+     * хранилища, если при этом была увеличена версия записи.
+     *
+     * @throws VersionClaimedException если версию записи уже заменила другая транзакция
+     */
+    private void claimVersion(EntityMappingEntity savedMappingEntity) throws EntityMappingVersionMismatchException {
+
+        int mappingId = savedMappingEntity.getID();
+        long claimedVersion = savedMappingEntity.getVersion();
+
+        ao.deleteWithSQL(EntityMappingClaimEntity.class, "MAPPING_ID = ?", mappingId);
+        Map<String, Object> claimFields = new HashMap<>();
+        claimFields.put("MAPPING_ID", mappingId);
+        claimFields.put("CLAIM", mappingId + ":" + claimedVersion);
+        try {
+            ao.create(EntityMappingClaimEntity.class, claimFields);
+        } catch (RuntimeException e) {
+            if (isIntegrityConstraintViolation(e)) {
+                throw new VersionClaimedException(mappingId, claimedVersion);
+            }
+            throw e;
+        }
+
+        long committedVersion = findCommittedVersion(mappingId);
+        if (committedVersion != claimedVersion) {
+            throw new EntityMappingVersionMismatchException(mappingId, claimedVersion, committedVersion);
+        }
 
-        return getMappingById(mappingId);
+    }
+
+    /**
+     * Возвращает версию записи, прочитанную отдельным запросом, минуя значения, загруженные в объект записи ранее.
+     *
+     * @return версия записи или {@code -1}, если записи нет
+     */
+    private long findCommittedVersion(int mappingId) {
+        EntityMappingEntity[] savedEntities = ao.find(EntityMappingEntity.class,
+                Query.select("ID, VERSION").where("ID = ?", mappingId));
+        return savedEntities.length > 0 ? savedEntities[0].getVersion() : -1;
+    }
+
+    /**
+     * Формирует исключение о несовпадении версии по отклоненной заявке. Если обновление выполнялось во внешней
+     * транзакции, она после нарушения уникального индекса может быть уже непригодна для запросов (например, в
+     * PostgreSQL); тогда в качестве текущей указывается ближайшая версия, которая заведомо новее заявленной.
+     */
+    private EntityMappingVersionMismatchException versionMismatch(VersionClaimedException e) {
+        long currentVersion;
+        try {
+            currentVersion = findCommittedVersion(e.mappingId);
+        } catch (RuntimeException readException) {
+            currentVersion = e.claimedVersion + 1;
+        }
+        return new EntityMappingVersionMismatchException(e.mappingId, e.claimedVersion, currentVersion);
     }
 
     private void updatedRecordFields(EntityMappingEntity updatedMappingEntity, String newMappingKey, String newMappingValue) {
         updatedMappingEntity.setKey(newMappingKey);
         updatedMappingEntity.setValue(newMappingValue);
+        updatedMappingEntity.setVersion(updatedMappingEntity.getVersion() + 1);
         updatedMappingEntity.save();
     }
 
     @Override
-    public Set<EntityMapping> getEntityMappings() {
-        EntityMappingEntity[] mappingEntities = ao.find(EntityMappingEntity.class);
-        return entitiesToSet(mappingEntities);
+    public <T> T executeInTransaction(TransactionalOperation<T> operation) throws EntityMappingConflictException {
+        try {
+            return ao.executeInTransaction(() -> {
+                try {
+                    return operation.execute();
+                } catch (EntityMappingConflictException e) {
+                    // Исключение должно выйти из транзакции, чтобы она была откачена
+                    throw new ConflictInTransactionException(e);
+                }
+            });
+        } catch (ConflictInTransactionException e) {
+            throw e.getConflict();
+        }
     }
 
     @Override
-    public Set<EntityMapping> getEntityMappingsLike(String keyFilter) {
-        Query query = Query.select().where("KEY like ?", keyFilter + "%");
-        EntityMappingEntity[] mappingEntities = ao.find(EntityMappingEntity.class, query);
+    public Set<EntityMapping> getEntityMappings() {
+        EntityMappingEntity[] mappingEntities = ao.find(EntityMappingEntity.class);
         return entitiesToSet(mappingEntities);
     }
 
@@ -105,11 +364,32 @@ public class DefaultEntityMappingStorage implements EntityMappingStorage {
                 : null;
     }
 
+    @Override
+    public List<EntityMapping> getMappingsForKeys(Collection<String> keys) {
+        return findMappingsByKeys(keys);
+    }
+
     @Override
     public EntityMapping getMappingById(int mappingId) {
         return entityToObject(ao.get(EntityMappingEntity.class, mappingId));
     }
 
+    /**
+     * Наибольший идентификатор заявки увеличивается при каждом обновлении записи (см.
+     * {@link EntityMappingClaimEntity}), а количество и наибольший идентификатор записей - при удалении и создании.
+     */
+    @Override
+    public MappingsStorageStamp getStorageStamp() {
+        EntityMappingEntity[] lastMappings = ao.find(EntityMappingEntity.class,
+                Query.select("ID").order("ID DESC").limit(1));
+        EntityMappingClaimEntity[] lastClaims = ao.find(EntityMappingClaimEntity.class,
+                Query.select("ID").order("ID DESC").limit(1));
+        return new MappingsStorageStamp(
+                ao.count(EntityMappingEntity.class),
+                lastMappings.length > 0 ? lastMappings[0].getID() : 0,
+                lastClaims.length > 0 ? lastClaims[0].getID() : 0);
+    }
+
     private EntityMappingEntity findMappingByKey(String key) {
         Query mappingSearchQuery = buildQueryForFindMappingByKey(key);
         EntityMappingEntity[] savedMappingsForKey = ao.find(EntityMappingEntity.class, mappingSearchQuery);
@@ -143,7 +423,40 @@ public class DefaultEntityMappingStorage implements EntityMappingStorage {
         object.setId(entity.getID());
         object.setKey(entity.getKey());
         object.setValue(entity.getValue());
+        object.setVersion(entity.getVersion());
         return object;
     }
 
+    /**
+     * Сообщает, что версию записи уже заменила другая транзакция. Выходит из транзакции, чтобы она была откачена;
+     * текущая версия записи читается уже после отката.
+     */
+    private static class VersionClaimedException extends RuntimeException {
+
+        private final int mappingId;
+        private final long claimedVersion;
+
+        private VersionClaimedException(int mappingId, long claimedVersion) {
+            this.mappingId = mappingId;
+            this.claimedVersion = claimedVersion;
+        }
+
+    }
+
+    /**
+     * Переносит {@link EntityMappingConflictException} через {@link ActiveObjects#executeInTransaction}, которая не
+     * допускает проверяемых исключений.
+     */
+    private static class ConflictInTransactionException extends RuntimeException {
+
+        private ConflictInTransactionException(EntityMappingConflictException conflict) {
+            super(conflict);
+        }
+
+        private EntityMappingConflictException getConflict() {
+            return (EntityMappingConflictException) getCause();
+        }
+
+    }
+
 }
@@ -0,0 +1,52 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping.dao;
+
+import net.java.ao.Entity;
+import net.java.ao.schema.Indexed;
+import net.java.ao.schema.NotNull;
+import net.java.ao.schema.Table;
+import net.java.ao.schema.Unique;
+
+/**
+ * Заявка на обновление версии записи маппинга.<br/>
+ * <br/>
+ * Перед обновлением записи транзакция создает заявку с идентификатором записи и версией, которую она заменяет.
+ * Уникальный индекс по заявке пропускает только одну транзакцию для каждой версии записи: вторая транзакция, прочитавшая
+ * ту же версию (в том числе на другом узле кластера), ждет завершения первой и получает нарушение уникальности. Так
+ * условное обновление (compare-and-set) выполняется средствами базы данных, а не блокировкой внутри JVM.<br/>
+ * <br/>
+ * Хранится только заявка на последнюю замененную версию записи: предыдущие заявки удаляются при создании новой.
+ */
+@Table("MappingClaim")
+public interface EntityMappingClaimEntity extends Entity {
+
+    @NotNull
+    @Indexed
+    int getMappingId();
+    void setMappingId(int mappingId);
+
+    /**
+     * Идентификатор записи и замененная версия в виде {@code <идентификатор>:<версия>}.
+     */
+    @NotNull
+    @Unique
+    String getClaim();
+    void setClaim(String claim);
+
+}
@@ -18,15 +18,34 @@
 package org.samearch.jira.lib.entity.mapper.impl.mapping.dao;
 
 import net.java.ao.Entity;
+import net.java.ao.schema.Default;
+import net.java.ao.schema.NotNull;
 import net.java.ao.schema.Table;
+import net.java.ao.schema.Unique;
 
+/**
+ * Запись маппинга в хранилище.<br/>
+ * Уникальность ключа обеспечивается ограничением базы данных. Для установок, в которых ограничение появилось после
+ * накопления данных, дубликаты ключей удаляются задачей обновления
+ * {@link org.samearch.jira.lib.entity.mapper.impl.mapping.dao.upgrade.EntityMappingKeyUniqueUpgradeTask}.<br/>
+ * <br/>
+ * Номер версии увеличивается при каждом обновлении записи и используется для условного обновления: сама проверка
+ * версии обеспечивается уникальным индексом {@link EntityMappingClaimEntity}. Записи, существовавшие до появления
+ * версии, получают версию 0.
+ */
 @Table("EntityMapping")
 public interface EntityMappingEntity extends Entity {
 
+    @Unique
     String getKey();
     void setKey(String key);
 
     String getValue();
     void setValue(String value);
 
+    @NotNull
+    @Default("0")
+    long getVersion();
+    void setVersion(long version);
+
 }
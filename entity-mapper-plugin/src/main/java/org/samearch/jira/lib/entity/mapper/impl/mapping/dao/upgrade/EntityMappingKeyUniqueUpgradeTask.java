@@ -0,0 +1,105 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping.dao.upgrade;
+
+import com.atlassian.activeobjects.external.ActiveObjects;
+import com.atlassian.activeobjects.external.ActiveObjectsUpgradeTask;
+import com.atlassian.activeobjects.external.ModelVersion;
+import net.java.ao.Query;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.dao.EntityMappingEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Задача обновления, добавляющая уникальный индекс по ключу записей маппинга.<br/>
+ * <br/>
+ * До появления индекса уникальность ключа проверялась только кодом плагина, поэтому в таблице могли остаться
+ * дубликаты. Перед созданием индекса для каждого ключа сохраняется запись с наименьшим идентификатором (она
+ * возвращалась при поиске по ключу и раньше), остальные записи удаляются.
+ */
+public class EntityMappingKeyUniqueUpgradeTask implements ActiveObjectsUpgradeTask {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntityMappingKeyUniqueUpgradeTask.class);
+
+    private static final String MODEL_VERSION = "1";
+    private static final int DELETE_BATCH_SIZE = 500;
+
+    @Override
+    public ModelVersion getModelVersion() {
+        return ModelVersion.valueOf(MODEL_VERSION);
+    }
+
+    @Override
+    public void upgrade(ModelVersion currentVersion, ActiveObjects ao) {
+
+        ao.migrate(LegacyEntityMappingEntity.class);
+
+        List<Integer> duplicateIds = findDuplicateIds(ao);
+        if (!duplicateIds.isEmpty()) {
+            LOG.warn("Removing {} entity mapping record(s) with duplicate keys before adding unique key index",
+                    duplicateIds.size());
+            deleteRecords(ao, duplicateIds);
+        }
+
+        ao.migrate(EntityMappingEntity.class);
+
+    }
+
+    /**
+     * Возвращает идентификаторы записей, ключ которых уже встречался у записи с меньшим идентификатором.
+     */
+    private List<Integer> findDuplicateIds(ActiveObjects ao) {
+
+        Set<String> seenKeys = new HashSet<>();
+        List<Integer> duplicateIds = new ArrayList<>();
+
+        ao.stream(LegacyEntityMappingEntity.class, Query.select("ID, KEY").order("ID ASC"), mapping -> {
+            if (!seenKeys.add(mapping.getKey())) {
+                LOG.warn("Entity mapping record {} duplicates key '{}' and will be removed",
+                        mapping.getID(), mapping.getKey());
+                duplicateIds.add(mapping.getID());
+            }
+        });
+
+        return duplicateIds;
+
+    }
+
+    private void deleteRecords(ActiveObjects ao, List<Integer> ids) {
+
+        for (int batchStart = 0; batchStart < ids.size(); batchStart += DELETE_BATCH_SIZE) {
+            List<Integer> batch = ids.subList(batchStart, Math.min(batchStart + DELETE_BATCH_SIZE, ids.size()));
+            ao.deleteWithSQL(LegacyEntityMappingEntity.class, buildIdInClause(batch.size()), batch.toArray());
+        }
+
+    }
+
+    private String buildIdInClause(int idsCount) {
+        StringBuilder clause = new StringBuilder("ID IN (");
+        for (int i = 0; i < idsCount; i++) {
+            clause.append(i == 0 ? "?" : ", ?");
+        }
+        return clause.append(')').toString();
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping.format;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Читает записи маппинга в формате CSV (RFC 4180): по записи из двух полей - ключа и значения - в строке.<br/>
+ * <br/>
+ * Поля, содержащие запятые, кавычки или переводы строк, заключаются в двойные кавычки, а кавычки внутри таких полей
+ * удваиваются. Необязательная первая строка-заголовок {@code key,value} и пустые строки пропускаются. Номером записи
+ * считается номер строки, с которой она начинается.
+ */
+public class CsvMappingsReader implements ImportedMappingsReader {
+
+    private static final char SEPARATOR = ',';
+    private static final char QUOTE = '"';
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    private static final String KEY_HEADER = "key";
+    private static final String VALUE_HEADER = "value";
+
+    private final BufferedReader input;
+    private long lineNumber = 1;
+    private boolean firstRecord = true;
+
+    public CsvMappingsReader(InputStream input) {
+        this.input = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public ImportedMappingRow read() throws IOException {
+
+        while (true) {
+            long recordLineNumber = lineNumber;
+            List<String> fields = readRecord();
+
+            if (fields == null) {
+                return null;
+            }
+
+            if (firstRecord) {
+                firstRecord = false;
+                if (isHeader(fields)) {
+                    continue;
+                }
+            }
+
+            if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                continue;
+            }
+
+            if (fields.size() != 2) {
+                return ImportedMappingRow.invalid(
+                        recordLineNumber, "CSV record must contain exactly two fields: key and value");
+            }
+
+            return ImportedMappingRow.of(recordLineNumber, fields.get(0), fields.get(1));
+        }
+
+    }
+
+    /**
+     * Читает поля очередной записи или возвращает {@code null}, если данные закончились.
+     */
+    private List<String> readRecord() throws IOException {
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean recordStarted = false;
+        long recordLineNumber = lineNumber;
+
+        int nextChar;
+        while ((nextChar = input.read()) != -1) {
+            char c = (char) nextChar;
+
+            if (firstRecord && !recordStarted && c == BYTE_ORDER_MARK) {
+                continue;
+            }
+            recordStarted = true;
+
+            if (quoted) {
+                if (c == QUOTE) {
+                    input.mark(1);
+                    int followingChar = input.read();
+                    if (followingChar == QUOTE) {
+                        field.append(QUOTE);
+                    } else {
+                        quoted = false;
+                        if (followingChar != -1) {
+                            input.reset();
+                        }
+                    }
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+                    field.append(c);
+                }
+            } else if (c == QUOTE && field.length() == 0) {
+                quoted = true;
+            } else if (c == SEPARATOR) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r') {
+                    input.mark(1);
+                    if (input.read() != '\n') {
+                        input.reset();
+                    }
+                }
+                lineNumber++;
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append(c);
+            }
+        }
+
+        if (quoted) {
+            throw new IOException("Unterminated quoted CSV field in record starting at line " + recordLineNumber);
+        }
+
+        if (!recordStarted) {
+            return null;
+        }
+
+        fields.add(field.toString());
+        return fields;
+
+    }
+
+    private boolean isHeader(List<String> fields) {
+        return fields.size() == 2
+                && KEY_HEADER.equalsIgnoreCase(fields.get(0).trim())
+                && VALUE_HEADER.equalsIgnoreCase(fields.get(1).trim());
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping.format;
+
+/**
+ * Запись маппинга, прочитанная из импортируемых данных.<br/>
+ * <br/>
+ * Если запись не удалось разобрать, то вместо ключа и значения она содержит описание ошибки ({@link #getError()}).
+ */
+public final class ImportedMappingRow {
+
+    private final long rowNumber;
+    private final String key;
+    private final String value;
+    private final String error;
+
+    private ImportedMappingRow(long rowNumber, String key, String value, String error) {
+        this.rowNumber = rowNumber;
+        this.key = key;
+        this.value = value;
+        this.error = error;
+    }
+
+    public static ImportedMappingRow of(long rowNumber, String key, String value) {
+        return new ImportedMappingRow(rowNumber, key, value, null);
+    }
+
+    public static ImportedMappingRow invalid(long rowNumber, String error) {
+        return new ImportedMappingRow(rowNumber, null, null, error);
+    }
+
+    /**
+     * Номер записи в импортируемых данных: номер строки для построчных форматов или порядковый номер элемента
+     * массива для JSON. Нумерация начинается с единицы.
+     */
+    public long getRowNumber() {
+        return rowNumber;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Описание ошибки разбора записи или {@code null}, если запись разобрана успешно.
+     */
+    public String getError() {
+        return error;
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping.format;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Читает записи маппинга из JSON-массива объектов вида {@code {"key": "...", "value": "..."}}.<br/>
+ * <br/>
+ * Это формат, который возвращает {@code GET /mapping}. Остальные поля объектов (например, {@code id}) пропускаются.
+ * Массив разбирается потоково, элемент за элементом.
+ */
+public class JsonArrayMappingsReader implements ImportedMappingsReader {
+
+    private final JsonParser parser;
+    private long elementNumber = 0;
+    private boolean started = false;
+
+    public JsonArrayMappingsReader(JsonFactory jsonFactory, InputStream input) throws IOException {
+        this.parser = jsonFactory.createParser(input);
+    }
+
+    @Override
+    public ImportedMappingRow read() throws IOException {
+
+        if (!started) {
+            started = true;
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Import data must be a JSON array of mappings");
+            }
+        }
+
+        JsonToken token = parser.nextToken();
+        if (token == null || token == JsonToken.END_ARRAY) {
+            return null;
+        }
+
+        elementNumber++;
+
+        if (token != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return ImportedMappingRow.invalid(elementNumber, "Mapping must be a JSON object");
+        }
+
+        return MappingJsonObjects.readMappingObject(parser, elementNumber);
+
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+}
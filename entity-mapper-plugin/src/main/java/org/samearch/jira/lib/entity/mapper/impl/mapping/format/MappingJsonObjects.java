@@ -0,0 +1,72 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping.format;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import org.samearch.jira.lib.entity.mapper.api.EntityMapping;
+
+import java.io.IOException;
+
+/**
+ * Разбор и запись JSON-объекта записи маппинга, общие для форматов JSON и NDJSON.
+ */
+final class MappingJsonObjects {
+
+    private static final String ID_FIELD = "id";
+    private static final String KEY_FIELD = "key";
+    private static final String VALUE_FIELD = "value";
+
+    private MappingJsonObjects() {
+    }
+
+    /**
+     * Читает поля объекта, открывающий токен которого уже прочитан, до закрывающего токена включительно.
+     */
+    static ImportedMappingRow readMappingObject(JsonParser parser, long rowNumber) throws IOException {
+
+        String key = null;
+        String value = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken fieldValueToken = parser.nextToken();
+            if (KEY_FIELD.equals(fieldName) && fieldValueToken.isScalarValue()) {
+                key = parser.getValueAsString();
+            } else if (VALUE_FIELD.equals(fieldName) && fieldValueToken.isScalarValue()) {
+                value = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        return ImportedMappingRow.of(rowNumber, key, value);
+
+    }
+
+    static void writeMappingObject(JsonGenerator generator, EntityMapping mapping) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField(ID_FIELD, mapping.getId());
+        generator.writeStringField(KEY_FIELD, mapping.getKey());
+        generator.writeStringField(VALUE_FIELD, mapping.getValue());
+        generator.writeEndObject();
+    }
+
+}
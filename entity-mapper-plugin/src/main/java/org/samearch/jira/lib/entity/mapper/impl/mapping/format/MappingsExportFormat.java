@@ -0,0 +1,78 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping.format;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Поддерживаемые форматы выгрузки маппингов. Выгруженные данные можно импортировать в том же формате
+ * ({@link MappingsImportFormat}).
+ */
+public enum MappingsExportFormat {
+
+    JSON("application/json", "json"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final String mediaType;
+    private final String fileExtension;
+
+    MappingsExportFormat(String mediaType, String fileExtension) {
+        this.mediaType = mediaType;
+        this.fileExtension = fileExtension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    /**
+     * Возвращает формат по его имени ({@code json} или {@code ndjson}) без учета регистра.
+     */
+    public static Optional<MappingsExportFormat> forName(String formatName) {
+        return Arrays.stream(values())
+                .filter(format -> format.name().equalsIgnoreCase(formatName))
+                .findFirst();
+    }
+
+    public ExportedMappingsWriter openWriter(OutputStream output) throws IOException {
+        JsonGenerator generator = JSON_FACTORY.createGenerator(output, JsonEncoding.UTF8);
+        switch (this) {
+            case NDJSON:
+                generator.setRootValueSeparator(new SerializedString(""));
+                return new NdjsonMappingsWriter(generator);
+            case JSON:
+            default:
+                return new JsonArrayMappingsWriter(generator);
+        }
+    }
+
+}
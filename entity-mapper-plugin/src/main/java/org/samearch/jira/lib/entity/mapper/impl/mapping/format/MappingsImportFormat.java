@@ -0,0 +1,74 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping.format;
+
+import com.fasterxml.jackson.core.JsonFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Поддерживаемые форматы импортируемых маппингов.
+ */
+public enum MappingsImportFormat {
+
+    JSON("application/json"),
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final String mediaType;
+
+    MappingsImportFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Возвращает формат, соответствующий типу содержимого запроса. Параметры типа (например, {@code charset})
+     * игнорируются.
+     */
+    public static Optional<MappingsImportFormat> forContentType(String contentType) {
+        if (contentType == null) {
+            return Optional.empty();
+        }
+        String mediaType = contentType.split(";", 2)[0].trim();
+        return Arrays.stream(values())
+                .filter(format -> format.mediaType.equalsIgnoreCase(mediaType))
+                .findFirst();
+    }
+
+    public ImportedMappingsReader openReader(InputStream input) throws IOException {
+        switch (this) {
+            case NDJSON:
+                return new NdjsonMappingsReader(JSON_FACTORY, input);
+            case CSV:
+                return new CsvMappingsReader(input);
+            case JSON:
+            default:
+                return new JsonArrayMappingsReader(JSON_FACTORY, input);
+        }
+    }
+
+}
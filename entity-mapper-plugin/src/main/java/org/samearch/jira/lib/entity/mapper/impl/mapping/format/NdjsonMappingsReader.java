@@ -0,0 +1,80 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl.mapping.format;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Читает записи маппинга в формате NDJSON: по одному JSON-объекту {@code {"key": "...", "value": "..."}} в строке.<br/>
+ * <br/>
+ * Пустые строки пропускаются. Строка, которую не удалось разобрать, возвращается как запись с ошибкой и не мешает
+ * чтению следующих строк.
+ */
+public class NdjsonMappingsReader implements ImportedMappingsReader {
+
+    private final JsonFactory jsonFactory;
+    private final BufferedReader input;
+    private long lineNumber = 0;
+
+    public NdjsonMappingsReader(JsonFactory jsonFactory, InputStream input) {
+        this.jsonFactory = jsonFactory;
+        this.input = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public ImportedMappingRow read() throws IOException {
+
+        String line;
+        do {
+            line = input.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.trim().isEmpty());
+
+        try (JsonParser parser = jsonFactory.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return ImportedMappingRow.invalid(lineNumber, "Line must contain a JSON object");
+            }
+            ImportedMappingRow row = MappingJsonObjects.readMappingObject(parser, lineNumber);
+            if (parser.nextToken() != null) {
+                return ImportedMappingRow.invalid(lineNumber, "Line must contain exactly one JSON object");
+            }
+            return row;
+        } catch (JsonParseException e) {
+            return ImportedMappingRow.invalid(lineNumber, "Malformed JSON: " + e.getOriginalMessage());
+        }
+
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+}
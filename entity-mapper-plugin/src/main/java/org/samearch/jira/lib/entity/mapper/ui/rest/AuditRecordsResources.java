@@ -23,10 +23,12 @@ import com.atlassian.jira.user.util.UserManager;
 import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
 import org.samearch.jira.lib.entity.mapper.api.AuditEventRecord;
 import org.samearch.jira.lib.entity.mapper.api.AuditJournal;
-import org.samearch.jira.lib.entity.mapper.api.AuditJournalFilter;
+import org.samearch.jira.lib.entity.mapper.api.AuditJournalCursor;
 import org.samearch.jira.lib.entity.mapper.api.EntityMappingEvent;
 import org.samearch.jira.lib.entity.mapper.impl.audit.util.AuditJournalFilterBuilder;
 import org.samearch.jira.lib.entity.mapper.ui.rest.dto.AuditEventRecordDto;
+import org.samearch.jira.lib.entity.mapper.ui.rest.dto.AuditRecordsPageDto;
+import org.samearch.jira.lib.entity.mapper.ui.rest.dto.ErrorMessage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -54,6 +56,8 @@ public class AuditRecordsResources {
 
     private static final DateTimeFormatter REQUEST_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
     private static final DateTimeFormatter RESPONSE_DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss");
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
 
     @ComponentImport
     private final UserManager userManager;
@@ -68,6 +72,10 @@ public class AuditRecordsResources {
         this.restUtils = restUtils;
     }
 
+    /**
+     * Возвращает последние события журнала аудита списком, от старых событий к новым.<br/>
+     * Для постраничного чтения журнала используется {@link #getAuditRecordsPage}.
+     */
     @GET
     @Path("/records")
     public Response getAuditRecordsList(
@@ -79,7 +87,69 @@ public class AuditRecordsResources {
             @QueryParam("eventsLimit") Integer eventsLimit
     ) {
         AuditJournalFilterBuilder filterBuilder = new AuditJournalFilterBuilder();
-        filterBuilder.withEventsLimit(eventsLimit != null ? eventsLimit : 50);
+        filterBuilder.withEventsLimit(eventsLimit != null ? eventsLimit : DEFAULT_PAGE_SIZE);
+        applyFilterArgs(filterBuilder, mappingIdArg, initiatorLoginArg, startDateArg, endDateArg, event);
+        List<AuditEventRecordDto> savedAuditRecords = auditJournal.getEvents(filterBuilder.build()).stream()
+                .sorted(Comparator.comparing(AuditEventRecord::getDate))
+                .map(this::objectToDto)
+                .collect(Collectors.toList());
+
+        return Response.ok(savedAuditRecords).build();
+    }
+
+    /**
+     * Возвращает страницу журнала аудита, от новых событий к старым.
+     *
+     * @param eventsLimit количество событий на странице, не больше {@value #MAX_PAGE_SIZE}
+     * @param afterArg курсор {@code nextAfter} из предыдущей страницы; без него возвращаются самые новые события
+     */
+    @GET
+    @Path("/records/page")
+    public Response getAuditRecordsPage(
+            @QueryParam("mappingId") Long mappingIdArg,
+            @QueryParam("initiator") String initiatorLoginArg,
+            @QueryParam("startDate") String startDateArg,
+            @QueryParam("endDate") String endDateArg,
+            @QueryParam("event") String event,
+            @QueryParam("eventsLimit") Integer eventsLimit,
+            @QueryParam("after") String afterArg
+    ) {
+        int pageSize = eventsLimit != null ? eventsLimit : DEFAULT_PAGE_SIZE;
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            String errorMessageBody = String.format("Page size must be between 1 and %d", MAX_PAGE_SIZE);
+            return Response.status(Response.Status.BAD_REQUEST).entity(new ErrorMessage(errorMessageBody)).build();
+        }
+        AuditJournalFilterBuilder filterBuilder = new AuditJournalFilterBuilder();
+        // на одно событие больше размера страницы: по нему видно, есть ли следующая страница
+        filterBuilder.withEventsLimit(pageSize + 1);
+        if (afterArg != null && !afterArg.trim().isEmpty()) {
+            try {
+                filterBuilder.after(AuditJournalCursor.parse(afterArg.trim()));
+            } catch (IllegalArgumentException e) {
+                return Response.status(Response.Status.BAD_REQUEST).entity(new ErrorMessage(e.getMessage())).build();
+            }
+        }
+        applyFilterArgs(filterBuilder, mappingIdArg, initiatorLoginArg, startDateArg, endDateArg, event);
+        List<AuditEventRecord> savedAuditRecords = auditJournal.getEvents(filterBuilder.build());
+        List<AuditEventRecord> pageRecords = savedAuditRecords.subList(0, Math.min(pageSize, savedAuditRecords.size()));
+
+        AuditRecordsPageDto recordsPage = new AuditRecordsPageDto();
+        recordsPage.setRecords(pageRecords.stream()
+                .map(this::objectToDto)
+                .collect(Collectors.toList()));
+        if (savedAuditRecords.size() > pageSize) {
+            recordsPage.setNextAfter(AuditJournalCursor.of(pageRecords.get(pageRecords.size() - 1)).asString());
+        }
+
+        return Response.ok(recordsPage).build();
+    }
+
+    private void applyFilterArgs(AuditJournalFilterBuilder filterBuilder,
+                                 Long mappingIdArg,
+                                 String initiatorLoginArg,
+                                 String startDateArg,
+                                 String endDateArg,
+                                 String event) {
         if (mappingIdArg != null) {
             filterBuilder.forIds(mappingIdArg);
         }
@@ -100,13 +170,6 @@ public class AuditRecordsResources {
                 filterBuilder.byEvent(mappingEvent);
             } catch (IllegalArgumentException ignore) {}
         }
-        AuditJournalFilter journalFilter = filterBuilder.build();
-        List<AuditEventRecordDto> savedAuditRecords = auditJournal.getEvents(journalFilter).stream()
-                .sorted(Comparator.comparing(AuditEventRecord::getDate))
-                .map(this::objectToDto)
-                .collect(Collectors.toList());
-
-        return Response.ok(savedAuditRecords).build();
     }
 
     @GET
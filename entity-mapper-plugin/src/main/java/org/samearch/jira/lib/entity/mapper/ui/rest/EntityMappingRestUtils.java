@@ -25,12 +25,26 @@ import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
 import org.apache.commons.lang3.StringUtils;
 import org.samearch.jira.lib.entity.mapper.api.EntityMapper;
 import org.samearch.jira.lib.entity.mapper.api.EntityMapping;
+import org.samearch.jira.lib.entity.mapper.api.exception.ClosedChainEntityMappingException;
 import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingConflictException;
 import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingNotFoundException;
+import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingVersionMismatchException;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.EntityMappingManager;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsImportPlan;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsImportReport;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsPage;
 import org.samearch.jira.lib.entity.mapper.ui.rest.dto.EntityMappingDto;
+import org.samearch.jira.lib.entity.mapper.ui.rest.dto.MappingChangeDto;
+import org.samearch.jira.lib.entity.mapper.ui.rest.dto.MappingImportErrorDto;
+import org.samearch.jira.lib.entity.mapper.ui.rest.dto.MappingLinkChainDto;
+import org.samearch.jira.lib.entity.mapper.ui.rest.dto.MappingLinkErrorDto;
+import org.samearch.jira.lib.entity.mapper.ui.rest.dto.MappingsImportPlanDto;
+import org.samearch.jira.lib.entity.mapper.ui.rest.dto.MappingsImportReportDto;
+import org.samearch.jira.lib.entity.mapper.ui.rest.dto.MappingsPageDto;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.ws.rs.core.EntityTag;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -65,12 +79,20 @@ class EntityMappingRestUtils {
      * считается, что эта часть состояния маппинга не требует обновления.
      *
      * @param mappingId идентификатор обновляемого маппинга
+     * @param expectedVersion ожидаемая версия записи или {@link EntityMappingManager#ANY_VERSION}, если версия не
+     *                        проверяется
      * @param updateRequestData данные для обновления ключа и/или значения маппинга
      * @return обновленное состояние маппинга
      * @throws EntityMappingNotFoundException в случае, когда маппинга с указанным идентификатором не существует
+     * @throws EntityMappingVersionMismatchException в случае, когда версия маппинга отличается от ожидаемой
      * @throws EntityMappingConflictException в случае, когда обновляет ключ маппинга, а для нового ключа уже существует запись
+     * @throws ClosedChainEntityMappingException (подкласс {@link EntityMappingConflictException}) в случае, когда
+     *                                           после обновления цепочка ссылок между маппингами станет замкнутой
      */
-    public EntityMapping updateEntityMappingFromRestRequest(ApplicationUser user, int mappingId, EntityMappingDto updateRequestData)
+    public EntityMapping updateEntityMappingFromRestRequest(ApplicationUser user,
+                                                            int mappingId,
+                                                            long expectedVersion,
+                                                            EntityMappingDto updateRequestData)
             throws EntityMappingNotFoundException, EntityMappingConflictException {
 
         Optional<EntityMapping> currentEntityMappingHolder = entityMapper.getMapping(mappingId);
@@ -81,7 +103,8 @@ class EntityMappingRestUtils {
         final EntityMapping currentEntityMapping = currentEntityMappingHolder.get();
         final EntityMapping updatedEntityMappingData = constructUpdateMappingObject(currentEntityMapping, updateRequestData);
 
-        return entityMapper.updateMapping(user.getKey(), mappingId, updatedEntityMappingData.getKey(), updatedEntityMappingData.getValue());
+        return entityMapper.updateMapping(
+                user.getKey(), mappingId, expectedVersion, updatedEntityMappingData.getKey(), updatedEntityMappingData.getValue());
 
     }
 
@@ -139,12 +162,102 @@ class EntityMappingRestUtils {
                 || email.startsWith(filter);
     }
 
+    /**
+     * Возвращает значение заголовка {@code ETag} для указанной версии записи маппинга.
+     */
+    public EntityTag versionTag(long version) {
+        return new EntityTag(String.valueOf(version));
+    }
+
+    public EntityTag versionTag(EntityMapping mapping) {
+        return versionTag(mapping.getVersion());
+    }
+
+    /**
+     * Возвращает ожидаемую версию записи из заголовка {@code If-Match}: {@link EntityMappingManager#ANY_VERSION}, если
+     * заголовок не передан или равен {@code *}, или {@code null}, если значение заголовка не является версией записи.
+     */
+    public Long parseExpectedVersion(String ifMatchHeader) {
+
+        if (StringUtils.isBlank(ifMatchHeader) || "*".equals(ifMatchHeader.trim())) {
+            return EntityMappingManager.ANY_VERSION;
+        }
+
+        String version = StringUtils.removeStart(ifMatchHeader.trim(), "W/");
+        version = StringUtils.removeEnd(StringUtils.removeStart(version, "\""), "\"");
+        try {
+            long expectedVersion = Long.parseLong(version);
+            return expectedVersion >= 0 ? expectedVersion : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+    }
+
     public EntityMappingDto objectToDto(final EntityMapping object) {
         EntityMappingDto dto = new EntityMappingDto();
         dto.setId(object.getId());
         dto.setKey(object.getKey());
         dto.setValue(object.getValue());
+        dto.setVersion(object.getVersion());
+        return dto;
+    }
+
+    public MappingsPageDto mappingsPageToDto(MappingsPage mappingsPage) {
+        MappingsPageDto dto = new MappingsPageDto();
+        dto.setMappings(mappingsPage.getMappings().stream()
+                .map(this::objectToDto)
+                .collect(Collectors.toList()));
+        dto.setNextAfter(mappingsPage.getNextAfterKey());
+        dto.setMatched(mappingsPage.getMatchedCount());
+        dto.setTotal(mappingsPage.getTotalCount());
+        return dto;
+    }
+
+    public MappingsImportReportDto importReportToDto(MappingsImportReport importReport) {
+        MappingsImportReportDto dto = new MappingsImportReportDto();
+        dto.setProcessed(importReport.getProcessedCount());
+        dto.setCreated(importReport.getCreatedCount());
+        dto.setUpdated(importReport.getUpdatedCount());
+        dto.setUnchanged(importReport.getUnchangedCount());
+        dto.setConflicts(importReport.getConflictCount());
+        dto.setFailed(importReport.getFailedCount());
+        dto.setFatalError(importReport.getFatalError());
+        dto.setErrors(importReport.getErrors().stream()
+                .map(error -> new MappingImportErrorDto(error.getRowNumber(), error.getKey(), error.getMessage()))
+                .collect(Collectors.toList()));
         return dto;
     }
 
+    public MappingsImportPlanDto importPlanToDto(MappingsImportPlan importPlan) {
+        MappingsImportPlanDto dto = new MappingsImportPlanDto();
+        dto.setCreated(importPlan.getCreatedCount());
+        dto.setUpdated(importPlan.getUpdatedCount());
+        dto.setUnchanged(importPlan.getUnchangedCount());
+        dto.setDeleted(importPlan.getDeletedCount());
+        dto.setFailed(importPlan.getFailedCount());
+        dto.setDanglingLinksCount(importPlan.getDanglingLinksCount());
+        dto.setClosedChainsCount(importPlan.getClosedChainsCount());
+        dto.setFatalError(importPlan.getFatalError());
+        dto.setCreates(plannedChangesToDto(importPlan.getCreates()));
+        dto.setUpdates(plannedChangesToDto(importPlan.getUpdates()));
+        dto.setDeletes(plannedChangesToDto(importPlan.getDeletes()));
+        dto.setErrors(importPlan.getErrors().stream()
+                .map(error -> new MappingImportErrorDto(error.getRowNumber(), error.getKey(), error.getMessage()))
+                .collect(Collectors.toList()));
+        dto.setDanglingLinks(importPlan.getDanglingLinks().stream()
+                .map(danglingLink -> new MappingLinkErrorDto(danglingLink.getKey(), danglingLink.getNewValue()))
+                .collect(Collectors.toList()));
+        dto.setClosedChains(importPlan.getClosedChains().stream()
+                .map(MappingLinkChainDto::new)
+                .collect(Collectors.toList()));
+        return dto;
+    }
+
+    private List<MappingChangeDto> plannedChangesToDto(List<MappingsImportPlan.PlannedChange> plannedChanges) {
+        return plannedChanges.stream()
+                .map(change -> new MappingChangeDto(change.getKey(), change.getCurrentValue(), change.getNewValue()))
+                .collect(Collectors.toList());
+    }
+
 }
@@ -0,0 +1,108 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.ui.rest;
+
+import org.samearch.jira.lib.entity.mapper.api.EntityMapping;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.EntityMappingManager;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsSnapshot;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.format.ExportedMappingsWriter;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.format.MappingsExportFormat;
+import org.samearch.jira.lib.entity.mapper.ui.rest.dto.ErrorMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Ресурс для выгрузки маппингов.<br/>
+ * <br/>
+ * Выгруженные данные можно импортировать через {@link MappingImportResource#importMappings}.
+ */
+@Component
+@Path("/export")
+public class MappingExportResource {
+
+    private static final String GZIP_MEDIA_TYPE = "application/gzip";
+    private static final String EXPORT_FILE_NAME = "entity-mappings";
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private final EntityMappingManager mappingManager;
+
+    @Autowired
+    public MappingExportResource(EntityMappingManager mappingManager) {
+        this.mappingManager = mappingManager;
+    }
+
+    /**
+     * Выгружает маппинги в порядке ключей.<br/>
+     * <br/>
+     * Записи пишутся в ответ по мере обхода текущего снимка маппингов, без промежуточного списка, поэтому объем
+     * используемой памяти не зависит от количества записей. Снимок неизменяем, поэтому выгрузка согласована на момент
+     * запроса: изменения, сделанные во время выгрузки, в нее не попадают.
+     *
+     * @param formatName формат выгрузки: {@code json} (JSON-массив, по умолчанию) или {@code ndjson}
+     * @param keyPrefix выгружаются только маппинги, ключи которых начинаются с этого префикса
+     * @param gzip сжимать ли выгрузку; сжатые данные отдаются файлом с типом {@code application/gzip}
+     */
+    @GET
+    @Path("/")
+    public Response exportMappings(@QueryParam("format") @DefaultValue("json") String formatName,
+                                   @QueryParam("prefix") @DefaultValue("") String keyPrefix,
+                                   @QueryParam("gzip") @DefaultValue("false") boolean gzip) {
+
+        Optional<MappingsExportFormat> exportFormatHolder = MappingsExportFormat.forName(formatName);
+        if (!exportFormatHolder.isPresent()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.APPLICATION_JSON)
+                    .entity(new ErrorMessage("Unsupported export format: " + formatName))
+                    .build();
+        }
+
+        MappingsExportFormat exportFormat = exportFormatHolder.get();
+        MappingsSnapshot snapshot = mappingManager.getSnapshot();
+
+        StreamingOutput exportedData = output -> {
+            OutputStream target = gzip ? new GZIPOutputStream(output, GZIP_BUFFER_SIZE) : output;
+            try (ExportedMappingsWriter mappingsWriter = exportFormat.openWriter(target)) {
+                Iterator<EntityMapping> mappings = snapshot.iterateMappingsWithKeyPrefix(keyPrefix);
+                while (mappings.hasNext()) {
+                    mappingsWriter.write(mappings.next());
+                }
+            }
+        };
+
+        String fileName = EXPORT_FILE_NAME + "." + exportFormat.getFileExtension() + (gzip ? ".gz" : "");
+
+        return Response.ok(exportedData)
+                .type(gzip ? GZIP_MEDIA_TYPE : exportFormat.getMediaType())
+                .header("Content-Disposition", "attachment; filename=\"" + fileName + "\"")
+                .build();
+
+    }
+
+}
@@ -0,0 +1,203 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.ui.rest;
+
+import com.atlassian.jira.security.JiraAuthenticationContext;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsImportDataTooLargeException;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsImportJob;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsImportJobManager;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.format.MappingsImportFormat;
+import org.samearch.jira.lib.entity.mapper.ui.rest.dto.ErrorMessage;
+import org.samearch.jira.lib.entity.mapper.ui.rest.dto.MappingImportJobDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Ресурс для фонового импорта маппингов.<br/>
+ * <br/>
+ * Принимает те же данные, что и {@link MappingImportResource#importMappings}, но не дожидается окончания импорта, а
+ * возвращает задание, состояние и итоги которого можно запрашивать по мере выполнения.
+ */
+@Component
+@Path("/import/jobs")
+@Produces({MediaType.APPLICATION_JSON})
+public class MappingImportJobsResource {
+
+    @ComponentImport
+    private final JiraAuthenticationContext authenticationContext;
+
+    private final MappingsImportJobManager importJobManager;
+    private final EntityMappingRestUtils mappingUtils;
+
+    @Autowired
+    public MappingImportJobsResource(MappingsImportJobManager importJobManager,
+                                     EntityMappingRestUtils mappingUtils,
+                                     JiraAuthenticationContext authenticationContext) {
+
+        this.importJobManager = importJobManager;
+        this.mappingUtils = mappingUtils;
+        this.authenticationContext = authenticationContext;
+
+    }
+
+    /**
+     * Ставит задание импорта в очередь.<br/>
+     * <br/>
+     * Возвращает статус 202 и описание задания, 413, если размер данных превышает допустимый, 415 для
+     * неподдерживаемого формата данных и 503, если очередь заданий заполнена.
+     */
+    @POST
+    @Path("/")
+    @Consumes({MediaType.APPLICATION_JSON, MappingImportResource.NDJSON_MEDIA_TYPE, MappingImportResource.CSV_MEDIA_TYPE})
+    public Response submitImportJob(@HeaderParam(HttpHeaders.CONTENT_TYPE) String contentType, InputStream importedData) {
+
+        Optional<MappingsImportFormat> importFormatHolder = MappingsImportFormat.forContentType(contentType);
+        if (!importFormatHolder.isPresent()) {
+            return Response.status(Response.Status.UNSUPPORTED_MEDIA_TYPE)
+                    .entity(new ErrorMessage("Unsupported import data type: " + contentType))
+                    .build();
+        }
+
+        ApplicationUser currentUser = authenticationContext.getLoggedInUser();
+
+        try {
+            MappingsImportJob job = importJobManager.submit(currentUser.getKey(), importFormatHolder.get(), importedData);
+            return Response.status(Response.Status.ACCEPTED).entity(jobToDto(job)).build();
+        } catch (MappingsImportDataTooLargeException e) {
+            return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE)
+                    .entity(new ErrorMessage(e.getMessage()))
+                    .build();
+        } catch (IOException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ErrorMessage("Unable to read import data: " + e.getMessage()))
+                    .build();
+        } catch (RejectedExecutionException e) {
+            return importQueueIsFull();
+        }
+
+    }
+
+    @GET
+    @Path("/")
+    public Response getImportJobs() {
+        List<MappingImportJobDto> jobs = importJobManager.getJobs().stream()
+                .map(this::jobToDto)
+                .collect(Collectors.toList());
+        return Response.ok(jobs).build();
+    }
+
+    @GET
+    @Path("/{jobId}")
+    public Response getImportJob(@PathParam("jobId") String jobId) {
+        return importJobManager.getJob(jobId)
+                .map(job -> Response.ok(jobToDto(job)).build())
+                .orElseGet(() -> Response.status(Response.Status.NOT_FOUND).build());
+    }
+
+    /**
+     * Отменяет задание. Записи, импортированные до отмены, сохраняются; задание можно продолжить.<br/>
+     * Для уже завершенного задания возвращает статус 409.
+     */
+    @DELETE
+    @Path("/{jobId}")
+    public Response cancelImportJob(@PathParam("jobId") String jobId) {
+
+        Optional<MappingsImportJob> jobHolder = importJobManager.getJob(jobId);
+        if (!jobHolder.isPresent()) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        MappingsImportJob job = jobHolder.get();
+        if (!importJobManager.cancel(job)) {
+            return Response.status(Response.Status.CONFLICT)
+                    .entity(new ErrorMessage("Import job is already finished"))
+                    .build();
+        }
+
+        return Response.ok(jobToDto(job)).build();
+
+    }
+
+    /**
+     * Продолжает отмененное или завершившееся с ошибкой задание с последнего записанного пакета.<br/>
+     * Для задания в другом состоянии возвращает статус 409.
+     */
+    @POST
+    @Path("/{jobId}/resume")
+    public Response resumeImportJob(@PathParam("jobId") String jobId) {
+
+        Optional<MappingsImportJob> jobHolder = importJobManager.getJob(jobId);
+        if (!jobHolder.isPresent()) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        MappingsImportJob job = jobHolder.get();
+        try {
+            if (!importJobManager.resume(job)) {
+                return Response.status(Response.Status.CONFLICT)
+                        .entity(new ErrorMessage("Only cancelled or failed import jobs can be resumed"))
+                        .build();
+            }
+        } catch (RejectedExecutionException e) {
+            return importQueueIsFull();
+        }
+
+        return Response.status(Response.Status.ACCEPTED).entity(jobToDto(job)).build();
+
+    }
+
+    private Response importQueueIsFull() {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity(new ErrorMessage("Import queue is full, try again later"))
+                .build();
+    }
+
+    private MappingImportJobDto jobToDto(MappingsImportJob job) {
+        MappingImportJobDto dto = new MappingImportJobDto();
+        dto.setId(job.getId());
+        dto.setState(job.getState().name());
+        dto.setSubmitted(job.getSubmittedAt());
+        dto.setStarted(job.getStartedAt() > 0 ? job.getStartedAt() : null);
+        dto.setFinished(job.getFinishedAt() > 0 ? job.getFinishedAt() : null);
+        dto.setRowsPerSecond(job.getRowsPerSecond());
+        dto.setFailure(job.getFailureMessage());
+        dto.setReport(mappingUtils.importReportToDto(job.getReport()));
+        return dto;
+    }
+
+}
@@ -20,20 +20,29 @@ package org.samearch.jira.lib.entity.mapper.ui.rest;
 import com.atlassian.jira.security.JiraAuthenticationContext;
 import com.atlassian.jira.user.ApplicationUser;
 import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
-import org.samearch.jira.lib.entity.mapper.api.EntityMapper;
-import org.samearch.jira.lib.entity.mapper.api.EntityMapping;
-import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingException;
-import org.samearch.jira.lib.entity.mapper.ui.rest.dto.EntityMappingDto;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsImportPlan;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsImportPlanner;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsImportReport;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsImporter;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.format.ImportedMappingsReader;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.format.MappingsImportFormat;
+import org.samearch.jira.lib.entity.mapper.ui.rest.dto.ErrorMessage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Optional;
-import java.util.Set;
 
 /**
  * Ресурс для поддержки импорта настроек маппинга.<br/>
@@ -45,18 +54,24 @@ import java.util.Set;
 @Produces({MediaType.APPLICATION_JSON})
 public class MappingImportResource {
 
+    static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+    static final String CSV_MEDIA_TYPE = "text/csv";
+
     @ComponentImport
     private final JiraAuthenticationContext authenticationContext;
 
-    private final EntityMapper entityMapper;
+    private final MappingsImporter mappingsImporter;
+    private final MappingsImportPlanner importPlanner;
     private final EntityMappingRestUtils mappingUtils;
 
     @Autowired
-    public MappingImportResource(EntityMapper entityMapper,
+    public MappingImportResource(MappingsImporter mappingsImporter,
+                                 MappingsImportPlanner importPlanner,
                                  EntityMappingRestUtils mappingUtils,
                                  JiraAuthenticationContext authenticationContext) {
 
-        this.entityMapper = entityMapper;
+        this.mappingsImporter = mappingsImporter;
+        this.importPlanner = importPlanner;
         this.mappingUtils = mappingUtils;
         this.authenticationContext = authenticationContext;
 
@@ -68,43 +83,90 @@ public class MappingImportResource {
      * Импорт происходит по ключам. Идентификаторы маппингов (если они присутствуют) игнорируются.<br/>
      * Для маппингов с несуществующими ключами создаются новые записи.<br/>
      * Если для ключа уже существует маппинг, то его значение обновляется.<br/>
-     * Существующие записи не удаляются.
+     * Существующие записи не удаляются.<br/>
+     * <br/>
+     * Формат данных определяется заголовком {@code Content-Type}:
+     * <ul>
+     *     <li>{@code application/json} - JSON-массив объектов с полями {@code key} и {@code value};</li>
+     *     <li>{@code application/x-ndjson} - по одному такому объекту в строке;</li>
+     *     <li>{@code text/csv} - записи из двух полей (ключ и значение), с необязательным заголовком.</li>
+     * </ul>
+     * Данные разбираются потоково и импортируются пакетами по мере чтения.<br/>
+     * <br/>
+     * Записи, которые не удалось импортировать (ошибка разбора, пустой ключ или значение, значение замыкает цепочку
+     * ссылок между маппингами), перечисляются в отчете об импорте с номерами записей и не прерывают импорт остальных
+     * записей. Если данные повреждены так, что продолжить чтение невозможно, то возвращается статус 400 и отчет об
+     * импорте записей, прочитанных до повреждения.
      */
     @POST
     @Path("/")
-    public Response importFromJson(Set<EntityMappingDto> importedMappings) {
+    @Consumes({MediaType.APPLICATION_JSON, NDJSON_MEDIA_TYPE, CSV_MEDIA_TYPE})
+    public Response importMappings(@HeaderParam(HttpHeaders.CONTENT_TYPE) String contentType, InputStream importedData) {
+
+        Optional<MappingsImportFormat> importFormatHolder = MappingsImportFormat.forContentType(contentType);
+        if (!importFormatHolder.isPresent()) {
+            return Response.status(Response.Status.UNSUPPORTED_MEDIA_TYPE)
+                    .entity(new ErrorMessage("Unsupported import data type: " + contentType))
+                    .build();
+        }
 
         ApplicationUser currentUser = authenticationContext.getLoggedInUser();
-        importedMappings.forEach(entityMappingDto -> {
-            String mappingKey = entityMappingDto.getKey();
-            String mappingValue = entityMappingDto.getValue();
-            if (!entityMapper.isMappingPresent(mappingKey)) {
-                try {
-                    entityMapper.addMapping(currentUser.getKey(), mappingKey, mappingValue);
-                } catch (EntityMappingException ignore) {
-                    /*
-                     * Игнорируем ошибку создания маппинга: сейчас она генерируется только в том случае, когда для
-                     * указанного ключа уже существует маппинг.
-                     */
-                }
-            } else {
-                Optional<EntityMapping> existedMappingHolder = entityMapper.getMapping(mappingKey);
-                if (existedMappingHolder.isPresent()) {
-                    try {
-                        EntityMapping existedMapping = existedMappingHolder.get();
-                        mappingUtils.updateEntityMappingFromRestRequest(currentUser, existedMapping.getId(), entityMappingDto);
-                    } catch (EntityMappingException ignore) {
-                        /*
-                         * Игнорируем ошибку изменения маппинга: при обновлении ошибка генерируется только в том случае,
-                         * когда маппинга с указанным идентификатором не существует. Учитывая вышестоящие проверки
-                         * такая ситуация не возможна.
-                         */
-                    }
-                }
-            }
-        });
-
-        return Response.ok().build();
+
+        MappingsImportReport importReport;
+        try (ImportedMappingsReader importedMappings = importFormatHolder.get().openReader(importedData)) {
+            importReport = mappingsImporter.importMappings(currentUser.getKey(), importedMappings);
+        } catch (IOException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ErrorMessage("Unable to read import data: " + e.getMessage()))
+                    .build();
+        }
+
+        Response.Status responseStatus = (importReport.getFatalError() == null)
+                ? Response.Status.OK
+                : Response.Status.BAD_REQUEST;
+
+        return Response.status(responseStatus).entity(mappingUtils.importReportToDto(importReport)).build();
+
+    }
+
+    /**
+     * Строит план импорта без изменения маппингов (dry-run).<br/>
+     * <br/>
+     * Принимает те же данные, что и {@link #importMappings}, и возвращает записи, которые будут созданы, обновлены
+     * или останутся без изменений, ошибки отдельных записей, а также ссылки на ключи, которых не будет после импорта,
+     * и замкнутые цепочки ссылок в итоговом наборе маппингов.
+     *
+     * @param sync если {@code true}, то в план также попадают существующие записи, отсутствующие в импортируемых
+     *             данных (удаляемые при синхронизации)
+     */
+    @POST
+    @Path("/plan")
+    @Consumes({MediaType.APPLICATION_JSON, NDJSON_MEDIA_TYPE, CSV_MEDIA_TYPE})
+    public Response planImport(@HeaderParam(HttpHeaders.CONTENT_TYPE) String contentType,
+                               @QueryParam("sync") @DefaultValue("false") boolean sync,
+                               InputStream importedData) {
+
+        Optional<MappingsImportFormat> importFormatHolder = MappingsImportFormat.forContentType(contentType);
+        if (!importFormatHolder.isPresent()) {
+            return Response.status(Response.Status.UNSUPPORTED_MEDIA_TYPE)
+                    .entity(new ErrorMessage("Unsupported import data type: " + contentType))
+                    .build();
+        }
+
+        MappingsImportPlan importPlan;
+        try (ImportedMappingsReader importedMappings = importFormatHolder.get().openReader(importedData)) {
+            importPlan = importPlanner.plan(importedMappings, sync);
+        } catch (IOException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ErrorMessage("Unable to read import data: " + e.getMessage()))
+                    .build();
+        }
+
+        Response.Status responseStatus = (importPlan.getFatalError() == null)
+                ? Response.Status.OK
+                : Response.Status.BAD_REQUEST;
+
+        return Response.status(responseStatus).entity(mappingUtils.importPlanToDto(importPlan)).build();
 
     }
 
@@ -23,21 +23,29 @@ import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
 import org.apache.commons.lang3.StringUtils;
 import org.samearch.jira.lib.entity.mapper.api.EntityMapper;
 import org.samearch.jira.lib.entity.mapper.api.EntityMapping;
+import org.samearch.jira.lib.entity.mapper.api.exception.ClosedChainEntityMappingException;
 import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingConflictException;
 import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingException;
 import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingNotFoundException;
+import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingVersionMismatchException;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.EntityMappingManager;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsPage;
 import org.samearch.jira.lib.entity.mapper.ui.rest.dto.EntityMappingDto;
 import org.samearch.jira.lib.entity.mapper.ui.rest.dto.ErrorMessage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.Optional;
@@ -52,18 +60,24 @@ import java.util.stream.Collectors;
 @Produces({MediaType.APPLICATION_JSON})
 public class MappingResource {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+
     @ComponentImport
     private final JiraAuthenticationContext authenticationContext;
 
     private final EntityMapper entityMapper;
+    private final EntityMappingManager mappingManager;
     private final EntityMappingRestUtils mappingUtils;
 
     @Autowired
     public MappingResource(EntityMapper entityMapper,
+                           EntityMappingManager mappingManager,
                            EntityMappingRestUtils mappingUtils,
                            JiraAuthenticationContext authenticationContext) {
 
         this.entityMapper = entityMapper;
+        this.mappingManager = mappingManager;
         this.mappingUtils = mappingUtils;
         this.authenticationContext = authenticationContext;
 
@@ -81,6 +95,37 @@ public class MappingResource {
 
     }
 
+    /**
+     * Возвращает страницу списка маппингов в порядке ключей.<br/>
+     * <br/>
+     * Следующая страница запрашивается с параметром {@code after}, равным значению {@code nextAfter} из ответа на
+     * запрос предыдущей страницы.
+     *
+     * @param afterKey ключ, после которого начинается страница; без параметра - первая страница
+     * @param pageSize количество записей на странице, не больше {@value #MAX_PAGE_SIZE}
+     * @param keyPrefix возвращаются только маппинги, ключи которых начинаются с этого префикса
+     * @param searchText возвращаются только маппинги, ключ или значение которых содержат эту подстроку (без учета
+     *                   регистра)
+     */
+    @GET
+    @Path("/page")
+    public Response getMappingsPage(@QueryParam("after") String afterKey,
+                                    @QueryParam("limit") @DefaultValue("" + DEFAULT_PAGE_SIZE) int pageSize,
+                                    @QueryParam("prefix") @DefaultValue("") String keyPrefix,
+                                    @QueryParam("search") @DefaultValue("") String searchText) {
+
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            String errorMessageBody = String.format("Page size must be between 1 and %d", MAX_PAGE_SIZE);
+            return Response.status(Response.Status.BAD_REQUEST).entity(new ErrorMessage(errorMessageBody)).build();
+        }
+
+        MappingsPage mappingsPage = mappingManager.getMappingsPage(
+                keyPrefix, searchText.trim(), StringUtils.defaultIfEmpty(afterKey, null), pageSize);
+
+        return Response.ok(mappingUtils.mappingsPageToDto(mappingsPage)).build();
+
+    }
+
     @GET
     @Path("/{mappingId}")
     public Response getMapping(@PathParam("mappingId") String mappingIdParam) {
@@ -89,7 +134,8 @@ public class MappingResource {
             final int mappingId = Integer.parseInt(mappingIdParam);
             Optional<EntityMapping> savedMappingHolder = entityMapper.getMapping(mappingId);
             if (savedMappingHolder.isPresent()) {
-                return Response.ok(mappingUtils.objectToDto(savedMappingHolder.get())).build();
+                EntityMapping savedMapping = savedMappingHolder.get();
+                return Response.ok(mappingUtils.objectToDto(savedMapping)).tag(mappingUtils.versionTag(savedMapping)).build();
             } else {
                 return Response.status(Response.Status.NOT_FOUND).build();
             }
@@ -115,6 +161,9 @@ public class MappingResource {
             final EntityMapping createdMapping = entityMapper.addMapping(currentUser.getKey(), mappingKey, mappingValue);
             final EntityMappingDto createdMappingDto = mappingUtils.objectToDto(createdMapping);
             return Response.ok(createdMappingDto).build();
+        } catch (ClosedChainEntityMappingException e) {
+            ErrorMessage errorMessage = new ErrorMessage(e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST).entity(errorMessage).build();
         } catch (EntityMappingException e) {
             return Response.status(Response.Status.CONFLICT).build();
         }
@@ -130,9 +179,18 @@ public class MappingResource {
         return Response.ok().build();
     }
 
+    /**
+     * Обновляет запись маппинга.<br/>
+     * <br/>
+     * Если передан заголовок {@code If-Match} с версией записи (значение заголовка {@code ETag} ответа на чтение
+     * записи), то обновление выполняется только при совпадении версии, иначе возвращается
+     * {@code 412 Precondition Failed}. Без заголовка или со значением {@code *} обновление выполняется безусловно.
+     */
     @PUT
     @Path("/{mappingId}")
-    public Response updateMapping(@PathParam("mappingId") String mappingIdParam, final EntityMappingDto entityMappingDto) {
+    public Response updateMapping(@PathParam("mappingId") String mappingIdParam,
+                                  @HeaderParam(HttpHeaders.IF_MATCH) String ifMatchHeader,
+                                  final EntityMappingDto entityMappingDto) {
 
         ApplicationUser currentUser = authenticationContext.getLoggedInUser();
 
@@ -143,16 +201,29 @@ public class MappingResource {
                 return Response.status(Response.Status.NOT_FOUND).build();
             }
 
-            EntityMapping updatedMapping = mappingUtils.updateEntityMappingFromRestRequest(currentUser, mappingId, entityMappingDto);
+            Long expectedVersion = mappingUtils.parseExpectedVersion(ifMatchHeader);
+            if (expectedVersion == null) {
+                ErrorMessage errorMessage = new ErrorMessage(String.format("Bad If-Match header: %s", ifMatchHeader));
+                return Response.status(Response.Status.PRECONDITION_FAILED).entity(errorMessage).build();
+            }
+
+            EntityMapping updatedMapping =
+                    mappingUtils.updateEntityMappingFromRestRequest(currentUser, mappingId, expectedVersion, entityMappingDto);
             EntityMappingDto updatedMappingDto = mappingUtils.objectToDto(updatedMapping);
 
-            return Response.ok(updatedMappingDto).build();
+            return Response.ok(updatedMappingDto).tag(mappingUtils.versionTag(updatedMapping)).build();
         } catch (NumberFormatException e) {
             String errorMessageBody = String.format("Bad mapping identifier: %s", mappingIdParam);
             ErrorMessage errorMessage = new ErrorMessage(errorMessageBody);
             return Response.status(Response.Status.BAD_REQUEST).entity(errorMessage).build();
         } catch (EntityMappingNotFoundException e) {
             return Response.status(Response.Status.NOT_FOUND).build();
+        } catch (EntityMappingVersionMismatchException e) {
+            ErrorMessage errorMessage = new ErrorMessage(e.getMessage());
+            return Response.status(Response.Status.PRECONDITION_FAILED)
+                    .entity(errorMessage)
+                    .tag(mappingUtils.versionTag(e.getCurrentVersion()))
+                    .build();
         } catch (EntityMappingConflictException e) {
             ErrorMessage errorMessage = new ErrorMessage(e.getMessage());
             return Response.status(Response.Status.BAD_REQUEST).entity(errorMessage).build();
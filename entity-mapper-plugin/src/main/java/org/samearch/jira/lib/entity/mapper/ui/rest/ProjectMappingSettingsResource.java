@@ -23,21 +23,26 @@ import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
 import org.apache.commons.lang3.StringUtils;
 import org.samearch.jira.lib.entity.mapper.api.EntityMapper;
 import org.samearch.jira.lib.entity.mapper.api.EntityMapping;
+import org.samearch.jira.lib.entity.mapper.api.exception.ClosedChainEntityMappingException;
 import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingConflictException;
 import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingException;
 import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingNotFoundException;
+import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingVersionMismatchException;
 import org.samearch.jira.lib.entity.mapper.ui.rest.dto.EntityMappingDto;
 import org.samearch.jira.lib.entity.mapper.ui.rest.dto.ErrorMessage;
+import org.samearch.jira.lib.entity.mapper.ui.rest.dto.MappingsCountDto;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.Collection;
@@ -76,6 +81,13 @@ public class ProjectMappingSettingsResource {
         return responseWithMapping(projectKey, entityMapper.getMappedValuesLike(keysFilter));
     }
 
+    @GET
+    @Path("/{projectKey}/mappings/count")
+    public Response getMappingsCount(@PathParam("projectKey") String projectKey) {
+        String keysFilter = String.format("project.%s.", projectKey);
+        return Response.ok(new MappingsCountDto(entityMapper.getMappingsCountLike(keysFilter))).build();
+    }
+
     @GET
     @Path("/{projectKey}/mapping/{mappingId}")
     public Response getMapping(
@@ -109,6 +121,9 @@ public class ProjectMappingSettingsResource {
         try {
             final EntityMapping createdMapping = entityMapper.addMapping(currentUser.getKey(), actualMappingKey, mappingValue);
             return responseWithMapping(projectKey, createdMapping);
+        } catch (ClosedChainEntityMappingException e) {
+            ErrorMessage errorMessage = new ErrorMessage(e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST).entity(errorMessage).build();
         } catch (EntityMappingException e) {
             return Response.status(Response.Status.CONFLICT).build();
         }
@@ -131,21 +146,38 @@ public class ProjectMappingSettingsResource {
     public Response tryToUpdateMapping(
             @PathParam("projectKey") String projectKey,
             @PathParam("mappingId") Integer mappingId,
+            @HeaderParam(HttpHeaders.IF_MATCH) String ifMatchHeader,
             final EntityMappingDto entityMappingDto
     ) {
         ApplicationUser currentUser = authenticationContext.getLoggedInUser();
         return getMappingInProject(projectKey, mappingId)
-                .map(it -> updateMapping(currentUser, projectKey, mappingId, entityMappingDto))
+                .map(it -> updateMapping(currentUser, projectKey, mappingId, ifMatchHeader, entityMappingDto))
                 .orElse(Response.status(Response.Status.NOT_FOUND).build());
     }
 
-    private Response updateMapping(ApplicationUser actor, String projectKey, Integer mappingId, EntityMappingDto mappingDto) {
+    private Response updateMapping(ApplicationUser actor,
+                                   String projectKey,
+                                   Integer mappingId,
+                                   String ifMatchHeader,
+                                   EntityMappingDto mappingDto) {
+        Long expectedVersion = mappingUtils.parseExpectedVersion(ifMatchHeader);
+        if (expectedVersion == null) {
+            ErrorMessage errorMessage = new ErrorMessage(String.format("Bad If-Match header: %s", ifMatchHeader));
+            return Response.status(Response.Status.PRECONDITION_FAILED).entity(errorMessage).build();
+        }
         try {
             mappingDto.setKey(buildActualEntityKey(projectKey, mappingDto.getKey()));
-            EntityMapping updatedMapping = mappingUtils.updateEntityMappingFromRestRequest(actor, mappingId, mappingDto);
+            EntityMapping updatedMapping =
+                    mappingUtils.updateEntityMappingFromRestRequest(actor, mappingId, expectedVersion, mappingDto);
             return responseWithMapping(projectKey, updatedMapping);
         } catch (EntityMappingNotFoundException e) {
             return Response.status(Response.Status.NOT_FOUND).build();
+        } catch (EntityMappingVersionMismatchException e) {
+            ErrorMessage errorMessage = new ErrorMessage(e.getMessage());
+            return Response.status(Response.Status.PRECONDITION_FAILED)
+                    .entity(errorMessage)
+                    .tag(mappingUtils.versionTag(e.getCurrentVersion()))
+                    .build();
         } catch (EntityMappingConflictException e) {
             ErrorMessage errorMessage = new ErrorMessage(e.getMessage());
             return Response.status(Response.Status.BAD_REQUEST).entity(errorMessage).build();
@@ -185,7 +217,7 @@ public class ProjectMappingSettingsResource {
     private Response responseWithMapping(String projectKey, EntityMapping entityMapping) {
         final EntityMappingDto mappingDto = mappingUtils.objectToDto(entityMapping);
         final EntityMappingDto projectTrimmedMappingDto = removeProjectPrefixFromKey(projectKey, mappingDto);
-        return Response.ok(projectTrimmedMappingDto).build();
+        return Response.ok(projectTrimmedMappingDto).tag(mappingUtils.versionTag(entityMapping)).build();
     }
 
     private EntityMappingDto removeProjectPrefixFromKey(String projectKey, EntityMappingDto mappingDto) {
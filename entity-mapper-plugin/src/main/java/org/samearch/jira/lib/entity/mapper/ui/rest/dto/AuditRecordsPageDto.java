@@ -0,0 +1,57 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.ui.rest.dto;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Описывает страницу журнала аудита.
+ */
+@XmlRootElement
+@XmlAccessorType(XmlAccessType.FIELD)
+public class AuditRecordsPageDto {
+
+    /** События страницы, от новых к старым */
+    @XmlElement(name = "records")
+    private List<AuditEventRecordDto> records = new ArrayList<>();
+    /** Курсор, который нужно передать в параметре {@code after} для получения следующей страницы; нет на последней странице */
+    @XmlElement(name = "nextAfter")
+    private String nextAfter;
+
+    public List<AuditEventRecordDto> getRecords() {
+        return records;
+    }
+
+    public void setRecords(List<AuditEventRecordDto> records) {
+        this.records = records;
+    }
+
+    public String getNextAfter() {
+        return nextAfter;
+    }
+
+    public void setNextAfter(String nextAfter) {
+        this.nextAfter = nextAfter;
+    }
+
+}
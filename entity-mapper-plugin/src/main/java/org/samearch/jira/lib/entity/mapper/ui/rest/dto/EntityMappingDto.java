@@ -35,6 +35,8 @@ public class EntityMappingDto implements Cloneable {
     private String key;
     /** Замапленное значение */
     private String value;
+    /** Версия записи маппинга */
+    private long version;
 
     public int getId() {
         return id;
@@ -60,6 +62,14 @@ public class EntityMappingDto implements Cloneable {
         this.value = value;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -68,6 +78,7 @@ public class EntityMappingDto implements Cloneable {
         EntityMappingDto that = (EntityMappingDto) o;
 
         if (id != that.id) return false;
+        if (version != that.version) return false;
         if (!Objects.equals(key, that.key)) return false;
         return Objects.equals(value, that.value);
     }
@@ -77,6 +88,7 @@ public class EntityMappingDto implements Cloneable {
         int result = id;
         result = 31 * result + (key != null ? key.hashCode() : 0);
         result = 31 * result + (value != null ? value.hashCode() : 0);
+        result = 31 * result + Long.hashCode(version);
         return result;
     }
 
@@ -89,6 +101,7 @@ public class EntityMappingDto implements Cloneable {
         clonedDto.id = id;
         clonedDto.key = key;
         clonedDto.value = value;
+        clonedDto.version = version;
         return clonedDto;
     }
 }
@@ -0,0 +1,75 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.ui.rest.dto;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Описывает запланированное изменение значения маппинга.
+ */
+@XmlRootElement
+@XmlAccessorType(XmlAccessType.FIELD)
+public class MappingChangeDto {
+
+    /** Ключ маппинга */
+    @XmlElement(name = "key")
+    private String key;
+    /** Текущее значение (отсутствует для создаваемых записей) */
+    @XmlElement(name = "currentValue")
+    private String currentValue;
+    /** Новое значение (отсутствует для удаляемых записей) */
+    @XmlElement(name = "newValue")
+    private String newValue;
+
+    public MappingChangeDto() {
+    }
+
+    public MappingChangeDto(String key, String currentValue, String newValue) {
+        this.key = key;
+        this.currentValue = currentValue;
+        this.newValue = newValue;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getCurrentValue() {
+        return currentValue;
+    }
+
+    public void setCurrentValue(String currentValue) {
+        this.currentValue = currentValue;
+    }
+
+    public String getNewValue() {
+        return newValue;
+    }
+
+    public void setNewValue(String newValue) {
+        this.newValue = newValue;
+    }
+
+}
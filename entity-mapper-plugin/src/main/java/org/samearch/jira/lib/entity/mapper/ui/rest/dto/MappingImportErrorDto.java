@@ -0,0 +1,75 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.ui.rest.dto;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Описывает ошибку импорта отдельной записи маппинга.
+ */
+@XmlRootElement
+@XmlAccessorType(XmlAccessType.FIELD)
+public class MappingImportErrorDto {
+
+    /** Номер записи в импортируемых данных */
+    @XmlElement(name = "row")
+    private Long row;
+    /** Ключ маппинга, который не удалось импортировать */
+    @XmlElement(name = "key")
+    private String key;
+    /** Причина ошибки */
+    @XmlElement(name = "errorMessage")
+    private String errorMessage;
+
+    public MappingImportErrorDto() {
+    }
+
+    public MappingImportErrorDto(Long row, String key, String errorMessage) {
+        this.row = row;
+        this.key = key;
+        this.errorMessage = errorMessage;
+    }
+
+    public Long getRow() {
+        return row;
+    }
+
+    public void setRow(Long row) {
+        this.row = row;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.ui.rest.dto;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Описывает состояние фонового задания импорта маппингов.
+ */
+@XmlRootElement
+@XmlAccessorType(XmlAccessType.FIELD)
+public class MappingImportJobDto {
+
+    /** Идентификатор задания */
+    @XmlElement(name = "id")
+    private String id;
+    /** Состояние задания: QUEUED, RUNNING, COMPLETED, FAILED или CANCELLED */
+    @XmlElement(name = "state")
+    private String state;
+    /** Время постановки задания в очередь (мс с начала эпохи) */
+    @XmlElement(name = "submitted")
+    private long submitted;
+    /** Время первого запуска задания (мс с начала эпохи) */
+    @XmlElement(name = "started")
+    private Long started;
+    /** Время завершения последнего запуска задания (мс с начала эпохи) */
+    @XmlElement(name = "finished")
+    private Long finished;
+    /** Средняя скорость обработки записей */
+    @XmlElement(name = "rowsPerSecond")
+    private double rowsPerSecond;
+    /** Непредвиденная ошибка, прервавшая выполнение задания */
+    @XmlElement(name = "failure")
+    private String failure;
+    /** Текущие итоги импорта */
+    @XmlElement(name = "report")
+    private MappingsImportReportDto report;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    public void setSubmitted(long submitted) {
+        this.submitted = submitted;
+    }
+
+    public Long getStarted() {
+        return started;
+    }
+
+    public void setStarted(Long started) {
+        this.started = started;
+    }
+
+    public Long getFinished() {
+        return finished;
+    }
+
+    public void setFinished(Long finished) {
+        this.finished = finished;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(double rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    public void setFailure(String failure) {
+        this.failure = failure;
+    }
+
+    public MappingsImportReportDto getReport() {
+        return report;
+    }
+
+    public void setReport(MappingsImportReportDto report) {
+        this.report = report;
+    }
+
+}
@@ -22,6 +22,18 @@ public class MappingSettingsDto {
     @XmlElement(name = "mappingsEnabledInProjects")
     private Boolean mappingsEnabledInProjects = Boolean.FALSE;
 
+    @XmlElement(name = "asyncAuditWrite")
+    private Boolean asyncAuditWrite;
+
+    @XmlElement(name = "auditRetentionDays")
+    private Integer auditRetentionDays;
+
+    @XmlElement(name = "auditRetentionMaxRows")
+    private Integer auditRetentionMaxRows;
+
+    @XmlElement(name = "auditArchiveEnabled")
+    private Boolean auditArchiveEnabled;
+
     public Boolean mappingsEnabledInProjects() {
         return mappingsEnabledInProjects;
     }
@@ -30,4 +42,53 @@ public class MappingSettingsDto {
         this.mappingsEnabledInProjects = mappingsEnabledInProjects;
     }
 
+    /**
+     * Асинхронная запись журнала аудита: события записываются фоновым потоком пакетами, а не в транзакции изменения
+     * маппинга. Быстрее при массовых изменениях, но событие может быть потеряно при аварийной остановке Jira.<br/>
+     * <br/>
+     * {@code null} означает, что настройка не передана и при сохранении настроек не изменяется.
+     */
+    public Boolean asyncAuditWrite() {
+        return asyncAuditWrite;
+    }
+
+    public void setAsyncAuditWrite(Boolean asyncAuditWrite) {
+        this.asyncAuditWrite = asyncAuditWrite;
+    }
+
+    /**
+     * Максимальный возраст событий журнала аудита в днях; более старые события удаляются.
+     * Значение, не большее нуля, снимает ограничение.
+     */
+    public Integer auditRetentionDays() {
+        return auditRetentionDays;
+    }
+
+    public void setAuditRetentionDays(Integer auditRetentionDays) {
+        this.auditRetentionDays = auditRetentionDays;
+    }
+
+    /**
+     * Максимальное количество событий журнала аудита; самые старые события сверх него удаляются.
+     * Значение, не большее нуля, снимает ограничение.
+     */
+    public Integer auditRetentionMaxRows() {
+        return auditRetentionMaxRows;
+    }
+
+    public void setAuditRetentionMaxRows(Integer auditRetentionMaxRows) {
+        this.auditRetentionMaxRows = auditRetentionMaxRows;
+    }
+
+    /**
+     * Сохранять удаляемые события журнала аудита в сжатый архив в домашнем каталоге Jira.
+     */
+    public Boolean auditArchiveEnabled() {
+        return auditArchiveEnabled;
+    }
+
+    public void setAuditArchiveEnabled(Boolean auditArchiveEnabled) {
+        this.auditArchiveEnabled = auditArchiveEnabled;
+    }
+
 }
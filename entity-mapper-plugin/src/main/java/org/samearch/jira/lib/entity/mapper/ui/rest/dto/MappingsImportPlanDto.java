@@ -0,0 +1,189 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.ui.rest.dto;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Описывает план импорта маппингов: изменения, которые внесет импорт, и найденные в импортируемых данных проблемы.
+ */
+@XmlRootElement
+@XmlAccessorType(XmlAccessType.FIELD)
+public class MappingsImportPlanDto {
+
+    /** Количество создаваемых записей */
+    @XmlElement(name = "created")
+    private int created;
+    /** Количество записей, значения которых изменятся */
+    @XmlElement(name = "updated")
+    private int updated;
+    /** Количество записей, значения которых совпадают с сохраненными */
+    @XmlElement(name = "unchanged")
+    private int unchanged;
+    /** Количество записей, отсутствующих в импортируемых данных (только для плана синхронизации) */
+    @XmlElement(name = "deleted")
+    private int deleted;
+    /** Количество записей, которые не удастся импортировать */
+    @XmlElement(name = "failed")
+    private int failed;
+    /** Количество ссылок на отсутствующие ключи */
+    @XmlElement(name = "danglingLinksCount")
+    private int danglingLinksCount;
+    /** Количество замкнутых цепочек ссылок */
+    @XmlElement(name = "closedChainsCount")
+    private int closedChainsCount;
+    /** Ошибка, из-за которой чтение импортируемых данных было прервано */
+    @XmlElement(name = "fatalError")
+    private String fatalError;
+    /** Создаваемые записи (не более 1000 первых) */
+    @XmlElement(name = "creates")
+    private List<MappingChangeDto> creates = new ArrayList<>();
+    /** Обновляемые записи (не более 1000 первых) */
+    @XmlElement(name = "updates")
+    private List<MappingChangeDto> updates = new ArrayList<>();
+    /** Удаляемые при синхронизации записи (не более 1000 первых) */
+    @XmlElement(name = "deletes")
+    private List<MappingChangeDto> deletes = new ArrayList<>();
+    /** Ошибки отдельных записей (не более 1000 первых) */
+    @XmlElement(name = "errors")
+    private List<MappingImportErrorDto> errors = new ArrayList<>();
+    /** Ссылки на отсутствующие ключи (не более 1000 первых) */
+    @XmlElement(name = "danglingLinks")
+    private List<MappingLinkErrorDto> danglingLinks = new ArrayList<>();
+    /** Замкнутые цепочки ссылок (не более 1000 первых) */
+    @XmlElement(name = "closedChains")
+    private List<MappingLinkChainDto> closedChains = new ArrayList<>();
+
+    public int getCreated() {
+        return created;
+    }
+
+    public void setCreated(int created) {
+        this.created = created;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(int updated) {
+        this.updated = updated;
+    }
+
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    public void setUnchanged(int unchanged) {
+        this.unchanged = unchanged;
+    }
+
+    public int getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(int deleted) {
+        this.deleted = deleted;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public int getDanglingLinksCount() {
+        return danglingLinksCount;
+    }
+
+    public void setDanglingLinksCount(int danglingLinksCount) {
+        this.danglingLinksCount = danglingLinksCount;
+    }
+
+    public int getClosedChainsCount() {
+        return closedChainsCount;
+    }
+
+    public void setClosedChainsCount(int closedChainsCount) {
+        this.closedChainsCount = closedChainsCount;
+    }
+
+    public String getFatalError() {
+        return fatalError;
+    }
+
+    public void setFatalError(String fatalError) {
+        this.fatalError = fatalError;
+    }
+
+    public List<MappingChangeDto> getCreates() {
+        return creates;
+    }
+
+    public void setCreates(List<MappingChangeDto> creates) {
+        this.creates = creates;
+    }
+
+    public List<MappingChangeDto> getUpdates() {
+        return updates;
+    }
+
+    public void setUpdates(List<MappingChangeDto> updates) {
+        this.updates = updates;
+    }
+
+    public List<MappingChangeDto> getDeletes() {
+        return deletes;
+    }
+
+    public void setDeletes(List<MappingChangeDto> deletes) {
+        this.deletes = deletes;
+    }
+
+    public List<MappingImportErrorDto> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<MappingImportErrorDto> errors) {
+        this.errors = errors;
+    }
+
+    public List<MappingLinkErrorDto> getDanglingLinks() {
+        return danglingLinks;
+    }
+
+    public void setDanglingLinks(List<MappingLinkErrorDto> danglingLinks) {
+        this.danglingLinks = danglingLinks;
+    }
+
+    public List<MappingLinkChainDto> getClosedChains() {
+        return closedChains;
+    }
+
+    public void setClosedChains(List<MappingLinkChainDto> closedChains) {
+        this.closedChains = closedChains;
+    }
+
+}
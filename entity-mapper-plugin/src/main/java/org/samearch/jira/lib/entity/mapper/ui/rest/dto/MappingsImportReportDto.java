@@ -0,0 +1,123 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.ui.rest.dto;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Описывает итоги импорта маппингов.
+ */
+@XmlRootElement
+@XmlAccessorType(XmlAccessType.FIELD)
+public class MappingsImportReportDto {
+
+    /** Количество прочитанных записей */
+    @XmlElement(name = "processed")
+    private long processed;
+    /** Количество созданных записей */
+    @XmlElement(name = "created")
+    private int created;
+    /** Количество записей с обновленными значениями */
+    @XmlElement(name = "updated")
+    private int updated;
+    /** Количество записей, значения которых совпали с уже сохраненными */
+    @XmlElement(name = "unchanged")
+    private int unchanged;
+    /** Количество записей, отклоненных из-за конфликта с другими маппингами */
+    @XmlElement(name = "conflicts")
+    private int conflicts;
+    /** Количество записей, которые не удалось импортировать (включая конфликты) */
+    @XmlElement(name = "failed")
+    private int failed;
+    /** Ошибка, из-за которой чтение импортируемых данных было прервано */
+    @XmlElement(name = "fatalError")
+    private String fatalError;
+    /** Ошибки импорта отдельных записей (не более 1000 первых ошибок) */
+    @XmlElement(name = "errors")
+    private List<MappingImportErrorDto> errors = new ArrayList<>();
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(long processed) {
+        this.processed = processed;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public void setCreated(int created) {
+        this.created = created;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(int updated) {
+        this.updated = updated;
+    }
+
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    public void setUnchanged(int unchanged) {
+        this.unchanged = unchanged;
+    }
+
+    public int getConflicts() {
+        return conflicts;
+    }
+
+    public void setConflicts(int conflicts) {
+        this.conflicts = conflicts;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public String getFatalError() {
+        return fatalError;
+    }
+
+    public void setFatalError(String fatalError) {
+        this.fatalError = fatalError;
+    }
+
+    public List<MappingImportErrorDto> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<MappingImportErrorDto> errors) {
+        this.errors = errors;
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.ui.rest.dto;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Описывает страницу списка маппингов.
+ */
+@XmlRootElement
+@XmlAccessorType(XmlAccessType.FIELD)
+public class MappingsPageDto {
+
+    /** Записи страницы в порядке ключей */
+    @XmlElement(name = "mappings")
+    private List<EntityMappingDto> mappings = new ArrayList<>();
+    /** Ключ, который нужно передать в параметре {@code after} для получения следующей страницы; нет на последней странице */
+    @XmlElement(name = "nextAfter")
+    private String nextAfter;
+    /** Количество записей, удовлетворяющих фильтру, на всех страницах */
+    @XmlElement(name = "matched")
+    private int matched;
+    /** Количество всех записей маппинга */
+    @XmlElement(name = "total")
+    private int total;
+
+    public List<EntityMappingDto> getMappings() {
+        return mappings;
+    }
+
+    public void setMappings(List<EntityMappingDto> mappings) {
+        this.mappings = mappings;
+    }
+
+    public String getNextAfter() {
+        return nextAfter;
+    }
+
+    public void setNextAfter(String nextAfter) {
+        this.nextAfter = nextAfter;
+    }
+
+    public int getMatched() {
+        return matched;
+    }
+
+    public void setMatched(int matched) {
+        this.matched = matched;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+}
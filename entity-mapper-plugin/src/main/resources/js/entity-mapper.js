@@ -18,26 +18,78 @@
 AJS.toInit((jQuery) => {
     initMainTable(jQuery);
     initPerProjectManagementToggle(jQuery);
+    initAsyncAuditWriteToggle(jQuery);
+    initAuditRetentionSettings(jQuery);
     initAjaxErrorHandler(jQuery);
 });
 
 function initMainTable(jQuery) {
-    let tableConfigurationBuilder = new AJS.EntityMapper.RestfulTableConfigurationBuilder();
-
     // Создание элемента основной таблицы настройки маппингов
     let entityMappingsTableElement = jQuery("#entity_mappings");
     if (entityMappingsTableElement.length === 0) {
         return;
     }
 
-    let mappingsListEndpoint = AJS.EntityMapper.restEndpoint("/mapping");
-    let mappingCrudEndpoint = AJS.EntityMapper.restEndpoint("/mapping");
+    let mappingsPager = new MappingsPager(jQuery, AJS.EntityMapper.restEndpoint("/mapping/page"));
+
+    let loadMoreButton = jQuery("#entity-mappings-load-more");
+    let countersElement = jQuery("#entity-mappings-counters");
+    let filterField = jQuery("#entity-mappings-filter");
+
+    let showPageState = (page) => {
+        countersElement.text(`Показано ${mappingsPager.loadedCount} из ${page.matched} (всего маппингов: ${page.total})`);
+        loadMoreButton.toggle(mappingsPager.hasMore());
+    };
+
+    // Таблица создается заново при каждом изменении фильтра: первая страница загружается самой таблицей,
+    // следующие страницы добавляются в нее по кнопке
+    let createTable = () => {
+        let tableElement = jQuery('<table id="entity_mappings"></table>');
+        jQuery("#entity_mappings").replaceWith(tableElement);
+        window.entityMappingMainTable = new AJS.RestfulTable(
+            buildMainTableConfiguration(tableElement, (callback) => {
+                mappingsPager.reset(filterField.val());
+                mappingsPager.loadNextPage((page) => {
+                    callback(page.mappings);
+                    showPageState(page);
+                });
+            })
+        );
+    };
+
+    loadMoreButton.on("click", (e) => {
+        e.preventDefault();
+        loadMoreButton.prop("disabled", true);
+        mappingsPager.loadNextPage((page) => {
+            let table = window.entityMappingMainTable;
+            // Записи, созданные в таблице после загрузки первой страницы, уже есть в ней
+            page.mappings
+                .filter((mapping) => !table.getModels().get(mapping.id))
+                .forEach((mapping) => table.addRow(mapping));
+            showPageState(page);
+        }, () => {
+            // Кнопка разблокируется и при ошибке запроса, чтобы загрузку можно было повторить
+            loadMoreButton.prop("disabled", false);
+        });
+    });
+
+    let filterTimer = null;
+    filterField.on("input", () => {
+        clearTimeout(filterTimer);
+        filterTimer = setTimeout(createTable, 300);
+    });
+
+    createTable();
+}
+
+function buildMainTableConfiguration(tableElement, loadFirstPage) {
+    let tableConfigurationBuilder = new AJS.EntityMapper.RestfulTableConfigurationBuilder();
 
     let mainEntityMappingTableConfiguration = tableConfigurationBuilder.buildDefaultConfiguration();
-    mainEntityMappingTableConfiguration.el = entityMappingsTableElement;
+    mainEntityMappingTableConfiguration.el = tableElement;
     mainEntityMappingTableConfiguration.resources = {
-        all: mappingsListEndpoint,
-        self: mappingCrudEndpoint
+        all: loadFirstPage,
+        self: AJS.EntityMapper.restEndpoint("/mapping")
     }
     mainEntityMappingTableConfiguration.columns = [{
         id: "key",
@@ -47,7 +99,63 @@ function initMainTable(jQuery) {
         header: "Value"
     }];
 
-    window.entityMappingMainTable = new AJS.RestfulTable(mainEntityMappingTableConfiguration);
+    return mainEntityMappingTableConfiguration;
+}
+
+/**
+ * Постраничная загрузка списка маппингов. Следующая страница запрашивается по ключу последней записи предыдущей.
+ */
+class MappingsPager {
+    constructor(jQuery, pageEndpoint, pageSize = 100) {
+        this.jQuery = jQuery;
+        this.pageEndpoint = pageEndpoint;
+        this.pageSize = pageSize;
+        this.reset("");
+    }
+
+    reset(searchText) {
+        this.searchText = (searchText || "").trim();
+        this.nextAfter = null;
+        this.loadedCount = 0;
+        this.finished = false;
+        // Ответы на запросы, отправленные до сброса, игнорируются
+        this.generation = (this.generation || 0) + 1;
+    }
+
+    hasMore() {
+        return !this.finished;
+    }
+
+    /**
+     * Загружает следующую страницу. onLoadFinished вызывается после завершения запроса, в том числе
+     * неудачного.
+     */
+    loadNextPage(onPageLoaded, onLoadFinished = () => {}) {
+        let requestData = {limit: this.pageSize};
+        if (this.nextAfter !== null) {
+            requestData.after = this.nextAfter;
+        }
+        if (this.searchText) {
+            requestData.search = this.searchText;
+        }
+
+        let requestGeneration = this.generation;
+        this.jQuery.ajax({
+            url: this.pageEndpoint,
+            type: "GET",
+            data: requestData,
+            success: (page) => {
+                if (requestGeneration !== this.generation) {
+                    return;
+                }
+                this.nextAfter = page.nextAfter || null;
+                this.finished = this.nextAfter === null;
+                this.loadedCount += page.mappings.length;
+                onPageLoaded(page);
+            },
+            complete: () => onLoadFinished()
+        });
+    }
 }
 
 function initPerProjectManagementToggle(jQuery) {
@@ -83,6 +191,77 @@ function initPerProjectManagementToggle(jQuery) {
     });
 }
 
+function initAsyncAuditWriteToggle(jQuery) {
+    var asyncAuditWriteToggleId = "async-audit-write-switcher";
+    var asyncAuditWriteToggle = document.getElementById(asyncAuditWriteToggleId);
+    jQuery.ajax({
+        url: AJS.EntityMapper.restEndpoint("/settings"),
+        type: "GET",
+        success: function (response) {
+            asyncAuditWriteToggle.checked = response.asyncAuditWrite || false;
+        }
+    });
+    jQuery(document).on("click", `#${asyncAuditWriteToggleId}`, function (e) {
+        e.preventDefault();
+        var checker = document.getElementById(asyncAuditWriteToggleId);
+        checker.busy = true;
+        var requestData = {
+            mappingsEnabledInProjects: document.getElementById("mapping-per-project-switcher").checked,
+            asyncAuditWrite: checker.checked
+        };
+        jQuery.ajax({
+            url: AJS.EntityMapper.restEndpoint("/settings"),
+            type: "PUT",
+            data: JSON.stringify(requestData),
+            contentType: "application/json",
+            success: function (response) {
+                checker.busy = false;
+            },
+            error: function (xhr, status, error) {
+                checker.checked = !requestData.asyncAuditWrite;
+                checker.busy = false;
+            }
+        });
+    });
+}
+
+function initAuditRetentionSettings(jQuery) {
+    var retentionDaysField = document.getElementById("audit-retention-days");
+    var retentionMaxRowsField = document.getElementById("audit-retention-max-rows");
+    var archiveEnabledField = document.getElementById("audit-archive-enabled");
+    jQuery.ajax({
+        url: AJS.EntityMapper.restEndpoint("/settings"),
+        type: "GET",
+        success: function (response) {
+            retentionDaysField.value = response.auditRetentionDays > 0 ? response.auditRetentionDays : "";
+            retentionMaxRowsField.value = response.auditRetentionMaxRows > 0 ? response.auditRetentionMaxRows : "";
+            archiveEnabledField.checked = response.auditArchiveEnabled || false;
+        }
+    });
+    jQuery(document).on("click", "#audit-retention-save", function (e) {
+        e.preventDefault();
+        var requestData = {
+            mappingsEnabledInProjects: document.getElementById("mapping-per-project-switcher").checked,
+            auditRetentionDays: parseInt(retentionDaysField.value, 10) || 0,
+            auditRetentionMaxRows: parseInt(retentionMaxRowsField.value, 10) || 0,
+            auditArchiveEnabled: archiveEnabledField.checked
+        };
+        jQuery.ajax({
+            url: AJS.EntityMapper.restEndpoint("/settings"),
+            type: "PUT",
+            data: JSON.stringify(requestData),
+            contentType: "application/json",
+            success: function (response) {
+                require('aui/flag')({
+                    type: "success",
+                    title: "Настройки хранения журнала аудита сохранены",
+                    close: "auto"
+                });
+            }
+        });
+    });
+}
+
 function initAjaxErrorHandler(jQuery) {
     jQuery(document).ajaxError((event, jqxhr) => {
         var unknownErrorMessage = "Неизвестная ошибка. Обратитесь к администратору.";
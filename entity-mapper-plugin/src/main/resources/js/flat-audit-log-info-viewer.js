@@ -16,7 +16,17 @@
  */
 
 var AuditJournal = Backbone.Collection.extend({
-    url: AJS.EntityMapper.restEndpoint("/audit/records")
+    url: AJS.EntityMapper.restEndpoint("/audit/records/page"),
+
+    // сервер возвращает страницу журнала: события и курсор следующей страницы
+    parse: function(response) {
+        this.nextAfter = response.nextAfter || null;
+        return response.records;
+    },
+
+    hasMore: function() {
+        return !!this.nextAfter;
+    }
 });
 
 var AuditJournalView = Backbone.View.extend({
@@ -26,7 +26,8 @@ AJS.toInit(() => {
         initiatorFilterFieldId: "journal-filter-initiator",
         eventFilterFieldId: "journal-filter-event",
         mappingIdFilterId: "journal-filter-mappingId",
-        refreshButtonId: "journal-filter-refresh-button"
+        refreshButtonId: "journal-filter-refresh-button",
+        loadMoreButtonId: "journal-load-more-button"
     });
 });
 
@@ -57,6 +58,7 @@ function initAuditJournal(args) {
 }
 
 function initRefreshButton(args) {
+    var currentRequestFilter = {};
     AJS.$(document).on("click", `#${args.refreshButtonId}`, function(e) {
         e.preventDefault();
         var startDate = args.startDatePicker.getDate();
@@ -85,5 +87,18 @@ function initRefreshButton(args) {
         }
 
         args.auditJournal.fetch({ reset: true, data: requestFilter});
+        currentRequestFilter = requestFilter;
+    });
+
+    var loadMoreButton = $(`#${args.loadMoreButtonId}`);
+    args.auditJournal.on("sync", function() {
+        loadMoreButton.toggle(args.auditJournal.hasMore());
+    });
+    AJS.$(document).on("click", `#${args.loadMoreButtonId}`, function(e) {
+        e.preventDefault();
+        if (!args.auditJournal.hasMore()) {
+            return;
+        }
+        args.auditJournal.fetch({ remove: false, data: { ...currentRequestFilter, after: args.auditJournal.nextAfter }});
     });
 }
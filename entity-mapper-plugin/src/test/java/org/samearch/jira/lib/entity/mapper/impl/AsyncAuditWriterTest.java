@@ -0,0 +1,243 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl;
+
+import org.junit.Test;
+import org.samearch.jira.lib.entity.mapper.api.AuditEventRecord;
+import org.samearch.jira.lib.entity.mapper.api.AuditJournalFilter;
+import org.samearch.jira.lib.entity.mapper.api.EntityMappingEvent;
+import org.samearch.jira.lib.entity.mapper.impl.audit.AsyncAuditWriter;
+import org.samearch.jira.lib.entity.mapper.impl.audit.AuditRecordStorage;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncAuditWriterTest {
+
+    @Test
+    public void testEventsAreWrittenInBatches() {
+        RecordingAuditStorage storage = new RecordingAuditStorage();
+        AsyncAuditWriter writer = new AsyncAuditWriter(storage, 100, 2, 50);
+
+        List<AuditEventRecord> events = Arrays.asList(event(1), event(2), event(3), event(4), event(5));
+        writer.write(events);
+        writer.destroy();
+
+        assertEquals(events, storage.getWrittenEvents());
+        storage.getBatchSizes().forEach(batchSize -> assertTrue(batchSize <= 2));
+        assertEquals(0, writer.getQueuedEventsCount());
+    }
+
+    /**
+     * Если очередь заполнена, событие должно быть записано синхронно в потоке вызывающего.
+     */
+    @Test
+    public void testFullQueueFallsBackToSynchronousWrite() throws InterruptedException {
+        RecordingAuditStorage storage = new RecordingAuditStorage();
+        storage.blockWrites();
+        AsyncAuditWriter writer = new AsyncAuditWriter(storage, 1, 10, 10);
+
+        writer.write(Collections.singletonList(event(1)));
+        storage.awaitBlockedWrite();
+        writer.write(Collections.singletonList(event(2)));
+        writer.write(Collections.singletonList(event(3)));
+
+        assertEquals(Collections.singletonList(event(3)), storage.getWrittenEvents());
+        assertEquals(Collections.singletonList(Thread.currentThread().getName()), storage.getWriterThreads());
+
+        storage.unblockWrites();
+        writer.destroy();
+
+        assertEquals(3, storage.getWrittenEvents().size());
+        assertTrue(storage.getWrittenEvents().containsAll(Arrays.asList(event(1), event(2), event(3))));
+    }
+
+    @Test
+    public void testEventsAfterDestroyAreWrittenSynchronously() {
+        RecordingAuditStorage storage = new RecordingAuditStorage();
+        AsyncAuditWriter writer = new AsyncAuditWriter(storage, 100, 10, 50);
+        writer.destroy();
+
+        writer.write(Collections.singletonList(event(1)));
+
+        assertEquals(Collections.singletonList(event(1)), storage.getWrittenEvents());
+        assertEquals(Collections.singletonList(Thread.currentThread().getName()), storage.getWriterThreads());
+    }
+
+    /**
+     * Пакет, который не удалось записать, должен записываться повторно, а не отбрасываться.
+     */
+    @Test
+    public void testFailedBatchIsRetried() throws InterruptedException {
+        RecordingAuditStorage storage = new RecordingAuditStorage();
+        storage.failWrites(3);
+        AsyncAuditWriter writer = new AsyncAuditWriter(storage, 100, 10, 50, 10);
+
+        List<AuditEventRecord> events = Arrays.asList(event(1), event(2));
+        writer.write(events);
+        storage.awaitWrittenEvents(events.size());
+
+        assertEquals(events, storage.getWrittenEvents());
+        assertEquals(3, storage.getFailedWritesCount());
+        writer.destroy();
+        assertEquals(events, storage.getWrittenEvents());
+    }
+
+    /**
+     * Пакет, запись которого не удалась до выключения плагина, должен записываться при выключении.
+     */
+    @Test
+    public void testUnwrittenBatchIsWrittenOnDestroy() throws InterruptedException {
+        RecordingAuditStorage storage = new RecordingAuditStorage();
+        storage.failWrites(1);
+        AsyncAuditWriter writer = new AsyncAuditWriter(storage, 100, 10, 50, TimeUnit.MINUTES.toMillis(1));
+
+        writer.write(Collections.singletonList(event(1)));
+        storage.awaitFailedWrite();
+        writer.destroy();
+
+        assertEquals(Collections.singletonList(event(1)), storage.getWrittenEvents());
+    }
+
+    private static AuditEventRecord event(int mappingId) {
+        AuditEventRecord event = new AuditEventRecord();
+        event.setMappingId(mappingId);
+        event.setEvent(EntityMappingEvent.CREATE);
+        event.setInitiator("admin");
+        return event;
+    }
+
+    private static class RecordingAuditStorage implements AuditRecordStorage {
+
+        private final List<AuditEventRecord> writtenEvents = new ArrayList<>();
+        private final List<Integer> batchSizes = new ArrayList<>();
+        private final List<String> writerThreads = new ArrayList<>();
+
+        private final CountDownLatch blockedWriteStarted = new CountDownLatch(1);
+        private volatile CountDownLatch writesUnblocked = new CountDownLatch(0);
+        private final CountDownLatch writeFailed = new CountDownLatch(1);
+        private int remainingFailures;
+        private int failedWritesCount;
+
+        void blockWrites() {
+            writesUnblocked = new CountDownLatch(1);
+        }
+
+        void unblockWrites() {
+            writesUnblocked.countDown();
+        }
+
+        void awaitBlockedWrite() throws InterruptedException {
+            assertTrue(blockedWriteStarted.await(5, TimeUnit.SECONDS));
+        }
+
+        synchronized void failWrites(int failuresCount) {
+            remainingFailures = failuresCount;
+        }
+
+        void awaitFailedWrite() throws InterruptedException {
+            assertTrue(writeFailed.await(5, TimeUnit.SECONDS));
+        }
+
+        synchronized void awaitWrittenEvents(int eventsCount) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+            while (writtenEvents.size() < eventsCount && System.currentTimeMillis() < deadline) {
+                wait(100);
+            }
+            assertEquals(eventsCount, writtenEvents.size());
+        }
+
+        synchronized int getFailedWritesCount() {
+            return failedWritesCount;
+        }
+
+        @Override
+        public AuditEventRecord addAuditEvent(AuditEventRecord auditEventRecord) {
+            return addAuditEvents(Collections.singletonList(auditEventRecord)).get(0);
+        }
+
+        @Override
+        public List<AuditEventRecord> addAuditEvents(List<AuditEventRecord> auditEventRecords) {
+            boolean flusherThread = Thread.currentThread().getName().equals("entity-mapper-audit-writer");
+            if (flusherThread && writesUnblocked.getCount() > 0) {
+                blockedWriteStarted.countDown();
+                try {
+                    writesUnblocked.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            synchronized (this) {
+                if (remainingFailures > 0) {
+                    remainingFailures--;
+                    failedWritesCount++;
+                    writeFailed.countDown();
+                    throw new IllegalStateException("Database is unavailable");
+                }
+                writtenEvents.addAll(auditEventRecords);
+                batchSizes.add(auditEventRecords.size());
+                writerThreads.add(Thread.currentThread().getName());
+                notifyAll();
+            }
+            return auditEventRecords;
+        }
+
+        @Override
+        public List<AuditEventRecord> getRecords(AuditJournalFilter filter) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<AuditEventRecord> getOldestRecords(ZonedDateTime olderThan, int limit) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public int countRecords() {
+            return getWrittenEvents().size();
+        }
+
+        @Override
+        public void deleteRecords(Collection<Long> eventIds) {
+            throw new UnsupportedOperationException();
+        }
+
+        synchronized List<AuditEventRecord> getWrittenEvents() {
+            return new ArrayList<>(writtenEvents);
+        }
+
+        synchronized List<Integer> getBatchSizes() {
+            return new ArrayList<>(batchSizes);
+        }
+
+        synchronized List<String> getWriterThreads() {
+            return new ArrayList<>(writerThreads);
+        }
+
+    }
+
+}
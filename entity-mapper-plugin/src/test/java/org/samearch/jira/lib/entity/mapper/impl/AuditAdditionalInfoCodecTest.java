@@ -0,0 +1,70 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl;
+
+import org.junit.Test;
+import org.samearch.jira.lib.entity.mapper.impl.audit.dao.util.AuditAdditionalInfoCodec;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class AuditAdditionalInfoCodecTest {
+
+    /**
+     * Ключи из словаря должны записываться номерами, остальные ключи - как есть.
+     */
+    @Test
+    public void testDictionaryKeysAreEncodedByCode() {
+        Map<String, String> additionalInfo = new HashMap<>();
+        additionalInfo.put("oldMapping.key", "org.CEO");
+        additionalInfo.put("oldMapping.value", "ivan.ivanov");
+        additionalInfo.put("newMapping.key", "org.CEO");
+        additionalInfo.put("newMapping.value", "petr.petrov");
+
+        String encoded = AuditAdditionalInfoCodec.encode(additionalInfo);
+
+        assertEquals("{\"4\":\"org.CEO\",\"5\":\"petr.petrov\",\"2\":\"org.CEO\",\"3\":\"ivan.ivanov\"}", encoded);
+        assertEquals(additionalInfo, AuditAdditionalInfoCodec.decode(encoded));
+    }
+
+    @Test
+    public void testRoundTripOfArbitraryInfo() {
+        Map<String, String> additionalInfo = new HashMap<>();
+        additionalInfo.put("key", "project.AD.duty");
+        additionalInfo.put("value", "${org.CEO}");
+        additionalInfo.put("!source", "import \"q\"");
+        additionalInfo.put("42", "");
+        additionalInfo.put("comment", null);
+
+        assertEquals(additionalInfo, AuditAdditionalInfoCodec.decode(AuditAdditionalInfoCodec.encode(additionalInfo)));
+        assertEquals(new HashMap<>(), AuditAdditionalInfoCodec.decode(AuditAdditionalInfoCodec.encode(new HashMap<>())));
+    }
+
+    @Test
+    public void testUnknownCodeIsRejected() {
+        try {
+            AuditAdditionalInfoCodec.decode("{\"99\":\"x\"}");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+}
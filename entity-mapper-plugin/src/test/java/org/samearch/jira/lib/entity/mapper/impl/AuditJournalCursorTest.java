@@ -0,0 +1,70 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl;
+
+import org.junit.Test;
+import org.samearch.jira.lib.entity.mapper.api.AuditEventRecord;
+import org.samearch.jira.lib.entity.mapper.api.AuditJournalCursor;
+import org.samearch.jira.lib.entity.mapper.api.AuditJournalFilter;
+import org.samearch.jira.lib.entity.mapper.impl.audit.util.AuditJournalFilterBuilder;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class AuditJournalCursorTest {
+
+    @Test
+    public void testCursorRoundTrip() {
+        AuditEventRecord eventRecord = new AuditEventRecord();
+        eventRecord.setId(42);
+        eventRecord.setDate(ZonedDateTime.of(2022, 3, 14, 15, 9, 26, 535_000_000, ZoneId.of("UTC")));
+
+        AuditJournalCursor cursor = AuditJournalCursor.of(eventRecord);
+        AuditJournalCursor parsedCursor = AuditJournalCursor.parse(cursor.asString());
+
+        assertEquals(cursor, parsedCursor);
+        assertEquals(42, parsedCursor.id());
+        assertEquals(eventRecord.getDate().toInstant(), parsedCursor.date().toInstant());
+    }
+
+    @Test
+    public void testMalformedCursorIsRejected() {
+        for (String malformedCursor : new String[] {"", "42", "a_1", "1_b", "1_2_3"}) {
+            try {
+                AuditJournalCursor.parse(malformedCursor);
+                fail(malformedCursor);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void testFilterKeepsCursor() {
+        AuditJournalCursor cursor = new AuditJournalCursor(ZonedDateTime.now(), 7);
+
+        AuditJournalFilter filter = new AuditJournalFilterBuilder().after(cursor).build();
+
+        assertEquals(cursor, filter.after());
+        assertNull(new AuditJournalFilterBuilder().build().after());
+    }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.samearch.jira.lib.entity.mapper.api.AuditEventRecord;
+import org.samearch.jira.lib.entity.mapper.api.AuditJournalFilter;
+import org.samearch.jira.lib.entity.mapper.api.EntityMappingEvent;
+import org.samearch.jira.lib.entity.mapper.impl.audit.AuditRecordStorage;
+import org.samearch.jira.lib.entity.mapper.impl.audit.retention.AuditJournalPruner;
+import org.samearch.jira.lib.entity.mapper.impl.audit.retention.AuditPruneResult;
+import org.samearch.jira.lib.entity.mapper.impl.audit.retention.AuditRetentionPolicy;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AuditJournalPrunerTest {
+
+    private static final ZonedDateTime NOW = ZonedDateTime.of(2022, 6, 1, 12, 0, 0, 0, ZoneId.of("UTC"));
+
+    private InMemoryAuditStorage storage;
+    private Path archiveDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        storage = new InMemoryAuditStorage();
+        // по событию в день, самое новое - вчерашнее
+        for (int daysAgo = 10; daysAgo >= 1; daysAgo--) {
+            storage.add(NOW.minusDays(daysAgo));
+        }
+        archiveDirectory = Files.createTempDirectory("entity-mapper-audit-archive");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> archiveFiles = Files.walk(archiveDirectory)) {
+            for (Path archiveFile : archiveFiles.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(archiveFile);
+            }
+        }
+    }
+
+    @Test
+    public void testEventsOlderThanMaxAgeArePrunedInBatches() throws IOException {
+        AuditJournalPruner pruner = new AuditJournalPruner(storage, 2, 100);
+
+        AuditPruneResult result = pruner.prune(AuditRetentionPolicy.of(5, null, false), NOW, archiveDirectory);
+
+        assertEquals(5, result.getDeletedCount());
+        assertFalse(result.isLimitReached());
+        assertNull(result.getArchiveFile());
+        assertEquals(5, storage.countRecords());
+        assertTrue(storage.getOldestRecords(NOW.minusDays(5), 100).isEmpty());
+        storage.deletedBatchSizes.forEach(batchSize -> assertTrue(batchSize <= 2));
+    }
+
+    @Test
+    public void testOldestEventsOverMaxRowsArePruned() throws IOException {
+        AuditJournalPruner pruner = new AuditJournalPruner(storage, 3, 100);
+
+        AuditPruneResult result = pruner.prune(AuditRetentionPolicy.of(null, 4, false), NOW, archiveDirectory);
+
+        assertEquals(6, result.getDeletedCount());
+        assertEquals(4, storage.countRecords());
+        assertEquals(NOW.minusDays(4), storage.getOldestRecords(null, 1).get(0).getDate());
+    }
+
+    @Test
+    public void testRunStopsAfterMaxBatches() throws IOException {
+        AuditJournalPruner pruner = new AuditJournalPruner(storage, 2, 2);
+
+        AuditPruneResult result = pruner.prune(AuditRetentionPolicy.of(null, 1, false), NOW, archiveDirectory);
+
+        assertEquals(4, result.getDeletedCount());
+        assertTrue(result.isLimitReached());
+        assertEquals(6, storage.countRecords());
+    }
+
+    @Test
+    public void testPrunedEventsAreArchived() throws IOException {
+        AuditJournalPruner pruner = new AuditJournalPruner(storage, 2, 100);
+
+        AuditPruneResult result = pruner.prune(AuditRetentionPolicy.of(7, null, true), NOW, archiveDirectory);
+
+        assertEquals(3, result.getDeletedCount());
+        Path archiveFile = result.getArchiveFile();
+        assertEquals(archiveDirectory, archiveFile.getParent());
+        List<String> archivedLines = readArchive(archiveFile);
+        assertEquals(3, archivedLines.size());
+        assertTrue(archivedLines.get(0), archivedLines.get(0).startsWith("{\"id\":1,\"date\":\"2022-05-22T12:00:00Z\""));
+        assertTrue(archivedLines.get(0), archivedLines.get(0).endsWith("\"additionalInformation\":{\"key\":\"key1\"}}"));
+    }
+
+    @Test
+    public void testNoArchiveIsCreatedWhenNothingIsPruned() throws IOException {
+        AuditJournalPruner pruner = new AuditJournalPruner(storage, 2, 100);
+
+        AuditPruneResult result = pruner.prune(AuditRetentionPolicy.of(30, 100, true), NOW, archiveDirectory);
+
+        assertEquals(0, result.getDeletedCount());
+        assertNull(result.getArchiveFile());
+        try (Stream<Path> archiveFiles = Files.list(archiveDirectory)) {
+            assertEquals(0, archiveFiles.count());
+        }
+    }
+
+    private static List<String> readArchive(Path archiveFile) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(archiveFile)), StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Хранилище событий в памяти; события добавляются в порядке возрастания даты.
+     */
+    private static class InMemoryAuditStorage implements AuditRecordStorage {
+
+        private final List<AuditEventRecord> records = new ArrayList<>();
+        private final List<Integer> deletedBatchSizes = new ArrayList<>();
+
+        void add(ZonedDateTime date) {
+            AuditEventRecord eventRecord = new AuditEventRecord();
+            eventRecord.setId(records.size() + 1);
+            eventRecord.setDate(date);
+            eventRecord.setEvent(EntityMappingEvent.CREATE);
+            eventRecord.setInitiator("admin");
+            eventRecord.setMappingId(records.size() + 1);
+            eventRecord.setAdditionalInformation(Collections.singletonMap("key", "key" + eventRecord.getId()));
+            records.add(eventRecord);
+        }
+
+        @Override
+        public AuditEventRecord addAuditEvent(AuditEventRecord auditEventRecord) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<AuditEventRecord> addAuditEvents(List<AuditEventRecord> auditEventRecords) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<AuditEventRecord> getRecords(AuditJournalFilter filter) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<AuditEventRecord> getOldestRecords(ZonedDateTime olderThan, int limit) {
+            return records.stream()
+                    .filter(eventRecord -> olderThan == null || eventRecord.getDate().isBefore(olderThan))
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public int countRecords() {
+            return records.size();
+        }
+
+        @Override
+        public void deleteRecords(Collection<Long> eventIds) {
+            deletedBatchSizes.add(eventIds.size());
+            records.removeIf(eventRecord -> eventIds.contains(eventRecord.getId()));
+        }
+
+    }
+
+}
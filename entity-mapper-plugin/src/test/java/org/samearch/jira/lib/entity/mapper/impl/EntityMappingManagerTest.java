@@ -0,0 +1,589 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.samearch.jira.lib.entity.mapper.api.EntityMapping;
+import org.samearch.jira.lib.entity.mapper.api.exception.ClosedChainEntityMappingException;
+import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingConflictException;
+import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingException;
+import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingVersionMismatchException;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.EntityMappingManager;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingLinksResolver;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsChangeDispatcher;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsImportResult;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsPage;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EntityMappingManagerTest {
+
+    private CountingEntityMappingStorage entityMappingStorage;
+    private EntityMappingManager entityMappingManager;
+    private MappingsChangeDispatcher changeDispatcher;
+
+    @Before
+    public void setUp() {
+        entityMappingStorage = new CountingEntityMappingStorage();
+        changeDispatcher = new MappingsChangeDispatcher();
+        entityMappingManager = new EntityMappingManager(
+                entityMappingStorage, new MappingLinksResolver(entityMappingStorage), changeDispatcher);
+    }
+
+    @After
+    public void tearDown() {
+        changeDispatcher.destroy();
+    }
+
+    /**
+     * После загрузки снимка чтения не должны обращаться к хранилищу.
+     */
+    @Test
+    public void testReadsAreServedFromSnapshot() throws EntityMappingException {
+        entityMappingStorage.createEntityMapping("org.CEO", "ivan.ivanov");
+        entityMappingStorage.createEntityMapping("project.AD.duty", "${org.CEO}");
+
+        assertEquals(Optional.of("ivan.ivanov"), entityMappingManager.getMappedValue("project.AD.duty"));
+        assertEquals(Optional.empty(), entityMappingManager.getMappedValue("project.XX.duty"));
+        assertTrue(entityMappingManager.isMappingPresent("org.CEO"));
+        assertFalse(entityMappingManager.isMappingPresent("project.XX.duty"));
+
+        assertEquals(0, entityMappingStorage.keyLookupsCount);
+        assertEquals(1, entityMappingStorage.fullLoadsCount);
+    }
+
+    /**
+     * Запросы к отсутствующим ключам не должны обращаться к хранилищу и не должны создавать новую версию снимка.
+     */
+    @Test
+    public void testAbsentKeysAreAnsweredWithoutStorage() throws EntityMappingException {
+        entityMappingManager.addMapping("project.AD.duty", "ivan.ivanov");
+        long snapshotVersion = entityMappingManager.getSnapshot().getVersion();
+
+        for (String projectKey : new String[] {"AB", "AC", "AE", "XX"}) {
+            String dutyKey = String.format("project.%s.duty", projectKey);
+            assertFalse(entityMappingManager.isMappingPresent(dutyKey));
+            assertEquals(Optional.empty(), entityMappingManager.getMappedValue(dutyKey));
+            assertFalse(entityMappingManager.getMapping(dutyKey).isPresent());
+            entityMappingManager.removeMapping(dutyKey);
+        }
+
+        assertEquals(0, entityMappingStorage.keyLookupsCount);
+        assertEquals(0, entityMappingStorage.deletesCount);
+        assertEquals(snapshotVersion, entityMappingManager.getSnapshot().getVersion());
+    }
+
+    /**
+     * Каждое изменение маппингов должно публиковать новую версию снимка, видимую читателям.
+     */
+    @Test
+    public void testWritesPublishNewSnapshotVersion() throws EntityMappingException {
+        long initialVersion = entityMappingManager.getSnapshot().getVersion();
+
+        EntityMapping createdMapping = entityMappingManager.addMapping("org.CEO", "ivan.ivanov");
+        assertEquals(initialVersion + 1, entityMappingManager.getSnapshot().getVersion());
+
+        entityMappingManager.updateMapping(createdMapping.getId(), "org.CTO", "petr.petrov");
+        assertEquals(initialVersion + 2, entityMappingManager.getSnapshot().getVersion());
+        assertFalse(entityMappingManager.isMappingPresent("org.CEO"));
+        assertEquals(Optional.of("petr.petrov"), entityMappingManager.getMappedValue("org.CTO"));
+
+        entityMappingManager.removeMapping("org.CTO");
+        assertEquals(initialVersion + 3, entityMappingManager.getSnapshot().getVersion());
+        assertFalse(entityMappingManager.getMapping(createdMapping.getId()).isPresent());
+    }
+
+    /**
+     * Изменение объекта, полученного от менеджера, не должно влиять на опубликованный снимок.
+     */
+    @Test
+    public void testReturnedMappingsAreDetachedFromSnapshot() throws EntityMappingException {
+        entityMappingManager.addMapping("org.CEO", "ivan.ivanov");
+
+        entityMappingManager.getMapping("org.CEO").ifPresent(mapping -> mapping.setValue("changed"));
+
+        assertEquals(Optional.of("ivan.ivanov"), entityMappingManager.getMappedValue("org.CEO"));
+    }
+
+    /**
+     * Изменение маппинга в середине цепочки ссылок должно изменять конечные значения всех ключей, ссылающихся на него.
+     */
+    @Test
+    public void testLinkedValuesAreRecomputedOnWrites() throws EntityMappingException {
+        entityMappingManager.addMapping("project.AD.duty", "${service.jira.duty}");
+        entityMappingManager.addMapping("service.jira.duty", "${org.CEO}");
+        assertEquals(Optional.empty(), entityMappingManager.getMappedValue("project.AD.duty"));
+
+        EntityMapping ceoMapping = entityMappingManager.addMapping("org.CEO", "ivan.ivanov");
+        assertEquals(Optional.of("ivan.ivanov"), entityMappingManager.getMappedValue("project.AD.duty"));
+
+        entityMappingManager.updateMapping(ceoMapping.getId(), "org.CEO", "petr.petrov");
+        assertEquals(Optional.of("petr.petrov"), entityMappingManager.getMappedValue("project.AD.duty"));
+        assertEquals(Optional.of("petr.petrov"), entityMappingManager.getMappedValue("service.jira.duty"));
+
+        entityMappingManager.updateMapping(ceoMapping.getId(), "org.CTO", "petr.petrov");
+        assertEquals(Optional.empty(), entityMappingManager.getMappedValue("project.AD.duty"));
+
+        entityMappingManager.removeMapping("service.jira.duty");
+        entityMappingManager.addMapping("service.jira.duty", "${org.CTO}");
+        assertEquals(Optional.of("petr.petrov"), entityMappingManager.getMappedValue("project.AD.duty"));
+    }
+
+    /**
+     * Запись, замыкающая цепочку ссылок, должна отклоняться, не изменяя ни хранилище, ни снимок.
+     */
+    @Test
+    public void testWritesClosingLinkChainAreRejected() throws EntityMappingException {
+        entityMappingManager.addMapping("project.AD.duty", "${service.jira.duty}");
+        EntityMapping serviceDuty = entityMappingManager.addMapping("service.jira.duty", "${org.CEO}");
+        EntityMapping ceoMapping = entityMappingManager.addMapping("org.CEO", "ivan.ivanov");
+        long versionBeforeRejectedWrites = entityMappingManager.getSnapshot().getVersion();
+
+        try {
+            entityMappingManager.updateMapping(ceoMapping.getId(), "org.CEO", "${project.AD.duty}");
+            fail("Closed chain must be rejected on update");
+        } catch (ClosedChainEntityMappingException expected) {
+            // ожидаемое поведение
+        }
+
+        try {
+            entityMappingManager.updateMapping(serviceDuty.getId(), "service.jira.duty", "${service.jira.duty}");
+            fail("Self link must be rejected");
+        } catch (ClosedChainEntityMappingException expected) {
+            // ожидаемое поведение
+        }
+
+        try {
+            entityMappingManager.removeMapping("org.CEO");
+            entityMappingManager.addMapping("org.CEO", "${project.AD.duty}");
+            fail("Closed chain must be rejected on create");
+        } catch (ClosedChainEntityMappingException expected) {
+            // ожидаемое поведение
+        }
+
+        assertEquals(versionBeforeRejectedWrites + 1, entityMappingManager.getSnapshot().getVersion());
+        assertNull(entityMappingStorage.getMappingForKey("org.CEO"));
+        assertEquals("${org.CEO}", entityMappingStorage.getMappingForKey("service.jira.duty").getValue());
+    }
+
+    /**
+     * Переименование ключа маппинга освобождает старый ключ, поэтому ссылка на него не считается замыканием цепочки.
+     */
+    @Test
+    public void testRenameDoesNotCloseChainThroughOldKey() throws EntityMappingException {
+        EntityMapping ceoMapping = entityMappingManager.addMapping("org.CEO", "ivan.ivanov");
+        entityMappingManager.addMapping("project.AD.duty", "${org.CEO}");
+
+        entityMappingManager.updateMapping(ceoMapping.getId(), "org.CTO", "${project.AD.duty}");
+
+        assertEquals(Optional.empty(), entityMappingManager.getMappedValue("org.CTO"));
+    }
+
+    @Test
+    public void testGetMappedValuesForKeys() throws EntityMappingException {
+        entityMappingManager.addMapping("org.CEO", "ivan.ivanov");
+        entityMappingManager.addMapping("project.AD.duty", "${org.CEO}");
+        entityMappingManager.addMapping("project.AB.duty", "${org.CTO}");
+
+        Map<String, String> mappedValues = entityMappingManager.getMappedValuesForKeys(
+                Arrays.asList("project.AD.duty", "project.AB.duty", "project.XX.duty", "org.CEO"));
+
+        Map<String, String> expectedValues = new HashMap<>();
+        expectedValues.put("project.AD.duty", "ivan.ivanov");
+        expectedValues.put("org.CEO", "ivan.ivanov");
+        assertEquals(expectedValues, mappedValues);
+        assertEquals(0, entityMappingStorage.keyLookupsCount);
+    }
+
+    /**
+     * Версия префикса должна изменяться и тогда, когда конечное значение ключа изменилось через ссылку.
+     */
+    @Test
+    public void testPrefixVersionFollowsLinkedValues() throws EntityMappingException {
+        EntityMapping ceoMapping = entityMappingManager.addMapping("org.CEO", "ivan.ivanov");
+        entityMappingManager.addMapping("project.AD.duty", "${org.CEO}");
+        entityMappingManager.addMapping("project.AB.duty", "petr.petrov");
+
+        long projectADVersion = entityMappingManager.getMappingsVersion("project.AD.");
+        long projectABVersion = entityMappingManager.getMappingsVersion("project.AB.");
+        long mappingsVersion = entityMappingManager.getMappingsVersion();
+
+        entityMappingManager.updateMapping(ceoMapping.getId(), "org.CEO", "sidor.sidorov");
+
+        assertTrue(entityMappingManager.getMappingsVersion() > mappingsVersion);
+        assertTrue(entityMappingManager.getMappingsVersion("project.AD.") > projectADVersion);
+        assertEquals(projectABVersion, entityMappingManager.getMappingsVersion("project.AB."));
+    }
+
+    @Test(expected = EntityMappingException.class)
+    public void testAddMapping_withExistingKey() throws EntityMappingException {
+        entityMappingManager.addMapping("org.CEO", "ivan.ivanov");
+        entityMappingManager.addMapping("org.CEO", "petr.petrov");
+    }
+
+    /**
+     * Замкнутая цепочка ссылок должна сообщаться в рамках контракта {@link EntityMappingConflictException}, который
+     * объявляют методы записи {@code EntityMapper}.
+     */
+    @Test
+    public void testClosedChainIsReportedAsConflict() throws EntityMappingException {
+        entityMappingManager.addMapping("org.CEO", "${org.CTO}");
+
+        try {
+            entityMappingManager.addMapping("org.CTO", "${org.CEO}");
+            fail("Closed chain must be rejected");
+        } catch (EntityMappingConflictException e) {
+            assertTrue(e instanceof ClosedChainEntityMappingException);
+        }
+        assertFalse(entityMappingManager.isMappingPresent("org.CTO"));
+    }
+
+    /**
+     * Конфликт, обнаруженный хранилищем (например, запись создана другим узлом кластера), не должен менять снимок.
+     */
+    @Test
+    public void testAddMapping_withConflictDetectedByStorage() throws EntityMappingException {
+        long initialVersion = entityMappingManager.getMappingsVersion();
+        entityMappingStorage.createEntityMapping("org.CEO", "ivan.ivanov");
+
+        try {
+            entityMappingManager.addMapping("org.CEO", "petr.petrov");
+            fail("Conflict must be reported by storage");
+        } catch (EntityMappingConflictException e) {
+            assertEquals(initialVersion, entityMappingManager.getMappingsVersion());
+            assertFalse(entityMappingManager.isMappingPresent("org.CEO"));
+        }
+    }
+
+    /**
+     * Импорт пакета должен сопоставлять ключи со снимком без обращений к хранилищу, отклонять значения, замыкающие
+     * цепочку ссылок с учетом других значений пакета, и публиковать одну новую версию снимка.
+     */
+    @Test
+    public void testImportMappings() throws EntityMappingException {
+        entityMappingManager.addMapping("org.CEO", "ivan.ivanov");
+        entityMappingManager.addMapping("org.CTO", "petr.petrov");
+        long versionBeforeImport = entityMappingManager.getMappingsVersion();
+
+        Map<String, String> importedValues = new LinkedHashMap<>();
+        importedValues.put("org.CEO", "ivan.ivanov");
+        importedValues.put("org.CTO", "sidor.sidorov");
+        importedValues.put("project.AD.duty", "${project.AB.duty}");
+        importedValues.put("project.AB.duty", "${project.AD.duty}");
+        importedValues.put("project.AC.duty", "${org.CTO}");
+
+        MappingsImportResult importResult = entityMappingManager.importMappings(importedValues);
+
+        assertEquals(1, importResult.getUnchangedCount());
+        assertEquals(1, importResult.getUpdatedMappings().size());
+        assertEquals("petr.petrov", importResult.getUpdatedMappings().get(0).getPreviousMapping().getValue());
+        assertEquals(2, importResult.getCreatedMappings().size());
+        assertEquals(Collections.singleton("project.AB.duty"), importResult.getRejectedKeys().keySet());
+
+        assertEquals(Optional.of("sidor.sidorov"), entityMappingManager.getMappedValue("project.AC.duty"));
+        assertTrue(entityMappingManager.isMappingPresent("project.AD.duty"));
+        assertFalse(entityMappingManager.isMappingPresent("project.AB.duty"));
+        assertEquals(0, entityMappingStorage.keyLookupsCount);
+        assertEquals(versionBeforeImport + 1, entityMappingManager.getMappingsVersion());
+    }
+
+    /**
+     * Хранилище, подсчитывающее обращения на чтение.
+     */
+    /**
+     * Если действие, выполняемое в транзакции записи (например, запись аудита), завершается ошибкой, то изменение
+     * маппинга не должно сохраняться ни в хранилище, ни в снимке.
+     */
+    @Test
+    public void testWriteIsRolledBackWhenInTransactionActionFails() throws EntityMappingException {
+        EntityMapping ceoMapping = entityMappingManager.addMapping("org.CEO", "ivan.ivanov");
+        long snapshotVersion = entityMappingManager.getSnapshot().getVersion();
+
+        try {
+            entityMappingManager.addMapping("org.CTO", "petr.petrov", createdMapping -> {
+                throw new IllegalStateException("Audit journal is unavailable");
+            });
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        try {
+            entityMappingManager.updateMapping(ceoMapping.getId(), "org.CEO", "petr.petrov", (previous, updated) -> {
+                throw new IllegalStateException("Audit journal is unavailable");
+            });
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        try {
+            entityMappingManager.removeMapping("org.CEO", removedMapping -> {
+                throw new IllegalStateException("Audit journal is unavailable");
+            });
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        assertNull(entityMappingStorage.getMappingForKey("org.CTO"));
+        assertEquals("ivan.ivanov", entityMappingStorage.getMappingForKey("org.CEO").getValue());
+        assertFalse(entityMappingManager.isMappingPresent("org.CTO"));
+        assertEquals(Optional.of("ivan.ivanov"), entityMappingManager.getMappedValue("org.CEO"));
+        assertEquals(snapshotVersion, entityMappingManager.getSnapshot().getVersion());
+    }
+
+    /**
+     * Обновление должно передавать действию в транзакции состояние записи до и после обновления, не перечитывая
+     * запись из хранилища.
+     */
+    @Test
+    public void testUpdateDoesNotRereadMapping() throws EntityMappingException {
+        EntityMapping ceoMapping = entityMappingManager.addMapping("org.CEO", "ivan.ivanov");
+
+        EntityMapping[] auditedMappings = new EntityMapping[2];
+        EntityMapping updatedMapping = entityMappingManager.updateMapping(
+                ceoMapping.getId(), "org.CEO", "petr.petrov", (previous, updated) -> {
+                    auditedMappings[0] = previous;
+                    auditedMappings[1] = updated;
+                });
+
+        assertEquals("petr.petrov", updatedMapping.getValue());
+        assertEquals("ivan.ivanov", auditedMappings[0].getValue());
+        assertEquals("petr.petrov", auditedMappings[1].getValue());
+        assertEquals(0, entityMappingStorage.idLookupsCount);
+        assertEquals(0, entityMappingStorage.keyLookupsCount);
+    }
+
+    /**
+     * Обновление с устаревшей ожидаемой версией должно отклоняться без изменения записи.
+     */
+    @Test
+    public void testUpdateWithStaleVersionIsRejected() throws EntityMappingException {
+        EntityMapping ceoMapping = entityMappingManager.addMapping("org.CEO", "ivan.ivanov");
+        long readVersion = ceoMapping.getVersion();
+        assertEquals(0, readVersion);
+
+        EntityMapping updatedMapping = entityMappingManager.updateMapping(
+                ceoMapping.getId(), readVersion, "org.CEO", "petr.petrov", (previous, updated) -> { });
+        assertEquals(1, updatedMapping.getVersion());
+
+        try {
+            entityMappingManager.updateMapping(
+                    ceoMapping.getId(), readVersion, "org.CEO", "sidor.sidorov", (previous, updated) -> { });
+            fail();
+        } catch (EntityMappingVersionMismatchException e) {
+            assertEquals(1, e.getCurrentVersion());
+        }
+
+        assertEquals(Optional.of("petr.petrov"), entityMappingManager.getMappedValue("org.CEO"));
+        assertEquals(1, entityMappingStorage.getMappingForKey("org.CEO").getVersion());
+    }
+
+    /**
+     * Если запись изменена в хранилище в обход снимка, то хранилище должно отклонить обновление, а снимок - получить
+     * текущее состояние записи.
+     */
+    @Test
+    public void testVersionMismatchDetectedByStorageRefreshesSnapshot() throws EntityMappingException {
+        EntityMapping ceoMapping = entityMappingManager.addMapping("org.CEO", "ivan.ivanov");
+        entityMappingStorage.updateEntityMapping(ceoMapping.getId(), 0, "org.CEO", "petr.petrov");
+
+        try {
+            entityMappingManager.updateMapping(ceoMapping.getId(), "org.CEO", "sidor.sidorov");
+            fail();
+        } catch (EntityMappingVersionMismatchException expected) {
+        }
+
+        assertEquals(Optional.of("petr.petrov"), entityMappingManager.getMappedValue("org.CEO"));
+        EntityMapping refreshedMapping = entityMappingManager.getMapping(ceoMapping.getId()).get();
+        assertEquals(1, refreshedMapping.getVersion());
+
+        EntityMapping updatedMapping = entityMappingManager.updateMapping(
+                ceoMapping.getId(), refreshedMapping.getVersion(), "org.CEO", "sidor.sidorov", (previous, updated) -> { });
+        assertEquals(2, updatedMapping.getVersion());
+    }
+
+    /**
+     * Страницы должны следовать друг за другом по ключу последней записи без пропусков и повторов, а количества
+     * записей - учитывать фильтр.
+     */
+    /**
+     * Записи, выполненные через менеджер, не вызывают перечитывания всех записей при сверке, а изменение в обход
+     * снимка после них - вызывает.
+     */
+    @Test
+    public void testLocalWritesDoNotTriggerRevalidationReload() throws EntityMappingException {
+        entityMappingManager.getSnapshot();
+        EntityMapping ceoMapping = entityMappingManager.addMapping("org.CEO", "ivan.ivanov");
+        entityMappingManager.updateMapping(ceoMapping.getId(), "org.CEO", "sidor.sidorov");
+        entityMappingManager.addMapping("org.CTO", "petr.petrov");
+        entityMappingManager.removeMapping("org.CTO");
+        entityMappingManager.importMappings(Collections.singletonMap("org.CFO", "anna.petrova"));
+        int fullLoadsCount = entityMappingStorage.fullLoadsCount;
+
+        assertFalse(entityMappingManager.revalidateSnapshot());
+        assertEquals(fullLoadsCount, entityMappingStorage.fullLoadsCount);
+
+        entityMappingStorage.createEntityMapping("org.CIO", "oleg.olegov");
+        assertTrue(entityMappingManager.revalidateSnapshot());
+        assertEquals(fullLoadsCount + 1, entityMappingStorage.fullLoadsCount);
+        assertEquals(Optional.of("oleg.olegov"), entityMappingManager.getMappedValue("org.CIO"));
+    }
+
+    /**
+     * Конфликт ключей, не отраженный в снимке, обновляет снимок, поэтому повторный импорт тех же ключей проходит.
+     */
+    @Test
+    public void testImportConflictRefreshesSnapshot() throws EntityMappingException {
+        entityMappingManager.getSnapshot();
+        entityMappingStorage.createEntityMapping("org.CEO", "ivan.ivanov");
+
+        Map<String, String> importedValues = new LinkedHashMap<>();
+        importedValues.put("org.CEO", "sidor.sidorov");
+        importedValues.put("org.CTO", "petr.petrov");
+        try {
+            entityMappingManager.importMappings(importedValues);
+            fail("Conflict with the mapping created outside the snapshot is expected");
+        } catch (EntityMappingConflictException expected) {
+            // ожидаемое поведение
+        }
+        assertEquals(Optional.of("ivan.ivanov"), entityMappingManager.getMappedValue("org.CEO"));
+        assertFalse(entityMappingManager.isMappingPresent("org.CTO"));
+
+        MappingsImportResult importResult = entityMappingManager.importMappings(importedValues);
+        assertEquals(1, importResult.getCreatedMappings().size());
+        assertEquals(1, importResult.getUpdatedMappings().size());
+        assertEquals(Optional.of("sidor.sidorov"), entityMappingManager.getMappedValue("org.CEO"));
+    }
+
+    /**
+     * Изменения, выполненные в хранилище в обход снимка (например, на другом узле кластера), попадают в снимок при
+     * сверке, а слушатели получают уведомления только об измененных ключах.
+     */
+    @Test
+    public void testRevalidationReloadsMappingsChangedOutsideSnapshot() throws EntityMappingException {
+        entityMappingStorage.createEntityMapping("org.CEO", "ivan.ivanov");
+        entityMappingStorage.createEntityMapping("org.CTO", "petr.petrov");
+        entityMappingStorage.createEntityMapping("project.AD.duty", "${org.CEO}");
+
+        assertEquals(Optional.of("ivan.ivanov"), entityMappingManager.getMappedValue("project.AD.duty"));
+        assertFalse(entityMappingManager.revalidateSnapshot());
+        long snapshotVersion = entityMappingManager.getSnapshot().getVersion();
+
+        EntityMapping ceoMapping = entityMappingStorage.getMappingForKey("org.CEO");
+        entityMappingStorage.updateEntityMapping(ceoMapping.getId(), ceoMapping.getVersion(), "org.CEO", "sidor.sidorov");
+        entityMappingStorage.deleteEntityMapping("org.CTO");
+        entityMappingStorage.createEntityMapping("org.CFO", "anna.petrova");
+        int fullLoadsCount = entityMappingStorage.fullLoadsCount;
+
+        assertTrue(entityMappingManager.revalidateSnapshot());
+        assertEquals(fullLoadsCount + 1, entityMappingStorage.fullLoadsCount);
+        assertEquals(Optional.of("sidor.sidorov"), entityMappingManager.getMappedValue("project.AD.duty"));
+        assertFalse(entityMappingManager.isMappingPresent("org.CTO"));
+        assertEquals(Optional.of("anna.petrova"), entityMappingManager.getMappedValue("org.CFO"));
+        assertEquals(
+                new HashSet<>(Arrays.asList("org.CEO", "org.CTO", "org.CFO", "project.AD.duty")),
+                entityMappingManager.getSnapshot().getChangedKeys());
+        assertTrue(entityMappingManager.getSnapshot().getVersion() > snapshotVersion);
+
+        assertFalse(entityMappingManager.revalidateSnapshot());
+        assertEquals(fullLoadsCount + 1, entityMappingStorage.fullLoadsCount);
+    }
+
+    @Test
+    public void testMappingsPages() throws EntityMappingException {
+        entityMappingStorage.createEntityMapping("org.CEO", "ivan.ivanov");
+        entityMappingStorage.createEntityMapping("project.AD.duty", "petr.petrov");
+        entityMappingStorage.createEntityMapping("project.AD.lead", "Ivan.Sidorov");
+        entityMappingStorage.createEntityMapping("project.B.duty", "${org.CEO}");
+
+        MappingsPage firstPage = entityMappingManager.getMappingsPage("", "", null, 3);
+        assertEquals(Arrays.asList("org.CEO", "project.AD.duty", "project.AD.lead"), keysOf(firstPage.getMappings()));
+        assertEquals("project.AD.lead", firstPage.getNextAfterKey());
+        assertEquals(4, firstPage.getMatchedCount());
+        assertEquals(4, firstPage.getTotalCount());
+
+        MappingsPage lastPage = entityMappingManager.getMappingsPage("", "", firstPage.getNextAfterKey(), 3);
+        assertEquals(Collections.singletonList("project.B.duty"), keysOf(lastPage.getMappings()));
+        assertNull(lastPage.getNextAfterKey());
+
+        MappingsPage searchPage = entityMappingManager.getMappingsPage("project.", "IVAN", null, 1);
+        assertEquals(Collections.singletonList("project.AD.lead"), keysOf(searchPage.getMappings()));
+        assertNull(searchPage.getNextAfterKey());
+        assertEquals(1, searchPage.getMatchedCount());
+        assertEquals(4, searchPage.getTotalCount());
+
+        MappingsPage exactPage = entityMappingManager.getMappingsPage("project.AD.", "", null, 2);
+        assertEquals(2, exactPage.getMappings().size());
+        assertNull(exactPage.getNextAfterKey());
+        assertEquals(0, entityMappingStorage.keyLookupsCount);
+    }
+
+    private static List<String> keysOf(List<EntityMapping> mappings) {
+        return mappings.stream().map(EntityMapping::getKey).collect(Collectors.toList());
+    }
+
+    private static class CountingEntityMappingStorage extends InMemoryEntityMappingStorage {
+
+        private int keyLookupsCount = 0;
+        private int idLookupsCount = 0;
+        private int fullLoadsCount = 0;
+        private int deletesCount = 0;
+
+        @Override
+        public Set<EntityMapping> getEntityMappings() {
+            fullLoadsCount++;
+            return super.getEntityMappings();
+        }
+
+        @Override
+        public EntityMapping getMappingForKey(String key) {
+            keyLookupsCount++;
+            return super.getMappingForKey(key);
+        }
+
+        @Override
+        public EntityMapping getMappingById(int mappingId) {
+            idLookupsCount++;
+            return super.getMappingById(mappingId);
+        }
+
+        @Override
+        public void deleteEntityMapping(String key) {
+            deletesCount++;
+            super.deleteEntityMapping(key);
+        }
+
+    }
+
+}
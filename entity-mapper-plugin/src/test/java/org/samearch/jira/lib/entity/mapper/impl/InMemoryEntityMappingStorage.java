@@ -18,23 +18,41 @@
 package org.samearch.jira.lib.entity.mapper.impl;
 
 import org.samearch.jira.lib.entity.mapper.api.EntityMapping;
+import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingConflictException;
+import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingVersionMismatchException;
 import org.samearch.jira.lib.entity.mapper.impl.mapping.EntityMappingStorage;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsStorageStamp;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 public class InMemoryEntityMappingStorage implements EntityMappingStorage {
     private int entitiesCounter = 0;
+    private long changesCounter = 0;
     private final HashMap<String, EntityMapping> mappingsByKey = new HashMap<>(100);
     private final HashMap<Integer, EntityMapping> mappingsById = new HashMap<>(100);
+    /**
+     * Журнал отката текущей транзакции: исходное состояние записей, измененных в транзакции ({@code null} - записи до
+     * транзакции не было), или {@code null} вне транзакции.
+     */
+    private Map<Integer, EntityMapping> undoLog;
 
     @Override
-    public synchronized EntityMapping createEntityMapping(String key, String value) {
+    public synchronized EntityMapping createEntityMapping(String key, String value) throws EntityMappingConflictException {
+        if (mappingsByKey.containsKey(key)) {
+            throw new EntityMappingConflictException(key);
+        }
+
         EntityMapping createdEntityMapping = new EntityMapping();
 
         createdEntityMapping.setId(entitiesCounter++);
+        recordUndo(createdEntityMapping.getId());
+        changesCounter++;
         createdEntityMapping.setKey(key);
         createdEntityMapping.setValue(value);
 
@@ -44,41 +62,84 @@ public class InMemoryEntityMappingStorage implements EntityMappingStorage {
         return createdEntityMapping;
     }
 
+    @Override
+    public synchronized List<EntityMapping> createEntityMappings(Map<String, String> valuesByKey)
+            throws EntityMappingConflictException {
+        for (String key : valuesByKey.keySet()) {
+            if (mappingsByKey.containsKey(key)) {
+                throw new EntityMappingConflictException(key);
+            }
+        }
+
+        List<EntityMapping> createdMappings = new ArrayList<>();
+        for (Map.Entry<String, String> entry : valuesByKey.entrySet()) {
+            createdMappings.add(createEntityMapping(entry.getKey(), entry.getValue()));
+        }
+        return createdMappings;
+    }
+
     @Override
     public void deleteEntityMapping(String key) {
         EntityMapping savedMapping = mappingsByKey.get(key);
         if (savedMapping != null) {
+            recordUndo(savedMapping.getId());
             mappingsByKey.remove(key);
             mappingsById.remove(savedMapping.getId());
+            changesCounter++;
         }
     }
 
     @Override
-    public EntityMapping updateEntityMapping(int mappingId, String newMappingKey, String newMappingValue) {
+    public EntityMapping updateEntityMapping(int mappingId, long expectedVersion, String newMappingKey, String newMappingValue)
+            throws EntityMappingConflictException {
         EntityMapping savedMapping = mappingsById.get(mappingId);
+        checkVersion(savedMapping, expectedVersion);
+
+        EntityMapping mappingForNewKey = mappingsByKey.get(newMappingKey);
+        if (mappingForNewKey != null && mappingForNewKey.getId() != mappingId) {
+            throw new EntityMappingConflictException(newMappingKey);
+        }
 
         if (savedMapping != null) {
+            recordUndo(mappingId);
             String oldMappingKey = savedMapping.getKey();
 
             savedMapping.setKey(newMappingKey);
             savedMapping.setValue(newMappingValue);
+            savedMapping.setVersion(savedMapping.getVersion() + 1);
+            changesCounter++;
 
             mappingsByKey.remove(oldMappingKey);
             mappingsByKey.put(newMappingKey, savedMapping);
         }
-        return getMappingById(mappingId);
+        return savedMapping;
     }
 
     @Override
-    public Set<EntityMapping> getEntityMappings() {
-        return new HashSet<>(mappingsByKey.values());
+    public synchronized List<EntityMapping> updateEntityMappings(Collection<EntityMapping> mappings)
+            throws EntityMappingConflictException {
+        for (EntityMapping mapping : mappings) {
+            checkVersion(mappingsById.get(mapping.getId()), mapping.getVersion());
+            EntityMapping mappingForNewKey = mappingsByKey.get(mapping.getKey());
+            if (mappingForNewKey != null && mappingForNewKey.getId() != mapping.getId()) {
+                throw new EntityMappingConflictException(mapping.getKey());
+            }
+        }
+
+        List<EntityMapping> updatedMappings = new ArrayList<>();
+        for (EntityMapping mapping : mappings) {
+            EntityMapping updatedMapping = updateEntityMapping(
+                    mapping.getId(), mapping.getVersion(), mapping.getKey(), mapping.getValue());
+            if (updatedMapping != null) {
+                updatedMappings.add(updatedMapping);
+            }
+        }
+        return updatedMappings;
     }
 
     @Override
-    public Set<EntityMapping> getEntityMappingsLike(String keyFilter) {
-        return mappingsByKey.values().stream()
-                .filter(mapping -> mapping.getKey().startsWith(keyFilter))
-                .collect(Collectors.toSet());
+    public Set<EntityMapping> getEntityMappings() {
+        return new HashSet<>(mappingsByKey.values());
     }
 
     @Override
@@ -86,8 +147,96 @@ public class InMemoryEntityMappingStorage implements EntityMappingStorage {
         return mappingsByKey.get(key);
     }
 
+    @Override
+    public List<EntityMapping> getMappingsForKeys(Collection<String> keys) {
+        List<EntityMapping> mappings = new ArrayList<>();
+        for (String key : keys) {
+            EntityMapping mapping = mappingsByKey.get(key);
+            if (mapping != null) {
+                mappings.add(mapping);
+            }
+        }
+        return mappings;
+    }
+
     @Override
     public EntityMapping getMappingById(int mappingId) {
         return mappingsById.get(mappingId);
     }
+
+    @Override
+    public synchronized MappingsStorageStamp getStorageStamp() {
+        return new MappingsStorageStamp(mappingsById.size(), entitiesCounter, changesCounter);
+    }
+
+    /**
+     * Эмулирует откат транзакции: при ошибке операции восстанавливает записи, измененные в транзакции, по журналу
+     * отката. Вложенная транзакция присоединяется к внешней.
+     */
+    @Override
+    public synchronized <T> T executeInTransaction(TransactionalOperation<T> operation)
+            throws EntityMappingConflictException {
+        if (undoLog != null) {
+            return operation.execute();
+        }
+
+        int savedEntitiesCounter = entitiesCounter;
+        undoLog = new HashMap<>();
+
+        boolean committed = false;
+        try {
+            T result = operation.execute();
+            committed = true;
+            return result;
+        } finally {
+            if (!committed) {
+                entitiesCounter = savedEntitiesCounter;
+                rollback();
+            }
+            undoLog = null;
+        }
+    }
+
+    /**
+     * Запоминает в журнале отката исходное состояние записи перед ее первым изменением в транзакции.
+     */
+    private void recordUndo(int mappingId) {
+        if (undoLog != null && !undoLog.containsKey(mappingId)) {
+            EntityMapping savedMapping = mappingsById.get(mappingId);
+            undoLog.put(mappingId, savedMapping != null ? copyOf(savedMapping) : null);
+        }
+    }
+
+    private void rollback() {
+        // Сначала удаляются текущие состояния всех измененных записей: в транзакции записи могли обменяться ключами
+        for (Integer mappingId : undoLog.keySet()) {
+            EntityMapping currentMapping = mappingsById.remove(mappingId);
+            if (currentMapping != null) {
+                mappingsByKey.remove(currentMapping.getKey());
+            }
+        }
+        for (EntityMapping savedMapping : undoLog.values()) {
+            if (savedMapping != null) {
+                mappingsById.put(savedMapping.getId(), savedMapping);
+                mappingsByKey.put(savedMapping.getKey(), savedMapping);
+            }
+        }
+    }
+
+    private static void checkVersion(EntityMapping savedMapping, long expectedVersion)
+            throws EntityMappingVersionMismatchException {
+        if (savedMapping != null && savedMapping.getVersion() != expectedVersion) {
+            throw new EntityMappingVersionMismatchException(
+                    savedMapping.getId(), expectedVersion, savedMapping.getVersion());
+        }
+    }
+
+    private static EntityMapping copyOf(EntityMapping mapping) {
+        EntityMapping copy = new EntityMapping();
+        copy.setId(mapping.getId());
+        copy.setKey(mapping.getKey());
+        copy.setValue(mapping.getValue());
+        copy.setVersion(mapping.getVersion());
+        return copy;
+    }
 }
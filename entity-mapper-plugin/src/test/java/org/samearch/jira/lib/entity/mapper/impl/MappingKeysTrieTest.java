@@ -0,0 +1,206 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl;
+
+import org.junit.Test;
+import org.samearch.jira.lib.entity.mapper.api.EntityMapping;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingKeysTrie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class MappingKeysTrieTest {
+
+    @Test
+    public void testPrefixQueries() {
+        MappingKeysTrie trie = MappingKeysTrie.empty()
+                .put("project.AD.duty", mapping("project.AD.duty"), 1)
+                .put("project.AD.lead", mapping("project.AD.lead"), 1)
+                .put("project.ADM.duty", mapping("project.ADM.duty"), 1)
+                .put("project.B.duty", mapping("project.B.duty"), 1)
+                .put("org.CEO", mapping("org.CEO"), 1);
+
+        assertEquals(5, trie.size());
+        assertEquals(2, trie.countWithPrefix("project.AD."));
+        assertEquals(3, trie.countWithPrefix("project.AD"));
+        assertEquals(4, trie.countWithPrefix("project."));
+        assertEquals(0, trie.countWithPrefix("project.C"));
+        assertEquals(1, trie.countWithPrefix("project.AD.duty"));
+        assertEquals(0, trie.countWithPrefix("project.AD.duty.x"));
+        assertEquals(5, trie.countWithPrefix(""));
+
+        assertEquals(
+                Arrays.asList("project.AD.duty", "project.AD.lead", "project.ADM.duty"),
+                keysOf(trie.getWithPrefix("project.AD")));
+        assertEquals("org.CEO", trie.get("org.CEO").getKey());
+        assertNull(trie.get("org.CE"));
+        assertNull(trie.get("project.AD"));
+    }
+
+    /**
+     * Обход после ключа должен начинаться со следующего за ним ключа, в том числе когда самого ключа в дереве нет.
+     */
+    @Test
+    public void testIterationAfterKey() {
+        MappingKeysTrie trie = MappingKeysTrie.empty()
+                .put("project.AD.duty", mapping("project.AD.duty"), 1)
+                .put("project.AD.lead", mapping("project.AD.lead"), 1)
+                .put("project.ADM.duty", mapping("project.ADM.duty"), 1)
+                .put("project.B.duty", mapping("project.B.duty"), 1)
+                .put("org.CEO", mapping("org.CEO"), 1);
+
+        assertEquals(
+                Arrays.asList("project.AD.lead", "project.ADM.duty", "project.B.duty"),
+                keysOf(toList(trie.iteratorWithPrefix("", "project.AD.duty"))));
+        assertEquals(
+                Arrays.asList("project.ADM.duty"),
+                keysOf(toList(trie.iteratorWithPrefix("project.AD", "project.AD.m"))));
+        assertEquals(
+                Arrays.asList("project.AD.duty", "project.AD.lead"),
+                keysOf(toList(trie.iteratorWithPrefix("project.AD.", "org.CEO"))));
+        assertEquals(0, toList(trie.iteratorWithPrefix("project.AD.", "project.B")).size());
+        assertEquals(5, toList(trie.iteratorWithPrefix("", null)).size());
+    }
+
+    /**
+     * Изменение дерева не должно влиять на его предыдущие версии.
+     */
+    @Test
+    public void testModificationsDoNotAffectPreviousVersions() {
+        MappingKeysTrie first = MappingKeysTrie.empty()
+                .put("project.AD.duty", mapping("project.AD.duty"), 1)
+                .put("project.AD.lead", mapping("project.AD.lead"), 1);
+
+        MappingKeysTrie second = first.remove("project.AD.lead", 2).put("project.AB.duty", mapping("project.AB.duty"), 2);
+
+        assertEquals(Arrays.asList("project.AD.duty", "project.AD.lead"), keysOf(first.getWithPrefix("project.")));
+        assertEquals(Arrays.asList("project.AB.duty", "project.AD.duty"), keysOf(second.getWithPrefix("project.")));
+        assertSame(second, second.remove("project.XX.duty", 3));
+    }
+
+    /**
+     * Версия префикса должна изменяться при любом изменении ключей с этим префиксом, включая удаление последнего из них.
+     */
+    @Test
+    public void testPrefixVersions() {
+        MappingKeysTrie trie = MappingKeysTrie.empty()
+                .put("project.AD.duty", mapping("project.AD.duty"), 1)
+                .put("project.AB.duty", mapping("project.AB.duty"), 2)
+                .put("org.CEO", mapping("org.CEO"), 3);
+
+        assertEquals(1, trie.getVersionWithPrefix("project.AD."));
+        assertEquals(2, trie.getVersionWithPrefix("project.A"));
+        assertEquals(3, trie.getVersionWithPrefix(""));
+
+        trie = trie.put("project.AD.lead", mapping("project.AD.lead"), 4);
+        assertEquals(4, trie.getVersionWithPrefix("project.AD."));
+        assertEquals(2, trie.getVersionWithPrefix("project.AB."));
+
+        trie = trie.remove("project.AD.duty", 5).remove("project.AD.lead", 6);
+        assertEquals(0, trie.countWithPrefix("project.AD."));
+        assertEquals(6, trie.getVersionWithPrefix("project.AD."));
+
+        trie = trie.put("project.AD.duty", mapping("project.AD.duty"), 7);
+        assertEquals(7, trie.getVersionWithPrefix("project.AD."));
+    }
+
+    /**
+     * Результаты дерева должны совпадать с результатами упорядоченного словаря при случайной последовательности
+     * добавлений и удалений.
+     */
+    @Test
+    public void testRandomOperationsMatchSortedMap() {
+        Random random = new Random(42);
+        TreeMap<String, EntityMapping> expected = new TreeMap<>();
+        MappingKeysTrie trie = MappingKeysTrie.empty();
+
+        for (int i = 0; i < 5000; i++) {
+            String key = randomKey(random);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                trie = trie.remove(key, i);
+            } else {
+                EntityMapping mapping = mapping(key);
+                expected.put(key, mapping);
+                trie = trie.put(key, mapping, i);
+            }
+        }
+
+        assertEquals(expected.size(), trie.size());
+        for (int i = 0; i < 500; i++) {
+            String prefix = randomKey(random).substring(0, random.nextInt(5));
+            List<String> expectedKeys = expected.keySet().stream()
+                    .filter(key -> key.startsWith(prefix))
+                    .collect(Collectors.toList());
+            assertEquals(expectedKeys, keysOf(trie.getWithPrefix(prefix)));
+            List<EntityMapping> iteratedMappings = new ArrayList<>();
+            trie.iteratorWithPrefix(prefix).forEachRemaining(iteratedMappings::add);
+            assertEquals(expectedKeys, keysOf(iteratedMappings));
+            assertEquals(expectedKeys.size(), trie.countWithPrefix(prefix));
+
+            String afterKey = random.nextBoolean()
+                    ? prefix + randomKey(random).substring(0, random.nextInt(5))
+                    : randomKey(random).substring(0, random.nextInt(5));
+            List<String> expectedKeysAfter = expectedKeys.stream()
+                    .filter(key -> key.compareTo(afterKey) > 0)
+                    .collect(Collectors.toList());
+            List<EntityMapping> iteratedMappingsAfter = new ArrayList<>();
+            trie.iteratorWithPrefix(prefix, afterKey).forEachRemaining(iteratedMappingsAfter::add);
+            assertEquals(expectedKeysAfter, keysOf(iteratedMappingsAfter));
+        }
+        for (String key : expected.keySet()) {
+            assertSame(expected.get(key), trie.get(key));
+        }
+    }
+
+    private static String randomKey(Random random) {
+        StringBuilder key = new StringBuilder();
+        int length = 4 + random.nextInt(4);
+        for (int i = 0; i < length; i++) {
+            key.append("ab.c".charAt(random.nextInt(4)));
+        }
+        return key.toString();
+    }
+
+    private static EntityMapping mapping(String key) {
+        EntityMapping mapping = new EntityMapping();
+        mapping.setKey(key);
+        mapping.setValue("value");
+        return mapping;
+    }
+
+    private static List<EntityMapping> toList(Iterator<EntityMapping> mappings) {
+        List<EntityMapping> list = new ArrayList<>();
+        mappings.forEachRemaining(list::add);
+        return list;
+    }
+
+    private static List<String> keysOf(List<EntityMapping> mappings) {
+        return mappings.stream().map(EntityMapping::getKey).collect(Collectors.toList());
+    }
+
+}
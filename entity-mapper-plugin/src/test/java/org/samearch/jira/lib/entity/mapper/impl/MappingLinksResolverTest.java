@@ -21,6 +21,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.samearch.jira.lib.entity.mapper.api.EntityMapping;
 import org.samearch.jira.lib.entity.mapper.api.exception.ClosedChainEntityMappingException;
+import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingConflictException;
+import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingException;
 import org.samearch.jira.lib.entity.mapper.impl.mapping.EntityMappingStorage;
 import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingLinksResolver;
 
@@ -43,7 +45,7 @@ public class MappingLinksResolverTest {
      * Проверка резолвинга нормальной цепочки маппингов.
      */
     @Test
-    public void testRecursiveLinkResoling() throws ClosedChainEntityMappingException {
+    public void testRecursiveLinkResoling() throws EntityMappingException {
         String sourceMappingKey = "service.atlassian.support.project.id";
         String destinationMappingKey = "system.project.AD.id";
         String destinationMappingValue = "12345";
@@ -70,7 +72,7 @@ public class MappingLinksResolverTest {
      * Проверка резолвинга маппингов с циклической ссылкой.
      */
     @Test(expected = ClosedChainEntityMappingException.class)
-    public void testRecursiveLinkResolving_withClosedChain() throws ClosedChainEntityMappingException {
+    public void testRecursiveLinkResolving_withClosedChain() throws EntityMappingException {
         String firstMappingKey = generateRandomMappingKey();
         String secondMappingKey = generateRandomMappingKey();
         String thirdMappingKey = generateRandomMappingKey();
@@ -87,7 +89,7 @@ public class MappingLinksResolverTest {
      * При правильной обработке MappingLinkResolver должен вернуть незамапленный ключ и не упасть с NPE.
      */
     @Test
-    public void test_withNonExistingTargetKey() throws ClosedChainEntityMappingException {
+    public void test_withNonExistingTargetKey() throws EntityMappingException {
         String firstMappingKey = generateRandomMappingKey();
         String secondMappingKey = generateRandomMappingKey();
 
@@ -112,7 +114,7 @@ public class MappingLinksResolverTest {
             String sourceMappingKey,
             String destinationMappingKey,
             String destinationMappingValue,
-            int linksChainLength) {
+            int linksChainLength) throws EntityMappingConflictException {
         EntityMapping headMapping = new EntityMapping();
         headMapping.setKey(sourceMappingKey);
 
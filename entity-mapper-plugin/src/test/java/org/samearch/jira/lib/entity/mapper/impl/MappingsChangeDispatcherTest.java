@@ -0,0 +1,106 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.samearch.jira.lib.entity.mapper.api.EntityMapping;
+import org.samearch.jira.lib.entity.mapper.api.EntityMappingsChangeEvent;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.EntityMappingManager;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingLinksResolver;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsChangeDispatcher;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class MappingsChangeDispatcherTest {
+
+    private static final long COALESCING_DELAY_MS = 300;
+
+    private MappingsChangeDispatcher changeDispatcher;
+    private EntityMappingManager entityMappingManager;
+
+    private final BlockingQueue<EntityMappingsChangeEvent> projectEvents = new LinkedBlockingQueue<>();
+    private final BlockingQueue<EntityMappingsChangeEvent> ceoEvents = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() {
+        InMemoryEntityMappingStorage entityMappingStorage = new InMemoryEntityMappingStorage();
+        changeDispatcher = new MappingsChangeDispatcher(COALESCING_DELAY_MS);
+        entityMappingManager = new EntityMappingManager(
+                entityMappingStorage, new MappingLinksResolver(entityMappingStorage), changeDispatcher);
+
+        changeDispatcher.addListener(key -> key.startsWith("project."), projectEvents::add);
+        changeDispatcher.addListener("org.CEO"::equals, ceoEvents::add);
+    }
+
+    @After
+    public void tearDown() {
+        changeDispatcher.destroy();
+    }
+
+    /**
+     * Серия изменений должна доставляться одним событием, содержащим только ключи, на которые подписан слушатель.
+     */
+    @Test
+    public void testBurstOfChangesIsCoalesced() throws Exception {
+        Set<String> addedProjectKeys = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            String key = String.format("project.P%d.duty", i);
+            entityMappingManager.addMapping(key, "ivan.ivanov");
+            addedProjectKeys.add(key);
+        }
+        entityMappingManager.addMapping("org.CTO", "petr.petrov");
+
+        EntityMappingsChangeEvent changeEvent = projectEvents.poll(5, TimeUnit.SECONDS);
+        assertNotNull(changeEvent);
+        assertFalse(changeEvent.isAllMappingsChanged());
+        assertEquals(addedProjectKeys, changeEvent.getChangedKeys());
+        assertEquals(entityMappingManager.getMappingsVersion(), changeEvent.getMappingsVersion());
+
+        assertNull(projectEvents.poll(2 * COALESCING_DELAY_MS, TimeUnit.MILLISECONDS));
+        assertNull(ceoEvents.poll(0, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Слушатель ключа должен получать уведомление и тогда, когда конечное значение ключа изменилось через ссылку.
+     */
+    @Test
+    public void testListenersAreNotifiedAboutLinkedValues() throws Exception {
+        EntityMapping ctoMapping = entityMappingManager.addMapping("org.CTO", "petr.petrov");
+        entityMappingManager.addMapping("org.CEO", "${org.CTO}");
+        assertNotNull(ceoEvents.poll(5, TimeUnit.SECONDS));
+
+        entityMappingManager.updateMapping(ctoMapping.getId(), "org.CTO", "sidor.sidorov");
+
+        EntityMappingsChangeEvent changeEvent = ceoEvents.poll(5, TimeUnit.SECONDS);
+        assertNotNull(changeEvent);
+        assertEquals(new HashSet<>(Arrays.asList("org.CEO")), changeEvent.getChangedKeys());
+    }
+
+}
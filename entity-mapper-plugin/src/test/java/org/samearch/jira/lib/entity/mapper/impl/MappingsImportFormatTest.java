@@ -0,0 +1,161 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl;
+
+import org.junit.Test;
+import org.samearch.jira.lib.entity.mapper.api.EntityMapping;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.format.ExportedMappingsWriter;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.format.ImportedMappingRow;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.format.ImportedMappingsReader;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.format.MappingsExportFormat;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.format.MappingsImportFormat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class MappingsImportFormatTest {
+
+    @Test
+    public void testJsonArray() throws IOException {
+        List<ImportedMappingRow> rows = readAll(MappingsImportFormat.JSON,
+                "[{\"id\": 10, \"key\": \"org.CEO\", \"value\": \"ivan.ivanov\"},"
+                        + " 42,"
+                        + " {\"value\": \"${org.CEO}\", \"key\": \"project.AD.duty\", \"extra\": {\"a\": [1, 2]}}]");
+
+        assertEquals(3, rows.size());
+        assertRow(rows.get(0), 1, "org.CEO", "ivan.ivanov");
+        assertNotNull(rows.get(1).getError());
+        assertRow(rows.get(2), 3, "project.AD.duty", "${org.CEO}");
+    }
+
+    @Test(expected = IOException.class)
+    public void testJsonArray_withMalformedData() throws IOException {
+        readAll(MappingsImportFormat.JSON, "[{\"key\": \"org.CEO\", \"value\": \"ivan.ivanov\"}, {\"key\": ");
+    }
+
+    /**
+     * Ошибка разбора строки NDJSON не должна прерывать чтение следующих строк.
+     */
+    @Test
+    public void testNdjson() throws IOException {
+        List<ImportedMappingRow> rows = readAll(MappingsImportFormat.NDJSON,
+                "{\"key\": \"org.CEO\", \"value\": \"ivan.ivanov\"}\n"
+                        + "\n"
+                        + "{\"key\": \"broken\n"
+                        + "{\"key\": \"org.CTO\", \"value\": \"petr.petrov\"}\n");
+
+        assertEquals(3, rows.size());
+        assertRow(rows.get(0), 1, "org.CEO", "ivan.ivanov");
+        assertEquals(3, rows.get(1).getRowNumber());
+        assertNotNull(rows.get(1).getError());
+        assertRow(rows.get(2), 4, "org.CTO", "petr.petrov");
+    }
+
+    @Test
+    public void testCsv() throws IOException {
+        List<ImportedMappingRow> rows = readAll(MappingsImportFormat.CSV,
+                "\uFEFFkey,value\r\n"
+                        + "org.CEO,ivan.ivanov\r\n"
+                        + "\"project.AD.duty\",\"${org.CEO}\"\r\n"
+                        + "\"quoted \"\"key\"\", with comma\",\"multi\nline\"\n"
+                        + "only-key\n"
+                        + "\n"
+                        + "org.CTO,petr.petrov");
+
+        assertEquals(5, rows.size());
+        assertRow(rows.get(0), 2, "org.CEO", "ivan.ivanov");
+        assertRow(rows.get(1), 3, "project.AD.duty", "${org.CEO}");
+        assertRow(rows.get(2), 4, "quoted \"key\", with comma", "multi\nline");
+        assertEquals(6, rows.get(3).getRowNumber());
+        assertNotNull(rows.get(3).getError());
+        assertRow(rows.get(4), 8, "org.CTO", "petr.petrov");
+    }
+
+    @Test
+    public void testFormatForContentType() {
+        assertEquals(MappingsImportFormat.CSV, MappingsImportFormat.forContentType("text/csv; charset=UTF-8").get());
+        assertEquals(MappingsImportFormat.NDJSON, MappingsImportFormat.forContentType("application/x-ndjson").get());
+        assertFalse(MappingsImportFormat.forContentType("text/plain").isPresent());
+    }
+
+    /**
+     * Выгруженные данные должны импортироваться в том же формате без потерь.
+     */
+    @Test
+    public void testExportedDataIsImportable() throws IOException {
+        List<EntityMapping> mappings = Arrays.asList(
+                mapping(1, "org.CEO", "ivan.ivanov"),
+                mapping(2, "project.AD.duty", "${org.CEO}"),
+                mapping(3, "quoted \"key\"", "multi\nline"));
+
+        for (MappingsExportFormat exportFormat : MappingsExportFormat.values()) {
+            ByteArrayOutputStream exportedData = new ByteArrayOutputStream();
+            try (ExportedMappingsWriter writer = exportFormat.openWriter(exportedData)) {
+                for (EntityMapping mapping : mappings) {
+                    writer.write(mapping);
+                }
+            }
+
+            MappingsImportFormat importFormat = MappingsImportFormat.forContentType(exportFormat.getMediaType()).get();
+            List<ImportedMappingRow> rows = readAll(importFormat, exportedData.toString("UTF-8"));
+
+            assertEquals(mappings.size(), rows.size());
+            for (int i = 0; i < mappings.size(); i++) {
+                assertRow(rows.get(i), i + 1, mappings.get(i).getKey(), mappings.get(i).getValue());
+            }
+        }
+    }
+
+    private static EntityMapping mapping(int id, String key, String value) {
+        EntityMapping mapping = new EntityMapping();
+        mapping.setId(id);
+        mapping.setKey(key);
+        mapping.setValue(value);
+        return mapping;
+    }
+
+    private static List<ImportedMappingRow> readAll(MappingsImportFormat format, String data) throws IOException {
+        List<ImportedMappingRow> rows = new ArrayList<>();
+        try (ImportedMappingsReader reader =
+                     format.openReader(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)))) {
+            ImportedMappingRow row;
+            while ((row = reader.read()) != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static void assertRow(ImportedMappingRow row, long rowNumber, String key, String value) {
+        assertNull(row.getError());
+        assertEquals(rowNumber, row.getRowNumber());
+        assertEquals(key, row.getKey());
+        assertEquals(value, row.getValue());
+    }
+
+}
@@ -0,0 +1,373 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsImportDataTooLargeException;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsImportJob;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsImportJobManager;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsImportMonitor;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsImportReport;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsImporter;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.format.ImportedMappingsReader;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.format.MappingsImportFormat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MappingsImportJobManagerTest {
+
+    /** Количество завершенных заданий, сведения о которых хранит менеджер */
+    private static final int MAX_FINISHED_JOBS = 20;
+    private static final long NO_EXPIRATION = TimeUnit.DAYS.toMillis(1);
+
+    private Path dataDirectory;
+    private ControlledImporter importer;
+    private final List<MappingsImportJobManager> managers = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        dataDirectory = Files.createTempDirectory("entity-mapper-import-test");
+        importer = new ControlledImporter(dataDirectory);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        importer.release();
+        managers.forEach(MappingsImportJobManager::destroy);
+        for (Path dataFile : dataFiles()) {
+            Files.delete(dataFile);
+        }
+        Files.delete(dataDirectory);
+    }
+
+    /**
+     * Данные, размер которых превышает допустимый, должны отклоняться без создания задания и без остающихся файлов.
+     */
+    @Test
+    public void testDataSizeCap() throws IOException, InterruptedException {
+        MappingsImportJobManager manager = manager(10, 10, NO_EXPIRATION);
+
+        try {
+            manager.submit("admin", MappingsImportFormat.NDJSON, data(11));
+            fail("Data exceeding the size cap must be rejected");
+        } catch (MappingsImportDataTooLargeException e) {
+            // ожидаемое поведение
+        }
+        assertTrue(manager.getJobs().isEmpty());
+        assertTrue(dataFiles().isEmpty());
+
+        MappingsImportJob job = manager.submit("admin", MappingsImportFormat.NDJSON, data(10));
+        awaitState(job, MappingsImportJob.State.COMPLETED);
+    }
+
+    /**
+     * При заполненной очереди задание должно отклоняться до чтения данных.
+     */
+    @Test
+    public void testFullQueueRejectsBeforeReadingData() throws IOException, InterruptedException {
+        MappingsImportJobManager manager = manager(1, 10, NO_EXPIRATION);
+
+        importer.block();
+        MappingsImportJob runningJob = manager.submit("admin", MappingsImportFormat.NDJSON, data(1));
+        importer.awaitStarted();
+        MappingsImportJob queuedJob = manager.submit("admin", MappingsImportFormat.NDJSON, data(1));
+
+        InputStream unreadableData = new InputStream() {
+            @Override
+            public int read() {
+                throw new AssertionError("Data must not be read when the queue is full");
+            }
+        };
+        try {
+            manager.submit("admin", MappingsImportFormat.NDJSON, unreadableData);
+            fail("Job must be rejected when the queue is full");
+        } catch (RejectedExecutionException e) {
+            // ожидаемое поведение
+        }
+        assertEquals(2, manager.getJobs().size());
+        assertEquals(2, dataFiles().size());
+
+        importer.release();
+        awaitState(runningJob, MappingsImportJob.State.COMPLETED);
+        awaitState(queuedJob, MappingsImportJob.State.COMPLETED);
+        assertTrue(dataFiles().isEmpty());
+    }
+
+    /**
+     * Продолжение задания, отклоненное из-за заполненной очереди, должно оставлять задание в прежнем состоянии, а
+     * последующее продолжение - выполнять его и удалять файл данных.
+     */
+    @Test
+    public void testResumeRestoresStateWhenQueueIsFull() throws IOException, InterruptedException {
+        MappingsImportJobManager manager = manager(1, 10, NO_EXPIRATION);
+
+        importer.fail();
+        MappingsImportJob failedJob = manager.submit("admin", MappingsImportFormat.NDJSON, data(1));
+        awaitState(failedJob, MappingsImportJob.State.FAILED);
+        assertEquals(ControlledImporter.FAILURE_MESSAGE, failedJob.getFailureMessage());
+
+        importer.block();
+        manager.submit("admin", MappingsImportFormat.NDJSON, data(1));
+        importer.awaitStarted();
+        manager.submit("admin", MappingsImportFormat.NDJSON, data(1));
+
+        try {
+            manager.resume(failedJob);
+            fail("Resume must be rejected when the queue is full");
+        } catch (RejectedExecutionException e) {
+            // ожидаемое поведение
+        }
+        assertEquals(MappingsImportJob.State.FAILED, failedJob.getState());
+        assertEquals(ControlledImporter.FAILURE_MESSAGE, failedJob.getFailureMessage());
+
+        importer.release();
+        awaitQueueDrained(manager);
+
+        assertTrue(manager.resume(failedJob));
+        awaitState(failedJob, MappingsImportJob.State.COMPLETED);
+        assertTrue(dataFiles().isEmpty());
+        assertFalse(manager.resume(failedJob));
+    }
+
+    /**
+     * Сверх {@link #MAX_FINISHED_JOBS} должны удаляться самые старые завершенные задания вместе с файлами данных.
+     */
+    @Test
+    public void testOldestFinishedJobsAreEvicted() throws IOException, InterruptedException {
+        MappingsImportJobManager manager = manager(10, 10, NO_EXPIRATION);
+
+        importer.fail();
+        List<MappingsImportJob> failedJobs = new ArrayList<>();
+        for (int i = 0; i < MAX_FINISHED_JOBS + 2; i++) {
+            MappingsImportJob job = manager.submit("admin", MappingsImportFormat.NDJSON, data(1));
+            awaitState(job, MappingsImportJob.State.FAILED);
+            failedJobs.add(job);
+        }
+
+        // задание может завершиться до вытеснения при его постановке в очередь, поэтому хранится не меньше
+        // MAX_FINISHED_JOBS последних заданий
+        List<MappingsImportJob> jobs = manager.getJobs();
+        assertTrue(jobs.size() <= MAX_FINISHED_JOBS + 1);
+        assertFalse(manager.getJob(failedJobs.get(0).getId()).isPresent());
+        for (MappingsImportJob job : failedJobs.subList(2, failedJobs.size())) {
+            assertTrue(manager.getJob(job.getId()).isPresent());
+        }
+        assertEquals(jobs.size(), dataFiles().size());
+    }
+
+    /**
+     * Просроченные задания, которые можно продолжить, должны удаляться вместе с файлами данных; также должны
+     * удаляться файлы, не принадлежащие ни одному заданию. Успешно завершенные задания должны сохраняться.
+     */
+    @Test
+    public void testExpiredJobsAndOrphanFilesAreRemoved() throws IOException, InterruptedException {
+        MappingsImportJobManager manager = manager(10, 10, 0);
+
+        importer.fail();
+        MappingsImportJob failedJob = manager.submit("admin", MappingsImportFormat.NDJSON, data(1));
+        awaitState(failedJob, MappingsImportJob.State.FAILED);
+        importer.complete();
+        MappingsImportJob completedJob = manager.submit("admin", MappingsImportFormat.NDJSON, data(1));
+        awaitState(completedJob, MappingsImportJob.State.COMPLETED);
+        Files.createFile(dataDirectory.resolve("entity-mapper-import-orphan.tmp"));
+        assertEquals(2, dataFiles().size());
+
+        manager.expireFinishedJobs();
+
+        assertFalse(manager.getJob(failedJob.getId()).isPresent());
+        assertTrue(manager.getJob(completedJob.getId()).isPresent());
+        assertTrue(dataFiles().isEmpty());
+    }
+
+    /**
+     * До истечения срока задания, которые можно продолжить, и их файлы данных должны сохраняться.
+     */
+    @Test
+    public void testNotExpiredJobsAreKept() throws IOException, InterruptedException {
+        MappingsImportJobManager manager = manager(10, 10, NO_EXPIRATION);
+
+        importer.fail();
+        MappingsImportJob failedJob = manager.submit("admin", MappingsImportFormat.NDJSON, data(1));
+        awaitState(failedJob, MappingsImportJob.State.FAILED);
+
+        manager.expireFinishedJobs();
+
+        assertTrue(manager.getJob(failedJob.getId()).isPresent());
+        assertEquals(1, dataFiles().size());
+    }
+
+    /**
+     * Файлы данных должны удаляться только после остановки потока импорта.
+     */
+    @Test
+    public void testDestroyDeletesDataFilesAfterImportThreadStops() throws IOException, InterruptedException {
+        MappingsImportJobManager manager = manager(10, 10, NO_EXPIRATION);
+
+        importer.block();
+        manager.submit("admin", MappingsImportFormat.NDJSON, data(1));
+        importer.awaitStarted();
+        manager.submit("admin", MappingsImportFormat.NDJSON, data(1));
+
+        manager.destroy();
+
+        assertEquals(2, importer.getDataFilesCountOnInterrupt());
+        assertTrue(dataFiles().isEmpty());
+    }
+
+    private MappingsImportJobManager manager(int maxQueuedJobs, long maxDataSizeBytes, long dataFileTtlMillis) {
+        MappingsImportJobManager manager = new MappingsImportJobManager(
+                importer, dataDirectory, maxQueuedJobs, maxDataSizeBytes, dataFileTtlMillis);
+        managers.add(manager);
+        return manager;
+    }
+
+    private static InputStream data(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = '\n';
+        }
+        return new ByteArrayInputStream(data);
+    }
+
+    private List<Path> dataFiles() throws IOException {
+        try (Stream<Path> dataFiles = Files.list(dataDirectory)) {
+            return dataFiles.collect(Collectors.toList());
+        }
+    }
+
+    private static void awaitState(MappingsImportJob job, MappingsImportJob.State state) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (job.getState() != state) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Job " + job.getId() + " is " + job.getState() + ", expected " + state);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static void awaitQueueDrained(MappingsImportJobManager manager) throws InterruptedException {
+        for (MappingsImportJob job : manager.getJobs()) {
+            if (!job.getState().isFinished()) {
+                awaitState(job, MappingsImportJob.State.COMPLETED);
+            }
+        }
+    }
+
+    /**
+     * Импорт, поведение которого задается тестом: успешное завершение, ошибка или ожидание разрешения на завершение.
+     */
+    private static class ControlledImporter extends MappingsImporter {
+
+        static final String FAILURE_MESSAGE = "Import failed";
+
+        private enum Behavior { COMPLETE, FAIL, BLOCK }
+
+        private final Path dataDirectory;
+        private final Semaphore started = new Semaphore(0);
+        private volatile Behavior behavior = Behavior.COMPLETE;
+        private volatile CountDownLatch released = new CountDownLatch(0);
+        private volatile long dataFilesCountOnInterrupt = -1;
+
+        ControlledImporter(Path dataDirectory) {
+            super(null, null, null);
+            this.dataDirectory = dataDirectory;
+        }
+
+        void complete() {
+            behavior = Behavior.COMPLETE;
+        }
+
+        void fail() {
+            behavior = Behavior.FAIL;
+        }
+
+        void block() {
+            released = new CountDownLatch(1);
+            behavior = Behavior.BLOCK;
+        }
+
+        void release() {
+            released.countDown();
+        }
+
+        void awaitStarted() throws InterruptedException {
+            assertTrue(started.tryAcquire(5, TimeUnit.SECONDS));
+        }
+
+        long getDataFilesCountOnInterrupt() {
+            return dataFilesCountOnInterrupt;
+        }
+
+        @Override
+        public boolean importMappings(String userKey,
+                                      ImportedMappingsReader importedMappings,
+                                      MappingsImportReport importReport,
+                                      MappingsImportMonitor importMonitor) {
+            switch (behavior) {
+                case FAIL:
+                    throw new IllegalStateException(FAILURE_MESSAGE);
+                case BLOCK:
+                    started.release();
+                    try {
+                        released.await();
+                    } catch (InterruptedException e) {
+                        // имитирует чтение данных, продолжающееся после прерывания потока
+                        recordDataFilesCountAfterDelay();
+                        return false;
+                    }
+                    return true;
+                case COMPLETE:
+                default:
+                    return true;
+            }
+        }
+
+        private void recordDataFilesCountAfterDelay() {
+            try {
+                Thread.sleep(100);
+                try (Stream<Path> dataFiles = Files.list(dataDirectory)) {
+                    dataFilesCountOnInterrupt = dataFiles.count();
+                }
+            } catch (InterruptedException | IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+    }
+
+}
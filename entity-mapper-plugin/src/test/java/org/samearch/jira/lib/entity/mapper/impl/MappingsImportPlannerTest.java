@@ -0,0 +1,118 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingException;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.EntityMappingManager;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingLinksResolver;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsChangeDispatcher;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsImportPlan;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsImportPlanner;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.format.ImportedMappingsReader;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.format.MappingsImportFormat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+
+public class MappingsImportPlannerTest {
+
+    private static final String IMPORTED_DATA = ""
+            + "{\"key\": \"org.CEO\", \"value\": \"ivan.ivanov\"}\n"
+            + "{\"key\": \"org.CTO\", \"value\": \"sidor.sidorov\"}\n"
+            + "{\"key\": \"project.AD.duty\", \"value\": \"${org.CFO}\"}\n"
+            + "{\"key\": \"chain.A\", \"value\": \"${chain.B}\"}\n"
+            + "{\"key\": \"chain.B\", \"value\": \"${chain.A}\"}\n"
+            + "{\"key\": \"\", \"value\": \"empty.key\"}\n"
+            + "not a json\n";
+
+    private EntityMappingManager entityMappingManager;
+    private MappingsChangeDispatcher changeDispatcher;
+    private MappingsImportPlanner importPlanner;
+
+    @Before
+    public void setUp() throws EntityMappingException {
+        InMemoryEntityMappingStorage entityMappingStorage = new InMemoryEntityMappingStorage();
+        MappingLinksResolver linksResolver = new MappingLinksResolver(entityMappingStorage);
+        changeDispatcher = new MappingsChangeDispatcher();
+        entityMappingManager = new EntityMappingManager(entityMappingStorage, linksResolver, changeDispatcher);
+        importPlanner = new MappingsImportPlanner(entityMappingManager, linksResolver);
+
+        entityMappingManager.addMapping("org.CEO", "ivan.ivanov");
+        entityMappingManager.addMapping("org.CTO", "petr.petrov");
+        entityMappingManager.addMapping("org.CFO", "anna.petrova");
+        entityMappingManager.addMapping("project.XX.duty", "${org.CTO}");
+    }
+
+    @After
+    public void tearDown() {
+        changeDispatcher.destroy();
+    }
+
+    @Test
+    public void testPlan() throws IOException {
+        long snapshotVersion = entityMappingManager.getSnapshot().getVersion();
+
+        MappingsImportPlan importPlan = plan(false);
+
+        assertEquals(3, importPlan.getCreatedCount());
+        assertEquals(1, importPlan.getUpdatedCount());
+        assertEquals("petr.petrov", importPlan.getUpdates().get(0).getCurrentValue());
+        assertEquals("sidor.sidorov", importPlan.getUpdates().get(0).getNewValue());
+        assertEquals(1, importPlan.getUnchangedCount());
+        assertEquals(0, importPlan.getDeletedCount());
+        assertEquals(2, importPlan.getFailedCount());
+        assertEquals(0, importPlan.getDanglingLinksCount());
+        assertEquals(1, importPlan.getClosedChainsCount());
+        assertEquals(new HashSet<>(Arrays.asList("chain.A", "chain.B")),
+                new HashSet<>(importPlan.getClosedChains().get(0)));
+
+        assertEquals(snapshotVersion, entityMappingManager.getSnapshot().getVersion());
+    }
+
+    /**
+     * При синхронизации записи, отсутствующие в импортируемых данных, удаляются, а ссылки на них становятся
+     * ссылками на отсутствующие ключи.
+     */
+    @Test
+    public void testSyncPlan() throws IOException {
+        MappingsImportPlan importPlan = plan(true);
+
+        assertEquals(2, importPlan.getDeletedCount());
+        assertEquals(new HashSet<>(Arrays.asList("org.CFO", "project.XX.duty")), new HashSet<>(Arrays.asList(
+                importPlan.getDeletes().get(0).getKey(), importPlan.getDeletes().get(1).getKey())));
+        assertEquals(1, importPlan.getDanglingLinksCount());
+        assertEquals("project.AD.duty", importPlan.getDanglingLinks().get(0).getKey());
+        assertEquals("org.CFO", importPlan.getDanglingLinks().get(0).getNewValue());
+    }
+
+    private MappingsImportPlan plan(boolean sync) throws IOException {
+        try (ImportedMappingsReader importedMappings = MappingsImportFormat.NDJSON.openReader(
+                new ByteArrayInputStream(IMPORTED_DATA.getBytes(StandardCharsets.UTF_8)))) {
+            return importPlanner.plan(importedMappings, sync);
+        }
+    }
+
+}
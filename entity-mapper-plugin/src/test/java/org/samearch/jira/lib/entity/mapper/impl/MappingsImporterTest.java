@@ -0,0 +1,209 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.samearch.jira.lib.entity.mapper.api.AuditEventRecord;
+import org.samearch.jira.lib.entity.mapper.api.AuditJournal;
+import org.samearch.jira.lib.entity.mapper.api.AuditJournalFilter;
+import org.samearch.jira.lib.entity.mapper.api.exception.EntityMappingConflictException;
+import org.samearch.jira.lib.entity.mapper.impl.audit.util.AuditRecordBuilder;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.AfterCommitActions;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.EntityMappingManager;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingLinksResolver;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsChangeDispatcher;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsImportMonitor;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsImportReport;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.MappingsImporter;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.format.ImportedMappingsReader;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.format.MappingsImportFormat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MappingsImporterTest {
+
+    private static final int ROWS_COUNT = 1200;
+    private static final int BLANK_VALUE_ROW = 700;
+
+    private InMemoryEntityMappingStorage entityMappingStorage;
+    private EntityMappingManager entityMappingManager;
+    private MappingsChangeDispatcher changeDispatcher;
+    private MappingsImporter mappingsImporter;
+    private final RecordingAuditJournal auditJournal = new RecordingAuditJournal();
+    private final List<AuditEventRecord> auditRecords = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        entityMappingStorage = new InMemoryEntityMappingStorage();
+        changeDispatcher = new MappingsChangeDispatcher();
+        entityMappingManager = new EntityMappingManager(
+                entityMappingStorage, new MappingLinksResolver(entityMappingStorage), changeDispatcher);
+        mappingsImporter = new MappingsImporter(entityMappingManager, auditJournal, new AuditRecordBuilder());
+    }
+
+    @After
+    public void tearDown() {
+        changeDispatcher.destroy();
+    }
+
+    /**
+     * Отмененный импорт должен сохранять записанные пакеты и продолжаться с первой записи после последнего
+     * записанного пакета, не учитывая повторно записи, прочитанные после него.
+     */
+    @Test
+    public void testCancelAndResume() throws IOException {
+        MappingsImportReport importReport = new MappingsImportReport();
+
+        CancellingMonitor cancellingMonitor = new CancellingMonitor();
+        boolean completed;
+        try (ImportedMappingsReader importedMappings = openImportedData()) {
+            completed = mappingsImporter.importMappings("admin", importedMappings, importReport, cancellingMonitor);
+        }
+
+        assertFalse(completed);
+        assertEquals(1, cancellingMonitor.committedChunksCount);
+        assertEquals(500, importReport.getLastCommittedRowNumber());
+        assertEquals(500, importReport.getProcessedCount());
+        assertEquals(500, importReport.getCreatedCount());
+        assertEquals(0, importReport.getFailedCount());
+        assertEquals(500, entityMappingManager.getSnapshot().size());
+        assertEquals(500, auditRecords.size());
+
+        try (ImportedMappingsReader importedMappings = openImportedData()) {
+            completed = mappingsImporter.importMappings(
+                    "admin", importedMappings, importReport, MappingsImportMonitor.NONE);
+        }
+
+        assertTrue(completed);
+        assertEquals(ROWS_COUNT, importReport.getLastCommittedRowNumber());
+        assertEquals(ROWS_COUNT, importReport.getProcessedCount());
+        assertEquals(ROWS_COUNT - 1, importReport.getCreatedCount());
+        assertEquals(0, importReport.getUnchangedCount());
+        assertEquals(1, importReport.getFailedCount());
+        assertEquals(Long.valueOf(BLANK_VALUE_ROW), importReport.getErrors().get(0).getRowNumber());
+        assertEquals(ROWS_COUNT - 1, entityMappingManager.getSnapshot().size());
+        assertEquals(ROWS_COUNT - 1, auditRecords.size());
+        assertEquals(Optional.of("value.1"), entityMappingManager.getMappedValue("key.1"));
+    }
+
+    /**
+     * Записи аудита, отложенные до фиксации транзакции (как при асинхронной записи аудита), должны передаваться в
+     * журнал после записи пакета, а для пакета, запись которого отменена из-за конфликта, - отбрасываться.
+     */
+    @Test
+    public void testDeferredAuditRecordsAreWrittenAfterCommit() throws IOException, EntityMappingConflictException {
+        auditJournal.deferWrites();
+        entityMappingManager.getSnapshot();
+        entityMappingStorage.createEntityMapping("key.1", "value.0");
+
+        MappingsImportReport importReport = new MappingsImportReport();
+        try (ImportedMappingsReader importedMappings = openImportedData()) {
+            mappingsImporter.importMappings("admin", importedMappings, importReport, MappingsImportMonitor.NONE);
+        }
+
+        assertEquals(500, importReport.getConflictCount());
+        assertEquals(ROWS_COUNT - 500 - 1, auditRecords.size());
+        assertFalse(auditJournal.writtenBeforeCommit);
+    }
+
+    private ImportedMappingsReader openImportedData() throws IOException {
+        StringBuilder importedData = new StringBuilder();
+        for (int row = 1; row <= ROWS_COUNT; row++) {
+            String value = (row == BLANK_VALUE_ROW) ? "" : "value." + row;
+            importedData.append("{\"key\": \"key.").append(row).append("\", \"value\": \"").append(value).append("\"}\n");
+        }
+        return MappingsImportFormat.NDJSON.openReader(
+                new ByteArrayInputStream(importedData.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Отменяет импорт после записи первого пакета.
+     */
+    private static class CancellingMonitor implements MappingsImportMonitor {
+
+        private int committedChunksCount = 0;
+
+        @Override
+        public boolean isCancelled() {
+            return committedChunksCount > 0;
+        }
+
+        @Override
+        public void chunkCommitted(MappingsImportReport importReport) {
+            committedChunksCount++;
+        }
+
+    }
+
+    private class RecordingAuditJournal implements AuditJournal {
+
+        private boolean deferred = false;
+        private boolean writtenBeforeCommit = false;
+
+        /**
+         * Откладывает запись до фиксации транзакции, как {@code DefaultAuditJournal} при асинхронной записи аудита.
+         */
+        void deferWrites() {
+            deferred = true;
+        }
+
+        @Override
+        public List<AuditEventRecord> getEvents(AuditJournalFilter eventsFilter) {
+            return new ArrayList<>(auditRecords);
+        }
+
+        @Override
+        public AuditEventRecord createAuditEventRecord(AuditEventRecord eventRecord) {
+            auditRecords.add(eventRecord);
+            return eventRecord;
+        }
+
+        @Override
+        public List<AuditEventRecord> createAuditEventRecords(List<AuditEventRecord> eventRecords) {
+            if (deferred) {
+                AfterCommitActions.runAfterCommit(() -> record(eventRecords));
+            } else {
+                auditRecords.addAll(eventRecords);
+            }
+            return eventRecords;
+        }
+
+        private void record(List<AuditEventRecord> eventRecords) {
+            for (AuditEventRecord eventRecord : eventRecords) {
+                // созданная запись появляется в снимке только после фиксации транзакции
+                if (!entityMappingManager.getMapping(eventRecord.getMappingId()).isPresent()) {
+                    writtenBeforeCommit = true;
+                }
+                auditRecords.add(eventRecord);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl;
+
+import org.junit.Test;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.PersistentHashMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PersistentHashMapTest {
+
+    @Test
+    public void testPreviousVersionsAreNotChanged() {
+        PersistentHashMap<String, String> empty = PersistentHashMap.empty();
+        PersistentHashMap<String, String> first = empty.put("a", "1");
+        PersistentHashMap<String, String> second = first.put("b", "2").put("a", "3");
+        PersistentHashMap<String, String> third = second.remove("a");
+
+        assertTrue(empty.isEmpty());
+        assertEquals("1", first.get("a"));
+        assertNull(first.get("b"));
+        assertEquals("3", second.get("a"));
+        assertEquals(2, second.size());
+        assertNull(third.get("a"));
+        assertEquals("2", third.get("b"));
+        assertEquals(1, third.size());
+
+        String sameValue = second.get("b");
+        assertSame(second, second.put("b", sameValue));
+        assertSame(second, second.remove("missing"));
+    }
+
+    /**
+     * Случайная последовательность изменений должна давать то же содержимое, что и {@link HashMap}, в том числе для
+     * ключей с одинаковыми хешами.
+     */
+    @Test
+    public void testRandomOperationsMatchHashMap() {
+        Random random = new Random(42);
+        Map<CollidingKey, Integer> expected = new HashMap<>();
+        PersistentHashMap<CollidingKey, Integer> actual = PersistentHashMap.empty();
+        List<PersistentHashMap<CollidingKey, Integer>> versions = new ArrayList<>();
+        List<Map<CollidingKey, Integer>> expectedVersions = new ArrayList<>();
+
+        for (int i = 0; i < 20000; i++) {
+            CollidingKey key = new CollidingKey(random.nextInt(3000), random.nextInt(4));
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                actual = actual.remove(key);
+            } else {
+                int value = random.nextInt();
+                expected.put(key, value);
+                actual = actual.put(key, value);
+            }
+            if (i % 2000 == 0) {
+                versions.add(actual);
+                expectedVersions.add(new HashMap<>(expected));
+            }
+        }
+        versions.add(actual);
+        expectedVersions.add(expected);
+
+        for (int i = 0; i < versions.size(); i++) {
+            assertContent(expectedVersions.get(i), versions.get(i));
+        }
+        for (Map.Entry<CollidingKey, Integer> entry : expected.entrySet()) {
+            actual = actual.remove(entry.getKey());
+        }
+        assertTrue(actual.isEmpty());
+    }
+
+    private static void assertContent(Map<CollidingKey, Integer> expected, PersistentHashMap<CollidingKey, Integer> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (Map.Entry<CollidingKey, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), actual.get(entry.getKey()));
+        }
+        List<Integer> expectedValues = new ArrayList<>(expected.values());
+        List<Integer> actualValues = new ArrayList<>(actual.values());
+        expectedValues.sort(Integer::compare);
+        actualValues.sort(Integer::compare);
+        assertEquals(expectedValues, actualValues);
+    }
+
+    /**
+     * Ключ, хеш которого совпадает у нескольких разных ключей.
+     */
+    private static final class CollidingKey {
+
+        private final int hash;
+        private final int discriminator;
+
+        CollidingKey(int hash, int discriminator) {
+            this.hash = hash;
+            this.discriminator = discriminator;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CollidingKey)) return false;
+            CollidingKey that = (CollidingKey) o;
+            return hash == that.hash && discriminator == that.discriminator;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash * 0x9E3779B1;
+        }
+
+    }
+
+}
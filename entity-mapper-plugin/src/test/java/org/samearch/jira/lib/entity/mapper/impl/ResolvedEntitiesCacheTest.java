@@ -0,0 +1,97 @@
+/*
+ * This file is part of Entity Mapper Plugin.
+ *
+ * Entity Mapper Plugin is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * Entity Mapper Plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Entity Mapper Plugin.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2022 samearch.org
+ */
+
+package org.samearch.jira.lib.entity.mapper.impl;
+
+import org.junit.Test;
+import org.samearch.jira.lib.entity.mapper.impl.mapping.ResolvedEntitiesCache;
+
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ResolvedEntitiesCacheTest {
+
+    @Test
+    public void testMissIsEmptyOptional() {
+        ResolvedEntitiesCache<String> cache = new ResolvedEntitiesCache<>();
+
+        assertEquals(Optional.empty(), cache.get("project.AD.id", 1));
+
+        cache.put("project.AD.id", 1, cache.getGeneration(), "AD");
+        assertEquals(Optional.of("AD"), cache.get("project.AD.id", 1));
+    }
+
+    /**
+     * Запись, найденная для другой версии маппингов ключа, не возвращается, а запись для более старой версии не
+     * заменяет запись для более новой.
+     */
+    @Test
+    public void testEntryForOtherMappingsVersionIsStale() {
+        ResolvedEntitiesCache<String> cache = new ResolvedEntitiesCache<>();
+
+        cache.put("project.AD.id", 1, cache.getGeneration(), "AD");
+        assertEquals(Optional.empty(), cache.get("project.AD.id", 2));
+
+        cache.put("project.AD.id", 2, cache.getGeneration(), "AD2");
+        cache.put("project.AD.id", 1, cache.getGeneration(), "AD");
+        assertEquals(Optional.of("AD2"), cache.get("project.AD.id", 2));
+        assertEquals(Optional.empty(), cache.get("project.AD.id", 1));
+    }
+
+    /**
+     * Объект, поиск которого начался до очистки кеша, в кеш не попадает и не удаляет запись, добавленную после
+     * очистки.
+     */
+    @Test
+    public void testClearDuringLookup() {
+        ResolvedEntitiesCache<String> cache = new ResolvedEntitiesCache<>();
+
+        long staleGeneration = cache.getGeneration();
+        cache.clear();
+        cache.put("project.AD.id", 1, staleGeneration, "AD");
+        assertEquals(Optional.empty(), cache.get("project.AD.id", 1));
+
+        cache.put("project.AD.id", 1, cache.getGeneration(), "AD-new");
+        cache.put("project.AD.id", 1, staleGeneration, "AD");
+        assertEquals(Optional.of("AD-new"), cache.get("project.AD.id", 1));
+    }
+
+    /**
+     * Очистка и инвалидация затрагивают только свой кеш и только указанные ключи.
+     */
+    @Test
+    public void testInvalidationIsPerEntityType() {
+        ResolvedEntitiesCache<String> projectsCache = new ResolvedEntitiesCache<>();
+        ResolvedEntitiesCache<String> statusesCache = new ResolvedEntitiesCache<>();
+
+        projectsCache.put("project.AD.id", 1, projectsCache.getGeneration(), "AD");
+        projectsCache.put("project.HR.id", 1, projectsCache.getGeneration(), "HR");
+        statusesCache.put("status.done.id", 1, statusesCache.getGeneration(), "Done");
+
+        projectsCache.invalidate(Collections.singleton("project.AD.id"));
+        assertEquals(Optional.empty(), projectsCache.get("project.AD.id", 1));
+        assertEquals(Optional.of("HR"), projectsCache.get("project.HR.id", 1));
+
+        projectsCache.clear();
+        assertFalse(projectsCache.get("project.HR.id", 1).isPresent());
+        assertEquals(Optional.of("Done"), statusesCache.get("status.done.id", 1));
+    }
+
+}
@@ -82,8 +82,7 @@ public class AssignToDuty extends AbstractJiraFunctionProvider {
             entityMapper.getMappedValue(projectDutyKey)
                     .ifPresent(dutyLogin -> setIssueAssignee(issue, dutyLogin));
         } catch (ClosedChainEntityMappingException ignore) {
-            // Исключение игнорируется, т.к. будем аккуратно пользоваться ссылками в маппингах и не будем
-            // создавать циклических ссылок
+            // Исключение игнорируется: маппинги, замыкающие цепочку ссылок, отклоняются плагином при записи
         }
     }
 